@@ -179,4 +179,34 @@ graph.location=${GRAPH_DIR}measurement-big-outdoor-gh \
 prepare.min_network_size=10000 \
 measurement.json=true \
 measurement.count=5000 \
-measurement.use_measurement_time_as_ref_time=${USE_MEASUREMENT_TIME_AS_REF_TIME}
\ No newline at end of file
+measurement.use_measurement_time_as_ref_time=${USE_MEASUREMENT_TIME_AS_REF_TIME}
+
+echo "6 - big map sorted along a Hilbert curve: landmarks (node-based) + slow routing, compare with 2"
+java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar \
+-XX:+UseParallelGC -Xmx20g -Xms20g \
+com.graphhopper.tools.Measurement \
+datareader.file=${BIG_OSM_MAP} \
+datareader.date_range_parser_day=2019-11-01 \
+measurement.name=big_map_hilbert \
+measurement.folder=${RESULTS_DIR} \
+measurement.clean=true \
+measurement.stop_on_error=true \
+measurement.summaryfile=${SUMMARY_DIR}summary_big_hilbert.dat \
+measurement.repeats=1 \
+measurement.run_slow_routing=true \
+measurement.weighting=fastest \
+measurement.ch.node=false \
+measurement.ch.edge=false \
+measurement.lm=true \
+"measurement.lm.active_counts=[8]" \
+measurement.lm.edge_based=false \
+measurement.vehicle=car \
+import.osm.ignored_highways=footway,cycleway,path,pedestrian,bridleway \
+measurement.turn_costs=false \
+graph.do_sort=true \
+graph.sort_order=hilbert \
+graph.location=${GRAPH_DIR}measurement-big-hilbert-gh \
+prepare.min_network_size=10000 \
+measurement.json=true \
+measurement.count=5000 \
+measurement.use_measurement_time_as_ref_time=${USE_MEASUREMENT_TIME_AS_REF_TIME}
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the raw edge iteration and attribute access of {@link BaseGraph}, which every routing algorithm and
+ * the graph preparations depend on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BaseGraphBenchmark {
+    private BaseGraph graph;
+    private EdgeExplorer explorer;
+    private DecimalEncodedValue speedEnc;
+
+    @Setup
+    public void setup() {
+        graph = BenchmarkGraph.get().getBaseGraph();
+        explorer = graph.createEdgeExplorer();
+        speedEnc = BenchmarkGraph.get().getEncodingManager().getDecimalEncodedValue(VehicleSpeed.key("car"));
+    }
+
+    @Benchmark
+    public double iterateAdjacentEdges() {
+        double sum = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+                sum += iter.getDistance() + iter.get(speedEnc) + iter.getAdjNode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double iterateAllEdges() {
+        double sum = 0;
+        EdgeIterator iter = graph.getAllEdges();
+        while (iter.next())
+            sum += iter.getDistance() + iter.getReverse(speedEnc) + iter.getBaseNode();
+        return sum;
+    }
+
+    @Benchmark
+    public void fetchWayGeometry(Blackhole bh) {
+        EdgeIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            PointList pointList = iter.fetchWayGeometry(FetchMode.ALL);
+            bh.consume(pointList);
+        }
+    }
+}
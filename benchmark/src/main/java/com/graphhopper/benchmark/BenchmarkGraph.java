@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.util.Collections;
+
+/**
+ * Imports the small OSM extract all benchmarks run on. The graph is imported once per JVM (i.e. once per JMH fork)
+ * into a fresh folder, so results always reflect the storage format and import code of the current commit.
+ * <p>
+ * The OSM file and graph folder can be changed via the system properties gh.benchmark.osm and gh.benchmark.graph.
+ */
+public class BenchmarkGraph {
+    public static final String PROFILE = "car";
+    private static final String DEFAULT_OSM = "core/files/andorra.osm.pbf";
+    private static GraphHopper hopper;
+
+    public static synchronized GraphHopper get() {
+        if (hopper == null)
+            hopper = importGraph();
+        return hopper;
+    }
+
+    private static GraphHopper importGraph() {
+        String osmFile = System.getProperty("gh.benchmark.osm", findDefaultOSMFile());
+        String location = System.getProperty("gh.benchmark.graph",
+                new File(System.getProperty("java.io.tmpdir"), "graphhopper-benchmark-gh").getPath());
+        Helper.removeDir(new File(location));
+        GraphHopperConfig config = new GraphHopperConfig()
+                .putObject("datareader.file", osmFile)
+                .putObject("graph.location", location)
+                .putObject("import.osm.ignored_highways", "")
+                .putObject("graph.vehicles", "car")
+                .setProfiles(Collections.singletonList(new CustomProfile(PROFILE).setCustomModel(new CustomModel()).setVehicle("car")))
+                .setCHProfiles(Collections.singletonList(new CHProfile(PROFILE)));
+        GraphHopper hopper = new GraphHopper().init(config);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        return hopper;
+    }
+
+    private static String findDefaultOSMFile() {
+        // allow running the benchmarks jar from the root folder as well as from the benchmark module folder
+        for (String candidate : new String[]{DEFAULT_OSM, "../" + DEFAULT_OSM})
+            if (new File(candidate).exists())
+                return candidate;
+        throw new IllegalStateException("Could not find " + DEFAULT_OSM + ", specify the OSM file via -Dgh.benchmark.osm=<file>");
+    }
+}
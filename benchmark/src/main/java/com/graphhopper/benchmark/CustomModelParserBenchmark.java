@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.routing.weighting.custom.CustomWeighting;
+import com.graphhopper.util.CustomModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.json.Statement.*;
+import static com.graphhopper.json.Statement.Op.LIMIT;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+
+/**
+ * Measures {@link CustomModelParser#createWeighting} for a custom model that is already cached (the common case for
+ * repeated requests) and for a new custom model on every call, which includes the Janino compilation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomModelParserBenchmark {
+    private EncodingManager em;
+    private BooleanEncodedValue accessEnc;
+    private DecimalEncodedValue speedEnc;
+    private CustomModel cachedModel;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        em = BenchmarkGraph.get().getEncodingManager();
+        accessEnc = em.getBooleanEncodedValue(VehicleAccess.key("car"));
+        speedEnc = em.getDecimalEncodedValue(VehicleSpeed.key("car"));
+        cachedModel = createModel("0.5");
+    }
+
+    @Benchmark
+    public CustomWeighting createWeightingCached() {
+        return CustomModelParser.createWeighting(accessEnc, speedEnc, null, em, TurnCostProvider.NO_TURN_COST_PROVIDER, cachedModel);
+    }
+
+    @Benchmark
+    public CustomWeighting createWeightingUncached() {
+        // a different priority factor results in a different cache key and forces a compilation
+        CustomModel model = createModel("0." + (100_000 + (counter++ % 900_000)));
+        return CustomModelParser.createWeighting(accessEnc, speedEnc, null, em, TurnCostProvider.NO_TURN_COST_PROVIDER, model);
+    }
+
+    private static CustomModel createModel(String primaryFactor) {
+        return new CustomModel()
+                .addToPriority(If("road_class == PRIMARY", MULTIPLY, primaryFactor))
+                .addToPriority(ElseIf("road_environment == TUNNEL", MULTIPLY, "0.8"))
+                .addToSpeed(If("road_class == MOTORWAY", LIMIT, "100"))
+                .addToSpeed(Else(LIMIT, "80"))
+                .setDistanceInfluence(70d);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link LocationIndexTree#findClosest} for query points scattered around the nodes of the graph, once
+ * without filtering and once with the snap filter that is used for routing requests. The batch benchmark snaps all
+ * query points with one call, so its time has to be divided by the number of points to compare it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationIndexBenchmark {
+    private static final int POINTS = 10_000;
+    private LocationIndexTree locationIndex;
+    private EdgeFilter snapFilter;
+    private double[] lats;
+    private double[] lons;
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        locationIndex = (LocationIndexTree) hopper.getLocationIndex();
+        snapFilter = new DefaultSnapFilter(hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap()),
+                hopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(BenchmarkGraph.PROFILE)));
+        BaseGraph graph = hopper.getBaseGraph();
+        NodeAccess na = graph.getNodeAccess();
+        Random rnd = new Random(123);
+        lats = new double[POINTS];
+        lons = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            // roughly +-100m around a random node
+            int node = rnd.nextInt(graph.getNodes());
+            lats[i] = na.getLat(node) + (rnd.nextDouble() - 0.5) * 0.002;
+            lons[i] = na.getLon(node) + (rnd.nextDouble() - 0.5) * 0.002;
+        }
+    }
+
+    @Benchmark
+    public void findClosest(Blackhole bh) {
+        int i = nextIndex();
+        bh.consume(locationIndex.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES));
+    }
+
+    @Benchmark
+    public void findClosestWithSnapFilter(Blackhole bh) {
+        int i = nextIndex();
+        bh.consume(locationIndex.findClosest(lats[i], lons[i], snapFilter));
+    }
+
+    @Benchmark
+    public void findClosestBatch(Blackhole bh) {
+        bh.consume(locationIndex.findClosest(lats, lons, snapFilter));
+    }
+
+    private int nextIndex() {
+        index = (index + 1) % POINTS;
+        return index;
+    }
+}
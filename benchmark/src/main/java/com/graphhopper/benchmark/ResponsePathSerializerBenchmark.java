@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization of route responses (including points, instructions and path details) as it is
+ * done for the /route endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponsePathSerializerBenchmark {
+    private static final int RESPONSES = 100;
+
+    @Param({"true", "false"})
+    public boolean pointsEncoded;
+
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final List<GHResponse> responses = new ArrayList<>();
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        BaseGraph graph = hopper.getBaseGraph();
+        NodeAccess na = graph.getNodeAccess();
+        Random rnd = new Random(123);
+        while (responses.size() < RESPONSES) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            GHRequest request = new GHRequest(na.getLat(from), na.getLon(from), na.getLat(to), na.getLon(to))
+                    .setProfile(BenchmarkGraph.PROFILE)
+                    .setPathDetails(Arrays.asList("average_speed", "street_name", "edge_id"));
+            GHResponse response = hopper.route(request);
+            if (!response.hasErrors())
+                responses.add(response);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        index = (index + 1) % RESPONSES;
+        return objectMapper.writeValueAsBytes(ResponsePathSerializer.jsonObject(responses.get(index), true, true, false, pointsEncoded, 10));
+    }
+
+    @Benchmark
+    public byte[] serializeStreaming() throws IOException {
+        index = (index + 1) % RESPONSES;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            ResponsePathSerializer.writeJson(gen, responses.get(index), true, true, false, pointsEncoded, 10);
+        }
+        return out.toByteArray();
+    }
+}
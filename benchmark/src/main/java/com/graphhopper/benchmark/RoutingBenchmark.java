@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures point-to-point queries between random pairs of connected nodes for the bidirectional flexible
+ * algorithms and for CH. Routing directly between graph nodes excludes snapping and the query graph, which have
+ * their own benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    private static final int QUERIES = 1_000;
+
+    @Param({"dijkstrabi", "astarbi", "ch"})
+    public String algo;
+
+    private BaseGraph graph;
+    private RoutingCHGraph chGraph;
+    private Weighting weighting;
+    private int[] from;
+    private int[] to;
+    private int index;
+
+    @Setup
+    public void setup() {
+        GraphHopper hopper = BenchmarkGraph.get();
+        graph = hopper.getBaseGraph();
+        chGraph = hopper.getCHGraphs().get(BenchmarkGraph.PROFILE);
+        weighting = hopper.createWeighting(hopper.getProfile(BenchmarkGraph.PROFILE), new PMap());
+        from = new int[QUERIES];
+        to = new int[QUERIES];
+        Random rnd = new Random(123);
+        // only use connected pairs, otherwise the flexible algorithms explore a whole subnetwork
+        for (int i = 0; i < QUERIES; ) {
+            int s = rnd.nextInt(graph.getNodes());
+            int t = rnd.nextInt(graph.getNodes());
+            if (new DijkstraBidirectionCH(chGraph).calcPath(s, t).isFound()) {
+                from[i] = s;
+                to[i] = t;
+                i++;
+            }
+        }
+    }
+
+    @Benchmark
+    public double route() {
+        index = (index + 1) % QUERIES;
+        Path path = createAlgo().calcPath(from[index], to[index]);
+        if (!path.isFound())
+            throw new IllegalStateException("No path found for " + from[index] + " -> " + to[index] + ", algo: " + algo);
+        return path.getWeight();
+    }
+
+    private RoutingAlgorithm createAlgo() {
+        switch (algo) {
+            case "dijkstrabi":
+                return new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED);
+            case "astarbi":
+                return new AStarBidirection(graph, weighting, TraversalMode.NODE_BASED);
+            case "ch":
+                return new DijkstraBidirectionCH(chGraph);
+            default:
+                throw new IllegalArgumentException("Unknown algorithm: " + algo);
+        }
+    }
+}
@@ -22,8 +22,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.reader.dem.*;
+import com.graphhopper.reader.osm.EdgeOSMNodes;
 import com.graphhopper.reader.osm.OSMReader;
+import com.graphhopper.reader.osm.OSMReader.EdgeChange;
 import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.*;
@@ -46,6 +50,7 @@ import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
@@ -63,6 +68,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -95,6 +101,8 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = false;
+    private String sortOrder = "dfs";
+    private boolean compressedGeometry = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -102,10 +110,15 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    // the pool created for routing.leg_threads, it is shut down when closing
+    private ForkJoinPool legPool;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private boolean snapPrefilter = false;
+    private Map<String, SnappableEdges> snappableEdges = Collections.emptyMap();
+    private EdgeOSMNodes edgeOSMNodes;
     // subnetworks
     private int minNetworkSize = 200;
     private int subnetworksThreads = 1;
@@ -119,7 +132,7 @@ public class GraphHopper {
     // preparation handlers
     private final LMPreparationHandler lmPreparationHandler = new LMPreparationHandler();
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
-    private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
+    private volatile Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
 
     // for data reader
@@ -134,6 +147,7 @@ public class GraphHopper {
     private String dateRangeParserString = "";
     private String encodedValuesString = "";
     private String vehiclesString = "";
+    private final Map<String, LiveDecimalEncodedValue> liveEncodedValues = new LinkedHashMap<>();
 
     public GraphHopper setEncodedValuesString(String encodedValuesString) {
         this.encodedValuesString = encodedValuesString;
@@ -151,6 +165,27 @@ public class GraphHopper {
         return encodingManager;
     }
 
+    /**
+     * Adds an encoded value that is not stored in the graph, but whose values can be replaced at any time via
+     * {@link #getLiveEncodedValue(String)}, e.g. for live traffic speeds. It can be used in custom models like any
+     * other encoded value.
+     *
+     * @see LiveDecimalEncodedValue
+     */
+    public GraphHopper addLiveEncodedValue(String name, double maxValue) {
+        if (liveEncodedValues.containsKey(name))
+            throw new IllegalArgumentException("Live encoded value " + name + " was already added");
+        liveEncodedValues.put(name, new LiveDecimalEncodedValue(name, maxValue));
+        return this;
+    }
+
+    public LiveDecimalEncodedValue getLiveEncodedValue(String name) {
+        LiveDecimalEncodedValue ev = liveEncodedValues.get(name);
+        if (ev == null)
+            throw new IllegalArgumentException("Cannot find live encoded value " + name + " in: " + liveEncodedValues.keySet());
+        return ev;
+    }
+
     public OSMParsers getOSMParsers() {
         if (osmParsers == null)
             throw new IllegalStateException("OSMParsers not yet built");
@@ -190,6 +225,16 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Prepares one bit per edge and profile that tells if the edge can be snapped to, so that snapping can skip all
+     * other edges, e.g. the footways for a car profile, without loading them or evaluating the weighting.
+     */
+    public GraphHopper setSnapPrefilter(boolean snapPrefilter) {
+        ensureNotLoaded();
+        this.snapPrefilter = snapPrefilter;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -403,6 +448,29 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Stores the pillar nodes of new graphs as variable length deltas, which makes the geometry storage much smaller.
+     * Existing graphs are loaded in the format they were created with.
+     */
+    public GraphHopper setCompressedGeometry(boolean compressedGeometry) {
+        ensureNotLoaded();
+        this.compressedGeometry = compressedGeometry;
+        return this;
+    }
+
+    /**
+     * Sets the node order that is used when the graph is sorted: 'dfs' copies the graph and orders the nodes in depth
+     * first order, 'hilbert' renumbers the nodes in place along a Hilbert curve, which needs less memory, usually
+     * gives a better memory locality and also works with turn costs.
+     */
+    public GraphHopper setSortOrder(String sortOrder) {
+        ensureNotLoaded();
+        if (!sortOrder.equals("dfs") && !sortOrder.equals("hilbert"))
+            throw new IllegalArgumentException("Unknown sort order: " + sortOrder + ", use dfs or hilbert");
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -522,6 +590,8 @@ public class GraphHopper {
         }
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        setSortOrder(ghConfig.getString("graph.sort_order", sortOrder));
+        compressedGeometry = ghConfig.getBool("graph.compressed_geometry", compressedGeometry);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
 
         if (!ghConfig.getString("spatial_rules.location", "").isEmpty())
@@ -541,6 +611,8 @@ public class GraphHopper {
         vehiclesString = ghConfig.getString("graph.vehicles", ghConfig.getString("graph.flag_encoders", vehiclesString));
 
         encodedValuesString = ghConfig.getString("graph.encoded_values", encodedValuesString);
+        for (String liveEncodedValue : getEncodedValueStrings(ghConfig.getString("graph.live_encoded_values", "")))
+            addLiveEncodedValue(liveEncodedValue.split("\\|")[0].trim(), new PMap(liveEncodedValue).getDouble("max", 150));
         dateRangeParserString = ghConfig.getString("datareader.date_range_parser_day", dateRangeParserString);
 
         if (ghConfig.getString("graph.locktype", "native").equals("simple"))
@@ -587,10 +659,15 @@ public class GraphHopper {
         osmReaderConfig.setPreferredLanguage(ghConfig.getString("datareader.preferred_language", osmReaderConfig.getPreferredLanguage()));
         osmReaderConfig.setMaxWayPointDistance(ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, osmReaderConfig.getMaxWayPointDistance()));
         osmReaderConfig.setWorkerThreads(ghConfig.getInt("datareader.worker_threads", osmReaderConfig.getWorkerThreads()));
+        osmReaderConfig.setWayThreads(ghConfig.getInt("datareader.way_threads", osmReaderConfig.getWayThreads()));
+        osmReaderConfig.setDenseNodeIdMap(ghConfig.getBool("datareader.dense_node_id_map", osmReaderConfig.isDenseNodeIdMap()));
+        osmReaderConfig.setMemoryMappedPbf(ghConfig.getBool("datareader.memory_mapped_pbf", osmReaderConfig.isMemoryMappedPbf()));
+        osmReaderConfig.setStoreOSMNodes(ghConfig.getBool("datareader.store_osm_nodes", osmReaderConfig.isStoreOSMNodes()));
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        snapPrefilter = ghConfig.getBool("index.snap_prefilter", snapPrefilter);
 
         // urban density calculation
         residentialAreaRadius = ghConfig.getDouble("graph.urban_density.residential_radius", residentialAreaRadius);
@@ -602,9 +679,20 @@ public class GraphHopper {
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
         routerConfig.setTimeoutMillis(ghConfig.getLong(Routing.INIT_TIMEOUT_MS, routerConfig.getTimeoutMillis()));
+        routerConfig.setPooledSPT(ghConfig.getBool(Routing.INIT_POOLED_SPT, routerConfig.isPooledSPT()));
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setMaxMatrixSize(ghConfig.getLong(Routing.INIT_MATRIX_MAX_SIZE, routerConfig.getMaxMatrixSize()));
+        int legThreads = ghConfig.getInt(Routing.INIT_LEG_THREADS, 1);
+        if (legThreads < 1)
+            throw new IllegalArgumentException(Routing.INIT_LEG_THREADS + " must be at least 1, but was: " + legThreads);
+        if (legThreads > 1) {
+            if (legPool != null)
+                legPool.shutdown();
+            legPool = new ForkJoinPool(legThreads);
+            routerConfig.setLegPool(legPool);
+        }
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -848,6 +936,7 @@ public class GraphHopper {
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
                 .setSegmentSize(defaultSegmentSize)
+                .setCompressedGeometry(compressedGeometry)
                 .build();
         properties = new StorableProperties(directory);
         checkProfilesConsistency();
@@ -877,7 +966,12 @@ public class GraphHopper {
         // These are simply copies of real edges. Any further modifications of the graph edges must take care of keeping
         // the artificial edges in sync with their real counterparts. So if an edge attribute shall be changed this change
         // must also be applied to the corresponding artificial edge.
-        if (sortGraph) {
+        if (sortGraph && sortOrder.equals("hilbert")) {
+            // the artificial edges are kept behind their real counterparts, see GHUtility.sortHilbert
+            StopWatch sw = StopWatch.started();
+            GHUtility.sortHilbert(baseGraph);
+            logger.info("graph sorted along a Hilbert curve, took: " + sw.stop().getSeconds() + "s (" + getMemInfo() + ")");
+        } else if (sortGraph) {
             BaseGraph newGraph = GHUtility.newGraph(baseGraph);
             GHUtility.sortDFS(baseGraph, newGraph);
             logger.info("graph sorted (" + getMemInfo() + ")");
@@ -903,18 +997,13 @@ public class GraphHopper {
         if (osmFile == null)
             throw new IllegalStateException("Couldn't load from existing folder: " + ghLocation
                     + " but also cannot use file for DataReader as it wasn't specified!");
+        // sorting the graph would change the edge ids, but the stored OSM nodes are referenced by them
+        if (osmReaderConfig.isStoreOSMNodes() && sortGraph)
+            throw new IllegalArgumentException("datareader.store_osm_nodes cannot be used together with graph.do_sort");
+        if (osmReaderConfig.isStoreOSMNodes())
+            checkRelationFlagsCanBeRestored();
 
-        List<CustomArea> customAreas = readCountries();
-        if (isEmpty(customAreasDirectory)) {
-            logger.info("No custom areas are used, custom_areas.directory not given");
-        } else {
-            logger.info("Creating custom area index, reading custom areas from: '" + customAreasDirectory + "'");
-            customAreas.addAll(readCustomAreas());
-        }
-        CustomArea area = GHUtility.getFirstDuplicateArea(customAreas, Country.ISO_ALPHA3);
-        if (area != null)
-            throw new IllegalArgumentException("area used duplicate '" + Country.ISO_ALPHA3 + "' see properties: " + area.getProperties());
-        AreaIndex<CustomArea> areaIndex = new AreaIndex<>(customAreas);
+        AreaIndex<CustomArea> areaIndex = createAreaIndex();
         if (countryRuleFactory == null || countryRuleFactory.getCountryToRuleMap().isEmpty()) {
             logger.info("No country rules available");
         } else {
@@ -930,11 +1019,17 @@ public class GraphHopper {
 
         createBaseGraphAndProperties();
 
+        if (osmReaderConfig.isStoreOSMNodes()) {
+            edgeOSMNodes = new EdgeOSMNodes(baseGraph.getDirectory(), baseGraph.getNodeAccess().is3D()).create(100);
+            reader.setEdgeOSMNodes(edgeOSMNodes);
+        }
         try {
             reader.readGraph();
         } catch (IOException ex) {
             throw new RuntimeException("Cannot read file " + getOSMFile(), ex);
         }
+        if (edgeOSMNodes != null)
+            edgeOSMNodes.flush();
         DateFormat f = createFormatter();
         properties.put("datareader.import.date", f.format(new Date()));
         if (reader.getDataDate() != null)
@@ -943,6 +1038,217 @@ public class GraphHopper {
         writeEncodingManagerToProperties();
     }
 
+    private AreaIndex<CustomArea> createAreaIndex() {
+        List<CustomArea> customAreas = readCountries();
+        if (isEmpty(customAreasDirectory)) {
+            logger.info("No custom areas are used, custom_areas.directory not given");
+        } else {
+            logger.info("Creating custom area index, reading custom areas from: '" + customAreasDirectory + "'");
+            customAreas.addAll(readCustomAreas());
+        }
+        CustomArea area = GHUtility.getFirstDuplicateArea(customAreas, Country.ISO_ALPHA3);
+        if (area != null)
+            throw new IllegalArgumentException("area used duplicate '" + Country.ISO_ALPHA3 + "' see properties: " + area.getProperties());
+        return new AreaIndex<>(customAreas);
+    }
+
+    /**
+     * Applies an OSM change file (.osc or .osc.gz) to the loaded graph without a full import, see
+     * {@link OSMReader#applyChanges} for the details. This requires that the OSM nodes of the edges were stored
+     * during the import, see datareader.store_osm_nodes. Afterwards the subnetworks and the snappable edges are
+     * calculated again and the location index is rebuilt if the geometry changed. The CH and LM preparations are only prepared again if the
+     * weights of their profile changed: LM can be kept if the weights only increased, because the landmark weights
+     * are still lower bounds. Routing requests must not run while the changes are applied.
+     */
+    public OSMReader.ChangeResult applyOSMChanges(File changeFile) {
+        if (baseGraph == null || !fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before applying OSM changes");
+        ensureWriteAccess();
+        BaseGraph graph = baseGraph.getBaseGraph();
+        if (edgeOSMNodes == null) {
+            EdgeOSMNodes tmpEdgeOSMNodes = new EdgeOSMNodes(graph.getDirectory(), graph.getNodeAccess().is3D());
+            if (!tmpEdgeOSMNodes.loadExisting())
+                throw new IllegalStateException("Applying OSM changes requires the OSM nodes of the edges, "
+                        + "set datareader.store_osm_nodes: true and import the graph again");
+            edgeOSMNodes = tmpEdgeOSMNodes;
+        }
+        if (osmParsers == null)
+            osmParsers = buildOSMParsers(getVehiclesByName(vehiclesString, profilesByName.values()),
+                    getEncodedValueStrings(encodedValuesString), osmReaderConfig.getIgnoredHighways(), dateRangeParserString);
+        checkRelationFlagsCanBeRestored();
+
+        // these encoded values are calculated after the import and not by the tag parsers
+        List<IntEncodedValue> keepEncodedValues = new ArrayList<>();
+        for (String profile : profilesByName.keySet())
+            keepEncodedValues.add(encodingManager.getEncodedValue(Subnetwork.key(profile), IntEncodedValue.class));
+        if (encodingManager.hasEncodedValue(UrbanDensity.KEY))
+            keepEncodedValues.add(encodingManager.getEncodedValue(UrbanDensity.KEY, IntEncodedValue.class));
+        // the subnetworks are calculated again, so we need the old ones to decide which LM preparations are outdated
+        Map<String, GHBitSet> oldSubnetworks = new LinkedHashMap<>();
+        for (LMConfig lmConfig : createLMConfigs(lmPreparationHandler.getLMProfiles()))
+            oldSubnetworks.put(lmConfig.getName(), getSubnetworkEdges(graph, lmConfig.getName()));
+
+        boolean frozen = graph.isFrozen();
+        if (frozen)
+            graph.unfreeze();
+        OSMReader reader = new OSMReader(graph, osmParsers, osmReaderConfig).
+                setAreaIndex(createAreaIndex()).
+                setElevationProvider(eleProvider).
+                setCountryRuleFactory(countryRuleFactory).
+                setEdgeOSMNodes(edgeOSMNodes);
+        OSMReader.ChangeResult result;
+        try {
+            result = reader.applyChanges(changeFile, keepEncodedValues);
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read file " + changeFile, ex);
+        }
+        edgeOSMNodes.flush();
+        properties.put("datareader.update.date", createFormatter().format(new Date()));
+
+        if (result.getChangedEdges() > 0 || result.isTopologyChanged()) {
+            cleanUp();
+            if (snapPrefilter) {
+                // the snappable edges depend on the flags and subnetworks of all edges, so we prepare them again
+                for (String profile : snappableEdges.keySet())
+                    graph.getDirectory().remove("snappable_edges_" + profile);
+                loadOrPrepareSnappableEdges();
+            }
+        }
+        if (result.isGeometryChanged()) {
+            // the location index cannot be updated, so we create it again
+            logger.info("creating the location index again");
+            graph.getDirectory().remove("location_index");
+            locationIndex = createLocationIndex(graph.getDirectory());
+        }
+
+        List<EdgeChange> edgeChanges = result.getEdgeChanges();
+        List<LMConfig> lmConfigsToPrepare = new ArrayList<>();
+        for (LMConfig lmConfig : createLMConfigs(lmPreparationHandler.getLMProfiles())) {
+            WeightChange change = result.isTopologyChanged() ? WeightChange.OTHER
+                    : calcWeightChange(graph, lmConfig.getWeighting(), edgeChanges)
+                    .combine(calcSubnetworkChange(graph, lmConfig.getName(), oldSubnetworks.get(lmConfig.getName())));
+            if (change == WeightChange.OTHER)
+                lmConfigsToPrepare.add(lmConfig);
+        }
+        List<CHConfig> chConfigsToPrepare = new ArrayList<>();
+        for (CHConfig chConfig : createCHConfigs(chPreparationHandler.getCHProfiles())) {
+            WeightChange change = result.isTopologyChanged() ? WeightChange.OTHER
+                    : calcWeightChange(graph, chConfig.getWeighting(), edgeChanges);
+            if (change != WeightChange.NONE)
+                chConfigsToPrepare.add(chConfig);
+        }
+        prepareLMAgain(lmConfigsToPrepare);
+        prepareCHAgain(chConfigsToPrepare);
+        if (frozen && !graph.isFrozen())
+            graph.freeze();
+        baseGraph.flush();
+        properties.flush();
+        return result;
+    }
+
+    /**
+     * The stored OSM nodes are only useful if the edges can be parsed again, which requires the relation flags.
+     */
+    private void checkRelationFlagsCanBeRestored() {
+        List<RelationTagParser> parsers = osmParsers.getRelationTagParsersWithoutRestore();
+        if (!parsers.isEmpty())
+            throw new IllegalArgumentException("datareader.store_osm_nodes requires relation tag parsers that implement restoreRelationFlags, "
+                    + "but these do not: " + parsers.stream().map(p -> p.getClass().getName()).collect(Collectors.toList()));
+    }
+
+    private enum WeightChange {
+        NONE, INCREASED, OTHER;
+
+        WeightChange combine(WeightChange other) {
+            return compareTo(other) >= 0 ? this : other;
+        }
+    }
+
+    /**
+     * Compares the current weights of the changed edges with their weights before the changes were applied. The old
+     * weights are calculated by setting the old flags and distance temporarily.
+     */
+    private static WeightChange calcWeightChange(BaseGraph graph, Weighting weighting, List<EdgeChange> edgeChanges) {
+        WeightChange result = WeightChange.NONE;
+        for (EdgeChange change : edgeChanges) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(change.getEdge(), Integer.MIN_VALUE);
+            IntsRef flags = edge.getFlags();
+            double distance = edge.getDistance();
+            double fwdWeight = weighting.calcEdgeWeight(edge, false);
+            double bwdWeight = weighting.calcEdgeWeight(edge, true);
+            edge.setFlags(change.getOldFlags()).setDistance(change.getOldDistance());
+            double oldFwdWeight = weighting.calcEdgeWeight(edge, false);
+            double oldBwdWeight = weighting.calcEdgeWeight(edge, true);
+            edge.setFlags(flags).setDistance(distance);
+
+            boolean inaccessible = Double.isInfinite(fwdWeight) && Double.isInfinite(bwdWeight)
+                    && Double.isInfinite(oldFwdWeight) && Double.isInfinite(oldBwdWeight);
+            // a changed geometry changes the positions of the nodes and thus the landmark weights
+            if (change.isGeometryChanged() && !inaccessible || fwdWeight < oldFwdWeight || bwdWeight < oldBwdWeight)
+                return WeightChange.OTHER;
+            if (fwdWeight > oldFwdWeight || bwdWeight > oldBwdWeight)
+                result = WeightChange.INCREASED;
+        }
+        return result;
+    }
+
+    private WeightChange calcSubnetworkChange(BaseGraph graph, String profile, GHBitSet oldSubnetworkEdges) {
+        GHBitSet subnetworkEdges = getSubnetworkEdges(graph, profile);
+        WeightChange result = WeightChange.NONE;
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            if (oldSubnetworkEdges.contains(edge) && !subnetworkEdges.contains(edge))
+                return WeightChange.OTHER;
+            if (!oldSubnetworkEdges.contains(edge) && subnetworkEdges.contains(edge))
+                result = WeightChange.INCREASED;
+        }
+        return result;
+    }
+
+    private GHBitSet getSubnetworkEdges(BaseGraph graph, String profile) {
+        BooleanEncodedValue subnetworkEnc = encodingManager.getBooleanEncodedValue(Subnetwork.key(profile));
+        GHBitSet edges = new GHBitSetImpl(graph.getEdges());
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.get(subnetworkEnc))
+                edges.add(iter.getEdge());
+        }
+        return edges;
+    }
+
+    private void prepareLMAgain(List<LMConfig> lmConfigs) {
+        if (lmConfigs.isEmpty())
+            return;
+        for (LMConfig lmConfig : lmConfigs) {
+            logger.info("removing outdated LM preparation: " + lmConfig.getName());
+            baseGraph.getDirectory().remove("landmarks_" + lmConfig.getName());
+            baseGraph.getDirectory().remove("landmarks_subnetwork_" + lmConfig.getName());
+        }
+        List<PrepareLandmarks> prepared = prepareLM(false, lmConfigs);
+        Map<String, LandmarkStorage> newLandmarks = new LinkedHashMap<>(landmarks);
+        for (LMProfile lmp : lmPreparationHandler.getLMProfiles()) {
+            // cross-querying
+            String prepProfile = lmp.usesOtherPreparation() ? lmp.getPreparationProfile() : lmp.getProfile();
+            prepared.stream().filter(pl -> pl.getLandmarkStorage().getLMConfig().getName().equals(prepProfile)).findFirst()
+                    .ifPresent(pl -> newLandmarks.put(lmp.getProfile(), pl.getLandmarkStorage()));
+        }
+        landmarks = newLandmarks;
+    }
+
+    private void prepareCHAgain(List<CHConfig> chConfigs) {
+        if (chConfigs.isEmpty())
+            return;
+        for (CHConfig chConfig : chConfigs) {
+            logger.info("removing outdated CH preparation: " + chConfig.getName());
+            baseGraph.getDirectory().remove("nodes_ch_" + chConfig.getName());
+            baseGraph.getDirectory().remove("shortcuts_" + chConfig.getName());
+        }
+        Map<String, PrepareContractionHierarchies.Result> prepared = prepareCH(false, chConfigs);
+        Map<String, RoutingCHGraph> newCHGraphs = new LinkedHashMap<>(chGraphs);
+        for (PrepareContractionHierarchies.Result res : prepared.values())
+            newCHGraphs.put(res.getCHConfig().getName(), RoutingCHGraphImpl.fromGraph(baseGraph.getBaseGraph(), res.getCHStorage(), res.getCHConfig()));
+        chGraphs = newCHGraphs;
+    }
+
     protected void createBaseGraphAndProperties() {
         baseGraph.getDirectory().create();
         baseGraph.create(100);
@@ -1008,6 +1314,19 @@ public class GraphHopper {
         // todo: this does not really belong here, we abuse the load method to derive the dataAccessDefaultType setting from others
         if (!allowWrites && dataAccessDefaultType.isMMap())
             dataAccessDefaultType = DAType.MMAP_RO;
+        if (dataAccessDefaultType.isMMap() && !dataAccessDefaultType.isAllowWrites()) {
+            // a read-only memory mapped graph is shared by all processes on this host, so we make sure that nothing is
+            // copied into the memory of this process: all DataAccess objects are mapped and nothing can be prepared
+            for (Map.Entry<String, String> entry : dataAccessConfig.entrySet()) {
+                if (entry.getKey().startsWith("preload."))
+                    continue;
+                DAType type = DAType.fromString(entry.getValue());
+                if (!type.isMMap() || type.isAllowWrites())
+                    throw new IllegalArgumentException("graph.dataaccess.type." + entry.getKey() + ": " + entry.getValue()
+                            + " is not allowed for a read-only graph with " + dataAccessDefaultType + ", use MMAP_RO or remove it");
+            }
+            allowWrites = false;
+        }
 
         if (!new File(ghLocation).exists())
             // there is just nothing to load
@@ -1049,6 +1368,9 @@ public class GraphHopper {
 
             postProcessing(false);
             directory.loadMMap();
+            if (dataAccessDefaultType.isMMap())
+                logger.info("memory mapped graph: " + directory.getMappedBytes() / Helper.MB + "MB, resident: "
+                        + directory.getResidentBytes() / Helper.MB + "MB");
             setFullyLoaded();
             return true;
         } finally {
@@ -1173,6 +1495,8 @@ public class GraphHopper {
      */
     protected void postProcessing(boolean closeEarly) {
         initLocationIndex();
+        if (snapPrefilter)
+            loadOrPrepareSnappableEdges();
         importPublicTransit();
 
         if (closeEarly) {
@@ -1223,13 +1547,22 @@ public class GraphHopper {
     }
 
     protected WeightingFactory createWeightingFactory() {
-        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), getEncodingManager());
+        EncodingManager encodingManager = getEncodingManager();
+        return new DefaultWeightingFactory(baseGraph.getBaseGraph(), encodingManager, liveEncodedValues.isEmpty()
+                ? encodingManager : new LiveEncodedValueLookup(encodingManager, liveEncodedValues.values()));
     }
 
     public GHResponse route(GHRequest request) {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the weights, times and distances between many points, see {@link Router#matrix}.
+     */
+    public GHMatrixResponse matrix(GHMatrixRequest request) {
+        return createRouter().matrix(request);
+    }
+
     private Router createRouter() {
         if (baseGraph == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1239,14 +1572,15 @@ public class GraphHopper {
             throw new IllegalStateException("Location index not initialized");
 
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks, snappableEdges);
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
                                     PathDetailsBuilderFactory pathBuilderFactory, TranslationMap trMap, RouterConfig routerConfig,
-                                    WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+                                    WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks,
+                                    Map<String, SnappableEdges> snappableEdges) {
         return new Router(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, weightingFactory, chGraphs, landmarks
+                trMap, routerConfig, weightingFactory, chGraphs, landmarks, snappableEdges
         );
     }
 
@@ -1272,6 +1606,30 @@ public class GraphHopper {
         locationIndex = createLocationIndex(baseGraph.getDirectory());
     }
 
+    private void loadOrPrepareSnappableEdges() {
+        if (!liveEncodedValues.isEmpty())
+            throw new IllegalArgumentException("index.snap_prefilter cannot be used together with graph.live_encoded_values, " +
+                    "because the live values can change which edges are accessible");
+        Map<String, SnappableEdges> map = new LinkedHashMap<>();
+        for (Profile profile : profilesByName.values()) {
+            SnappableEdges edges = new SnappableEdges(baseGraph.getDirectory(), profile.getName());
+            if (edges.loadExisting()) {
+                if (edges.getEdges() != baseGraph.getEdges())
+                    throw new IllegalStateException("The snappable edges of profile '" + profile.getName() + "' were prepared for "
+                            + edges.getEdges() + " edges, but the graph has " + baseGraph.getEdges() + " edges");
+            } else {
+                ensureWriteAccess();
+                StopWatch sw = StopWatch.started();
+                edges.prepare(baseGraph, new DefaultSnapFilter(createWeighting(profile, new PMap()),
+                        encodingManager.getBooleanEncodedValue(Subnetwork.key(profile.getName()))));
+                edges.flush();
+                logger.info("prepared snappable edges for profile '" + profile.getName() + "', took: " + sw.stop().getSeconds() + "s");
+            }
+            map.put(profile.getName(), edges);
+        }
+        snappableEdges = map;
+    }
+
     private String getCHProfileVersion(String profile) {
         return properties.get("graph.profiles.ch." + profile + ".version");
     }
@@ -1301,7 +1659,7 @@ public class GraphHopper {
         Map<String, PrepareContractionHierarchies.Result> prepared = prepareCH(closeEarly, configsToPrepare);
 
         // we map all profile names for which there is CH support to the according CH graphs
-        chGraphs = new LinkedHashMap<>();
+        Map<String, RoutingCHGraph> chGraphs = new LinkedHashMap<>();
         for (CHProfile profile : chPreparationHandler.getCHProfiles()) {
             if (loaded.containsKey(profile.getProfile()) && prepared.containsKey(profile.getProfile()))
                 throw new IllegalStateException("CH graph should be either loaded or prepared, but not both: " + profile.getProfile());
@@ -1314,6 +1672,31 @@ public class GraphHopper {
             } else
                 throw new IllegalStateException("CH graph should be either loaded or prepared: " + profile.getProfile());
         }
+        this.chGraphs = chGraphs;
+    }
+
+    /**
+     * Recalculates the CH graph of the given profile with the current weights, e.g. after the values of a
+     * {@link LiveDecimalEncodedValue} were updated. This requires prepare.ch.customizable and takes only a fraction of
+     * the time of a full CH preparation. The new CH graph is kept in memory only and requests that are already running
+     * continue to use the old one.
+     */
+    public synchronized void customizeCH(String profileName) {
+        if (!chPreparationHandler.isCustomizable())
+            throw new IllegalStateException("CH customization requires " + CH.PREPARE + "customizable: true");
+        if (!chGraphs.containsKey(profileName))
+            throw new IllegalArgumentException("There is no CH graph for profile '" + profileName + "', available: " + chGraphs.keySet());
+        Weighting weighting = createWeighting(profilesByName.get(profileName), new PMap());
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("CH customization is not supported for profiles with turn costs: " + profileName);
+        BaseGraph graph = baseGraph.getBaseGraph();
+        CHStorage chStorage = new CHStorage(new RAMDirectory(), profileName, graph.getSegmentSize(), false);
+        chStorage.create(graph.getNodes(), chGraphs.get(profileName).getShortcuts());
+        chPreparationHandler.getCustomizableCH(graph).customize(weighting, chStorage, chPreparationHandler.getPreparationThreads());
+        Map<String, RoutingCHGraph> newCHGraphs = new LinkedHashMap<>(chGraphs);
+        newCHGraphs.put(profileName, new RoutingCHGraphImpl(graph, chStorage, weighting));
+        // the old CH graph is not closed, because it might still be used by running requests
+        chGraphs = newCHGraphs;
     }
 
     protected Map<String, PrepareContractionHierarchies.Result> prepareCH(boolean closeEarly, List<CHConfig> configsToPrepare) {
@@ -1408,6 +1791,11 @@ public class GraphHopper {
 
         chGraphs.values().forEach(RoutingCHGraph::close);
         landmarks.values().forEach(LandmarkStorage::close);
+        snappableEdges.values().forEach(SnappableEdges::close);
+        if (edgeOSMNodes != null)
+            edgeOSMNodes.close();
+        if (legPool != null)
+            legPool.shutdown();
 
         if (locationIndex != null)
             locationIndex.close();
@@ -0,0 +1,188 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+
+/**
+ * A map that uses the key as index into an array of values. It is meant for keys that cover a range densely, like the
+ * OSM node ids of a planet file. In this case it needs less memory than {@link GHLongLongBTree}, because the keys are
+ * not stored, and a lookup is only an array access instead of a tree descent. The key range is split into pages which
+ * are only allocated when a key of the page is put, but a page always needs the memory for all of its keys. So for
+ * sparse keys, e.g. the OSM node ids of a small extract, this map can need a lot more memory than the B-Tree.
+ * <p>
+ * The values are stored in {@link DataAccess} objects created by the given {@link Directory}, so the pages can also
+ * be memory mapped. Negative keys and keys that are too large for the page index are stored in a B-Tree.
+ */
+public class GHLongLongDenseMap implements LongLongMap {
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final long PAGE_MASK = PAGE_SIZE - 1;
+    private static final long MAX_DENSE_KEY = ((long) Integer.MAX_VALUE << PAGE_BITS) - 1;
+
+    private final Directory directory;
+    private final String name;
+    private final int bytesPerValue;
+    private final long emptyValue;
+    private final long minValue;
+    private final long maxValue;
+    private final GHLongLongBTree sparseMap;
+    // for every page of keys we store the slot of its values in the data accesses plus one, zero means no slot yet
+    private int[] pageSlots;
+    private int usedSlots;
+    // the lower four bytes of every value, and the fifth byte if bytesPerValue is 5
+    private DataAccess lowerBytes;
+    private DataAccess upperBytes;
+    private long size;
+
+    /**
+     * @param name          the prefix of the names of the data accesses created in the given directory
+     * @param bytesPerValue 4 or 5
+     */
+    public GHLongLongDenseMap(Directory directory, String name, int bytesPerValue, long emptyValue) {
+        if (bytesPerValue != 4 && bytesPerValue != 5)
+            throw new IllegalArgumentException("Values must have 4 or 5 bytes but requested was " + bytesPerValue);
+        this.directory = directory;
+        this.name = name;
+        this.bytesPerValue = bytesPerValue;
+        this.emptyValue = emptyValue;
+        // we store value - emptyValue, because the initial bytes are zero and have to represent the empty value
+        long maxStored = (1L << (bytesPerValue * 8 - 1)) - 1;
+        this.minValue = Math.max(Long.MIN_VALUE + maxStored + 1, emptyValue) - maxStored - 1;
+        this.maxValue = Math.min(Long.MAX_VALUE - maxStored, emptyValue) + maxStored;
+        this.sparseMap = new GHLongLongBTree(200, bytesPerValue, emptyValue);
+        clear();
+    }
+
+    @Override
+    public long put(long key, long value) {
+        if (value > maxValue || value < minValue)
+            throw new IllegalArgumentException("Value " + value + " is out of the range [" + minValue + ", "
+                    + maxValue + "]. Increase bytesPerValue (" + bytesPerValue + ")");
+        if (value == emptyValue)
+            throw new IllegalArgumentException("Value cannot be the 'empty value' " + emptyValue);
+        if (key < 0 || key > MAX_DENSE_KEY)
+            return sparseMap.put(key, value);
+
+        long index = getIndex(key, true);
+        long oldValue = getValue(index);
+        long stored = value - emptyValue;
+        lowerBytes.setInt(index * 4, (int) stored);
+        if (bytesPerValue == 5)
+            upperBytes.setByte(index, (byte) (stored >> 32));
+        if (oldValue == emptyValue)
+            size++;
+        return oldValue;
+    }
+
+    @Override
+    public long get(long key) {
+        if (key < 0 || key > MAX_DENSE_KEY)
+            return sparseMap.get(key);
+        long index = getIndex(key, false);
+        return index < 0 ? emptyValue : getValue(index);
+    }
+
+    private long getIndex(long key, boolean allocate) {
+        int page = (int) (key >>> PAGE_BITS);
+        if (page >= pageSlots.length) {
+            if (!allocate)
+                return -1;
+            pageSlots = Arrays.copyOf(pageSlots, (int) Math.min(Integer.MAX_VALUE, Math.max(page + 1L, pageSlots.length * 2L)));
+        }
+        int slot = pageSlots[page];
+        if (slot == 0) {
+            if (!allocate)
+                return -1;
+            slot = ++usedSlots;
+            pageSlots[page] = slot;
+            allocate(slot);
+        }
+        return ((long) (slot - 1) << PAGE_BITS) | (key & PAGE_MASK);
+    }
+
+    private void allocate(int slots) {
+        long values = (long) slots << PAGE_BITS;
+        if (lowerBytes == null) {
+            lowerBytes = directory.create(name + "_lower").create(values * 4);
+            if (bytesPerValue == 5)
+                upperBytes = directory.create(name + "_upper").create(values);
+        }
+        lowerBytes.ensureCapacity(values * 4);
+        if (bytesPerValue == 5)
+            upperBytes.ensureCapacity(values);
+    }
+
+    private long getValue(long index) {
+        long stored = lowerBytes.getInt(index * 4);
+        if (bytesPerValue == 5)
+            stored = ((long) upperBytes.getByte(index) << 32) | (stored & 0xFFFF_FFFFL);
+        return stored + emptyValue;
+    }
+
+    @Override
+    public long getSize() {
+        return size + sparseMap.getSize();
+    }
+
+    @Override
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    @Override
+    public void optimize() {
+        sparseMap.optimize();
+    }
+
+    /**
+     * @return memory usage in MB
+     */
+    @Override
+    public int getMemoryUsage() {
+        long bytes = 4L * pageSlots.length;
+        if (lowerBytes != null)
+            bytes += lowerBytes.getCapacity();
+        if (upperBytes != null)
+            bytes += upperBytes.getCapacity();
+        return Math.round(bytes / Helper.MB) + sparseMap.getMemoryUsage();
+    }
+
+    @Override
+    public void clear() {
+        if (lowerBytes != null)
+            directory.remove(lowerBytes.getName());
+        if (upperBytes != null)
+            directory.remove(upperBytes.getName());
+        lowerBytes = null;
+        upperBytes = null;
+        pageSlots = new int[16];
+        usedSlots = 0;
+        size = 0;
+        sparseMap.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "pages:" + usedSlots + ", dense entries:" + size + ", sparse entries:" + sparseMap.getSize();
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.BitUtil;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * Stores the OSM data every edge was created from: the OSM way id, the tags of the way and for every OSM node of the
+ * edge its id, its original coordinates and its tags. The coordinates are stored before the geometry of the edge is
+ * simplified, so all nodes are included. This allows to apply OSM change files to the graph later, see
+ * {@link OSMReader#applyChanges}, because the tags and coordinates of all nodes and ways that are not part of the
+ * change file are known.
+ * <p>
+ * A barrier node is split into two graph nodes and an edge between them during the import. Both ends of this edge
+ * and the edges next to it store the OSM node id of the barrier node. Edges that are artificial copies of other edges
+ * share the data of the original edge. Changed data is appended, so the storage grows with every applied change file.
+ */
+public class EdgeOSMNodes {
+    // we do not use the first bytes, so a pointer of 0 means there is no data
+    private static final long START_POINTER = 8;
+    private static final int MAX_TAG_BYTES = 64 * 1024;
+    private static final int BARRIER_EDGE_FLAG = 1 << 31;
+    // the way id, the pointer to the way tags, the number of nodes and the index of the first node in the way
+    private static final int HEADER_BYTES = 8 + 8 + 4 + 4;
+
+    private final BitUtil bitUtil = BitUtil.LITTLE;
+    private final DataAccess edgePointers;
+    private final DataAccess nodes;
+    private final DataAccess tags;
+    private final boolean is3D;
+    private final int bytesPerNode;
+    private long nodesPointer = START_POINTER;
+    private long tagsPointer = START_POINTER;
+
+    public EdgeOSMNodes(Directory dir, boolean is3D) {
+        edgePointers = dir.create("osm_edge_pointers");
+        nodes = dir.create("osm_edge_nodes");
+        tags = dir.create("osm_edge_tags");
+        this.is3D = is3D;
+        // osm node id, lat, lon, (ele) and the pointer to the node tags
+        bytesPerNode = 8 + 4 + 4 + (is3D ? 4 : 0) + 8;
+    }
+
+    public EdgeOSMNodes create(long initBytes) {
+        edgePointers.create(initBytes);
+        nodes.create(initBytes);
+        tags.create(initBytes);
+        return this;
+    }
+
+    public boolean loadExisting() {
+        if (!edgePointers.loadExisting())
+            return false;
+        if (!nodes.loadExisting() || !tags.loadExisting())
+            throw new IllegalStateException("Loaded " + edgePointers.getName() + " but cannot load " + nodes.getName() + " or " + tags.getName());
+        nodesPointer = bitUtil.combineIntsToLong(nodes.getHeader(0), nodes.getHeader(4));
+        tagsPointer = bitUtil.combineIntsToLong(tags.getHeader(0), tags.getHeader(4));
+        if ((nodes.getHeader(8) == 1) != is3D)
+            throw new IllegalStateException("The OSM nodes of the edges were stored " + (is3D ? "without" : "with") + " elevation");
+        return true;
+    }
+
+    /**
+     * Stores the given tags, but only those with a String value, i.e. the tags that were read from the OSM file.
+     *
+     * @return the pointer to the stored tags or 0 if there are no such tags
+     */
+    public long addTags(Map<String, Object> tagMap) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, Object> e : tagMap.entrySet()) {
+            if (!(e.getValue() instanceof String))
+                continue;
+            byte[] key = e.getKey().getBytes(Helper.UTF_CS);
+            byte[] value = KVStorage.cutString((String) e.getValue()).getBytes(Helper.UTF_CS);
+            if (out.size() + key.length + value.length + 2 > MAX_TAG_BYTES)
+                break;
+            out.write(key, 0, key.length);
+            out.write(0);
+            out.write(value, 0, value.length);
+            out.write(0);
+        }
+        if (out.size() == 0)
+            return 0;
+        byte[] bytes = out.toByteArray();
+        long pointer = tagsPointer;
+        tags.ensureCapacity(pointer + 4 + bytes.length);
+        tags.setInt(pointer, bytes.length);
+        tags.setBytes(pointer + 4, bytes, bytes.length);
+        tagsPointer += 4 + bytes.length;
+        return pointer;
+    }
+
+    /**
+     * @return the tags stored at the given pointer, an empty map if the pointer is 0
+     */
+    public Map<String, Object> getTags(long pointer) {
+        if (pointer == 0)
+            return Collections.emptyMap();
+        int length = tags.getInt(pointer);
+        byte[] bytes = new byte[length];
+        tags.getBytes(pointer + 4, bytes, length);
+        Map<String, Object> map = new LinkedHashMap<>();
+        int start = 0;
+        String key = null;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != 0)
+                continue;
+            String str = new String(bytes, start, i - start, Helper.UTF_CS);
+            if (key == null) {
+                key = str;
+            } else {
+                map.put(key, str);
+                key = null;
+            }
+            start = i + 1;
+        }
+        return map;
+    }
+
+    /**
+     * Stores the data of the given edge. Data that was stored for this edge before is no longer used.
+     *
+     * @param wayTagsPointer the pointer returned by {@link #addTags} for the tags of the way. It can be shared by all
+     *                       edges of the way.
+     * @param wayNodeIndex   the index of the first node of the edge in the node list of the way
+     * @param osmNodeIds     the OSM node ids of all points of the edge
+     * @param points         the original coordinates of all points of the edge
+     * @param nodeTags       the tags of all points of the edge
+     */
+    public void set(int edge, long wayId, long wayTagsPointer, int wayNodeIndex, boolean barrierEdge,
+                    LongArrayList osmNodeIds, PointList points, List<Map<String, Object>> nodeTags) {
+        if (osmNodeIds.size() != points.size() || nodeTags.size() != points.size())
+            throw new IllegalArgumentException("There must be as many OSM node ids and maps of node tags as there are points, "
+                    + osmNodeIds.size() + ", " + nodeTags.size() + ", " + points.size());
+        long pointer = nodesPointer;
+        nodes.ensureCapacity(pointer + HEADER_BYTES + (long) points.size() * bytesPerNode);
+        setLong(nodes, pointer, wayId);
+        setLong(nodes, pointer + 8, wayTagsPointer);
+        nodes.setInt(pointer + 16, points.size() | (barrierEdge ? BARRIER_EDGE_FLAG : 0));
+        nodes.setInt(pointer + 20, wayNodeIndex);
+        nodesPointer += HEADER_BYTES + (long) points.size() * bytesPerNode;
+        setPointer(edge, pointer);
+        for (int i = 0; i < points.size(); i++) {
+            setLong(nodes, toNodePointer(pointer, i), osmNodeIds.get(i));
+            setCoordinates(edge, i, points.getLat(i), points.getLon(i), points.getEle(i));
+            setNodeTagsPointer(edge, i, nodeTags.get(i).isEmpty() ? 0 : addTags(nodeTags.get(i)));
+        }
+    }
+
+    /**
+     * Lets the second edge use the data of the first one, because it is an artificial copy of it. Changes of the
+     * data of one of the edges also change the data of the other one.
+     */
+    public void copy(int fromEdge, int toEdge) {
+        // copies are marked with a negative pointer
+        setPointer(toEdge, -getPointer(fromEdge));
+    }
+
+    /**
+     * @return true if the given edge uses the data of another edge, see {@link #copy}
+     */
+    public boolean isCopy(int edge) {
+        return getRawPointer(edge) < 0;
+    }
+
+    /**
+     * Removes the data of the given edge, e.g. because the edge was removed from the way it belonged to.
+     */
+    public void remove(int edge) {
+        if (getPointer(edge) != 0)
+            setPointer(edge, 0);
+    }
+
+    public boolean has(int edge) {
+        return getPointer(edge) != 0;
+    }
+
+    /**
+     * @return the pointer to the data of the given edge. Edges that share their data have the same pointer.
+     */
+    public long getPointer(int edge) {
+        return Math.abs(getRawPointer(edge));
+    }
+
+    private long getRawPointer(int edge) {
+        long pointer = (long) edge * 8;
+        if (pointer + 8 > edgePointers.getCapacity())
+            return 0;
+        return getLong(edgePointers, pointer);
+    }
+
+    public long getWayId(int edge) {
+        return getLong(nodes, checkPointer(edge));
+    }
+
+    public long getWayTagsPointer(int edge) {
+        return getLong(nodes, checkPointer(edge) + 8);
+    }
+
+    public void setWayTagsPointer(int edge, long wayTagsPointer) {
+        setLong(nodes, checkPointer(edge) + 8, wayTagsPointer);
+    }
+
+    public boolean isBarrierEdge(int edge) {
+        return (nodes.getInt(checkPointer(edge) + 16) & BARRIER_EDGE_FLAG) != 0;
+    }
+
+    /**
+     * @return the index of the first node of the given edge in the node list of the way
+     */
+    public int getWayNodeIndex(int edge) {
+        return nodes.getInt(checkPointer(edge) + 20);
+    }
+
+    /**
+     * @return the number of OSM nodes of the given edge
+     */
+    public int getSize(int edge) {
+        return nodes.getInt(checkPointer(edge) + 16) & ~BARRIER_EDGE_FLAG;
+    }
+
+    public long getOSMNodeId(int edge, int index) {
+        return getLong(nodes, toNodePointer(checkPointer(edge), index));
+    }
+
+    public double getLat(int edge, int index) {
+        return Helper.intToDegree(nodes.getInt(toNodePointer(checkPointer(edge), index) + 8));
+    }
+
+    public double getLon(int edge, int index) {
+        return Helper.intToDegree(nodes.getInt(toNodePointer(checkPointer(edge), index) + 12));
+    }
+
+    public double getEle(int edge, int index) {
+        return is3D ? Helper.intToEle(nodes.getInt(toNodePointer(checkPointer(edge), index) + 16)) : Double.NaN;
+    }
+
+    public void setCoordinates(int edge, int index, double lat, double lon, double ele) {
+        long pointer = toNodePointer(checkPointer(edge), index);
+        nodes.setInt(pointer + 8, Helper.degreeToInt(lat));
+        nodes.setInt(pointer + 12, Helper.degreeToInt(lon));
+        if (is3D)
+            nodes.setInt(pointer + 16, Helper.eleToInt(ele));
+    }
+
+    public long getNodeTagsPointer(int edge, int index) {
+        return getLong(nodes, toNodePointer(checkPointer(edge), index) + bytesPerNode - 8);
+    }
+
+    public void setNodeTagsPointer(int edge, int index, long nodeTagsPointer) {
+        setLong(nodes, toNodePointer(checkPointer(edge), index) + bytesPerNode - 8, nodeTagsPointer);
+    }
+
+    public LongArrayList getOSMNodeIds(int edge) {
+        int size = getSize(edge);
+        LongArrayList ids = new LongArrayList(size);
+        for (int i = 0; i < size; i++)
+            ids.add(getOSMNodeId(edge, i));
+        return ids;
+    }
+
+    public PointList getPoints(int edge) {
+        int size = getSize(edge);
+        PointList points = new PointList(size, is3D);
+        for (int i = 0; i < size; i++)
+            points.add(getLat(edge, i), getLon(edge, i), getEle(edge, i));
+        return points;
+    }
+
+    public List<Map<String, Object>> getNodeTags(int edge) {
+        int size = getSize(edge);
+        List<Map<String, Object>> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            list.add(getTags(getNodeTagsPointer(edge, i)));
+        return list;
+    }
+
+    public void flush() {
+        nodes.setHeader(0, bitUtil.getIntLow(nodesPointer));
+        nodes.setHeader(4, bitUtil.getIntHigh(nodesPointer));
+        nodes.setHeader(8, is3D ? 1 : 0);
+        tags.setHeader(0, bitUtil.getIntLow(tagsPointer));
+        tags.setHeader(4, bitUtil.getIntHigh(tagsPointer));
+        edgePointers.flush();
+        nodes.flush();
+        tags.flush();
+    }
+
+    public void close() {
+        edgePointers.close();
+        nodes.close();
+        tags.close();
+    }
+
+    public long getCapacity() {
+        return edgePointers.getCapacity() + nodes.getCapacity() + tags.getCapacity();
+    }
+
+    private long checkPointer(int edge) {
+        long pointer = getPointer(edge);
+        if (pointer == 0)
+            throw new IllegalArgumentException("There are no OSM nodes for edge " + edge);
+        return pointer;
+    }
+
+    private long toNodePointer(long pointer, int index) {
+        return pointer + HEADER_BYTES + (long) index * bytesPerNode;
+    }
+
+    private void setPointer(int edge, long pointer) {
+        edgePointers.ensureCapacity((long) edge * 8 + 8);
+        setLong(edgePointers, (long) edge * 8, pointer);
+    }
+
+    private long getLong(DataAccess da, long pointer) {
+        return bitUtil.combineIntsToLong(da.getInt(pointer), da.getInt(pointer + 4));
+    }
+
+    private void setLong(DataAccess da, long pointer, long value) {
+        da.setInt(pointer, bitUtil.getIntLow(value));
+        da.setInt(pointer + 4, bitUtil.getIntHigh(value));
+    }
+}
@@ -0,0 +1,900 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.*;
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.dem.ElevationProvider;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
+import com.graphhopper.routing.util.OSMParsers;
+import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Applies an OSM change file to a graph, see {@link OSMReader#applyChanges}. First we find the edges of the affected
+ * ways, i.e. the changed ways and the ways that contain changed nodes, by scanning the OSM nodes that were stored for
+ * all edges, see {@link EdgeOSMNodes}. A way is split into new edges again if its node list changed, if a barrier
+ * node was added or removed, or if it has to be split at a node of another such way. All other affected ways are
+ * updated in place. Only then the graph is changed.
+ */
+class OSMChangeApplier {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OSMChangeApplier.class);
+
+    private final OSMReader reader;
+    private final BaseGraph graph;
+    private final NodeAccess nodeAccess;
+    private final OSMParsers osmParsers;
+    private final EdgeOSMNodes edgeOSMNodes;
+    private final ElevationProvider eleProvider;
+    private final List<IntEncodedValue> keepEncodedValues;
+    private final DistanceCalc distCalc = DistanceCalcEarth.DIST_EARTH;
+    private final OSMReader.ChangeResult result = new OSMReader.ChangeResult();
+
+    // the content of the change file. ways that were deleted or are no longer accepted are 'removed'
+    private final LongObjectMap<ReaderNode> changedNodes = new LongObjectHashMap<>();
+    private final LongHashSet deletedNodes = new LongHashSet();
+    private final LongObjectMap<ReaderWay> changedWays = new LongObjectHashMap<>();
+    private final LongHashSet removedWays = new LongHashSet();
+
+    // the edges of all ways we know about and the edges and indices at which the OSM nodes we know about occur
+    private final LongObjectMap<IntArrayList> edgesByWay = new LongObjectHashMap<>();
+    private final LongObjectMap<LongArrayList> occurrences = new LongObjectHashMap<>();
+    private final LongObjectMap<IntArrayList> copiesByPointer = new LongObjectHashMap<>();
+    private final LongHashSet touchedWays = new LongHashSet();
+    private final LongHashSet rebuiltWays = new LongHashSet();
+    private final LongHashSet forcedWays = new LongHashSet();
+    private final LongObjectMap<WayNode> wayNodes = new LongObjectHashMap<>();
+
+    // the state of the ways that are split into new edges
+    private final LongIntMap towers = new LongIntHashMap();
+    private final LongIntMap refCounts = new LongIntHashMap();
+    private final LongIntMap endCounts = new LongIntHashMap();
+    private final LongHashSet splitNodes = new LongHashSet();
+    private final List<EdgeEnd> oldEdgeEnds = new ArrayList<>();
+    private final Map<String, Integer> newEdgesByEnd = new HashMap<>();
+
+    OSMChangeApplier(OSMReader reader, BaseGraph graph, OSMParsers osmParsers, EdgeOSMNodes edgeOSMNodes,
+                     ElevationProvider eleProvider, List<IntEncodedValue> keepEncodedValues) {
+        this.reader = reader;
+        this.graph = graph;
+        this.nodeAccess = graph.getNodeAccess();
+        this.osmParsers = osmParsers;
+        this.edgeOSMNodes = edgeOSMNodes;
+        this.eleProvider = eleProvider;
+        this.keepEncodedValues = keepEncodedValues;
+    }
+
+    OSMReader.ChangeResult apply(File changeFile) throws IOException, XMLStreamException {
+        readChanges(changeFile);
+        findAffectedWays();
+
+        moveTowerNodes();
+        // we need the stored OSM nodes of the rebuilt ways before we remove any edges
+        List<RebuiltWay> rebuilt = new ArrayList<>();
+        for (long wayId : sorted(rebuiltWays))
+            rebuilt.add(createRebuiltWay(wayId));
+        for (long wayId : sorted(removedWays))
+            removeWay(wayId);
+        for (RebuiltWay way : rebuilt)
+            removeEdges(way);
+        findJunctions(rebuilt);
+        for (RebuiltWay way : rebuilt)
+            splitWay(way);
+        copyTurnCosts();
+        for (long wayId : sorted(edgesByWay.keys()))
+            if (!removedWays.contains(wayId) && !rebuiltWays.contains(wayId))
+                updateWay(wayId);
+        return result;
+    }
+
+    private void readChanges(File changeFile) throws IOException, XMLStreamException {
+        try (OSMChangeFile changes = new OSMChangeFile(changeFile)) {
+            OSMChangeFile.Change change;
+            while ((change = changes.getNext()) != null) {
+                ReaderElement element = change.getElement();
+                boolean delete = change.getAction() == OSMChangeFile.Action.DELETE;
+                if (element.getType() == ReaderElement.Type.NODE) {
+                    if (delete) {
+                        changedNodes.remove(element.getId());
+                        deletedNodes.add(element.getId());
+                    } else {
+                        changedNodes.put(element.getId(), (ReaderNode) element);
+                        deletedNodes.remove(element.getId());
+                    }
+                } else if (element.getType() == ReaderElement.Type.WAY) {
+                    ReaderWay way = (ReaderWay) element;
+                    // ways without accepted tags are handled like deleted ways
+                    if (delete || !reader.acceptWay(way)) {
+                        changedWays.remove(way.getId());
+                        removedWays.add(way.getId());
+                    } else {
+                        changedWays.put(way.getId(), way);
+                        removedWays.remove(way.getId());
+                    }
+                } else {
+                    // the relation flags and turn restrictions are not updated
+                    result.ignoredChanges++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the edges of all ways that are changed and decides which of them have to be split into new edges. This
+     * can require more ways, and scanning all edges again, e.g. when a new way is connected to an existing way.
+     */
+    private void findAffectedWays() {
+        LongHashSet knownNodes = new LongHashSet();
+        LongHashSet knownWays = new LongHashSet();
+        LongHashSet nodes = new LongHashSet();
+        nodes.addAll(changedNodes.keys());
+        nodes.addAll(deletedNodes);
+        for (ObjectCursor<ReaderWay> way : changedWays.values())
+            nodes.addAll(way.value.getNodes());
+        LongHashSet ways = new LongHashSet();
+        ways.addAll(changedWays.keys());
+        ways.addAll(removedWays);
+        boolean firstScan = true;
+        while (true) {
+            if (!nodes.isEmpty() || !ways.isEmpty()) {
+                scan(nodes, ways, firstScan);
+                firstScan = false;
+                knownNodes.addAll(nodes);
+                knownWays.addAll(ways);
+                nodes = new LongHashSet();
+                ways = new LongHashSet();
+                for (LongCursor way : touchedWays)
+                    if (!knownWays.contains(way.value))
+                        ways.add(way.value);
+                continue;
+            }
+
+            LongArrayList newRebuiltWays = new LongArrayList();
+            for (LongCursor way : knownWays)
+                if (!removedWays.contains(way.value) && !rebuiltWays.contains(way.value) && isRebuildNeeded(way.value))
+                    newRebuiltWays.add(way.value);
+            rebuiltWays.addAll(newRebuiltWays);
+
+            // we need to know all occurrences of the nodes of the rebuilt ways to find the junctions. ways that have a
+            // pillar node there must be split, and if it is a barrier node all ways containing it must be rebuilt,
+            // because whether the barrier node is split or not depends on all of them
+            for (LongCursor way : rebuiltWays) {
+                for (LongCursor node : getNodeIds(way.value)) {
+                    if (node.value == MISSING_NODE)
+                        continue;
+                    if (!knownNodes.contains(node.value)) {
+                        nodes.add(node.value);
+                        continue;
+                    }
+                    WayNode wayNode = resolve(node.value);
+                    LongArrayList list = occurrences.get(node.value);
+                    if (wayNode == null || list == null)
+                        continue;
+                    for (LongCursor occurrence : list) {
+                        int edge = toEdge(occurrence.value);
+                        int index = toIndex(occurrence.value);
+                        long otherWay = edgeOSMNodes.getWayId(edge);
+                        if (removedWays.contains(otherWay) || rebuiltWays.contains(otherWay) || forcedWays.contains(otherWay))
+                            continue;
+                        if (wayNode.barrier || (index > 0 && index < edgeOSMNodes.getSize(edge) - 1)) {
+                            forcedWays.add(otherWay);
+                            if (!knownWays.contains(otherWay))
+                                ways.add(otherWay);
+                        }
+                    }
+                }
+            }
+            if (newRebuiltWays.isEmpty() && nodes.isEmpty() && ways.isEmpty() && !hasUnhandledForcedWays())
+                break;
+        }
+    }
+
+    private boolean hasUnhandledForcedWays() {
+        for (LongCursor way : forcedWays)
+            if (!rebuiltWays.contains(way.value))
+                return true;
+        return false;
+    }
+
+    /**
+     * Scans all edges for the given OSM nodes and ways
+     */
+    private void scan(LongHashSet nodes, LongHashSet ways, boolean firstScan) {
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            if (!edgeOSMNodes.has(edge))
+                continue;
+            if (edgeOSMNodes.isCopy(edge)) {
+                if (firstScan)
+                    getOrCreate(copiesByPointer, edgeOSMNodes.getPointer(edge)).add(edge);
+                continue;
+            }
+            long wayId = edgeOSMNodes.getWayId(edge);
+            if (ways.contains(wayId)) {
+                IntArrayList edges = edgesByWay.get(wayId);
+                if (edges == null)
+                    edgesByWay.put(wayId, edges = new IntArrayList());
+                edges.add(edge);
+            }
+            int size = edgeOSMNodes.getSize(edge);
+            for (int i = 0; i < size; i++) {
+                long osmNodeId = edgeOSMNodes.getOSMNodeId(edge, i);
+                if (!nodes.contains(osmNodeId))
+                    continue;
+                LongArrayList list = occurrences.get(osmNodeId);
+                if (list == null)
+                    occurrences.put(osmNodeId, list = new LongArrayList());
+                list.add(toOccurrence(edge, i));
+                if (changedNodes.containsKey(osmNodeId) || deletedNodes.contains(osmNodeId))
+                    touchedWays.add(wayId);
+            }
+        }
+    }
+
+    private boolean isRebuildNeeded(long wayId) {
+        IntArrayList edges = edgesByWay.get(wayId);
+        if (edges == null || forcedWays.contains(wayId))
+            return true;
+        ReaderWay changedWay = changedWays.get(wayId);
+        if (changedWay != null && !getNodePairs(changedWay.getNodes()).equals(getStoredNodePairs(edges)))
+            return true;
+        for (IntCursor edge : edges) {
+            for (int i = 0; i < edgeOSMNodes.getSize(edge.value); i++) {
+                long osmNodeId = edgeOSMNodes.getOSMNodeId(edge.value, i);
+                if (deletedNodes.contains(osmNodeId))
+                    return true;
+                if (changedNodes.containsKey(osmNodeId)) {
+                    ReaderNode oldNode = new ReaderNode(osmNodeId, edgeOSMNodes.getLat(edge.value, i), edgeOSMNodes.getLon(edge.value, i),
+                            edgeOSMNodes.getTags(edgeOSMNodes.getNodeTagsPointer(edge.value, i)));
+                    if (reader.isBarrierNode(oldNode) != resolve(osmNodeId).barrier)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void moveTowerNodes() {
+        for (LongCursor osmNodeId : changedNodes.keys()) {
+            LongArrayList list = occurrences.get(osmNodeId.value);
+            if (list == null || list.isEmpty())
+                continue;
+            result.changedNodes++;
+            WayNode node = resolve(osmNodeId.value);
+            for (LongCursor occurrence : list) {
+                int edge = toEdge(occurrence.value);
+                int index = toIndex(occurrence.value);
+                if (!isMoved(node, edge, index))
+                    continue;
+                result.geometryChanged = true;
+                EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                if (index == 0)
+                    nodeAccess.setNode(state.getBaseNode(), node.lat, node.lon, node.ele);
+                else if (index == edgeOSMNodes.getSize(edge) - 1)
+                    nodeAccess.setNode(state.getAdjNode(), node.lat, node.lon, node.ele);
+            }
+        }
+    }
+
+    private void removeWay(long wayId) {
+        IntArrayList edges = edgesByWay.get(wayId);
+        if (edges == null) {
+            // the way was not in the graph, e.g. because it was not accepted during the import
+            result.ignoredChanges++;
+            return;
+        }
+        result.deletedWays++;
+        for (IntCursor edge : edges)
+            blockEdge(edge.value);
+    }
+
+    /**
+     * Collects everything we need to split the given way into new edges
+     */
+    private RebuiltWay createRebuiltWay(long wayId) {
+        RebuiltWay rebuilt = new RebuiltWay();
+        rebuilt.way = changedWays.get(wayId);
+        rebuilt.nodes = new ArrayList<>();
+        for (LongCursor osmNodeId : getNodeIds(wayId))
+            rebuilt.nodes.add(osmNodeId.value == MISSING_NODE ? null : resolve(osmNodeId.value));
+        IntArrayList edges = edgesByWay.get(wayId);
+        if (edges == null) {
+            result.createdWays++;
+            rebuilt.relationFlags = osmParsers.createRelationFlags();
+            return rebuilt;
+        }
+        result.modifiedWays++;
+        if (rebuilt.way == null) {
+            rebuilt.way = new ReaderWay(wayId);
+            rebuilt.way.setTags(edgeOSMNodes.getTags(edgeOSMNodes.getWayTagsPointer(edges.get(0))));
+        }
+        IntsRef flags = graph.getEdgeIteratorState(edges.get(0), Integer.MIN_VALUE).getFlags();
+        rebuilt.relationFlags = osmParsers.restoreRelationFlags(-1, new IntsRefEdgeIntAccess(flags));
+        rebuilt.keepFlags = flags;
+        return rebuilt;
+    }
+
+    /**
+     * Makes the old edges of the given way inaccessible, but remembers their ends to copy the turn costs later
+     */
+    private void removeEdges(RebuiltWay rebuilt) {
+        long wayId = rebuilt.way.getId();
+        IntArrayList edges = edgesByWay.get(wayId);
+        if (edges == null)
+            return;
+        for (IntCursor edge : edges) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge.value, Integer.MIN_VALUE);
+            int size = edgeOSMNodes.getSize(edge.value);
+            oldEdgeEnds.add(new EdgeEnd(wayId, edge.value, state.getBaseNode(), edgeOSMNodes.getOSMNodeId(edge.value, 1)));
+            oldEdgeEnds.add(new EdgeEnd(wayId, edge.value, state.getAdjNode(), edgeOSMNodes.getOSMNodeId(edge.value, size - 2)));
+            blockEdge(edge.value);
+        }
+    }
+
+    /**
+     * Counts how often the nodes of the rebuilt ways are used and finds the existing tower nodes they connect to,
+     * like the first pass of {@link WaySegmentParser} does for all ways.
+     */
+    private void findJunctions(List<RebuiltWay> rebuilt) {
+        for (RebuiltWay way : rebuilt) {
+            for (int i = 0; i < way.nodes.size(); i++) {
+                WayNode node = way.nodes.get(i);
+                if (node == null)
+                    continue;
+                refCounts.addTo(node.osmId, 1);
+                if (i == 0 || i == way.nodes.size() - 1)
+                    endCounts.addTo(node.osmId, 1);
+                LongArrayList list = occurrences.get(node.osmId);
+                if (list == null || towers.containsKey(node.osmId))
+                    continue;
+                // the edges of the other ways are only tower nodes here, see findAffectedWays
+                for (LongCursor occurrence : list) {
+                    int edge = toEdge(occurrence.value);
+                    if (!edgeOSMNodes.has(edge))
+                        continue;
+                    EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                    towers.put(node.osmId, toIndex(occurrence.value) == 0 ? state.getBaseNode() : state.getAdjNode());
+                    break;
+                }
+            }
+        }
+        for (LongCursor osmNodeId : refCounts.keys()) {
+            int refCount = refCounts.get(osmNodeId.value);
+            // barrier nodes are not split at junctions, but they are split if they connect the ends of two ways
+            boolean junction = towers.containsKey(osmNodeId.value)
+                    || (refCount > 1 && !(refCount == 2 && endCounts.get(osmNodeId.value) == 2));
+            if (!junction && resolve(osmNodeId.value).barrier)
+                splitNodes.add(osmNodeId.value);
+        }
+    }
+
+    /**
+     * Splits the given way into edges, just like {@link WaySegmentParser} does
+     */
+    private void splitWay(RebuiltWay rebuilt) {
+        ReaderWay way = rebuilt.way;
+        rebuilt.wayTagsPointer = edgeOSMNodes.addTags(way.getTags());
+        reader.setKeyValuesTag(way);
+        if (reader.isCalculateWayDistance(way)) {
+            double distance = calcDistance(rebuilt.nodes);
+            if (Double.isNaN(distance))
+                LOGGER.warn("Could not determine distance for OSM way: " + way.getId());
+            else
+                reader.setWayDistanceTags(way, distance);
+        }
+
+        List<SegmentPoint> segment = new ArrayList<>();
+        for (int i = 0; i < rebuilt.nodes.size(); i++) {
+            WayNode node = rebuilt.nodes.get(i);
+            if (node == null) {
+                // just like for the import we split the way at missing nodes
+                if (segment.size() > 1)
+                    splitLoopSegments(segment, rebuilt);
+                segment = new ArrayList<>();
+            } else if (towers.containsKey(node.osmId) || refCounts.get(node.osmId) > 1) {
+                SegmentPoint segmentNode = new SegmentPoint(node, i, false);
+                if (!segment.isEmpty()) {
+                    segment.add(segmentNode);
+                    splitLoopSegments(segment, rebuilt);
+                    segment = new ArrayList<>();
+                }
+                segment.add(segmentNode);
+            } else {
+                segment.add(new SegmentPoint(node, i, false));
+            }
+        }
+        if (segment.size() > 1)
+            splitLoopSegments(segment, rebuilt);
+    }
+
+    private void splitLoopSegments(List<SegmentPoint> segment, RebuiltWay rebuilt) {
+        SegmentPoint first = segment.get(0);
+        SegmentPoint last = segment.get(segment.size() - 1);
+        boolean isLoop = first.node == last.node && !first.copy && !last.copy;
+        if (segment.size() == 2 && isLoop) {
+            LOGGER.warn("Loop in OSM way: {}, will be ignored, duplicate node: {}", rebuilt.way.getId(), first.node.osmId);
+        } else if (isLoop) {
+            splitSegmentAtSplitNodes(segment.subList(0, segment.size() - 1), rebuilt);
+            splitSegmentAtSplitNodes(segment.subList(segment.size() - 2, segment.size()), rebuilt);
+        } else {
+            splitSegmentAtSplitNodes(segment, rebuilt);
+        }
+    }
+
+    private void splitSegmentAtSplitNodes(List<SegmentPoint> parentSegment, RebuiltWay rebuilt) {
+        List<SegmentPoint> segment = new ArrayList<>();
+        for (int i = 0; i < parentSegment.size(); i++) {
+            SegmentPoint node = parentSegment.get(i);
+            if (!node.copy && splitNodes.contains(node.node.osmId)) {
+                // the barrier edge is only added once, even if the barrier connects two ways
+                splitNodes.remove(node.node.osmId);
+                SegmentPoint barrierFrom = node;
+                SegmentPoint barrierTo = new SegmentPoint(node.node, node.wayNodeIndex, true);
+                if (i == parentSegment.size() - 1) {
+                    // make sure the barrier node is always on the inside of the segment
+                    SegmentPoint tmp = barrierFrom;
+                    barrierFrom = barrierTo;
+                    barrierTo = tmp;
+                }
+                if (!segment.isEmpty()) {
+                    segment.add(barrierFrom);
+                    addEdge(segment, rebuilt, false);
+                    segment = new ArrayList<>();
+                }
+                segment.add(barrierFrom);
+                segment.add(barrierTo);
+                addEdge(segment, rebuilt, true);
+                segment = new ArrayList<>();
+                segment.add(barrierTo);
+            } else {
+                segment.add(node);
+            }
+        }
+        if (segment.size() > 1)
+            addEdge(segment, rebuilt, false);
+    }
+
+    private void addEdge(List<SegmentPoint> segment, RebuiltWay rebuilt, boolean barrierEdge) {
+        ReaderWay way = rebuilt.way;
+        int from = getTowerNode(segment.get(0));
+        int to = getTowerNode(segment.get(segment.size() - 1));
+        PointList pointList = new PointList(segment.size(), nodeAccess.is3D());
+        List<Map<String, Object>> nodeTags = new ArrayList<>(segment.size());
+        LongArrayList osmNodeIds = new LongArrayList(segment.size());
+        for (SegmentPoint node : segment) {
+            pointList.add(node.node.lat, node.node.lon, node.node.ele);
+            nodeTags.add(node.node.tags);
+            osmNodeIds.add(node.node.osmId);
+        }
+        if (barrierEdge)
+            way.setTag("gh:barrier_edge", true);
+        OSMReader.ParsedEdge parsedEdge = reader.parseEdge(pointList.clone(false), way, nodeTags, rebuilt.relationFlags);
+        way.removeTag("gh:barrier_edge");
+        if (rebuilt.keepFlags != null)
+            copyKeepValues(rebuilt.keepFlags, parsedEdge.flags);
+        int edge = reader.writeEdge(from, to, parsedEdge, way.getId());
+        edgeOSMNodes.set(edge, way.getId(), rebuilt.wayTagsPointer, segment.get(0).wayNodeIndex, barrierEdge,
+                osmNodeIds, pointList, nodeTags);
+        result.addedEdges++;
+        newEdgesByEnd.put(toKey(way.getId(), from, osmNodeIds.get(1)), edge);
+        newEdgesByEnd.put(toKey(way.getId(), to, osmNodeIds.get(osmNodeIds.size() - 2)), edge);
+    }
+
+    private int getTowerNode(SegmentPoint node) {
+        if (node.copy) {
+            if (node.tower < 0)
+                node.tower = addTowerNode(node.node);
+            return node.tower;
+        }
+        int tower = towers.getOrDefault(node.node.osmId, -1);
+        if (tower < 0) {
+            tower = addTowerNode(node.node);
+            towers.put(node.node.osmId, tower);
+        }
+        return tower;
+    }
+
+    private int addTowerNode(WayNode node) {
+        int tower = graph.getNodes();
+        nodeAccess.setNode(tower, node.lat, node.lon, node.ele);
+        result.addedNodes++;
+        return tower;
+    }
+
+    /**
+     * Copies the turn costs of the removed edges to the new edges that replace them, i.e. the new edges of the same
+     * way that are adjacent to the same node and lead to the same OSM node
+     */
+    private void copyTurnCosts() {
+        TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
+        if (turnCostStorage == null)
+            return;
+        IntObjectMap<IntIntMap> replacementsByNode = new IntObjectHashMap<>();
+        for (EdgeEnd end : oldEdgeEnds) {
+            Integer newEdge = newEdgesByEnd.get(toKey(end.wayId, end.node, end.nextOSMNodeId));
+            if (newEdge == null)
+                continue;
+            IntIntMap replacements = replacementsByNode.get(end.node);
+            if (replacements == null)
+                replacementsByNode.put(end.node, replacements = new IntIntHashMap());
+            replacements.put(end.edge, newEdge);
+        }
+        List<DecimalEncodedValue> turnCostEncs = new ArrayList<>();
+        for (RestrictionTagParser restrictionTagParser : osmParsers.getRestrictionTagParsers())
+            turnCostEncs.add(restrictionTagParser.getTurnCostEnc());
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (IntObjectCursor<IntIntMap> cursor : replacementsByNode) {
+            int viaNode = cursor.key;
+            IntIntMap replacements = cursor.value;
+            for (IntIntCursor replacement : replacements) {
+                EdgeIterator iter = explorer.setBaseNode(viaNode);
+                while (iter.next()) {
+                    int otherEdge = iter.getEdge();
+                    int newOtherEdge = replacements.getOrDefault(otherEdge, otherEdge);
+                    for (DecimalEncodedValue turnCostEnc : turnCostEncs) {
+                        double cost = turnCostStorage.get(turnCostEnc, replacement.key, viaNode, otherEdge);
+                        if (cost != 0)
+                            turnCostStorage.set(turnCostEnc, replacement.value, viaNode, newOtherEdge, cost);
+                        // turns between two replaced edges were already copied above
+                        cost = turnCostStorage.get(turnCostEnc, otherEdge, viaNode, replacement.key);
+                        if (cost != 0 && newOtherEdge == otherEdge)
+                            turnCostStorage.set(turnCostEnc, otherEdge, viaNode, replacement.value, cost);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the edges of a way whose node list did not change. The tags of the way and the tags and coordinates of
+     * its nodes might have changed.
+     */
+    private void updateWay(long wayId) {
+        IntArrayList edges = edgesByWay.get(wayId);
+        ReaderWay way = changedWays.get(wayId);
+        long wayTagsPointer;
+        if (way == null) {
+            wayTagsPointer = edgeOSMNodes.getWayTagsPointer(edges.get(0));
+            way = new ReaderWay(wayId);
+            way.setTags(edgeOSMNodes.getTags(wayTagsPointer));
+        } else {
+            wayTagsPointer = edgeOSMNodes.addTags(way.getTags());
+        }
+        result.modifiedWays++;
+
+        BitSet movedEdges = new BitSet();
+        double wayDistance = 0;
+        for (int e = 0; e < edges.size(); e++) {
+            int edge = edges.get(e);
+            edgeOSMNodes.setWayTagsPointer(edge, wayTagsPointer);
+            for (int i = 0; i < edgeOSMNodes.getSize(edge); i++) {
+                long osmNodeId = edgeOSMNodes.getOSMNodeId(edge, i);
+                if (!changedNodes.containsKey(osmNodeId))
+                    continue;
+                WayNode node = resolve(osmNodeId);
+                if (isMoved(node, edge, i)) {
+                    edgeOSMNodes.setCoordinates(edge, i, node.lat, node.lon, node.ele);
+                    movedEdges.set(e);
+                }
+                if (!node.tags.equals(edgeOSMNodes.getTags(edgeOSMNodes.getNodeTagsPointer(edge, i))))
+                    edgeOSMNodes.setNodeTagsPointer(edge, i, node.tags.isEmpty() ? 0 : edgeOSMNodes.addTags(node.tags));
+            }
+            wayDistance += distCalc.calcDistance(edgeOSMNodes.getPoints(edge));
+        }
+
+        reader.setKeyValuesTag(way);
+        if (reader.isCalculateWayDistance(way))
+            reader.setWayDistanceTags(way, wayDistance);
+        for (int e = 0; e < edges.size(); e++)
+            updateEdge(edges.get(e), way, movedEdges.get(e));
+    }
+
+    private void updateEdge(int edge, ReaderWay way, boolean geometryChanged) {
+        IntsRef oldFlags = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE).getFlags();
+        if (edgeOSMNodes.isBarrierEdge(edge))
+            way.setTag("gh:barrier_edge", true);
+        OSMReader.ParsedEdge parsedEdge = reader.parseEdge(edgeOSMNodes.getPoints(edge), way, edgeOSMNodes.getNodeTags(edge),
+                osmParsers.restoreRelationFlags(-1, new IntsRefEdgeIntAccess(oldFlags)));
+        way.removeTag("gh:barrier_edge");
+        copyKeepValues(oldFlags, parsedEdge.flags);
+        PointList pointList = parsedEdge.pointList;
+        for (int e : withCopies(edge)) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(e, Integer.MIN_VALUE);
+            if (geometryChanged || !parsedEdge.flags.equals(state.getFlags()) || parsedEdge.distance != state.getDistance()) {
+                addEdgeChange(state).geometryChanged |= geometryChanged;
+                state.setFlags(parsedEdge.flags).setDistance(parsedEdge.distance);
+            }
+            if (geometryChanged)
+                state.setWayGeometry(pointList.size() > 2 ? pointList.shallowCopy(1, pointList.size() - 1, false) : PointList.EMPTY);
+            if (!parsedEdge.keyValues.equals(state.getKeyValues()))
+                state.setKeyValues(parsedEdge.keyValues);
+        }
+    }
+
+    /**
+     * Makes the given edge and its copies inaccessible and removes their OSM nodes
+     */
+    private void blockEdge(int edge) {
+        EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+        IntsRef oldFlags = state.getFlags();
+        PointList pointList = state.fetchWayGeometry(FetchMode.ALL);
+        List<Map<String, Object>> nodeTags = new ArrayList<>(pointList.size());
+        for (int i = 0; i < pointList.size(); i++)
+            nodeTags.add(Collections.emptyMap());
+        // a way without tags is not accessible for any vehicle
+        ReaderWay way = new ReaderWay(edgeOSMNodes.getWayId(edge));
+        reader.setArtificialWayTags(pointList, way, state.getDistance(), nodeTags);
+        IntsRef flags = new IntsRef(graph.getIntsForFlags());
+        osmParsers.handleWayTags(-1, new IntsRefEdgeIntAccess(flags), way, osmParsers.restoreRelationFlags(-1, new IntsRefEdgeIntAccess(oldFlags)));
+        copyKeepValues(oldFlags, flags);
+        for (int e : withCopies(edge)) {
+            EdgeIteratorState s = graph.getEdgeIteratorState(e, Integer.MIN_VALUE);
+            if (!flags.equals(s.getFlags())) {
+                addEdgeChange(s);
+                s.setFlags(flags);
+            }
+            edgeOSMNodes.remove(e);
+        }
+    }
+
+    private OSMReader.EdgeChange addEdgeChange(EdgeIteratorState state) {
+        OSMReader.EdgeChange change = result.edgeChanges.get(state.getEdge());
+        if (change == null) {
+            change = new OSMReader.EdgeChange(state.getEdge(), state.getFlags(), state.getDistance());
+            result.edgeChanges.put(state.getEdge(), change);
+        }
+        return change;
+    }
+
+    private void copyKeepValues(IntsRef from, IntsRef to) {
+        IntsRefEdgeIntAccess fromIntAccess = new IntsRefEdgeIntAccess(from);
+        IntsRefEdgeIntAccess toIntAccess = new IntsRefEdgeIntAccess(to);
+        for (IntEncodedValue enc : keepEncodedValues) {
+            enc.setInt(false, -1, toIntAccess, enc.getInt(false, -1, fromIntAccess));
+            if (enc.isStoreTwoDirections())
+                enc.setInt(true, -1, toIntAccess, enc.getInt(true, -1, fromIntAccess));
+        }
+    }
+
+    private int[] withCopies(int edge) {
+        IntArrayList edges = new IntArrayList(1);
+        edges.add(edge);
+        IntArrayList copies = copiesByPointer.get(edgeOSMNodes.getPointer(edge));
+        if (copies != null)
+            edges.addAll(copies);
+        return edges.toArray();
+    }
+
+    private static final long MISSING_NODE = Long.MIN_VALUE;
+
+    /**
+     * @return the OSM node ids of the given way. If the way did not change they are restored from the stored OSM
+     * nodes of its edges, and nodes that were missing during the import are returned as MISSING_NODE.
+     */
+    private LongArrayList getNodeIds(long wayId) {
+        ReaderWay way = changedWays.get(wayId);
+        if (way != null)
+            return way.getNodes();
+        LongArrayList nodeIds = new LongArrayList();
+        for (IntCursor edge : edgesByWay.get(wayId)) {
+            int wayNodeIndex = edgeOSMNodes.getWayNodeIndex(edge.value);
+            for (int i = 0; i < edgeOSMNodes.getSize(edge.value); i++) {
+                while (nodeIds.size() <= wayNodeIndex + i)
+                    nodeIds.add(MISSING_NODE);
+                nodeIds.set(wayNodeIndex + i, edgeOSMNodes.getOSMNodeId(edge.value, i));
+            }
+        }
+        return nodeIds;
+    }
+
+    /**
+     * @return the coordinates and tags of the given OSM node, taken from the change file or the stored OSM nodes, or
+     * null if the node was deleted or is unknown
+     */
+    private WayNode resolve(long osmNodeId) {
+        if (deletedNodes.contains(osmNodeId))
+            return null;
+        WayNode node = wayNodes.get(osmNodeId);
+        if (node != null)
+            return node;
+        ReaderNode readerNode = changedNodes.get(osmNodeId);
+        if (readerNode != null) {
+            Map<String, Object> tags = new LinkedHashMap<>();
+            if (WaySegmentParser.prepareNodeTags(readerNode))
+                for (Map.Entry<String, Object> e : readerNode.getTags().entrySet())
+                    tags.put(e.getKey(), e.getValue() instanceof String ? KVStorage.cutString((String) e.getValue()) : e.getValue());
+            double ele = nodeAccess.is3D() ? eleProvider.getEle(readerNode) : Double.NaN;
+            node = new WayNode(osmNodeId, readerNode.getLat(), readerNode.getLon(), ele, tags, reader.isBarrierNode(readerNode));
+        } else {
+            long occurrence = getStoredOccurrence(osmNodeId);
+            if (occurrence < 0)
+                return null;
+            int edge = toEdge(occurrence);
+            int index = toIndex(occurrence);
+            Map<String, Object> tags = edgeOSMNodes.getTags(edgeOSMNodes.getNodeTagsPointer(edge, index));
+            double lat = edgeOSMNodes.getLat(edge, index);
+            double lon = edgeOSMNodes.getLon(edge, index);
+            node = new WayNode(osmNodeId, lat, lon, edgeOSMNodes.getEle(edge, index), tags,
+                    reader.isBarrierNode(new ReaderNode(osmNodeId, lat, lon, tags)));
+        }
+        wayNodes.put(osmNodeId, node);
+        return node;
+    }
+
+    /**
+     * @return an occurrence of the given OSM node in an edge that still has its stored OSM nodes or -1 if there is none
+     */
+    private long getStoredOccurrence(long osmNodeId) {
+        LongArrayList list = occurrences.get(osmNodeId);
+        if (list != null)
+            for (LongCursor occurrence : list)
+                if (edgeOSMNodes.has(toEdge(occurrence.value)))
+                    return occurrence.value;
+        return -1;
+    }
+
+    private boolean isMoved(WayNode node, int edge, int index) {
+        return Helper.degreeToInt(node.lat) != Helper.degreeToInt(edgeOSMNodes.getLat(edge, index))
+                || Helper.degreeToInt(node.lon) != Helper.degreeToInt(edgeOSMNodes.getLon(edge, index))
+                || nodeAccess.is3D() && Helper.eleToInt(node.ele) != Helper.eleToInt(edgeOSMNodes.getEle(edge, index));
+    }
+
+    /**
+     * @return the distance along the given nodes or NaN if some nodes are missing
+     */
+    private double calcDistance(List<WayNode> nodes) {
+        double distance = 0;
+        for (int i = 1; i < nodes.size(); i++) {
+            WayNode prev = nodes.get(i - 1);
+            WayNode node = nodes.get(i);
+            if (prev == null || node == null)
+                return Double.NaN;
+            distance += nodeAccess.is3D()
+                    ? distCalc.calcDist3D(prev.lat, prev.lon, prev.ele, node.lat, node.lon, node.ele)
+                    : distCalc.calcDist(prev.lat, prev.lon, node.lat, node.lon);
+        }
+        return distance;
+    }
+
+    /**
+     * @return the pairs of consecutive different OSM node ids, sorted
+     */
+    private static List<String> getNodePairs(LongArrayList osmNodeIds) {
+        List<String> pairs = new ArrayList<>();
+        addNodePairs(osmNodeIds, pairs);
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private List<String> getStoredNodePairs(IntArrayList edges) {
+        List<String> pairs = new ArrayList<>();
+        for (IntCursor edge : edges)
+            addNodePairs(edgeOSMNodes.getOSMNodeIds(edge.value), pairs);
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private static void addNodePairs(LongArrayList osmNodeIds, List<String> pairs) {
+        for (int i = 1; i < osmNodeIds.size(); i++)
+            // the barrier edges connect a node with itself
+            if (osmNodeIds.get(i - 1) != osmNodeIds.get(i))
+                pairs.add(osmNodeIds.get(i - 1) + "," + osmNodeIds.get(i));
+    }
+
+    private static long[] sorted(LongContainer container) {
+        long[] array = container.toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static IntArrayList getOrCreate(LongObjectMap<IntArrayList> map, long key) {
+        IntArrayList list = map.get(key);
+        if (list == null)
+            map.put(key, list = new IntArrayList());
+        return list;
+    }
+
+    private static long toOccurrence(int edge, int index) {
+        return ((long) edge << 32) | index;
+    }
+
+    private static int toEdge(long occurrence) {
+        return (int) (occurrence >>> 32);
+    }
+
+    private static int toIndex(long occurrence) {
+        return (int) occurrence;
+    }
+
+    private static String toKey(long wayId, int node, long nextOSMNodeId) {
+        return wayId + "," + node + "," + nextOSMNodeId;
+    }
+
+    private static class WayNode {
+        final long osmId;
+        final double lat, lon, ele;
+        final Map<String, Object> tags;
+        final boolean barrier;
+
+        WayNode(long osmId, double lat, double lon, double ele, Map<String, Object> tags, boolean barrier) {
+            this.osmId = osmId;
+            this.lat = lat;
+            this.lon = lon;
+            this.ele = ele;
+            this.tags = tags;
+            this.barrier = barrier;
+        }
+    }
+
+    private static class SegmentPoint {
+        final WayNode node;
+        final int wayNodeIndex;
+        // the copy of a barrier node, which always gets its own tower node
+        final boolean copy;
+        int tower = -1;
+
+        SegmentPoint(WayNode node, int wayNodeIndex, boolean copy) {
+            this.node = node;
+            this.wayNodeIndex = wayNodeIndex;
+            this.copy = copy;
+        }
+    }
+
+    private static class RebuiltWay {
+        ReaderWay way;
+        List<WayNode> nodes;
+        IntsRef relationFlags;
+        // the flags of an old edge of the way, to keep the values that are not set by the tag parsers
+        IntsRef keepFlags;
+        long wayTagsPointer;
+    }
+
+    private static class EdgeEnd {
+        final long wayId;
+        final int edge;
+        final int node;
+        final long nextOSMNodeId;
+
+        EdgeEnd(long wayId, int edge, int node, long nextOSMNodeId) {
+            this.wayId = wayId;
+            this.edge = edge;
+            this.node = node;
+            this.nextOSMNodeId = nextOSMNodeId;
+        }
+    }
+}
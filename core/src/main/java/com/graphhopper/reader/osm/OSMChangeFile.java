@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.util.Helper;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads an OSM change file (.osc or .osc.gz), see https://wiki.openstreetmap.org/wiki/OsmChange
+ */
+public class OSMChangeFile implements AutoCloseable {
+    public enum Action {
+        CREATE, MODIFY, DELETE
+    }
+
+    public static class Change {
+        private final Action action;
+        private final ReaderElement element;
+
+        public Change(Action action, ReaderElement element) {
+            this.action = action;
+            this.element = element;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public ReaderElement getElement() {
+            return element;
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + element;
+        }
+    }
+
+    private final InputStream in;
+    private final XMLStreamReader parser;
+    private Action action;
+
+    public OSMChangeFile(File file) throws IOException, XMLStreamException {
+        InputStream fileIn = new BufferedInputStream(new FileInputStream(file), 50_000);
+        in = file.getName().endsWith(".gz") ? new GZIPInputStream(fileIn, 50_000) : fileIn;
+        parser = XMLInputFactory.newInstance().createXMLStreamReader(in, "UTF-8");
+        if (parser.nextTag() != XMLStreamConstants.START_ELEMENT || !parser.getLocalName().equals("osmChange"))
+            throw new IllegalArgumentException("File is not a valid OSM change file: " + file);
+    }
+
+    /**
+     * @return the next change or null if there are no more changes
+     */
+    public Change getNext() throws XMLStreamException {
+        while (parser.hasNext()) {
+            int event = parser.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (isAction(parser.getLocalName()))
+                    action = null;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+            String name = parser.getLocalName();
+            if (isAction(name)) {
+                action = Action.valueOf(Helper.toUpperCase(name));
+                continue;
+            }
+            if (action == null)
+                throw new IllegalStateException("OSM element '" + name + "' outside of create, modify or delete");
+            long id = Long.parseLong(parser.getAttributeValue(null, "id"));
+            if (action == Action.DELETE) {
+                // deleted elements only need their id, and they often come without coordinates, tags etc.
+                ReaderElement element = createDeletedElement(name, id);
+                skipElement();
+                return new Change(action, element);
+            }
+            switch (name) {
+                case "node":
+                    return new Change(action, OSMXMLHelper.createNode(id, parser));
+                case "way":
+                    return new Change(action, OSMXMLHelper.createWay(id, parser));
+                case "relation":
+                    return new Change(action, OSMXMLHelper.createRelation(id, parser));
+                default:
+                    throw new IllegalStateException("Unknown OSM element: " + name);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAction(String name) {
+        return name.equals("create") || name.equals("modify") || name.equals("delete");
+    }
+
+    private static ReaderElement createDeletedElement(String name, long id) {
+        switch (name) {
+            case "node":
+                return new ReaderNode(id, Double.NaN, Double.NaN);
+            case "way":
+                return new ReaderWay(id);
+            case "relation":
+                return new ReaderRelation(id);
+            default:
+                throw new IllegalStateException("Unknown OSM element: " + name);
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = parser.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            parser.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -18,8 +18,12 @@
 package com.graphhopper.reader.osm;
 
 import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.pbf.PbfBlobIndex;
 import com.graphhopper.reader.osm.pbf.PbfReader;
 import com.graphhopper.reader.osm.pbf.Sink;
+import com.graphhopper.util.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -42,6 +46,7 @@ import java.util.zip.ZipInputStream;
  * @author Nop
  */
 public class OSMInputFile implements Sink, OSMInput {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OSMInputFile.class);
     private static final int MAX_BATCH_SIZE = 1_000;
     private final InputStream bis;
     private final BlockingQueue<ReaderElement> itemQueue;
@@ -56,9 +61,12 @@ public class OSMInputFile implements Sink, OSMInput {
     private boolean hasIncomingData;
     private int workerThreads = -1;
     private SkipOptions skipOptions = SkipOptions.none();
+    private final File file;
+    private boolean memoryMapped = false;
     private OSMFileHeader fileheader;
 
     public OSMInputFile(File file) throws IOException {
+        this.file = file;
         bis = decode(file);
         itemQueue = new LinkedBlockingQueue<>(50_000);
         itemBatch = new ArrayDeque<>(MAX_BATCH_SIZE);
@@ -90,6 +98,15 @@ public class OSMInputFile implements Sink, OSMInput {
         return this;
     }
 
+    /**
+     * Memory maps the file instead of reading it through a stream. This avoids copying every blob of the file into a
+     * separate array before it is decoded. This will only affect the reading of pbf files.
+     */
+    public OSMInputFile setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     private InputStream decode(File file) throws IOException {
         final String name = file.getName();
@@ -257,7 +274,18 @@ public class OSMInputFile implements Sink, OSMInput {
         if (workerThreads <= 0)
             workerThreads = 1;
 
-        pbfReader = new PbfReader(stream, this, workerThreads, skipOptions);
+        pbfReader = memoryMapped
+                ? new PbfReader(file, this, workerThreads, skipOptions)
+                : new PbfReader(stream, this, workerThreads, skipOptions);
+        if (skipOptions.isSkipNodes()) {
+            // if the file is sorted by type we do not even need to decompress the blobs that only contain nodes
+            PbfBlobIndex blobIndex = new PbfBlobIndex(file);
+            if (blobIndex.isSortedByType()) {
+                long nodeBlobsEnd = blobIndex.getNodeBlobsEnd();
+                LOGGER.info("skipping node blobs, first {}MB of {}", nodeBlobsEnd / Helper.MB, file.getName());
+                pbfReader.setSkipDataBlobsBefore(nodeBlobsEnd);
+            }
+        }
         pbfReaderThread = new Thread(pbfReader, "PBF Reader");
         pbfReaderThread.start();
     }
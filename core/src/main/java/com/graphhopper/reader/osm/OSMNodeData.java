@@ -21,6 +21,7 @@ package com.graphhopper.reader.osm;
 import com.carrotsearch.hppc.LongScatterSet;
 import com.carrotsearch.hppc.LongSet;
 import com.graphhopper.coll.GHLongLongBTree;
+import com.graphhopper.coll.GHLongLongDenseMap;
 import com.graphhopper.coll.LongLongMap;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.search.KVStorage;
@@ -80,14 +81,28 @@ class OSMNodeData {
     private long nextArtificialOSMNodeId = -Long.MAX_VALUE;
 
     public OSMNodeData(PointAccess nodeAccess, Directory directory) {
-        // We use a b-tree that can store as many entries as there are longs. A tree is also more
-        // memory efficient, because there is no waste for empty entries, and it also avoids
-        // allocating big arrays when growing the size.
-        idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        this(nodeAccess, directory, false);
+    }
+
+    /**
+     * @param denseNodeIdMap true if the internal node ids shall be mapped with a {@link GHLongLongDenseMap}, which is faster
+     *                       and needs less memory if the node ids are dense, e.g. for a planet file, but which needs
+     *                       a lot more memory for sparse node ids, e.g. for smaller extracts.
+     */
+    public OSMNodeData(PointAccess nodeAccess, Directory directory, boolean denseNodeIdMap) {
+        if (denseNodeIdMap) {
+            idsByOsmNodeIds = new GHLongLongDenseMap(directory, "tmp_osm_node_ids", 5, EMPTY_NODE);
+        } else {
+            // We use a b-tree that can store as many entries as there are longs. A tree is also more
+            // memory efficient, because there is no waste for empty entries, and it also avoids
+            // allocating big arrays when growing the size.
+            idsByOsmNodeIds = new GHLongLongBTree(200, 5, EMPTY_NODE);
+        }
+        // only few nodes have tags we keep, so even for dense node ids a dense map would waste a lot of memory
+        nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
         towerNodes = nodeAccess;
         pillarNodes = new PillarInfo(towerNodes.is3D(), directory);
 
-        nodeTagIndicesByOsmNodeIds = new GHLongLongBTree(200, 4, -1);
         nodesToBeSplit = new LongScatterSet();
         nodeKVStorage = new KVStorage(directory, false).create(100);
     }
@@ -197,7 +212,10 @@ class OSMNodeData {
         if (idsByOsmNodeIds.put(newOsmId, INTERMEDIATE_NODE) != EMPTY_NODE)
             throw new IllegalStateException("Artificial osm node id already exists: " + newOsmId);
         long id = addPillarNode(newOsmId, point.getLat(), point.getLon(), point.getEle());
-        return new SegmentNode(newOsmId, id, node.tags);
+        SegmentNode copy = new SegmentNode(newOsmId, id, node.tags);
+        copy.originalOsmNodeId = node.originalOsmNodeId;
+        copy.wayNodeIndex = node.wayNodeIndex;
+        return copy;
     }
 
     long convertPillarToTowerNode(long id, long osmNodeId) {
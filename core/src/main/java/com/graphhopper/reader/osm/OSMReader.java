@@ -18,10 +18,14 @@
 package com.graphhopper.reader.osm;
 
 import com.carrotsearch.hppc.IntIntMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.LongHashSet;
 import com.carrotsearch.hppc.LongSet;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
 import com.carrotsearch.hppc.cursors.LongCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
 import com.graphhopper.coll.GHLongLongHashMap;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
@@ -32,7 +36,8 @@ import com.graphhopper.reader.dem.EdgeSampling;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.routing.OSMReaderConfig;
 import com.graphhopper.routing.ev.Country;
-import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntsRefEdgeIntAccess;
 import com.graphhopper.routing.util.AreaIndex;
 import com.graphhopper.routing.util.CustomArea;
 import com.graphhopper.routing.util.OSMParsers;
@@ -50,9 +55,11 @@ import com.graphhopper.util.shapes.GHPoint3D;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -78,7 +85,6 @@ public class OSMReader {
 
     private final OSMReaderConfig config;
     private final BaseGraph baseGraph;
-    private final EdgeIntAccess edgeIntAccess;
     private final NodeAccess nodeAccess;
     private final TurnCostStorage turnCostStorage;
     private final OSMParsers osmParsers;
@@ -87,12 +93,14 @@ public class OSMReader {
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private AreaIndex<CustomArea> areaIndex;
     private CountryRuleFactory countryRuleFactory = null;
+    private EdgeOSMNodes edgeOSMNodes;
+    private long lastWayId = Long.MIN_VALUE;
+    private long lastWayTagsPointer;
     private File osmFile;
     private final RamerDouglasPeucker simplifyAlgo = new RamerDouglasPeucker();
 
-    private final IntsRef tempRelFlags;
     private Date osmDataDate;
-    private long zeroCounter = 0;
+    private final AtomicLong zeroCounter = new AtomicLong();
 
     private GHLongLongHashMap osmWayIdToRelationFlagsMap = new GHLongLongHashMap(200, .5f);
     private WayToEdgesMap restrictedWaysToEdgesMap = new WayToEdgesMap();
@@ -100,7 +108,6 @@ public class OSMReader {
 
     public OSMReader(BaseGraph baseGraph, OSMParsers osmParsers, OSMReaderConfig config) {
         this.baseGraph = baseGraph;
-        this.edgeIntAccess = baseGraph.createEdgeIntAccess();
         this.config = config;
         this.nodeAccess = baseGraph.getNodeAccess();
         this.osmParsers = osmParsers;
@@ -110,8 +117,7 @@ public class OSMReader {
         simplifyAlgo.setElevationMaxDistance(config.getElevationMaxWayPointDistance());
         turnCostStorage = baseGraph.getTurnCostStorage();
 
-        tempRelFlags = osmParsers.createRelationFlags();
-        if (tempRelFlags.length != 2)
+        if (osmParsers.createRelationFlags().length != 2)
             // we use a long to store relation flags currently, so the relation flags ints ref must have length 2
             throw new IllegalArgumentException("OSMReader cannot use relation flags with != 2 integers");
     }
@@ -148,6 +154,15 @@ public class OSMReader {
         return this;
     }
 
+    /**
+     * Stores the OSM nodes of all edges that are created during the import into the given storage, see
+     * {@link OSMReaderConfig#setStoreOSMNodes}. When applying changes the storage is read and updated.
+     */
+    public OSMReader setEdgeOSMNodes(EdgeOSMNodes edgeOSMNodes) {
+        this.edgeOSMNodes = edgeOSMNodes;
+        return this;
+    }
+
     public void readGraph() throws IOException {
         if (osmParsers == null)
             throw new IllegalStateException("Tag parsers were not set.");
@@ -169,7 +184,11 @@ public class OSMReader {
                 .setRelationPreprocessor(this::preprocessRelations)
                 .setRelationProcessor(this::processRelation)
                 .setEdgeHandler(this::addEdge)
+                .setConcurrentEdgeHandler(this::prepareEdge)
                 .setWorkerThreads(config.getWorkerThreads())
+                .setWayThreads(config.getWayThreads())
+                .setDenseNodeIdMap(config.isDenseNodeIdMap())
+                .setMemoryMappedPbf(config.isMemoryMappedPbf())
                 .build();
         waySegmentParser.readOSM(osmFile);
         osmDataDate = waySegmentParser.getTimeStamp();
@@ -178,8 +197,176 @@ public class OSMReader {
         releaseEverythingExceptRestrictionData();
         addRestrictionsToGraph();
         releaseRestrictionData();
+        if (edgeOSMNodes != null)
+            for (IntIntCursor cursor : getArtificialEdgesByEdges())
+                edgeOSMNodes.copy(cursor.key, cursor.value);
         LOGGER.info("Finished reading OSM file: {}, nodes: {}, edges: {}, zero distance edges: {}",
-                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter));
+                osmFile.getAbsolutePath(), nf(baseGraph.getNodes()), nf(baseGraph.getEdges()), nf(zeroCounter.get()));
+    }
+
+    /**
+     * Applies the changes of an OSM change file to a graph that was created by this reader before. This requires the
+     * OSM data of the edges that was stored during the import, see {@link #setEdgeOSMNodes}, because the change file
+     * only contains the changed elements. Ways that are modified or contain modified nodes are parsed again, using
+     * the stored tags and coordinates of all nodes that did not change. If only tags or coordinates changed the edges
+     * of such a way are updated in place. Otherwise, e.g. for new ways or changed node lists, the old edges of the way
+     * become inaccessible and new edges are added, just like the import would split the way. Existing edges are split
+     * where new junctions are created and turn costs are copied to the edges that replace the old ones. Deleted ways
+     * and ways that are no longer accepted become inaccessible. Changed relations are not applied, e.g. the relation
+     * flags of the edges are kept.
+     * <p>
+     * Afterwards the location index and all calculations that depend on the edges, like the subnetworks, the CH and
+     * LM preparations, have to be updated, see {@link ChangeResult}.
+     *
+     * @param keepEncodedValues encoded values that are not set by the tag parsers, but calculated after the import,
+     *                          like the subnetworks. Their values are kept for the changed edges.
+     */
+    public ChangeResult applyChanges(File changeFile, List<IntEncodedValue> keepEncodedValues) throws IOException {
+        if (osmParsers == null)
+            throw new IllegalStateException("Tag parsers were not set.");
+        if (edgeOSMNodes == null)
+            throw new IllegalStateException("Applying OSM changes requires the OSM nodes that were stored during the import");
+
+        ChangeResult result;
+        try {
+            result = new OSMChangeApplier(this, baseGraph, osmParsers, edgeOSMNodes, eleProvider, keepEncodedValues).apply(changeFile);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read OSM change file " + changeFile, e);
+        }
+        LOGGER.info("Applied OSM change file: {}, {}", changeFile.getAbsolutePath(), result);
+        return result;
+    }
+
+    public static class ChangeResult {
+        int createdWays;
+        int modifiedWays;
+        int deletedWays;
+        int changedNodes;
+        int addedNodes;
+        int addedEdges;
+        int ignoredChanges;
+        boolean geometryChanged;
+        final IntObjectMap<EdgeChange> edgeChanges = new IntObjectHashMap<>();
+
+        public int getCreatedWays() {
+            return createdWays;
+        }
+
+        /**
+         * @return the number of ways that were modified or contain modified nodes
+         */
+        public int getModifiedWays() {
+            return modifiedWays;
+        }
+
+        /**
+         * @return the number of ways that were deleted or are no longer accepted
+         */
+        public int getDeletedWays() {
+            return deletedWays;
+        }
+
+        /**
+         * @return the number of nodes that were moved or got different tags
+         */
+        public int getChangedNodes() {
+            return changedNodes;
+        }
+
+        public int getAddedNodes() {
+            return addedNodes;
+        }
+
+        public int getAddedEdges() {
+            return addedEdges;
+        }
+
+        /**
+         * @return the number of existing edges whose flags, distance or geometry were changed
+         */
+        public int getChangedEdges() {
+            return edgeChanges.size();
+        }
+
+        /**
+         * @return the changed existing edges together with their old state. Edges that were replaced by new edges
+         * are included, because they became inaccessible.
+         */
+        public List<EdgeChange> getEdgeChanges() {
+            List<EdgeChange> list = new ArrayList<>(edgeChanges.size());
+            for (ObjectCursor<EdgeChange> cursor : edgeChanges.values())
+                list.add(cursor.value);
+            list.sort(Comparator.comparingInt(EdgeChange::getEdge));
+            return list;
+        }
+
+        /**
+         * @return true if nodes or edges were added to the graph. In this case the preparations that depend on the
+         * graph topology, like CH and LM, must be done again.
+         */
+        public boolean isTopologyChanged() {
+            return addedNodes > 0 || addedEdges > 0;
+        }
+
+        /**
+         * @return true if the coordinates of nodes were changed or nodes or edges were added, which requires a new
+         * location index
+         */
+        public boolean isGeometryChanged() {
+            return geometryChanged || isTopologyChanged();
+        }
+
+        /**
+         * @return the number of changes that could not be applied, e.g. changed relations or changes of ways that
+         * are not accepted
+         */
+        public int getIgnoredChanges() {
+            return ignoredChanges;
+        }
+
+        @Override
+        public String toString() {
+            return "created ways: " + nf(createdWays) + ", modified ways: " + nf(modifiedWays) + ", deleted ways: " + nf(deletedWays)
+                    + ", changed nodes: " + nf(changedNodes) + ", changed edges: " + nf(getChangedEdges())
+                    + ", added nodes: " + nf(addedNodes) + ", added edges: " + nf(addedEdges)
+                    + ", ignored changes: " + nf(ignoredChanges);
+        }
+    }
+
+    /**
+     * The state of an existing edge before the changes were applied
+     */
+    public static class EdgeChange {
+        private final int edge;
+        private final IntsRef oldFlags;
+        private final double oldDistance;
+        boolean geometryChanged;
+
+        EdgeChange(int edge, IntsRef oldFlags, double oldDistance) {
+            this.edge = edge;
+            this.oldFlags = oldFlags;
+            this.oldDistance = oldDistance;
+        }
+
+        public int getEdge() {
+            return edge;
+        }
+
+        public IntsRef getOldFlags() {
+            return oldFlags;
+        }
+
+        public double getOldDistance() {
+            return oldDistance;
+        }
+
+        /**
+         * @return true if the geometry of the edge changed, so weightings that depend on the geometry, e.g. on custom
+         * areas, might have changed even if the flags and the distance did not
+         */
+        public boolean isGeometryChanged() {
+            return geometryChanged;
+        }
     }
 
     /**
@@ -296,6 +483,16 @@ public class OSMReader {
      * @param nodeTags  node tags of this segment. there is one map of tags for each point.
      */
     protected void addEdge(int fromIndex, int toIndex, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
+        prepareEdge(fromIndex, toIndex, pointList, way, nodeTags).run();
+    }
+
+    /**
+     * Does all the work of {@link #addEdge} that does not modify the graph, most importantly the tag parsing, which
+     * is done on temporary edge flags. Unlike addEdge this method can be called concurrently for different ways.
+     *
+     * @return the action that adds the edge to the graph
+     */
+    protected Runnable prepareEdge(int fromIndex, int toIndex, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags) {
         // sanity checks
         if (fromIndex < 0 || toIndex < 0)
             throw new AssertionError("to or from index is invalid for this edge " + fromIndex + "->" + toIndex + ", points:" + pointList);
@@ -304,6 +501,33 @@ public class OSMReader {
         if (pointList.size() != nodeTags.size())
             throw new AssertionError("there should be as many maps of node tags as there are points. node tags: " + nodeTags.size() + ", points: " + pointList.size());
 
+        final long wayId = way.getId();
+        if (edgeOSMNodes == null) {
+            ParsedEdge edge = parseEdge(pointList, way, nodeTags, getRelFlagsMap(wayId));
+            return () -> writeEdge(fromIndex, toIndex, edge, wayId);
+        }
+        LongArrayList osmNodeIds = way.getTag("gh:osm_node_ids", null);
+        if (osmNodeIds == null)
+            throw new IllegalStateException("Storing the OSM nodes requires the OSM node ids of the edge, osm way " + wayId);
+        int wayNodeIndex = way.getTag("gh:way_node_index", 0);
+        boolean barrierEdge = way.hasTag("gh:barrier_edge");
+        // the geometry is simplified below, but we store all points
+        PointList originalPointList = pointList.clone(false);
+        ParsedEdge edge = parseEdge(pointList, way, nodeTags, getRelFlagsMap(wayId));
+        return () -> {
+            int edgeId = writeEdge(fromIndex, toIndex, edge, wayId);
+            if (wayId != lastWayId) {
+                lastWayTagsPointer = edgeOSMNodes.addTags(way.getTags());
+                lastWayId = wayId;
+            }
+            edgeOSMNodes.set(edgeId, wayId, lastWayTagsPointer, wayNodeIndex, barrierEdge, osmNodeIds, originalPointList, nodeTags);
+        };
+    }
+
+    /**
+     * Processes the geometry of an edge and parses the tags of its way. The given point list is modified.
+     */
+    ParsedEdge parseEdge(PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags, IntsRef relationFlags) {
         // todo: in principle it should be possible to delay elevation calculation so we do not need to store
         // elevations during import (saves memory in pillar info during import). also note that we already need to
         // to do some kind of elevation processing (bridge+tunnel interpolation in GraphHopper class, maybe this can
@@ -312,7 +536,10 @@ public class OSMReader {
         if (pointList.is3D()) {
             // sample points along long edges
             if (config.getLongEdgeSamplingDistance() < Double.MAX_VALUE)
-                pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
+                // the elevation providers are not thread-safe
+                synchronized (eleProvider) {
+                    pointList = EdgeSampling.sample(pointList, config.getLongEdgeSamplingDistance(), distCalc, eleProvider);
+                }
 
             // smooth the elevation before calculating the distance because the distance will be incorrect if calculated afterwards
             if (config.getElevationSmoothing().equals("ramer"))
@@ -329,7 +556,7 @@ public class OSMReader {
         if (distance < 0.001) {
             // As investigation shows often two paths should have crossed via one identical point
             // but end up in two very close points.
-            zeroCounter++;
+            zeroCounter.incrementAndGet();
             distance = 0.001;
         }
 
@@ -348,12 +575,20 @@ public class OSMReader {
         }
 
         setArtificialWayTags(pointList, way, distance, nodeTags);
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
-        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(distance);
-        osmParsers.handleWayTags(edge.getEdge(), edgeIntAccess, way, relationFlags);
-        List<KVStorage.KeyValue> list = way.getTag("key_values", Collections.emptyList());
-        if (!list.isEmpty())
-            edge.setKeyValues(list);
+        IntsRef edgeFlags = new IntsRef(baseGraph.getIntsForFlags());
+        // the edge does not exist yet, but the flags do not depend on the edge id
+        osmParsers.handleWayTags(-1, new IntsRefEdgeIntAccess(edgeFlags), way, relationFlags);
+        return new ParsedEdge(pointList, distance, edgeFlags, way.getTag("key_values", Collections.emptyList()));
+    }
+
+    /**
+     * @return the id of the new edge
+     */
+    int writeEdge(int fromIndex, int toIndex, ParsedEdge parsedEdge, long wayId) {
+        PointList pointList = parsedEdge.pointList;
+        EdgeIteratorState edge = baseGraph.edge(fromIndex, toIndex).setDistance(parsedEdge.distance).setFlags(parsedEdge.flags);
+        if (!parsedEdge.keyValues.isEmpty())
+            edge.setKeyValues(parsedEdge.keyValues);
 
         // If the entire way is just the first and last point, do not waste space storing an empty way geometry
         if (pointList.size() > 2) {
@@ -365,7 +600,25 @@ public class OSMReader {
         }
 
         checkDistance(edge);
-        restrictedWaysToEdgesMap.putIfReserved(way.getId(), edge.getEdge());
+        restrictedWaysToEdgesMap.putIfReserved(wayId, edge.getEdge());
+        return edge.getEdge();
+    }
+
+    /**
+     * The geometry, distance, flags and key values of an edge that was not added to the graph yet
+     */
+    static class ParsedEdge {
+        final PointList pointList;
+        final double distance;
+        final IntsRef flags;
+        final List<KVStorage.KeyValue> keyValues;
+
+        ParsedEdge(PointList pointList, double distance, IntsRef flags, List<KVStorage.KeyValue> keyValues) {
+            this.pointList = pointList;
+            this.distance = distance;
+            this.flags = flags;
+            this.keyValues = keyValues;
+        }
     }
 
     private void checkCoordinates(int nodeIndex, GHPoint point) {
@@ -394,6 +647,21 @@ public class OSMReader {
      * refers to the duration of the entire way.
      */
     protected void preprocessWay(ReaderWay way, WaySegmentParser.CoordinateSupplier coordinateSupplier) {
+        setKeyValuesTag(way);
+        if (!isCalculateWayDistance(way))
+            return;
+
+        double distance = calcDistance(way, coordinateSupplier);
+        if (Double.isNaN(distance)) {
+            // Some nodes were missing, and we cannot determine the distance. This can happen when ways are only
+            // included partially in an OSM extract. In this case we cannot calculate the speed either, so we return.
+            LOGGER.warn("Could not determine distance for OSM way: " + way.getId());
+            return;
+        }
+        setWayDistanceTags(way, distance);
+    }
+
+    void setKeyValuesTag(ReaderWay way) {
         // storing the road name does not yet depend on the flagEncoder so manage it directly
         List<KVStorage.KeyValue> list = new ArrayList<>();
         if (config.isParseWayNames()) {
@@ -429,17 +697,9 @@ public class OSMReader {
             }
         }
         way.setTag("key_values", list);
+    }
 
-        if (!isCalculateWayDistance(way))
-            return;
-
-        double distance = calcDistance(way, coordinateSupplier);
-        if (Double.isNaN(distance)) {
-            // Some nodes were missing, and we cannot determine the distance. This can happen when ways are only
-            // included partially in an OSM extract. In this case we cannot calculate the speed either, so we return.
-            LOGGER.warn("Could not determine distance for OSM way: " + way.getId());
-            return;
-        }
+    void setWayDistanceTags(ReaderWay way, double distance) {
         way.setTag("way_distance", distance);
 
         // For ways with a duration tag we determine the average speed. This is needed for e.g. ferry routes, because
@@ -618,9 +878,11 @@ public class OSMReader {
 
     IntsRef getRelFlagsMap(long osmId) {
         long relFlagsAsLong = osmWayIdToRelationFlagsMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        // we create a new object every time, because this is called concurrently during the edge preparation
+        IntsRef relFlags = new IntsRef(2);
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -24,10 +24,15 @@ class SegmentNode {
     long osmNodeId;
     long id;
     Map<String, Object> tags;
+    // the OSM node id of the original node if this node is a copy of a barrier node, otherwise equal to osmNodeId
+    long originalOsmNodeId;
+    // the index of this node in the node list of the way
+    int wayNodeIndex;
 
     public SegmentNode(long osmNodeId, long id, Map<String, Object> tags) {
         this.osmNodeId = osmNodeId;
         this.id = id;
         this.tags = tags;
+        this.originalOsmNodeId = osmNodeId;
     }
 }
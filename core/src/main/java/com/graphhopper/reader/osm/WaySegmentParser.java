@@ -18,6 +18,7 @@
 
 package com.graphhopper.reader.osm;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.carrotsearch.hppc.cursors.LongCursor;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
@@ -38,7 +39,13 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.function.LongToIntFunction;
 import java.util.function.Predicate;
 
@@ -60,9 +67,14 @@ import static com.graphhopper.util.Helper.nf;
  * The main difficulty is that the OSM ID range is very large (64bit integers) and to be able to provide the full
  * node information for each segment we have to efficiently store the node data temporarily. This is addressed by
  * {@link OSMNodeData}.
+ * <p>
+ * If a {@link ConcurrentEdgeHandler} is set and more than one way thread is used, the ways of the second pass are
+ * handled in batches: the way preprocessing and the edge preparation (e.g. tag parsing) run concurrently, while
+ * splitting the ways and writing the edges still happen in the order of the OSM file.
  */
 public class WaySegmentParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(WaySegmentParser.class);
+    private static final int WAY_BATCH_SIZE = 10_000;
     private static final Set<String> INCLUDE_IF_NODE_TAGS = new HashSet<>(Arrays.asList("barrier", "highway", "railway", "crossing", "ford"));
 
     private ElevationProvider elevationProvider = ElevationProvider.NOOP;
@@ -76,13 +88,15 @@ public class WaySegmentParser {
     };
     private EdgeHandler edgeHandler = (from, to, pointList, way, nodeTags) ->
             System.out.println("edge " + from + "->" + to + " (" + pointList.size() + " points)");
+    private ConcurrentEdgeHandler concurrentEdgeHandler;
     private int workerThreads = 2;
+    private int wayThreads = 1;
+    private boolean memoryMappedPbf = false;
 
-    private final OSMNodeData nodeData;
+    private OSMNodeData nodeData;
     private Date timestamp;
 
-    private WaySegmentParser(OSMNodeData nodeData) {
-        this.nodeData = nodeData;
+    private WaySegmentParser() {
     }
 
     /**
@@ -104,7 +118,12 @@ public class WaySegmentParser {
 
         LOGGER.info("pass2 - start");
         StopWatch sw2 = new StopWatch().start();
-        readOSM(osmFile, new Pass2Handler(), SkipOptions.none());
+        Pass2Handler pass2Handler = new Pass2Handler();
+        try {
+            readOSM(osmFile, pass2Handler, SkipOptions.none());
+        } finally {
+            pass2Handler.shutdown();
+        }
         LOGGER.info("pass2 - finished, took: {}", sw2.stop().getTimeString());
 
         nodeData.release();
@@ -190,6 +209,14 @@ public class WaySegmentParser {
         private long acceptedNodes = 0;
         private long ignoredSplitNodes = 0;
         private long wayCounter = 0;
+        private final ExecutorService executorService;
+        private final List<ReaderWay> wayBatch = new ArrayList<>();
+        // if not null the segments are collected here instead of passing them to the edge handler
+        private List<WaySegment> collectedSegments;
+
+        Pass2Handler() {
+            executorService = wayThreads > 1 && concurrentEdgeHandler != null ? Executors.newFixedThreadPool(wayThreads) : null;
+        }
 
         @Override
         public void handleNode(ReaderNode node) {
@@ -223,16 +250,8 @@ public class WaySegmentParser {
             }
 
             // store node tags if at least one important tag is included and make this available for the edge handler
-            for (Map.Entry<String, Object> e : node.getTags().entrySet()) {
-                if (INCLUDE_IF_NODE_TAGS.contains(e.getKey())) {
-                    node.removeTag("created_by");
-                    node.removeTag("source");
-                    node.removeTag("note");
-                    node.removeTag("fixme");
-                    nodeData.setTags(node);
-                    break;
-                }
-            }
+            if (prepareNodeTags(node))
+                nodeData.setTags(node);
         }
 
         @Override
@@ -249,13 +268,92 @@ public class WaySegmentParser {
 
             if (!wayFilter.test(way))
                 return;
-            List<SegmentNode> segment = new ArrayList<>(way.getNodes().size());
-            for (LongCursor node : way.getNodes())
-                segment.add(new SegmentNode(node.value, nodeData.getId(node.value), nodeData.getTags(node.value)));
-            wayPreprocessor.preprocessWay(way, osmNodeId -> nodeData.getCoordinates(nodeData.getId(osmNodeId)));
+            if (executorService != null) {
+                wayBatch.add(way);
+                if (wayBatch.size() == WAY_BATCH_SIZE)
+                    handleWayBatch();
+                return;
+            }
+            List<SegmentNode> segment = createSegmentNodes(way);
+            wayPreprocessor.preprocessWay(way, this::getCoordinate);
             splitWayAtJunctionsAndEmptySections(segment, way);
         }
 
+        private void handleWayBatch() {
+            // the preprocessing only reads the node data, so we can do it concurrently
+            runConcurrently(wayBatch.size(), i -> wayPreprocessor.preprocessWay(wayBatch.get(i), this::getCoordinate));
+
+            // splitting the ways changes the node data (pillar nodes become tower nodes etc.) and must be done in order
+            List<List<WaySegment>> segmentsPerWay = new ArrayList<>(wayBatch.size());
+            for (ReaderWay way : wayBatch) {
+                collectedSegments = new ArrayList<>();
+                splitWayAtJunctionsAndEmptySections(createSegmentNodes(way), way);
+                segmentsPerWay.add(collectedSegments);
+            }
+            collectedSegments = null;
+
+            // the segments of one way are always prepared by the same thread, because the edge handler modifies the way
+            runConcurrently(wayBatch.size(), i -> {
+                ReaderWay way = wayBatch.get(i);
+                for (WaySegment s : segmentsPerWay.get(i)) {
+                    if (s.barrierEdge)
+                        way.setTag("gh:barrier_edge", true);
+                    way.setTag("gh:osm_node_ids", s.osmNodeIds);
+                    way.setTag("gh:way_node_index", s.wayNodeIndex);
+                    s.edgeWriter = concurrentEdgeHandler.prepareEdge(s.from, s.to, s.pointList, way, s.nodeTags);
+                    way.removeTag("gh:osm_node_ids");
+                    way.removeTag("gh:way_node_index");
+                    if (s.barrierEdge)
+                        way.removeTag("gh:barrier_edge");
+                }
+            });
+
+            // only the edges themselves are written in order
+            for (List<WaySegment> segments : segmentsPerWay)
+                for (WaySegment s : segments)
+                    s.edgeWriter.run();
+            wayBatch.clear();
+        }
+
+        private void runConcurrently(int size, IntConsumer task) {
+            AtomicInteger nextIndex = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>(wayThreads);
+            for (int t = 0; t < wayThreads; t++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = nextIndex.getAndIncrement(); i < size; i = nextIndex.getAndIncrement())
+                        task.accept(i);
+                }));
+            }
+            try {
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        void shutdown() {
+            if (executorService != null)
+                executorService.shutdownNow();
+        }
+
+        private List<SegmentNode> createSegmentNodes(ReaderWay way) {
+            List<SegmentNode> segment = new ArrayList<>(way.getNodes().size());
+            for (LongCursor node : way.getNodes()) {
+                SegmentNode segmentNode = new SegmentNode(node.value, nodeData.getId(node.value), nodeData.getTags(node.value));
+                segmentNode.wayNodeIndex = node.index;
+                segment.add(segmentNode);
+            }
+            return segment;
+        }
+
+        private GHPoint3D getCoordinate(long osmNodeId) {
+            return nodeData.getCoordinates(nodeData.getId(osmNodeId));
+        }
+
         private void splitWayAtJunctionsAndEmptySections(List<SegmentNode> fullSegment, ReaderWay way) {
             List<SegmentNode> segment = new ArrayList<>();
             for (SegmentNode node : fullSegment) {
@@ -344,6 +442,7 @@ public class WaySegmentParser {
         void handleSegment(List<SegmentNode> segment, ReaderWay way) {
             final PointList pointList = new PointList(segment.size(), nodeData.is3D());
             final List<Map<String, Object>> nodeTags = new ArrayList<>(segment.size());
+            final LongArrayList osmNodeIds = new LongArrayList(segment.size());
             int from = -1;
             int to = -1;
             for (int i = 0; i < segment.size(); i++) {
@@ -364,15 +463,27 @@ public class WaySegmentParser {
                     throw new IllegalStateException("Tower nodes should only appear at the end of segments, way: " + way.getId());
                 nodeData.addCoordinatesToPointList(id, pointList);
                 nodeTags.add(node.tags);
+                osmNodeIds.add(node.originalOsmNodeId);
             }
             if (from < 0 || to < 0)
                 throw new IllegalStateException("The first and last nodes of a segment must be tower nodes, way: " + way.getId());
-            edgeHandler.handleEdge(from, to, pointList, way, nodeTags);
+            if (collectedSegments != null)
+                collectedSegments.add(new WaySegment(from, to, pointList, nodeTags, osmNodeIds, segment.get(0).wayNodeIndex, way.hasTag("gh:barrier_edge")));
+            else {
+                way.setTag("gh:osm_node_ids", osmNodeIds);
+                way.setTag("gh:way_node_index", segment.get(0).wayNodeIndex);
+                edgeHandler.handleEdge(from, to, pointList, way, nodeTags);
+                way.removeTag("gh:osm_node_ids");
+                way.removeTag("gh:way_node_index");
+            }
         }
 
         @Override
         public void handleRelation(ReaderRelation relation) {
             if (!handledRelations) {
+                // the relation processor needs the final node ids, so all ways must be finished
+                if (!wayBatch.isEmpty())
+                    handleWayBatch();
                 LOGGER.info("pass2 - start reading OSM relations");
                 handledRelations = true;
             }
@@ -382,6 +493,8 @@ public class WaySegmentParser {
 
         @Override
         public void onFinish() {
+            if (!wayBatch.isEmpty())
+                handleWayBatch();
             LOGGER.info("pass2 - finished, processed ways: {}, way nodes: {}, nodes with tags: {}, node tag capacity: {}, ignored barriers at junctions: {}",
                     nf(wayCounter), nf(acceptedNodes), nf(nodeData.getTaggedNodeCount()), nf(nodeData.getNodeTagCapacity()), nf(ignoredSplitNodes));
         }
@@ -408,18 +521,24 @@ public class WaySegmentParser {
     }
 
     protected OSMInput openOsmInputFile(File osmFile, SkipOptions skipOptions) throws XMLStreamException, IOException {
-        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions).open();
+        return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setSkipOptions(skipOptions)
+                .setMemoryMapped(memoryMappedPbf).open();
     }
 
     public static class Builder {
         private final WaySegmentParser waySegmentParser;
+        private final PointAccess pointAccess;
+        private final Directory directory;
+        private boolean denseNodeIdMap;
 
         /**
          * @param pointAccess used to store tower node coordinates while parsing the ways
          * @param directory   the directory to be used to store temporary data
          */
         public Builder(PointAccess pointAccess, Directory directory) {
-            waySegmentParser = new WaySegmentParser(new OSMNodeData(pointAccess, directory));
+            waySegmentParser = new WaySegmentParser();
+            this.pointAccess = pointAccess;
+            this.directory = directory;
         }
 
         /**
@@ -478,6 +597,14 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param concurrentEdgeHandler used instead of the edge handler if more than one way thread is used
+         */
+        public Builder setConcurrentEdgeHandler(ConcurrentEdgeHandler concurrentEdgeHandler) {
+            waySegmentParser.concurrentEdgeHandler = concurrentEdgeHandler;
+            return this;
+        }
+
         /**
          * @param workerThreads the number of threads used for the low level reading of the OSM file
          */
@@ -486,7 +613,37 @@ public class WaySegmentParser {
             return this;
         }
 
+        /**
+         * @param wayThreads the number of threads used to preprocess the OSM ways and to prepare their edges. This
+         *                   only has an effect if a concurrent edge handler is set.
+         */
+        public Builder setWayThreads(int wayThreads) {
+            if (wayThreads < 1)
+                throw new IllegalArgumentException("wayThreads must be at least 1, but was: " + wayThreads);
+            waySegmentParser.wayThreads = wayThreads;
+            return this;
+        }
+
+        /**
+         * @param denseNodeIdMap true if the OSM node ids shall be mapped with arrays instead of a B-Tree. This is
+         *                       faster and uses less memory if the node ids are dense, like for a planet file, but
+         *                       uses a lot more memory if they are sparse, like for smaller extracts.
+         */
+        public Builder setDenseNodeIdMap(boolean denseNodeIdMap) {
+            this.denseNodeIdMap = denseNodeIdMap;
+            return this;
+        }
+
+        /**
+         * @param memoryMappedPbf true if a PBF file shall be memory mapped instead of being read through a stream
+         */
+        public Builder setMemoryMappedPbf(boolean memoryMappedPbf) {
+            waySegmentParser.memoryMappedPbf = memoryMappedPbf;
+            return this;
+        }
+
         public WaySegmentParser build() {
+            waySegmentParser.nodeData = new OSMNodeData(pointAccess, directory, denseNodeIdMap);
             return waySegmentParser;
         }
     }
@@ -527,10 +684,46 @@ public class WaySegmentParser {
         }
     }
 
+    /**
+     * @return true if the tags of the given node shall be made available to the edge handler, which is the case if
+     * it has at least one important tag. The tags that are never used are removed from the node in this case.
+     */
+    static boolean prepareNodeTags(ReaderNode node) {
+        for (String key : node.getTags().keySet()) {
+            if (INCLUDE_IF_NODE_TAGS.contains(key)) {
+                node.removeTag("created_by");
+                node.removeTag("source");
+                node.removeTag("note");
+                node.removeTag("fixme");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The edge handlers are called with the OSM way the edge was created from. While they run the way has the
+     * additional tags 'gh:osm_node_ids' with the OSM node ids of all points of the edge and 'gh:way_node_index' with
+     * the index of the first point in the node list of the way. The copy of a barrier node uses the OSM node id and
+     * the index of the barrier node.
+     */
     public interface EdgeHandler {
         void handleEdge(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags);
     }
 
+    /**
+     * Splits the handling of an edge into a part that is run concurrently for different OSM ways and a part that writes
+     * the edge. The latter is run in the same order the {@link EdgeHandler} would be called.
+     */
+    public interface ConcurrentEdgeHandler {
+        /**
+         * This method must be thread-safe. The edges of the same OSM way are always prepared by the same thread.
+         *
+         * @return the action that writes the edge
+         */
+        Runnable prepareEdge(int from, int to, PointList pointList, ReaderWay way, List<Map<String, Object>> nodeTags);
+    }
+
     public interface RelationProcessor {
         void processRelation(ReaderRelation relation, LongToIntFunction getNodeIdForOSMNodeId);
     }
@@ -547,4 +740,26 @@ public class WaySegmentParser {
     public interface CoordinateSupplier {
         GHPoint3D getCoordinate(long osmNodeId);
     }
+
+    private static class WaySegment {
+        final int from;
+        final int to;
+        final PointList pointList;
+        final List<Map<String, Object>> nodeTags;
+        final LongArrayList osmNodeIds;
+        final int wayNodeIndex;
+        final boolean barrierEdge;
+        Runnable edgeWriter;
+
+        WaySegment(int from, int to, PointList pointList, List<Map<String, Object>> nodeTags, LongArrayList osmNodeIds,
+                   int wayNodeIndex, boolean barrierEdge) {
+            this.from = from;
+            this.to = to;
+            this.pointList = pointList;
+            this.nodeTags = nodeTags;
+            this.osmNodeIds = osmNodeIds;
+            this.wayNodeIndex = wayNodeIndex;
+            this.barrierEdge = barrierEdge;
+        }
+    }
 }
@@ -2,6 +2,7 @@
 package com.graphhopper.reader.osm.pbf;
 
 import com.carrotsearch.hppc.LongIndexedContainer;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
@@ -16,9 +17,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 /**
  * Converts PBF block data into decoded entities ready to be passed into an Osmosis pipeline. This
@@ -31,7 +35,7 @@ public class PbfBlobDecoder implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(PbfBlobDecoder.class);
     private final boolean checkData = false;
     private final String blobType;
-    private final byte[] rawBlob;
+    private final ByteBuffer rawBlob;
     private final PbfBlobDecoderListener listener;
     private List<ReaderElement> decodedEntities;
     private final SkipOptions skipOptions;
@@ -44,7 +48,7 @@ public class PbfBlobDecoder implements Runnable {
      * @param rawBlob  The raw data of the blob.
      * @param listener The listener for receiving decoding results.
      */
-    public PbfBlobDecoder(String blobType, byte[] rawBlob, PbfBlobDecoderListener listener, SkipOptions skipOptions) {
+    public PbfBlobDecoder(String blobType, ByteBuffer rawBlob, PbfBlobDecoderListener listener, SkipOptions skipOptions) {
         this.blobType = blobType;
         this.rawBlob = rawBlob;
         this.listener = listener;
@@ -52,24 +56,40 @@ public class PbfBlobDecoder implements Runnable {
     }
 
     private byte[] readBlobContent() throws IOException {
-        Fileformat.Blob blob = Fileformat.Blob.parseFrom(rawBlob);
+        return readBlobContent(rawBlob);
+    }
+
+    /**
+     * @return the uncompressed content of the given raw blob
+     */
+    static byte[] readBlobContent(ByteBuffer rawBlob) throws IOException {
+        // with aliasing the byte strings of the blob point into the raw blob instead of copying it, which avoids
+        // copying the compressed data if the raw blob is a slice of a memory mapped file
+        CodedInputStream codedInput = CodedInputStream.newInstance(rawBlob);
+        codedInput.enableAliasing(true);
+        Fileformat.Blob blob = Fileformat.Blob.parseFrom(codedInput);
         byte[] blobData;
 
         if (blob.hasRaw()) {
             blobData = blob.getRaw().toByteArray();
         } else if (blob.hasZlibData()) {
             Inflater inflater = new Inflater();
-            inflater.setInput(blob.getZlibData().toByteArray());
             blobData = new byte[blob.getRawSize()];
-            try {
-                inflater.inflate(blobData);
-            } catch (DataFormatException e) {
+            try (InputStream in = new InflaterInputStream(blob.getZlibData().newInput(), inflater, 64 * 1024)) {
+                int read = 0;
+                while (read < blobData.length) {
+                    int n = in.read(blobData, read, blobData.length - read);
+                    if (n < 0)
+                        throw new RuntimeException("PBF blob contains incomplete compressed data.");
+                    read += n;
+                }
+                if (in.read() >= 0)
+                    throw new RuntimeException("PBF blob contains more data than expected.");
+            } catch (ZipException e) {
                 throw new RuntimeException("Unable to decompress PBF blob.", e);
+            } finally {
+                inflater.end();
             }
-            if (!inflater.finished()) {
-                throw new RuntimeException("PBF blob contains incomplete compressed data.");
-            }
-            inflater.end();
         } else {
             throw new RuntimeException("PBF blob uses unsupported compression, only raw or zlib may be used.");
         }
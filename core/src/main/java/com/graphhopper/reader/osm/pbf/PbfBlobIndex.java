@@ -0,0 +1,129 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package com.graphhopper.reader.osm.pbf;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The positions of all blobs of a PBF file. To create the index only the blob headers are read, the data of the blobs
+ * is skipped. If the file is sorted by type, i.e. all nodes come before the ways and relations, this can be used to
+ * find the end of the node blobs without decompressing all of them, see {@link #getNodeBlobsEnd()}.
+ */
+public class PbfBlobIndex {
+    static final String SORTED_FEATURE = "Sort.Type_then_ID";
+    private final File file;
+    private final LongArrayList offsets = new LongArrayList();
+    private final LongArrayList dataOffsets = new LongArrayList();
+    private final IntArrayList dataSizes = new IntArrayList();
+    private final List<String> types = new ArrayList<>();
+    private final long fileSize;
+    private final boolean sortedByType;
+
+    public PbfBlobIndex(File file) {
+        this.file = file;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            fileSize = raf.length();
+            long position = 0;
+            while (position < fileSize) {
+                raf.seek(position);
+                int headerLength = raf.readInt();
+                byte[] header = new byte[headerLength];
+                raf.readFully(header);
+                Fileformat.BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(header);
+                long dataOffset = position + 4 + headerLength;
+                if (dataOffset + blobHeader.getDatasize() > fileSize)
+                    throw new IOException("Unexpected end of PBF file " + file + " at position " + dataOffset + ", file size: " + fileSize);
+                types.add(blobHeader.getType());
+                offsets.add(position);
+                dataOffsets.add(dataOffset);
+                dataSizes.add(blobHeader.getDatasize());
+                position = dataOffset + blobHeader.getDatasize();
+            }
+            sortedByType = !types.isEmpty() && "OSMHeader".equals(types.get(0))
+                    && Osmformat.HeaderBlock.parseFrom(readBlobContent(raf, 0)).getOptionalFeaturesList().contains(SORTED_FEATURE);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to index PBF file " + file, e);
+        }
+    }
+
+    private byte[] readBlobContent(RandomAccessFile raf, int blob) throws IOException {
+        byte[] data = new byte[dataSizes.get(blob)];
+        raf.seek(dataOffsets.get(blob));
+        raf.readFully(data);
+        return PbfBlobDecoder.readBlobContent(ByteBuffer.wrap(data));
+    }
+
+    public int getBlobCount() {
+        return offsets.size();
+    }
+
+    public String getType(int blob) {
+        return types.get(blob);
+    }
+
+    /**
+     * @return the position of the given blob in the file, i.e. the position of the length of its header
+     */
+    public long getOffset(int blob) {
+        return offsets.get(blob);
+    }
+
+    /**
+     * @return true if the header of the file declares that the file is sorted by type and id
+     */
+    public boolean isSortedByType() {
+        return sortedByType;
+    }
+
+    /**
+     * Finds the first blob that does not only contain nodes with a binary search, so only a few blobs need to be
+     * decompressed.
+     *
+     * @return the position of the first data blob that contains ways or relations, or the file size if there are none.
+     * Every data blob before this position contains only nodes. If the file is not sorted by type the position of the
+     * first data blob is returned.
+     */
+    public long getNodeBlobsEnd() {
+        int first = 0;
+        while (first < offsets.size() && !isOsmData(first))
+            first++;
+        if (!sortedByType)
+            return first < offsets.size() ? offsets.get(first) : fileSize;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            // find the first blob in [first, end) that contains other elements than nodes
+            int low = first, high = offsets.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (!isOsmData(mid) || containsOnlyNodes(raf, mid))
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low < offsets.size() ? offsets.get(low) : fileSize;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read PBF file " + file, e);
+        }
+    }
+
+    private boolean isOsmData(int blob) {
+        return "OSMData".equals(types.get(blob));
+    }
+
+    private boolean containsOnlyNodes(RandomAccessFile raf, int blob) throws IOException {
+        Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(readBlobContent(raf, blob));
+        for (Osmformat.PrimitiveGroup group : block.getPrimitivegroupList()) {
+            if (group.getWaysCount() > 0 || group.getRelationsCount() > 0 || group.getChangesetsCount() > 0)
+                return false;
+        }
+        return true;
+    }
+}
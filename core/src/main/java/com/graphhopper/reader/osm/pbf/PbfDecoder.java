@@ -4,6 +4,7 @@ package com.graphhopper.reader.osm.pbf;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.osm.SkipOptions;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -20,7 +21,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author Brett Henderson
  */
 public class PbfDecoder {
-    private final PbfStreamSplitter streamSplitter;
+    private final Iterator<PbfRawBlob> streamSplitter;
     private final ExecutorService executorService;
     private final int maxPendingBlobs;
     private final Sink sink;
@@ -33,12 +34,13 @@ public class PbfDecoder {
      * Creates a new instance.
      * <p>
      *
-     * @param streamSplitter  The PBF stream splitter providing the source of blobs to be decoded.
+     * @param streamSplitter  The PBF stream splitter providing the source of blobs to be decoded, e.g.
+     *                        {@link PbfStreamSplitter} or {@link PbfMappedFileSplitter}.
      * @param executorService The executor service managing the thread pool.
      * @param maxPendingBlobs The maximum number of blobs to have in progress at any point in time.
      * @param sink            The sink to send all decoded entities to.
      */
-    public PbfDecoder(PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
+    public PbfDecoder(Iterator<PbfRawBlob> streamSplitter, ExecutorService executorService, int maxPendingBlobs,
                       Sink sink, SkipOptions skipOptions) {
         this.streamSplitter = streamSplitter;
         this.executorService = executorService;
@@ -0,0 +1,120 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package com.graphhopper.reader.osm.pbf;
+
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Like {@link PbfStreamSplitter}, but memory maps the PBF file and only reads the blob headers. The data of every blob
+ * is handed to the decoders as a slice of the mapped region, i.e. it is never copied into a separate array. The file
+ * is mapped in windows of at most 1GB, a new window starts at the first blob that does not fit into the current one.
+ */
+public class PbfMappedFileSplitter implements Iterator<PbfRawBlob> {
+    private static final long MAX_WINDOW_SIZE = 1 << 30;
+    private final File file;
+    private FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private PbfRawBlob nextBlob;
+    private long skipDataBlobsBefore;
+
+    public PbfMappedFileSplitter(File file) {
+        this.file = file;
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            fileSize = channel.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to open PBF file " + file, e);
+        }
+    }
+
+    /**
+     * Data blobs that start before the given position are skipped without mapping their data, see
+     * {@link PbfBlobIndex#getNodeBlobsEnd()}.
+     */
+    public PbfMappedFileSplitter setSkipDataBlobsBefore(long skipDataBlobsBefore) {
+        this.skipDataBlobsBefore = skipDataBlobsBefore;
+        return this;
+    }
+
+    /**
+     * @return a buffer containing the bytes [position, position + length) of the file, without copying them
+     */
+    private ByteBuffer slice(long position, int length) throws IOException {
+        if (position + length > fileSize)
+            throw new IOException("Unexpected end of PBF file " + file + " at position " + position + ", file size: " + fileSize);
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            long size = Math.min(Math.max(MAX_WINDOW_SIZE, length), fileSize - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            windowStart = position;
+        }
+        ByteBuffer result = window.duplicate();
+        int offset = (int) (position - windowStart);
+        // the casts are necessary to run on Java 8 when compiled with a newer JDK
+        ((Buffer) result).position(offset);
+        ((Buffer) result).limit(offset + length);
+        return result.slice();
+    }
+
+    private void getNextBlob() {
+        try {
+            while (position < fileSize) {
+                long blobStart = position;
+                int headerLength = slice(position, 4).getInt();
+                position += 4;
+                Fileformat.BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(slice(position, headerLength));
+                position += headerLength;
+                if (blobStart < skipDataBlobsBefore && "OSMData".equals(blobHeader.getType())) {
+                    position += blobHeader.getDatasize();
+                    continue;
+                }
+                ByteBuffer blobData = slice(position, blobHeader.getDatasize());
+                position += blobHeader.getDatasize();
+                nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
+                return;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to get next blob from PBF file " + file, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextBlob == null)
+            getNextBlob();
+        return nextBlob != null;
+    }
+
+    @Override
+    public PbfRawBlob next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        PbfRawBlob result = nextBlob;
+        nextBlob = null;
+        return result;
+    }
+
+    public void release() {
+        // the mapped windows are unmapped once they are garbage collected
+        window = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        channel = null;
+    }
+}
@@ -4,7 +4,9 @@ package com.graphhopper.reader.osm.pbf;
 import com.graphhopper.reader.osm.SkipOptions;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -17,9 +19,11 @@ import java.util.concurrent.Executors;
 public class PbfReader implements Runnable {
     private Throwable throwable;
     private final InputStream inputStream;
+    private final File mappedFile;
     private final Sink sink;
     private final int workers;
     private final SkipOptions skipOptions;
+    private long skipDataBlobsBefore;
 
     /**
      * Creates a new instance.
@@ -29,17 +33,45 @@ public class PbfReader implements Runnable {
      * @param workers The number of worker threads for decoding PBF blocks.
      */
     public PbfReader(InputStream in, Sink sink, int workers, SkipOptions skipOptions) {
+        this(in, null, sink, workers, skipOptions);
+    }
+
+    /**
+     * Creates a new instance that memory maps the given file instead of reading it from a stream, see
+     * {@link PbfMappedFileSplitter}.
+     */
+    public PbfReader(File file, Sink sink, int workers, SkipOptions skipOptions) {
+        this(null, file, sink, workers, skipOptions);
+    }
+
+    private PbfReader(InputStream in, File mappedFile, Sink sink, int workers, SkipOptions skipOptions) {
         this.inputStream = in;
+        this.mappedFile = mappedFile;
         this.sink = sink;
         this.workers = workers;
         this.skipOptions = skipOptions;
     }
 
+    /**
+     * Skips the data blobs that start before the given position without decompressing them. This can be used to skip
+     * the node blobs of a file that is sorted by type, see {@link PbfBlobIndex#getNodeBlobsEnd()}.
+     */
+    public PbfReader setSkipDataBlobsBefore(long skipDataBlobsBefore) {
+        this.skipDataBlobsBefore = skipDataBlobsBefore;
+        return this;
+    }
+
     @Override
     public void run() {
         ExecutorService executorService = Executors.newFixedThreadPool(workers);
         // Create a stream splitter to break the PBF stream into blobs.
-        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+        PbfStreamSplitter streamSplitter = null;
+        PbfMappedFileSplitter mappedFileSplitter = null;
+        Iterator<PbfRawBlob> blobs;
+        if (mappedFile != null)
+            blobs = mappedFileSplitter = new PbfMappedFileSplitter(mappedFile).setSkipDataBlobsBefore(skipDataBlobsBefore);
+        else
+            blobs = streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream)).setSkipDataBlobsBefore(skipDataBlobsBefore);
 
         try {
             // Process all blobs of data in the stream using threads from the
@@ -48,7 +80,7 @@ public class PbfReader implements Runnable {
             // immediately ready for processing when a worker thread completes.
             // The main thread is responsible for splitting blobs from the
             // request stream, and sending decoded entities to the sink.
-            PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink, skipOptions);
+            PbfDecoder pbfDecoder = new PbfDecoder(blobs, executorService, workers + 1, sink, skipOptions);
             pbfDecoder.run();
 
         } catch (Throwable t) {
@@ -57,7 +89,10 @@ public class PbfReader implements Runnable {
         } finally {
             sink.complete();
             executorService.shutdownNow();
-            streamSplitter.release();
+            if (streamSplitter != null)
+                streamSplitter.release();
+            if (mappedFileSplitter != null)
+                mappedFileSplitter.release();
         }
     }
 
@@ -23,6 +23,8 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
     private int dataBlockCount;
     private boolean eof;
     private PbfRawBlob nextBlob;
+    private long position;
+    private long skipDataBlobsBefore;
 
     /**
      * Creates a new instance.
@@ -36,6 +38,15 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
         eof = false;
     }
 
+    /**
+     * Data blobs that start before the given position are skipped without reading their data, see
+     * {@link PbfBlobIndex#getNodeBlobsEnd()}.
+     */
+    public PbfStreamSplitter setSkipDataBlobsBefore(long skipDataBlobsBefore) {
+        this.skipDataBlobsBefore = skipDataBlobsBefore;
+        return this;
+    }
+
     private Fileformat.BlobHeader readHeader(int headerLength) throws IOException {
         byte[] headerBuffer = new byte[headerLength];
         dis.readFully(headerBuffer);
@@ -55,34 +66,52 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
 
     private void getNextBlob() {
         try {
-            // Read the length of the next header block. This is the only time
-            // we should expect to encounter an EOF exception. In all other
-            // cases it indicates a corrupt or truncated file.
-            int headerLength;
-            try {
-                headerLength = dis.readInt();
-            } catch (EOFException e) {
-                eof = true;
+            while (true) {
+                // Read the length of the next header block. This is the only time
+                // we should expect to encounter an EOF exception. In all other
+                // cases it indicates a corrupt or truncated file.
+                int headerLength;
+                try {
+                    headerLength = dis.readInt();
+                } catch (EOFException e) {
+                    eof = true;
+                    return;
+                }
+
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer("Reading header for blob " + dataBlockCount++);
+                }
+                Fileformat.BlobHeader blobHeader = readHeader(headerLength);
+                long blobStart = position;
+                position += 4 + headerLength + blobHeader.getDatasize();
+
+                if (blobStart < skipDataBlobsBefore && "OSMData".equals(blobHeader.getType())) {
+                    skipFully(blobHeader.getDatasize());
+                    continue;
+                }
+
+                if (log.isLoggable(Level.FINER)) {
+                    log.finer("Processing blob of type " + blobHeader.getType() + ".");
+                }
+                byte[] blobData = readRawBlob(blobHeader);
+
+                nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
                 return;
             }
-
-            if (log.isLoggable(Level.FINER)) {
-                log.finer("Reading header for blob " + dataBlockCount++);
-            }
-            Fileformat.BlobHeader blobHeader = readHeader(headerLength);
-
-            if (log.isLoggable(Level.FINER)) {
-                log.finer("Processing blob of type " + blobHeader.getType() + ".");
-            }
-            byte[] blobData = readRawBlob(blobHeader);
-
-            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
-
         } catch (IOException e) {
             throw new RuntimeException("Unable to get next blob from PBF stream.", e);
         }
     }
 
+    private void skipFully(int bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = dis.skipBytes(bytes);
+            if (skipped <= 0)
+                throw new EOFException("Unexpected end of PBF stream");
+            bytes -= skipped;
+        }
+    }
+
     @Override
     public boolean hasNext() {
         if (nextBlob == null && !eof) {
@@ -41,10 +41,20 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
     private final BaseGraph graph;
     private final EncodingManager encodingManager;
+    private final EncodedValueLookup customModelLookup;
 
     public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager) {
+        this(graph, encodingManager, encodingManager);
+    }
+
+    /**
+     * @param customModelLookup the encoded values that can be used in custom models, e.g. a
+     *                          {@link LiveEncodedValueLookup} that includes encoded values not stored in the graph
+     */
+    public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager, EncodedValueLookup customModelLookup) {
         this.graph = graph;
         this.encodingManager = encodingManager;
+        this.customModelLookup = customModelLookup;
     }
 
     @Override
@@ -92,7 +102,7 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
             queryCustomModel = CustomModel.merge(customProfile.getCustomModel(), queryCustomModel);
             weighting = CustomModelParser.createWeighting(accessEnc, speedEnc,
-                    priorityEnc, encodingManager, turnCostProvider, queryCustomModel);
+                    priorityEnc, customModelLookup, turnCostProvider, queryCustomModel);
         } else if ("shortest".equalsIgnoreCase(weightingStr)) {
             weighting = new ShortestWeighting(accessEnc, speedEnc, turnCostProvider);
         } else if ("fastest".equalsIgnoreCase(weightingStr)) {
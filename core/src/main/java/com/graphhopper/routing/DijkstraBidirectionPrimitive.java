@@ -0,0 +1,318 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.routing.SPTStorage.NO_ENTRY;
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * A bidirectional Dijkstra that yields the same results as {@link DijkstraBidirectionRef}, but stores the shortest
+ * path trees in pooled {@link SPTStorage} objects instead of creating {@link SPTEntry} objects, a priority queue and a
+ * hash map per request. This avoids most of the garbage that is created by the flexible routing algorithms which is
+ * relevant when many requests are running concurrently. Only the entries on the final path are converted to
+ * {@link SPTEntry} objects for the path extraction.
+ * <p>
+ * Use {@link Parameters.Routing#POOLED_SPT} to enable this algorithm.
+ *
+ * @see AStarBidirectionPrimitive
+ */
+public class DijkstraBidirectionPrimitive implements EdgeToEdgeRoutingAlgorithm {
+    protected final Graph graph;
+    protected final Weighting weighting;
+    protected final TraversalMode traversalMode;
+    private final EdgeExplorer edgeExplorer;
+    private EdgeFilter additionalEdgeFilter;
+    private SPTStorage fwd;
+    private SPTStorage bwd;
+    protected int from;
+    protected int to;
+    private int fromOutEdge = ANY_EDGE;
+    private int toInEdge = ANY_EDGE;
+    private int currFrom = NO_ENTRY;
+    private int currTo = NO_ENTRY;
+    private int bestFwdEntry = NO_ENTRY;
+    private int bestBwdEntry = NO_ENTRY;
+    protected double bestWeight = Double.MAX_VALUE;
+    private boolean finishedFrom;
+    private boolean finishedTo;
+    private int visitedCountFrom;
+    private int visitedCountTo;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private long timeoutMillis = Long.MAX_VALUE;
+    private long finishTimeMillis = Long.MAX_VALUE;
+    private boolean alreadyRun;
+
+    public DijkstraBidirectionPrimitive(Graph graph, Weighting weighting, TraversalMode tMode) {
+        if (weighting.hasTurnCosts() && !tMode.isEdgeBased())
+            throw new IllegalStateException("Weightings supporting turn costs cannot be used with node-based traversal mode");
+        this.graph = graph;
+        this.weighting = weighting;
+        this.traversalMode = tMode;
+        this.edgeExplorer = graph.createEdgeExplorer();
+    }
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        return Collections.singletonList(calcPath(from, to));
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if ((fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE) && !traversalMode.isEdgeBased()) {
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        }
+        this.fromOutEdge = fromOutEdge;
+        this.toInEdge = toInEdge;
+        checkAlreadyRun();
+        setupFinishTime();
+        fwd = SPTStorage.acquire();
+        bwd = SPTStorage.acquire();
+        try {
+            init(from, to);
+            runAlgo();
+            return extractPath();
+        } finally {
+            SPTStorage.release(fwd);
+            SPTStorage.release(bwd);
+            fwd = null;
+            bwd = null;
+        }
+    }
+
+    /**
+     * @return the approximated weight from the given node to the target (or from the source for the backward search)
+     * that is added to the weight of an entry to determine its position in the heap.
+     */
+    protected double approximate(int node, boolean reverse) {
+        return 0;
+    }
+
+    /**
+     * @return the value that needs to be added to the best weight found so far in order to stop the search
+     */
+    protected double getStoppingCriterionOffset() {
+        return 0;
+    }
+
+    protected void init(int from, int to) {
+        this.from = from;
+        this.to = to;
+        currFrom = fwd.addEntry(EdgeIterator.NO_EDGE, from, 0, approximate(from, false), NO_ENTRY);
+        currTo = bwd.addEntry(EdgeIterator.NO_EDGE, to, 0, approximate(to, true), NO_ENTRY);
+        if (!traversalMode.isEdgeBased()) {
+            fwd.putEntry(from, currFrom);
+            bwd.putEntry(to, currTo);
+            if (from == to) {
+                bestFwdEntry = currFrom;
+                bestBwdEntry = currTo;
+                bestWeight = 0;
+            }
+        } else if (from == to && fromOutEdge == ANY_EDGE && toInEdge == ANY_EDGE) {
+            // special handling if start and end are the same and no directions are restricted
+            // the resulting weight should be zero
+            bestFwdEntry = currFrom;
+            bestBwdEntry = currTo;
+            bestWeight = 0;
+            finishedFrom = true;
+            finishedTo = true;
+            return;
+        }
+
+        if (fromOutEdge == ANY_EDGE) {
+            fillEdgesFrom();
+        } else {
+            additionalEdgeFilter = edgeState -> edgeState.getEdge() == fromOutEdge;
+            finishedFrom = !fillEdgesFrom();
+            additionalEdgeFilter = null;
+        }
+        if (toInEdge == ANY_EDGE) {
+            fillEdgesTo();
+        } else {
+            additionalEdgeFilter = edgeState -> edgeState.getEdge() == toInEdge;
+            finishedTo = !fillEdgesTo();
+            additionalEdgeFilter = null;
+        }
+    }
+
+    protected void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded() && !isTimeoutExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdgesFrom();
+
+            if (!finishedTo)
+                finishedTo = !fillEdgesTo();
+        }
+    }
+
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return fwd.getKey(currFrom) + bwd.getKey(currTo) >= bestWeight + getStoppingCriterionOffset();
+    }
+
+    private boolean fillEdgesFrom() {
+        if (fwd.isEmpty())
+            return false;
+        currFrom = fwd.pollEntry();
+        visitedCountFrom++;
+        fillEdges(currFrom, fwd, bwd, false);
+        return true;
+    }
+
+    private boolean fillEdgesTo() {
+        if (bwd.isEmpty())
+            return false;
+        currTo = bwd.pollEntry();
+        visitedCountTo++;
+        fillEdges(currTo, bwd, fwd, true);
+        return true;
+    }
+
+    private void fillEdges(int currEntry, SPTStorage spt, SPTStorage otherSPT, boolean reverse) {
+        final int currEdge = spt.getEdge(currEntry);
+        final double currWeight = spt.getWeight(currEntry);
+        EdgeIterator iter = edgeExplorer.setBaseNode(spt.getAdjNode(currEntry));
+        while (iter.next()) {
+            if (!accept(iter, currEdge))
+                continue;
+
+            final double weight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverse, currEdge) + currWeight;
+            if (Double.isInfinite(weight))
+                continue;
+
+            final int traversalId = traversalMode.createTraversalId(iter, reverse);
+            final int adjNode = iter.getAdjNode();
+            int entry = spt.getEntry(traversalId);
+            if (entry == NO_ENTRY) {
+                entry = spt.addEntry(iter.getEdge(), adjNode, weight, weight + approximate(adjNode, reverse), currEntry);
+                spt.putEntry(traversalId, entry);
+            } else if (spt.getWeight(entry) > weight) {
+                // the entry is updated in place, so there is no need to flag an old entry as deleted or to update the
+                // best entries
+                spt.updateEntry(entry, iter.getEdge(), weight, weight + approximate(adjNode, reverse), currEntry);
+            } else
+                continue;
+
+            int otherEntry = otherSPT.getEntry(traversalId);
+            if (otherEntry != NO_ENTRY)
+                updateBestPath(iter, entry, spt, otherEntry, otherSPT, reverse);
+        }
+    }
+
+    private void updateBestPath(EdgeIteratorState edgeState, int entry, SPTStorage spt, int otherEntry, SPTStorage otherSPT, boolean reverse) {
+        // update μ
+        double weight = spt.getWeight(entry) + otherSPT.getWeight(otherEntry);
+        if (traversalMode.isEdgeBased()) {
+            if (otherSPT.getEdge(otherEntry) != spt.getEdge(entry))
+                throw new IllegalStateException("cannot happen for edge based execution of " + getName());
+
+            // prevents the path to contain the edge at the meeting point twice and subtracts the weight (excluding turn weight => no previous edge)
+            entry = spt.getParent(entry);
+            weight -= weighting.calcEdgeWeight(edgeState, reverse);
+        }
+
+        if (weight < bestWeight) {
+            bestFwdEntry = reverse ? otherEntry : entry;
+            bestBwdEntry = reverse ? entry : otherEntry;
+            bestWeight = weight;
+        }
+    }
+
+    private Path extractPath() {
+        if (finished())
+            return DefaultBidirPathExtractor.extractPath(graph, weighting, fwd.toSPTEntry(bestFwdEntry), bwd.toSPTEntry(bestBwdEntry), bestWeight);
+
+        return new Path(graph);
+    }
+
+    private boolean accept(EdgeIteratorState iter, int prevOrNextEdgeId) {
+        // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
+        // but for node-based traversal we exclude such a turn for performance reasons already here
+        if (!traversalMode.isEdgeBased() && iter.getEdge() == prevOrNextEdgeId)
+            return false;
+
+        return additionalEdgeFilter == null || additionalEdgeFilter.accept(iter);
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public void setMaxVisitedNodes(int numberOfNodes) {
+        this.maxVisitedNodes = numberOfNodes;
+    }
+
+    @Override
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    private void checkAlreadyRun() {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+
+        alreadyRun = true;
+    }
+
+    private void setupFinishTime() {
+        try {
+            this.finishTimeMillis = Math.addExact(System.currentTimeMillis(), timeoutMillis);
+        } catch (ArithmeticException e) {
+            this.finishTimeMillis = Long.MAX_VALUE;
+        }
+    }
+
+    private boolean isMaxVisitedNodesExceeded() {
+        return maxVisitedNodes < getVisitedNodes();
+    }
+
+    private boolean isTimeoutExceeded() {
+        return finishTimeMillis < Long.MAX_VALUE && System.currentTimeMillis() > finishTimeMillis;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA_BI;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.routing.ch.CHManyToMany;
+import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.ev.RoadEnvironment;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.NameSimilarityEdgeFilter;
+import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The methods here can be used to calculate the weights, times and distances between many points at once, see
+ * {@link Router#matrix}.
+ */
+public class MatrixRouting {
+
+    /**
+     * In contrast to {@link ViaRouting#lookup} the points that cannot be found do not lead to an exception, instead the
+     * returned list contains an invalid {@link Snap} for them.
+     */
+    public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
+                                    LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints) {
+        if (!pointHints.isEmpty() && pointHints.size() != points.size())
+            throw new IllegalArgumentException("If you pass point hints, you need to pass exactly one hint for every point, empty hints will be ignored");
+        final EnumEncodedValue<RoadClass> roadClassEnc = lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        final EnumEncodedValue<RoadEnvironment> roadEnvEnc = lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
+                ? snapFilter
+                : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+            GHPoint point = points.get(placeIndex);
+            Snap snap = null;
+            if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(placeIndex)))
+                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
+                        pointHints.get(placeIndex), point, 170));
+            else if (!snapPreventions.isEmpty())
+                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+
+            if (snap == null || !snap.isValid())
+                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+            snaps.add(snap);
+        }
+        return snaps;
+    }
+
+    /**
+     * @return the closest nodes of the given snaps or -1 for invalid snaps. This must be called after the query graph
+     * was created.
+     */
+    public static int[] getNodes(List<Snap> snaps) {
+        int[] nodes = new int[snaps.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = snaps.get(i).isValid() ? snaps.get(i).getClosestNode() : -1;
+        }
+        return nodes;
+    }
+
+    /**
+     * Calculates the matrix with the bucket based many-to-many algorithm, see {@link CHManyToMany}.
+     */
+    public static void calcMatrixCH(RoutingCHGraph chGraph, QueryGraph queryGraph, int[] fromNodes, int[] toNodes, GHMatrixResponse response) {
+        double[][] weights = new double[fromNodes.length][toNodes.length];
+        long[][] times = new long[fromNodes.length][toNodes.length];
+        double[][] distances = new double[fromNodes.length][toNodes.length];
+        for (double[] row : weights)
+            Arrays.fill(row, Double.MAX_VALUE);
+        CHManyToMany manyToMany = new CHManyToMany(new QueryRoutingCHGraph(chGraph, queryGraph));
+        manyToMany.calcMatrix(fromNodes, toNodes, weights, times, distances);
+        for (int i = 0; i < fromNodes.length; i++) {
+            for (int j = 0; j < toNodes.length; j++) {
+                if (weights[i][j] < Double.MAX_VALUE)
+                    response.set(i, j, weights[i][j], times[i][j], distances[i][j]);
+            }
+        }
+        response.addDebugInfo("visited nodes: " + manyToMany.getVisitedNodes());
+    }
+
+    /**
+     * Calculates the matrix with one {@link DijkstraOneToMany} search per from node. This is used when there is
+     * no (node-based) CH preparation for the profile. Only node-based traversal is supported.
+     */
+    public static void calcMatrixOneToMany(QueryGraph queryGraph, Weighting weighting, int[] fromNodes, int[] toNodes,
+                                           int maxVisitedNodes, GHMatrixResponse response) {
+        DijkstraOneToMany algo = new DijkstraOneToMany(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED);
+        algo.setMaxVisitedNodes(maxVisitedNodes);
+        long visitedNodes = 0;
+        for (int i = 0; i < fromNodes.length; i++) {
+            if (fromNodes[i] < 0)
+                continue;
+            algo.clear();
+            for (int j = 0; j < toNodes.length; j++) {
+                if (toNodes[j] < 0)
+                    continue;
+                if (fromNodes[i] == toNodes[j]) {
+                    response.set(i, j, 0, 0, 0);
+                    continue;
+                }
+                Path path = algo.calcPath(fromNodes[i], toNodes[j]);
+                visitedNodes += algo.getVisitedNodes();
+                // unreachable targets do not require a new search: DijkstraOneToMany continues from the cached state
+                if (path.isFound())
+                    response.set(i, j, path.getWeight(), path.getTime(), path.getDistance());
+            }
+        }
+        response.addDebugInfo("visited nodes: " + visitedNodes);
+    }
+
+    /**
+     * Calculates the matrix with one point-to-point query per entry. This is used for edge-based traversal.
+     */
+    public static void calcMatrixPairwise(PathCalculator pathCalculator, int[] fromNodes, int[] toNodes, GHMatrixResponse response) {
+        long visitedNodes = 0;
+        for (int i = 0; i < fromNodes.length; i++) {
+            if (fromNodes[i] < 0)
+                continue;
+            for (int j = 0; j < toNodes.length; j++) {
+                if (toNodes[j] < 0)
+                    continue;
+                Path path = pathCalculator.calcPaths(fromNodes[i], toNodes[j], new EdgeRestrictions()).get(0);
+                visitedNodes += pathCalculator.getVisitedNodes();
+                if (path.isFound())
+                    response.set(i, j, path.getWeight(), path.getTime(), path.getDistance());
+            }
+        }
+        response.addDebugInfo("visited nodes: " + visitedNodes);
+    }
+}
@@ -31,6 +31,10 @@ public class OSMReaderConfig {
     private int ramerElevationSmoothingMax = 5;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
     private int workerThreads = 2;
+    private int wayThreads = 1;
+    private boolean denseNodeIdMap = false;
+    private boolean memoryMappedPbf = false;
+    private boolean storeOSMNodes = false;
 
     public List<String> getIgnoredHighways() {
         return ignoredHighways;
@@ -145,4 +149,58 @@ public class OSMReaderConfig {
         this.workerThreads = workerThreads;
         return this;
     }
+
+    public int getWayThreads() {
+        return wayThreads;
+    }
+
+    /**
+     * Sets the number of threads used to parse the tags of the OSM ways. Only the creation of the edges happens in a
+     * single thread then. All tag parsers must be thread-safe if this is larger than 1.
+     */
+    public OSMReaderConfig setWayThreads(int wayThreads) {
+        this.wayThreads = wayThreads;
+        return this;
+    }
+
+    public boolean isDenseNodeIdMap() {
+        return denseNodeIdMap;
+    }
+
+    /**
+     * Maps the OSM node ids with paged arrays instead of a B-Tree. The lookups are much faster and for a planet file,
+     * where the node ids are dense, this also needs less memory. But every page of 16384 node ids takes its full
+     * memory as soon as one of its ids is used, so for smaller extracts this needs a lot more memory.
+     */
+    public OSMReaderConfig setDenseNodeIdMap(boolean denseNodeIdMap) {
+        this.denseNodeIdMap = denseNodeIdMap;
+        return this;
+    }
+
+    public boolean isMemoryMappedPbf() {
+        return memoryMappedPbf;
+    }
+
+    /**
+     * Memory maps the PBF file instead of reading it through a stream. The blobs of the file are then passed to the
+     * decoding threads without copying them.
+     */
+    public OSMReaderConfig setMemoryMappedPbf(boolean memoryMappedPbf) {
+        this.memoryMappedPbf = memoryMappedPbf;
+        return this;
+    }
+
+    public boolean isStoreOSMNodes() {
+        return storeOSMNodes;
+    }
+
+    /**
+     * Stores the tags of the OSM ways and the ids, coordinates and tags of the OSM nodes every edge was created from.
+     * This is required to apply OSM change files to the graph later. It needs about 30 bytes per OSM node of all
+     * accepted ways, plus the tags.
+     */
+    public OSMReaderConfig setStoreOSMNodes(boolean storeOSMNodes) {
+        this.storeOSMNodes = storeOSMNodes;
+        return this;
+    }
 }
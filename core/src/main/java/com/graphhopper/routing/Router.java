@@ -19,6 +19,8 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
@@ -41,6 +43,7 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
@@ -66,6 +69,7 @@ public class Router {
     protected final WeightingFactory weightingFactory;
     protected final Map<String, RoutingCHGraph> chGraphs;
     protected final Map<String, LandmarkStorage> landmarks;
+    protected final Map<String, SnappableEdges> snappableEdges;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
 
@@ -73,6 +77,19 @@ public class Router {
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
                   Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+        this(graph, encodingManager, locationIndex, profilesByName, pathDetailsBuilderFactory, translationMap, routerConfig,
+                weightingFactory, chGraphs, landmarks, Collections.emptyMap());
+    }
+
+    /**
+     * @param snappableEdges the snappable edges per profile name that are used to skip edges while snapping, profiles
+     *                       without snappable edges use the snap filter only
+     */
+    public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks,
+                  Map<String, SnappableEdges> snappableEdges) {
         this.graph = graph;
         this.encodingManager = encodingManager;
         this.locationIndex = locationIndex;
@@ -83,6 +100,7 @@ public class Router {
         this.weightingFactory = weightingFactory;
         this.chGraphs = chGraphs;
         this.landmarks = landmarks;
+        this.snappableEdges = snappableEdges;
         // note that his is not the same as !ghStorage.getCHConfigs().isEmpty(), because the GHStorage might have some
         // CHGraphs that were not built yet (and possibly no CH profiles were configured).
         this.chEnabled = !chGraphs.isEmpty();
@@ -130,6 +148,87 @@ public class Router {
         }
     }
 
+    /**
+     * Calculates the weights, times and distances between all from and all to points. For profiles with a node-based
+     * CH preparation the bucket based many-to-many algorithm is used, otherwise one search per from point.
+     */
+    public GHMatrixResponse matrix(GHMatrixRequest request) {
+        List<GHPoint> fromPoints = request.getFromPoints();
+        List<GHPoint> toPoints = request.getToPoints();
+        if (fromPoints == null || fromPoints.isEmpty() || toPoints == null || toPoints.isEmpty())
+            return new GHMatrixResponse(0, 0).addError(new IllegalArgumentException("You have to pass at least one from and one to point"));
+        if ((long) fromPoints.size() * toPoints.size() > routerConfig.getMaxMatrixSize())
+            return new GHMatrixResponse(0, 0).addError(new IllegalArgumentException("The matrix of " + fromPoints.size()
+                    + " from points and " + toPoints.size() + " to points is too large, the maximum number of entries is "
+                    + routerConfig.getMaxMatrixSize()));
+
+        GHMatrixResponse rsp = new GHMatrixResponse(fromPoints.size(), toPoints.size());
+        try {
+            if (Helper.isEmpty(request.getProfile()))
+                throw new IllegalArgumentException("You need to specify a profile to perform a matrix request, see docs/core/profiles.md");
+            GHRequest ghRequest = new GHRequest().setProfile(request.getProfile());
+            ghRequest.getHints().putAll(request.getHints());
+            checkNoLegacyParameters(ghRequest);
+            Solver solver = createSolver(ghRequest);
+            solver.init();
+
+            EdgeFilter snapFilter = solver.createSnapFilter();
+            List<Snap> fromSnaps = MatrixRouting.lookup(encodingManager, fromPoints, snapFilter, locationIndex,
+                    request.getSnapPreventions(), request.getFromPointHints());
+            List<Snap> toSnaps = MatrixRouting.lookup(encodingManager, toPoints, snapFilter, locationIndex,
+                    request.getSnapPreventions(), request.getToPointHints());
+            for (int i = 0; i < fromSnaps.size(); i++)
+                if (!fromSnaps.get(i).isValid())
+                    rsp.getInvalidFromPoints().add(i);
+            for (int i = 0; i < toSnaps.size(); i++)
+                if (!toSnaps.get(i).isValid())
+                    rsp.getInvalidToPoints().add(i);
+            if (request.getFailFast() && (!rsp.getInvalidFromPoints().isEmpty() || !rsp.getInvalidToPoints().isEmpty())) {
+                for (int i : rsp.getInvalidFromPoints())
+                    rsp.addError(new PointNotFoundException("Cannot find from_points " + i + ": " + fromPoints.get(i), i));
+                for (int i : rsp.getInvalidToPoints())
+                    rsp.addError(new PointNotFoundException("Cannot find to_points " + i + ": " + toPoints.get(i), i));
+                return rsp;
+            }
+
+            List<Snap> snaps = new ArrayList<>(fromSnaps.size() + toSnaps.size());
+            for (Snap snap : fromSnaps)
+                if (snap.isValid())
+                    snaps.add(snap);
+            for (Snap snap : toSnaps)
+                if (snap.isValid())
+                    snaps.add(snap);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int[] fromNodes = MatrixRouting.getNodes(fromSnaps);
+            int[] toNodes = MatrixRouting.getNodes(toSnaps);
+            if (solver instanceof CHSolver && !chGraphs.get(solver.profile.getName()).isEdgeBased())
+                MatrixRouting.calcMatrixCH(chGraphs.get(solver.profile.getName()), queryGraph, fromNodes, toNodes, rsp);
+            else if (!(solver instanceof CHSolver) && !solver.profile.isTurnCosts())
+                MatrixRouting.calcMatrixOneToMany(queryGraph, solver.weighting, fromNodes, toNodes,
+                        solver.getMaxVisitedNodes(ghRequest.getHints()), rsp);
+            else
+                MatrixRouting.calcMatrixPairwise(solver.createPathCalculator(queryGraph), fromNodes, toNodes, rsp);
+
+            for (int i = 0; i < fromNodes.length; i++) {
+                for (int j = 0; j < toNodes.length; j++) {
+                    if (fromNodes[i] >= 0 && toNodes[j] >= 0 && !rsp.isConnected(i, j))
+                        rsp.getDisconnectedPoints().add(new int[]{i, j});
+                }
+            }
+            if (request.getFailFast() && !rsp.getDisconnectedPoints().isEmpty()) {
+                int[] pair = rsp.getDisconnectedPoints().get(0);
+                Map<String, Object> details = new HashMap<>(2);
+                details.put("from", pair[0]);
+                details.put("to", pair[1]);
+                rsp.addError(new ConnectionNotFoundException("Connection between locations not found for "
+                        + rsp.getDisconnectedPoints().size() + " pairs, e.g. from " + pair[0] + " to " + pair[1], details));
+            }
+        } catch (IllegalArgumentException ex) {
+            rsp.addError(ex);
+        }
+        return rsp;
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -183,13 +282,15 @@ public class Router {
     protected Solver createSolver(GHRequest request) {
         final boolean disableCH = getDisableCH(request.getHints());
         final boolean disableLM = getDisableLM(request.getHints());
+        Solver solver;
         if (chEnabled && !disableCH) {
-            return createCHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
+            solver = createCHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
         } else if (lmEnabled && !disableLM) {
-            return createLMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, landmarks);
+            solver = createLMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, landmarks);
         } else {
-            return createFlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex);
+            solver = createFlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex);
         }
+        return solver.setSnappableEdges(snappableEdges);
     }
 
     protected Solver createCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
@@ -216,11 +317,14 @@ public class Router {
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
         List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), locationIndex, params);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        routerConfig.getMetrics().snapping(sw.getNanos());
 
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
+        sw = new StopWatch().start();
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        routerConfig.getMetrics().pathCalculation(solver.getName(), request.getAlgorithm(), sw.stop().getNanos(), result.visitedNodes);
         // we merge the different legs of the roundtrip into one response path
         // note that the waypoints are not just the snapped points of the snaps, as usual, because we do some kind of tweak
         // to avoid 'unnecessary tails' in the roundtrip algo
@@ -240,6 +344,7 @@ public class Router {
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        routerConfig.getMetrics().snapping(sw.getNanos());
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
@@ -249,17 +354,21 @@ public class Router {
         if (!request.getCurbsides().isEmpty())
             throw new IllegalArgumentException("Alternative paths do not support the " + CURBSIDE + " parameter yet");
 
+        sw = new StopWatch().start();
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter, pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        routerConfig.getMetrics().pathCalculation(solver.getName(), request.getAlgorithm(), sw.stop().getNanos(), result.visitedNodes);
         if (result.paths.isEmpty())
             throw new RuntimeException("Empty paths for alternative route calculation not expected");
 
         // each path represents a different alternative and we do the path merging for each of them
+        sw = new StopWatch().start();
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
         for (Path path : result.paths) {
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
         }
+        routerConfig.getMetrics().pathMerging(sw.stop().getNanos());
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
         return ghRsp;
@@ -272,14 +381,17 @@ public class Router {
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        routerConfig.getMetrics().snapping(sw.getNanos());
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
+        sw = new StopWatch().start();
         ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+                () -> solver.createPathCalculator(queryGraph), routerConfig.getLegPool(),
+                request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        routerConfig.getMetrics().pathCalculation(solver.getName(), request.getAlgorithm(), sw.stop().getNanos(), result.visitedNodes);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
@@ -315,8 +427,11 @@ public class Router {
     }
 
     private ResponsePath concatenatePaths(GHRequest request, Weighting weighting, QueryGraph queryGraph, List<Path> paths, PointList waypoints) {
+        StopWatch sw = new StopWatch().start();
         PathMerger pathMerger = createPathMerger(request, weighting, queryGraph);
-        return pathMerger.doWork(waypoints, paths, encodingManager, translationMap.getWithFallBack(request.getLocale()));
+        ResponsePath responsePath = pathMerger.doWork(waypoints, paths, encodingManager, translationMap.getWithFallBack(request.getLocale()));
+        routerConfig.getMetrics().pathMerging(sw.stop().getNanos());
+        return responsePath;
     }
 
     private PointList getWaypoints(List<Snap> snaps) {
@@ -350,6 +465,7 @@ public class Router {
         protected Profile profile;
         protected Weighting weighting;
         protected final EncodedValueLookup lookup;
+        private Map<String, SnappableEdges> snappableEdges = Collections.emptyMap();
 
         public Solver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup) {
             this.request = request;
@@ -358,6 +474,14 @@ public class Router {
             this.lookup = lookup;
         }
 
+        /**
+         * @param snappableEdges the snappable edges per profile name that the snap filter uses to skip edges
+         */
+        public Solver setSnappableEdges(Map<String, SnappableEdges> snappableEdges) {
+            this.snappableEdges = snappableEdges;
+            return this;
+        }
+
         protected void checkRequest() {
             checkProfileSpecified();
             checkMaxVisitedNodes();
@@ -403,7 +527,10 @@ public class Router {
         protected abstract Weighting createWeighting();
 
         protected EdgeFilter createSnapFilter() {
-            return new DefaultSnapFilter(weighting, lookup.getBooleanEncodedValue(Subnetwork.key(profile.getName())));
+            // the weighting of a request can only reject more edges than the weighting of its profile, so the snappable edges
+            // of the profile can be used
+            return new DefaultSnapFilter(weighting, lookup.getBooleanEncodedValue(Subnetwork.key(profile.getName())),
+                    snappableEdges.get(profile.getName()));
         }
 
         protected DirectedEdgeFilter createDirectedEdgeFilter() {
@@ -413,6 +540,13 @@ public class Router {
 
         protected abstract PathCalculator createPathCalculator(QueryGraph queryGraph);
 
+        /**
+         * @return the name under which the path calculation of this solver is reported to the {@link RoutingMetrics}
+         */
+        protected String getName() {
+            return "flex";
+        }
+
         private List<String> getTurnCostProfiles() {
             List<String> turnCostProfiles = new ArrayList<>();
             for (Profile p : profilesByName.values()) {
@@ -442,6 +576,11 @@ public class Router {
             this.chGraphs = chGraphs;
         }
 
+        @Override
+        protected String getName() {
+            return "ch";
+        }
+
         @Override
         protected void checkRequest() {
             super.checkRequest();
@@ -529,6 +668,8 @@ public class Router {
                     setMaxVisitedNodes(getMaxVisitedNodes(request.getHints())).
                     setTimeoutMillis(getTimeoutMillis(request.getHints())).
                     setHints(request.getHints());
+            if (!algoOpts.getHints().has(Parameters.Routing.POOLED_SPT))
+                algoOpts.getHints().putObject(Parameters.Routing.POOLED_SPT, routerConfig.isPooledSPT());
 
             // use A* for round trips
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
@@ -568,6 +709,11 @@ public class Router {
             this.landmarks = landmarks;
         }
 
+        @Override
+        protected String getName() {
+            return "lm";
+        }
+
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             // for now do not allow mixing CH&LM #1082,#1889
@@ -18,6 +18,8 @@
 
 package com.graphhopper.routing;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * This class contains various parameters that control the behavior of {@link Router}.
  */
@@ -31,6 +33,10 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private boolean pooledSPT = false;
+    private RoutingMetrics metrics = RoutingMetrics.NOOP;
+    private ForkJoinPool legPool;
+    private long maxMatrixSize = 1_000_000;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -119,4 +125,49 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public boolean isPooledSPT() {
+        return pooledSPT;
+    }
+
+    /**
+     * Use pooled, primitive shortest path trees for the flexible and LM bidirectional algorithms by default.
+     */
+    public void setPooledSPT(boolean pooledSPT) {
+        this.pooledSPT = pooledSPT;
+    }
+
+    public RoutingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Reports the time spent in the different stages of every routing request to the given metrics.
+     */
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public ForkJoinPool getLegPool() {
+        return legPool;
+    }
+
+    /**
+     * Calculates the legs of routes with via points concurrently using the given pool. Use null (the default) to
+     * calculate them one after another on the request thread.
+     */
+    public void setLegPool(ForkJoinPool legPool) {
+        this.legPool = legPool;
+    }
+
+    public long getMaxMatrixSize() {
+        return maxMatrixSize;
+    }
+
+    /**
+     * Limits the number of entries, i.e. the number of from points times the number of to points, of matrix requests.
+     */
+    public void setMaxMatrixSize(long maxMatrixSize) {
+        this.maxMatrixSize = maxMatrixSize;
+    }
 }
@@ -26,6 +26,7 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.DistancePlaneProjection;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 
@@ -41,11 +42,19 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(w);
+        boolean pooledSPT = opts.getHints().getBool(Parameters.Routing.POOLED_SPT, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            ra = pooledSPT
+                    ? new DijkstraBidirectionPrimitive(g, weighting, opts.getTraversalMode())
+                    : new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
             ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) && pooledSPT) {
+            AStarBidirectionPrimitive aStarBi = new AStarBidirectionPrimitive(g, weighting, opts.getTraversalMode());
+            aStarBi.setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
+            ra = aStarBi;
+
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
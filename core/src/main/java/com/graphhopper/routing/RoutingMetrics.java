@@ -0,0 +1,57 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * Receives the time spent in the different stages of a routing request, e.g. to find out which stage dominates the
+ * response times. The default implementation {@link #NOOP} ignores everything. Implementations must be thread-safe,
+ * because they are shared by all requests. All durations are given in nanoseconds.
+ */
+public interface RoutingMetrics {
+    RoutingMetrics NOOP = new RoutingMetrics() {
+    };
+
+    /**
+     * Called after the request points were snapped to the graph.
+     */
+    default void snapping(long nanos) {
+    }
+
+    /**
+     * Called after all paths of a request were calculated.
+     *
+     * @param solver    the kind of solver that was used: ch, lm or flex
+     * @param algorithm the requested algorithm or an empty string if the solver picked the default
+     */
+    default void pathCalculation(String solver, String algorithm, long nanos, long visitedNodes) {
+    }
+
+    /**
+     * Called after the paths were merged into the response path(s) including instructions and path details.
+     */
+    default void pathMerging(long nanos) {
+    }
+
+    /**
+     * Called whenever the class for a custom model is looked up in the cache.
+     *
+     * @param compileNanos the time it took to compile the class if it was not found in the cache, 0 otherwise
+     */
+    default void customModel(boolean cacheHit, long compileNanos) {
+    }
+}
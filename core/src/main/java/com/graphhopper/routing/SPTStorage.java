@@ -0,0 +1,221 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.GrowableMinHeapWithUpdate;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Stores a shortest path tree in parallel primitive arrays instead of linked {@link SPTEntry} objects. Every entry is
+ * identified by its index and the entries that are not settled yet are kept in an indexed heap, so an entry can be
+ * updated in place when a shorter path is found instead of creating a new entry and flagging the old one as deleted.
+ * Apart from growing the arrays no objects are created per entry.
+ * <p>
+ * Instances can be re-used for many searches: {@link #acquire()} returns a pooled instance of the current thread and
+ * {@link #release} clears it for the next search. Clearing only touches the entries of the last search, so its cost does
+ * not depend on the size of the graph.
+ */
+public class SPTStorage {
+    public static final int NO_ENTRY = -1;
+    private static final int NO_TRAVERSAL_ID = -1;
+    // instances that grew larger than this number of entries are not pooled to limit the memory held by idle threads
+    private static final int MAX_POOLED_ENTRIES = Integer.getInteger("graphhopper.spt_pool.max_entries", 1_000_000);
+    private static final int MAX_POOLED_INSTANCES = 4;
+    private static final ThreadLocal<ArrayDeque<SPTStorage>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final IntIntHashMap entriesByTraversalId;
+    private final GrowableMinHeapWithUpdate heap;
+    private int[] edges;
+    private int[] adjNodes;
+    private int[] parents;
+    private int[] traversalIds;
+    private double[] weights;
+    private double[] keys;
+    private int size;
+
+    public SPTStorage(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 16);
+        entriesByTraversalId = new IntIntHashMap(initialCapacity);
+        heap = new GrowableMinHeapWithUpdate(initialCapacity);
+        edges = new int[initialCapacity];
+        adjNodes = new int[initialCapacity];
+        parents = new int[initialCapacity];
+        traversalIds = new int[initialCapacity];
+        weights = new double[initialCapacity];
+        keys = new double[initialCapacity];
+    }
+
+    /**
+     * @return an empty instance from the pool of the current thread or a new one if the pool is empty. Call
+     * {@link #release} when the search is finished.
+     */
+    public static SPTStorage acquire() {
+        SPTStorage storage = POOL.get().poll();
+        return storage == null ? new SPTStorage(1000) : storage;
+    }
+
+    /**
+     * Clears the given instance and puts it back into the pool of the current thread.
+     */
+    public static void release(SPTStorage storage) {
+        storage.clear();
+        ArrayDeque<SPTStorage> pool = POOL.get();
+        if (storage.getCapacity() <= MAX_POOLED_ENTRIES && pool.size() < MAX_POOLED_INSTANCES)
+            pool.push(storage);
+    }
+
+    /**
+     * Creates a new entry and adds it to the heap.
+     *
+     * @param weight the weight of the path from the root of the tree to this entry
+     * @param key    the value that determines the order in which the entries are polled from the heap, e.g. the weight
+     *               plus the approximated remaining weight for A*
+     * @param parent the index of the parent entry or {@link #NO_ENTRY} for root entries
+     * @return the index of the new entry
+     */
+    public int addEntry(int edge, int adjNode, double weight, double key, int parent) {
+        if (size == edges.length)
+            grow();
+        int entry = size++;
+        edges[entry] = edge;
+        adjNodes[entry] = adjNode;
+        parents[entry] = parent;
+        traversalIds[entry] = NO_TRAVERSAL_ID;
+        weights[entry] = weight;
+        keys[entry] = key;
+        heap.push(entry, key);
+        return entry;
+    }
+
+    /**
+     * Associates the given entry with the given traversal id such that it can be found via {@link #getEntry}
+     */
+    public void putEntry(int traversalId, int entry) {
+        entriesByTraversalId.put(traversalId, entry);
+        traversalIds[entry] = traversalId;
+    }
+
+    /**
+     * @return the entry for the given traversal id or {@link #NO_ENTRY}
+     */
+    public int getEntry(int traversalId) {
+        return entriesByTraversalId.getOrDefault(traversalId, NO_ENTRY);
+    }
+
+    /**
+     * Replaces the path to an existing entry with a shorter one. If the entry was polled already it is added to the
+     * heap again.
+     */
+    public void updateEntry(int entry, int edge, double weight, double key, int parent) {
+        edges[entry] = edge;
+        parents[entry] = parent;
+        weights[entry] = weight;
+        keys[entry] = key;
+        if (heap.contains(entry))
+            heap.update(entry, key);
+        else
+            heap.push(entry, key);
+    }
+
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    /**
+     * Removes the entry with the smallest key from the heap and returns its index.
+     */
+    public int pollEntry() {
+        return heap.poll();
+    }
+
+    public int getEdge(int entry) {
+        return edges[entry];
+    }
+
+    public int getAdjNode(int entry) {
+        return adjNodes[entry];
+    }
+
+    public int getParent(int entry) {
+        return parents[entry];
+    }
+
+    public double getWeight(int entry) {
+        return weights[entry];
+    }
+
+    public double getKey(int entry) {
+        return keys[entry];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates the linked {@link SPTEntry} objects for the path from the root of the tree to the given entry, e.g. to
+     * use the existing path extractors. Only the entries on this path are created.
+     */
+    public SPTEntry toSPTEntry(int entry) {
+        if (entry == NO_ENTRY)
+            return null;
+        int depth = 0;
+        for (int e = entry; e != NO_ENTRY; e = parents[e])
+            depth++;
+        int[] path = new int[depth];
+        for (int e = entry; e != NO_ENTRY; e = parents[e])
+            path[--depth] = e;
+        SPTEntry result = null;
+        for (int e : path)
+            result = new SPTEntry(edges[e], adjNodes[e], weights[e], result);
+        return result;
+    }
+
+    /**
+     * Removes all entries. This only touches the entries created since the last call.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            if (traversalIds[i] != NO_TRAVERSAL_ID)
+                entriesByTraversalId.remove(traversalIds[i]);
+        heap.clear();
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return edges.length;
+    }
+
+    private void grow() {
+        int newCapacity = edges.length * 2;
+        edges = Arrays.copyOf(edges, newCapacity);
+        adjNodes = Arrays.copyOf(adjNodes, newCapacity);
+        parents = Arrays.copyOf(parents, newCapacity);
+        traversalIds = Arrays.copyOf(traversalIds, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return "entries: " + size + ", capacity: " + getCapacity();
+    }
+}
@@ -32,6 +32,12 @@ import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -92,26 +98,66 @@ public class ViaRouting {
         return snaps;
     }
 
-    public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
-        if (!curbsides.isEmpty() && curbsides.size() != points.size())
-            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
-        if (!curbsides.isEmpty() && !headings.isEmpty())
-            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
+    /**
+     * Same as {@link #calcPaths(List, QueryGraph, List, DirectedEdgeFilter, PathCalculator, List, boolean, List, boolean)},
+     * but the legs are calculated concurrently using the given pool if possible. A path calculator is never used by two
+     * legs at the same time. The legs are still calculated one after another if there is no pool or if the legs depend on each
+     * other: with pass_through every leg depends on the final edge of the previous leg and headings are enforced by
+     * changing the query graph for a single leg.
+     *
+     * @param pathCalculators creates the path calculators, at most one for every leg that is calculated at the same time
+     * @param pool            the pool used to calculate the legs, or null to calculate them on the calling thread
+     */
+    public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, Supplier<? extends PathCalculator> pathCalculators, ForkJoinPool pool, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
+        PathCalculator pathCalculator = pathCalculators.get();
+        if (pool == null || snaps.size() < 3 || passThrough || hasHeadings(headings))
+            return calcPaths(points, queryGraph, snaps, directedEdgeFilter, pathCalculator, curbsides, forceCurbsides, headings, passThrough);
+        checkCurbsidesAndHeadings(points, curbsides, headings);
 
         final int legs = snaps.size() - 1;
-        Result result = new Result(legs);
+        // path calculators are not thread-safe, so every task takes an idle one or creates a new one
+        Queue<PathCalculator> idlePathCalculators = new ConcurrentLinkedQueue<>();
+        idlePathCalculators.add(pathCalculator);
+        List<Future<LegResult>> futures = new ArrayList<>(legs);
         for (int leg = 0; leg < legs; ++leg) {
-            Snap fromSnap = snaps.get(leg);
-            Snap toSnap = snaps.get(leg + 1);
+            final int l = leg;
+            futures.add(pool.submit(() -> {
+                PathCalculator calculator = idlePathCalculators.poll();
+                if (calculator == null)
+                    calculator = pathCalculators.get();
+                LegResult legResult = calcLeg(l, queryGraph, snaps, directedEdgeFilter, calculator,
+                        curbsides, forceCurbsides, headings, NO_EDGE, false);
+                idlePathCalculators.offer(calculator);
+                return legResult;
+            }));
+        }
+        Result result = new Result(legs);
+        try {
+            for (Future<LegResult> future : futures)
+                addLeg(result, future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calculating the legs", e);
+        } catch (ExecutionException e) {
+            // rethrow the exception of the first failed leg as it is, like it would have been thrown on this thread
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<LegResult> future : futures)
+                future.cancel(false);
+        }
+        return result;
+    }
 
-            // enforce headings
-            // at via-nodes and the target node the heading parameter is interpreted as the direction we want
-            // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
-            // all for these points (unless using pass through). see this forum discussion:
-            // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
-            double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
-            double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+    public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
+        checkCurbsidesAndHeadings(points, curbsides, headings);
 
+        final int legs = snaps.size() - 1;
+        Result result = new Result(legs);
+        for (int leg = 0; leg < legs; ++leg) {
             // enforce pass-through
             int incomingEdge = NO_EDGE;
             if (leg != 0) {
@@ -120,39 +166,83 @@ public class ViaRouting {
                 if (prevRoute.getEdgeCount() > 0)
                     incomingEdge = prevRoute.getFinalEdge().getEdge();
             }
+            addLeg(result, calcLeg(leg, queryGraph, snaps, directedEdgeFilter, pathCalculator, curbsides, forceCurbsides, headings, incomingEdge, passThrough));
+        }
 
-            // enforce curbsides
-            final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+        return result;
+    }
+
+    private static void checkCurbsidesAndHeadings(List<GHPoint> points, List<String> curbsides, List<Double> headings) {
+        if (!curbsides.isEmpty() && curbsides.size() != points.size())
+            throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
+        if (!curbsides.isEmpty() && !headings.isEmpty())
+            throw new IllegalArgumentException("You cannot use curbsides and headings or pass_through at the same time");
+    }
 
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
-                    fromHeading, toHeading, incomingEdge, passThrough,
-                    fromCurbside, toCurbside, directedEdgeFilter);
+    private static boolean hasHeadings(List<Double> headings) {
+        for (Double heading : headings)
+            if (!Double.isNaN(heading))
+                return true;
+        return false;
+    }
 
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+    private static LegResult calcLeg(int leg, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, int incomingEdge, boolean passThrough) {
+        Snap fromSnap = snaps.get(leg);
+        Snap toSnap = snaps.get(leg + 1);
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
-            result.debug += pathCalculator.getDebugString();
+        // enforce headings
+        // at via-nodes and the target node the heading parameter is interpreted as the direction we want
+        // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
+        // all for these points (unless using pass through). see this forum discussion:
+        // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
+        double fromHeading = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
+        double toHeading = (snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
 
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            for (int i = 0; i < paths.size(); i++) {
-                Path path = paths.get(i);
-                if (path.getTime() < 0)
-                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+        // enforce curbsides
+        final String fromCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        final String toCurbside = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
 
-                result.paths.add(path);
-                result.debug += ", " + path.getDebugInfo();
-            }
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(queryGraph, fromSnap, toSnap,
+                fromHeading, toHeading, incomingEdge, passThrough,
+                fromCurbside, toCurbside, directedEdgeFilter);
+
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            result.debug += ", visited nodes sum: " + result.visitedNodes;
+        // calculate paths
+        List<Path> paths = pathCalculator.calcPaths(fromSnap.getClosestNode(), toSnap.getClosestNode(), edgeRestrictions);
+        return new LegResult(paths, pathCalculator.getDebugString(), pathCalculator.getVisitedNodes());
+    }
+
+    private static void addLeg(Result result, LegResult leg) {
+        result.debug += leg.debug;
+
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        for (int i = 0; i < leg.paths.size(); i++) {
+            Path path = leg.paths.get(i);
+            if (path.getTime() < 0)
+                throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+
+            result.paths.add(path);
+            result.debug += ", " + path.getDebugInfo();
         }
 
-        return result;
+        result.visitedNodes += leg.visitedNodes;
+        result.debug += ", visited nodes sum: " + result.visitedNodes;
+    }
+
+    private static class LegResult {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
+
+        LegResult(List<Path> paths, String debug, int visitedNodes) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
+        }
     }
 
     public static class Result {
@@ -0,0 +1,258 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.graphhopper.coll.GrowableMinHeapWithUpdate;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.Arrays;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates the weights, times and distances between many source and target nodes using the bucket based
+ * many-to-many algorithm for contraction hierarchies (Knopp et al., 2007): First an upward search is run for every
+ * target and the settled nodes are stored in per-node buckets. Then an upward search is run for every source and the
+ * buckets of all the settled nodes are scanned. This requires only |sources| + |targets| small searches instead of
+ * |sources| * |targets| point-to-point queries.
+ * <p>
+ * The time and distance of a shortcut is calculated by unpacking it once and caching the result, so the path
+ * details of the single routes never have to be extracted. Only node-based CH graphs are supported.
+ */
+public class CHManyToMany {
+    private static final int NO_ENTRY = -1;
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer outExplorer;
+    private final RoutingCHEdgeExplorer inExplorer;
+    private final int maxNodes;
+    // shortest path tree of the current search: only the visited nodes get an entry, so the memory does not depend on
+    // the size of the graph. entry i belongs to the node changedNodes.get(i) and the heap is keyed by the entries
+    private final IntIntHashMap entriesByNode = new IntIntHashMap();
+    private final IntArrayList changedNodes = new IntArrayList();
+    private double[] weights = new double[16];
+    private long[] times = new long[16];
+    private double[] distances = new double[16];
+    private int[] prevEdges = new int[16];
+    private final GrowableMinHeapWithUpdate heap = new GrowableMinHeapWithUpdate(16);
+    // the buckets are single linked lists stored in the following arrays, bucketHeads points to the first entry
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private int[] bucketNext = new int[16];
+    private int[] bucketTargets = new int[16];
+    private double[] bucketWeights = new double[16];
+    private long[] bucketTimes = new long[16];
+    private double[] bucketDistances = new double[16];
+    private int bucketSize;
+    // the unpacked time and distance of shortcuts keyed by the shortcut id and the direction
+    private final IntLongHashMap shortcutTimes = new IntLongHashMap();
+    private final IntDoubleHashMap shortcutDistances = new IntDoubleHashMap();
+    private final ShortcutUnpacker shortcutUnpacker;
+    private long unpackedTime;
+    private double unpackedDistance;
+    private int visitedNodes;
+
+    public CHManyToMany(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Edge-based CH is not supported for the many-to-many calculation");
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.outExplorer = graph.createOutEdgeExplorer();
+        this.inExplorer = graph.createInEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackedDistance += edge.getDistance();
+            unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+        }, false);
+    }
+
+    /**
+     * Calculates the matrix for the given nodes. Negative source or target nodes are skipped, the corresponding
+     * entries are left untouched. The result arrays have to be of the size sources.length x targets.length and
+     * unreachable targets are not touched either.
+     */
+    public void calcMatrix(int[] sources, int[] targets, double[][] resultWeights, long[][] resultTimes, double[][] resultDistances) {
+        clearBuckets();
+        for (int t = 0; t < targets.length; t++) {
+            if (targets[t] < 0)
+                continue;
+            search(targets[t], true);
+            for (int i = 0; i < changedNodes.size(); i++)
+                addBucketEntry(changedNodes.get(i), t, weights[i], times[i], distances[i]);
+        }
+
+        for (int s = 0; s < sources.length; s++) {
+            if (sources[s] < 0)
+                continue;
+            search(sources[s], false);
+            double[] weightRow = resultWeights[s];
+            for (int i = 0; i < changedNodes.size(); i++) {
+                double weight = weights[i];
+                int entry = bucketHeads.getOrDefault(changedNodes.get(i), NO_ENTRY);
+                while (entry != NO_ENTRY) {
+                    int t = bucketTargets[entry];
+                    double total = weight + bucketWeights[entry];
+                    if (total < weightRow[t]) {
+                        weightRow[t] = total;
+                        resultTimes[s][t] = times[i] + bucketTimes[entry];
+                        resultDistances[s][t] = distances[i] + bucketDistances[entry];
+                    }
+                    entry = bucketNext[entry];
+                }
+            }
+        }
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * Runs a full upward search from the given node. The settled nodes are afterwards available via changedNodes and
+     * their weights, times and distances via the entry with the same index.
+     */
+    private void search(int start, boolean reverse) {
+        entriesByNode.clear();
+        changedNodes.elementsCount = 0;
+        heap.clear();
+
+        RoutingCHEdgeExplorer explorer = reverse ? inExplorer : outExplorer;
+        heap.push(addEntry(start, 0, 0, 0, NO_EDGE), 0);
+        while (!heap.isEmpty()) {
+            int entry = heap.poll();
+            visitedNodes++;
+            double weight = weights[entry];
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(changedNodes.get(entry));
+            while (iter.next()) {
+                if (iter.getEdge() == prevEdges[entry] || !acceptLevel(iter))
+                    continue;
+                double edgeWeight = iter.getWeight(reverse);
+                if (Double.isInfinite(edgeWeight))
+                    continue;
+                double newWeight = weight + edgeWeight;
+                int adjNode = iter.getAdjNode();
+                int index = entriesByNode.indexOf(adjNode);
+                if (entriesByNode.indexExists(index)) {
+                    int adjEntry = entriesByNode.indexGet(index);
+                    if (newWeight >= weights[adjEntry])
+                        continue;
+                    unpack(iter, reverse);
+                    setEntry(adjEntry, newWeight, times[entry] + unpackedTime, distances[entry] + unpackedDistance, iter.getEdge());
+                    heap.update(adjEntry, newWeight);
+                } else {
+                    unpack(iter, reverse);
+                    heap.push(addEntry(adjNode, newWeight, times[entry] + unpackedTime, distances[entry] + unpackedDistance, iter.getEdge()), newWeight);
+                }
+            }
+        }
+    }
+
+    private int addEntry(int node, double weight, long time, double distance, int prevEdge) {
+        int entry = changedNodes.size();
+        if (entry == weights.length) {
+            int newLength = entry * 2;
+            weights = Arrays.copyOf(weights, newLength);
+            times = Arrays.copyOf(times, newLength);
+            distances = Arrays.copyOf(distances, newLength);
+            prevEdges = Arrays.copyOf(prevEdges, newLength);
+        }
+        changedNodes.add(node);
+        entriesByNode.put(node, entry);
+        setEntry(entry, weight, time, distance, prevEdge);
+        return entry;
+    }
+
+    private void setEntry(int entry, double weight, long time, double distance, int prevEdge) {
+        weights[entry] = weight;
+        times[entry] = time;
+        distances[entry] = distance;
+        prevEdges[entry] = prevEdge;
+    }
+
+    private boolean acceptLevel(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    /**
+     * Sets unpackedTime and unpackedDistance to the time and distance of the given edge or shortcut.
+     */
+    private void unpack(RoutingCHEdgeIteratorState edgeState, boolean reverse) {
+        if (!edgeState.isShortcut()) {
+            unpackedTime = 0;
+            unpackedDistance = 0;
+            visitOriginalEdges(edgeState, reverse);
+            return;
+        }
+        // shortcuts are only traversed from their lower to their higher level node, so the shortcut id and the
+        // direction identify the unpacked path
+        int key = edgeState.getEdge() * 2 + (reverse ? 1 : 0);
+        int index = shortcutTimes.indexOf(key);
+        if (shortcutTimes.indexExists(index)) {
+            unpackedTime = shortcutTimes.indexGet(index);
+            unpackedDistance = shortcutDistances.get(key);
+            return;
+        }
+        unpackedTime = 0;
+        unpackedDistance = 0;
+        visitOriginalEdges(edgeState, reverse);
+        shortcutTimes.indexInsert(index, key, unpackedTime);
+        shortcutDistances.put(key, unpackedDistance);
+    }
+
+    private void visitOriginalEdges(RoutingCHEdgeIteratorState edgeState, boolean reverse) {
+        if (reverse)
+            shortcutUnpacker.visitOriginalEdgesBwd(edgeState.getEdge(), edgeState.getAdjNode(), false, NO_EDGE);
+        else
+            shortcutUnpacker.visitOriginalEdgesFwd(edgeState.getEdge(), edgeState.getAdjNode(), false, NO_EDGE);
+    }
+
+    private void addBucketEntry(int node, int target, double weight, long time, double distance) {
+        if (bucketSize == bucketNext.length) {
+            int newLength = bucketSize * 2;
+            bucketNext = Arrays.copyOf(bucketNext, newLength);
+            bucketTargets = Arrays.copyOf(bucketTargets, newLength);
+            bucketWeights = Arrays.copyOf(bucketWeights, newLength);
+            bucketTimes = Arrays.copyOf(bucketTimes, newLength);
+            bucketDistances = Arrays.copyOf(bucketDistances, newLength);
+        }
+        int entry = bucketSize++;
+        bucketTargets[entry] = target;
+        bucketWeights[entry] = weight;
+        bucketTimes[entry] = time;
+        bucketDistances[entry] = distance;
+        bucketNext[entry] = bucketHeads.getOrDefault(node, NO_ENTRY);
+        bucketHeads.put(node, entry);
+    }
+
+    private void clearBuckets() {
+        bucketHeads.clear();
+        bucketSize = 0;
+    }
+}
@@ -22,6 +22,7 @@ import com.graphhopper.config.CHProfile;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.Parameters.CH;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +47,8 @@ public class CHPreparationHandler {
     // the actual Weightings)
     private final List<CHProfile> chProfiles = new ArrayList<>();
     private int preparationThreads;
+    private boolean customizable;
+    private CustomizableContractionHierarchy cch;
     private PMap pMap = new PMap();
 
     public CHPreparationHandler() {
@@ -62,6 +65,7 @@ public class CHPreparationHandler {
             throw new IllegalStateException("Use profiles_ch instead of prepare.ch.edge_based, see #1922 and docs/core/profiles.md");
 
         setPreparationThreads(ghConfig.getInt(CH.PREPARE + "threads", getPreparationThreads()));
+        setCustomizable(ghConfig.getBool(CH.PREPARE + "customizable", customizable));
         setCHProfiles(ghConfig.getCHProfiles());
         pMap = ghConfig.asPMap();
     }
@@ -97,6 +101,31 @@ public class CHPreparationHandler {
         this.preparationThreads = preparationThreads;
     }
 
+    public boolean isCustomizable() {
+        return customizable;
+    }
+
+    /**
+     * Enables customizable contraction hierarchies for the node-based CH profiles: the metric-independent part of the
+     * preparation is done once for all profiles and the customization for each profile only takes a fraction of the
+     * time of a full preparation. The queries are usually a bit slower than for a full preparation.
+     *
+     * @see CustomizableContractionHierarchy
+     */
+    public CHPreparationHandler setCustomizable(boolean customizable) {
+        this.customizable = customizable;
+        return this;
+    }
+
+    /**
+     * @return the metric-independent contraction of the given graph, which is created on the first call
+     */
+    public synchronized CustomizableContractionHierarchy getCustomizableCH(BaseGraph graph) {
+        if (cch == null)
+            cch = CustomizableContractionHierarchy.fromGraph(graph);
+        return cch;
+    }
+
     public Map<String, RoutingCHGraph> load(BaseGraph graph, List<CHConfig> chConfigs) {
         Map<String, RoutingCHGraph> loaded = Collections.synchronizedMap(new LinkedHashMap<>());
         Stream<Callable<String>> callables = chConfigs.stream()
@@ -120,11 +149,19 @@ public class CHPreparationHandler {
             LOGGER.info("There are no CHs to prepare");
             return Collections.emptyMap();
         }
+        Map<String, PrepareContractionHierarchies.Result> results = Collections.synchronizedMap(new LinkedHashMap<>());
+        if (customizable) {
+            // edge-based CH is not supported by CCH, so these profiles are still prepared the usual way
+            chConfigs.stream().filter(c -> !c.isEdgeBased()).forEach(c -> {
+                results.put(c.getName(), customize(baseGraph, c, closeEarly));
+                properties.put(CH.PREPARE + "date." + c.getName(), createFormatter().format(new Date()));
+            });
+            chConfigs = chConfigs.stream().filter(CHConfig::isEdgeBased).collect(Collectors.toList());
+        }
         LOGGER.info("Creating CH preparations, {}", getMemInfo());
         List<PrepareContractionHierarchies> preparations = chConfigs.stream()
                 .map(c -> createCHPreparation(baseGraph, c))
                 .collect(Collectors.toList());
-        Map<String, PrepareContractionHierarchies.Result> results = Collections.synchronizedMap(new LinkedHashMap<>());
         List<Callable<String>> callables = new ArrayList<>(preparations.size());
         for (int i = 0; i < preparations.size(); ++i) {
             PrepareContractionHierarchies prepare = preparations.get(i);
@@ -148,6 +185,17 @@ public class CHPreparationHandler {
         return results;
     }
 
+    private PrepareContractionHierarchies.Result customize(BaseGraph baseGraph, CHConfig chConfig, boolean closeEarly) {
+        LOGGER.info("Customizing CCH for profile '" + chConfig.getName() + "' ... (" + getMemInfo() + ")");
+        StopWatch sw = StopWatch.started();
+        CHStorage chStorage = CHStorage.fromGraph(baseGraph, chConfig);
+        int shortcuts = getCustomizableCH(baseGraph).customize(chConfig.getWeighting(), chStorage, preparationThreads);
+        chStorage.flush();
+        if (closeEarly)
+            chStorage.close();
+        return new PrepareContractionHierarchies.Result(chConfig, chStorage, shortcuts, 0, 0, 0, sw.stop().getMillis());
+    }
+
     private PrepareContractionHierarchies createCHPreparation(BaseGraph graph, CHConfig chConfig) {
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(graph, chConfig);
         pch.setParams(pMap);
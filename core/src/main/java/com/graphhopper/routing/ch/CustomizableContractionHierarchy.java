@@ -0,0 +1,385 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHStorage;
+import com.graphhopper.storage.CHStorageBuilder;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Customizable contraction hierarchies (CCH) split the CH preparation into two phases: First the graph is contracted
+ * using a node ordering that does not depend on the weighting (see {@link NestedDissection}) and without witness
+ * searches, i.e. every pair of higher level neighbors of a contracted node gets connected. This metric-independent
+ * topology only needs to be calculated once. Afterwards the customization calculates the weights of all these arcs for
+ * a given weighting by looking at the triangles below each arc, which is much faster than a full CH preparation. The
+ * result is written to a {@link CHStorage} that can be used with the usual CH algorithms.
+ * <p>
+ * Only node-based CH is supported.
+ *
+ * @see <a href="https://arxiv.org/abs/1402.0402">Customizable Contraction Hierarchies</a>
+ */
+public class CustomizableContractionHierarchy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomizableContractionHierarchy.class);
+    private static final int NO_EDGE = -1;
+    private final BaseGraph graph;
+    // the node with level 0 is the first one that was contracted. the arrays below refer to the nodes by their level
+    private final int[] nodesByLevel;
+    private final int[] levels;
+    // the arcs to the higher level neighbors of level l are upHeads[upFirst[l]], ..., upHeads[upFirst[l + 1] - 1],
+    // sorted by the level of the head. the arc index is used as arc id
+    private final int[] upFirst;
+    private final int[] upHeads;
+    // the arcs to the lower level neighbors of level l are downTails[downFirst[l]], ..., downTails[downFirst[l + 1] - 1],
+    // sorted by the level of the tail. downArcs contains the according arc ids
+    private final int[] downFirst;
+    private final int[] downTails;
+    private final int[] downArcs;
+    // the nodes are customized in groups that do not depend on each other, see createCustomizationGroups
+    private final List<int[]> independentGroups = new ArrayList<>();
+    private int[] topLevels;
+
+    /**
+     * Calculates the node ordering with nested dissection and contracts the graph
+     */
+    public static CustomizableContractionHierarchy fromGraph(BaseGraph graph) {
+        StopWatch sw = StopWatch.started();
+        int[] nodeOrdering = NestedDissection.calcNodeOrdering(graph);
+        LOGGER.info("Calculated the node ordering for CCH in {}s", sw.stop().getSeconds());
+        return new CustomizableContractionHierarchy(graph, NodeOrderingProvider.fromArray(nodeOrdering));
+    }
+
+    public CustomizableContractionHierarchy(BaseGraph graph, NodeOrderingProvider nodeOrdering) {
+        if (!graph.isFrozen())
+            throw new IllegalStateException("The graph must be frozen before it can be contracted");
+        if (nodeOrdering.getNumNodes() != graph.getNodes())
+            throw new IllegalArgumentException("The node ordering must contain all " + graph.getNodes() + " nodes, but got: " + nodeOrdering.getNumNodes());
+        StopWatch sw = StopWatch.started();
+        this.graph = graph;
+        int nodes = graph.getNodes();
+        nodesByLevel = new int[nodes];
+        levels = new int[nodes];
+        Arrays.fill(levels, -1);
+        for (int level = 0; level < nodes; level++) {
+            int node = nodeOrdering.getNodeIdForLevel(level);
+            if (levels[node] >= 0)
+                throw new IllegalArgumentException("The node ordering contains node " + node + " twice");
+            levels[node] = level;
+            nodesByLevel[level] = node;
+        }
+
+        // contract the nodes in the given order. all higher level neighbors of a contracted node are connected to
+        // each other, but it is enough to connect them to the lowest of them (the parent), because when the parent
+        // is contracted they will be connected to each other anyway.
+        IntArrayList[] upNeighbors = new IntArrayList[nodes];
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int level = 0; level < nodes; level++) {
+            IntArrayList neighbors = new IntArrayList();
+            EdgeIterator iter = explorer.setBaseNode(nodesByLevel[level]);
+            while (iter.next()) {
+                int adjLevel = levels[iter.getAdjNode()];
+                if (adjLevel > level)
+                    neighbors.add(adjLevel);
+            }
+            upNeighbors[level] = neighbors;
+        }
+        upFirst = new int[nodes + 1];
+        IntArrayList heads = new IntArrayList();
+        int[] parents = new int[nodes];
+        for (int level = 0; level < nodes; level++) {
+            int[] neighbors = sortedAndDistinct(upNeighbors[level]);
+            upNeighbors[level] = null;
+            upFirst[level] = heads.size();
+            heads.add(neighbors, 0, neighbors.length);
+            parents[level] = neighbors.length == 0 ? -1 : neighbors[0];
+            if (neighbors.length > 1)
+                upNeighbors[neighbors[0]].add(neighbors, 1, neighbors.length - 1);
+        }
+        upFirst[nodes] = heads.size();
+        upHeads = heads.toArray();
+
+        downFirst = new int[nodes + 1];
+        for (int arc = 0; arc < upHeads.length; arc++)
+            downFirst[upHeads[arc] + 1]++;
+        for (int level = 0; level < nodes; level++)
+            downFirst[level + 1] += downFirst[level];
+        downTails = new int[upHeads.length];
+        downArcs = new int[upHeads.length];
+        int[] downCount = new int[nodes];
+        // iterating over the tails in increasing order makes sure the down arcs are sorted by the level of their tail
+        for (int level = 0; level < nodes; level++) {
+            for (int arc = upFirst[level]; arc < upFirst[level + 1]; arc++) {
+                int head = upHeads[arc];
+                int index = downFirst[head] + downCount[head]++;
+                downTails[index] = level;
+                downArcs[index] = arc;
+            }
+        }
+        createCustomizationGroups(parents);
+        LOGGER.info("Created CCH topology with {} arcs for {} nodes in {}s", nf(getArcs()), nf(nodes), sw.stop().getSeconds());
+    }
+
+    private static int[] sortedAndDistinct(IntArrayList list) {
+        int[] array = list.toArray();
+        Arrays.sort(array);
+        int size = 0;
+        for (int i = 0; i < array.length; i++)
+            if (i == 0 || array[i] != array[i - 1])
+                array[size++] = array[i];
+        return Arrays.copyOf(array, size);
+    }
+
+    /**
+     * The arcs of a node only depend on the arcs of its descendants in the elimination tree, i.e. the tree in which the
+     * parent of each node is its lowest level higher neighbor. Therefore, we can customize disjoint subtrees
+     * independently, and only the remaining nodes at the top of the tree need to be customized afterwards.
+     */
+    private void createCustomizationGroups(int[] parents) {
+        int nodes = parents.length;
+        int[] subtreeSizes = new int[nodes];
+        for (int level = 0; level < nodes; level++) {
+            subtreeSizes[level]++;
+            if (parents[level] >= 0)
+                subtreeSizes[parents[level]] += subtreeSizes[level];
+        }
+        int maxGroupSize = Math.max(1_000, nodes / 64);
+        int[] groups = new int[nodes];
+        int groupCount = 0;
+        for (int level = nodes - 1; level >= 0; level--) {
+            int parent = parents[level];
+            if (subtreeSizes[level] <= maxGroupSize && (parent < 0 || subtreeSizes[parent] > maxGroupSize))
+                groups[level] = groupCount++;
+            else if (parent >= 0 && subtreeSizes[parent] <= maxGroupSize)
+                groups[level] = groups[parent];
+            else
+                groups[level] = -1;
+        }
+        IntArrayList[] groupLevels = new IntArrayList[groupCount];
+        for (int i = 0; i < groupCount; i++)
+            groupLevels[i] = new IntArrayList();
+        IntArrayList top = new IntArrayList();
+        for (int level = 0; level < nodes; level++) {
+            if (groups[level] < 0)
+                top.add(level);
+            else
+                groupLevels[groups[level]].add(level);
+        }
+        for (IntArrayList group : groupLevels)
+            independentGroups.add(group.toArray());
+        topLevels = top.toArray();
+    }
+
+    /**
+     * @return the number of arcs of the contracted graph, i.e. the maximum number of shortcuts per direction
+     */
+    public int getArcs() {
+        return upHeads.length;
+    }
+
+    public int getLevel(int node) {
+        return levels[node];
+    }
+
+    /**
+     * Calculates the weights of all arcs for the given weighting and writes the resulting shortcuts to the given
+     * storage, which must be empty.
+     *
+     * @param threads the number of threads used to calculate the weights
+     * @return the number of added shortcuts
+     */
+    public int customize(Weighting weighting, CHStorage chStorage, int threads) {
+        if (weighting.hasTurnCosts() || chStorage.isEdgeBased())
+            throw new IllegalArgumentException("CCH only supports node-based CH without turn costs");
+        if (chStorage.getNodes() != graph.getNodes() || chStorage.getShortcuts() > 0)
+            throw new IllegalArgumentException("The CHStorage must be empty and have " + graph.getNodes() + " nodes");
+        StopWatch sw = StopWatch.started();
+        Customization customization = new Customization(weighting);
+        Stream<Callable<String>> callables = independentGroups.stream().map(group -> () -> {
+            customization.customize(group);
+            return "";
+        });
+        GHUtility.runConcurrently(callables, threads);
+        customization.customize(topLevels);
+        float weightTime = sw.stop().getSeconds();
+
+        sw = StopWatch.started();
+        int shortcuts = customization.writeShortcuts(new CHStorageBuilder(chStorage));
+        LOGGER.info("Customized CCH for {}, shortcuts: {}, weights: {}s, storage: {}s", weighting, nf(shortcuts),
+                weightTime, sw.stop().getSeconds());
+        return shortcuts;
+    }
+
+    private class Customization {
+        private final Weighting weighting;
+        // the weights of the arcs from lower to higher level (up) and back (down)
+        private final double[] upWeights;
+        private final double[] downWeights;
+        // the original edge or the level of the middle node of the lower triangle that yields the weight
+        private final int[] upEdges;
+        private final int[] downEdges;
+        private final int[] upVia;
+        private final int[] downVia;
+
+        Customization(Weighting weighting) {
+            this.weighting = weighting;
+            int arcs = getArcs();
+            upWeights = new double[arcs];
+            downWeights = new double[arcs];
+            Arrays.fill(upWeights, Double.POSITIVE_INFINITY);
+            Arrays.fill(downWeights, Double.POSITIVE_INFINITY);
+            upEdges = new int[arcs];
+            downEdges = new int[arcs];
+            Arrays.fill(upEdges, NO_EDGE);
+            Arrays.fill(downEdges, NO_EDGE);
+            upVia = new int[arcs];
+            downVia = new int[arcs];
+            Arrays.fill(upVia, -1);
+            Arrays.fill(downVia, -1);
+        }
+
+        /**
+         * Calculates the weights of the arcs to the higher level neighbors of the given levels, which must be sorted.
+         */
+        void customize(int[] levelsToCustomize) {
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            for (int level : levelsToCustomize) {
+                // the original edges
+                EdgeIterator iter = explorer.setBaseNode(nodesByLevel[level]);
+                while (iter.next()) {
+                    int adjLevel = levels[iter.getAdjNode()];
+                    if (adjLevel <= level)
+                        continue;
+                    int arc = findArc(level, adjLevel);
+                    double upWeight = weighting.calcEdgeWeightWithAccess(iter, false);
+                    if (upWeight < upWeights[arc]) {
+                        upWeights[arc] = upWeight;
+                        upEdges[arc] = iter.getEdge();
+                    }
+                    double downWeight = weighting.calcEdgeWeightWithAccess(iter, true);
+                    if (downWeight < downWeights[arc]) {
+                        downWeights[arc] = downWeight;
+                        downEdges[arc] = iter.getEdge();
+                    }
+                }
+                // the lower triangles: level -> via -> head, which is shorter if via is a common lower neighbor
+                for (int arc = upFirst[level]; arc < upFirst[level + 1]; arc++) {
+                    int head = upHeads[arc];
+                    int i = downFirst[level], iEnd = downFirst[level + 1];
+                    int j = downFirst[head], jEnd = downFirst[head + 1];
+                    while (i < iEnd && j < jEnd) {
+                        if (downTails[i] < downTails[j]) {
+                            i++;
+                        } else if (downTails[i] > downTails[j]) {
+                            j++;
+                        } else {
+                            int viaLevelArc = downArcs[i];
+                            int viaHeadArc = downArcs[j];
+                            double upWeight = downWeights[viaLevelArc] + upWeights[viaHeadArc];
+                            if (upWeight < upWeights[arc]) {
+                                upWeights[arc] = upWeight;
+                                upVia[arc] = downTails[i];
+                                upEdges[arc] = NO_EDGE;
+                            }
+                            double downWeight = downWeights[viaHeadArc] + upWeights[viaLevelArc];
+                            if (downWeight < downWeights[arc]) {
+                                downWeights[arc] = downWeight;
+                                downVia[arc] = downTails[i];
+                                downEdges[arc] = NO_EDGE;
+                            }
+                            i++;
+                            j++;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the shortcuts in the order required by the CHStorageBuilder. Afterwards the up/downEdges arrays contain
+         * the CH edge ids of the arcs, i.e. either the original edge or the shortcut.
+         */
+        int writeShortcuts(CHStorageBuilder chBuilder) {
+            for (int level = 0; level < levels.length; level++)
+                chBuilder.setLevel(nodesByLevel[level], level);
+            int origEdges = graph.getEdges();
+            int shortcuts = 0;
+            for (int level = 0; level < levels.length; level++) {
+                for (int arc = upFirst[level]; arc < upFirst[level + 1]; arc++) {
+                    int head = upHeads[arc];
+                    boolean upShortcut = upVia[arc] >= 0 && Double.isFinite(upWeights[arc]);
+                    boolean downShortcut = downVia[arc] >= 0 && Double.isFinite(downWeights[arc]);
+                    int upSkip1 = NO_EDGE, upSkip2 = NO_EDGE, downSkip1 = NO_EDGE, downSkip2 = NO_EDGE;
+                    if (upShortcut) {
+                        upSkip1 = downEdges[findArc(upVia[arc], level)];
+                        upSkip2 = upEdges[findArc(upVia[arc], head)];
+                    }
+                    if (downShortcut) {
+                        downSkip1 = upEdges[findArc(downVia[arc], level)];
+                        downSkip2 = downEdges[findArc(downVia[arc], head)];
+                    }
+                    if (upShortcut && downShortcut && upWeights[arc] == downWeights[arc]
+                            && upSkip1 == downSkip1 && upSkip2 == downSkip2) {
+                        int shortcut = chBuilder.addShortcutNodeBased(nodesByLevel[level], nodesByLevel[head],
+                                PrepareEncoder.getScDirMask(), upWeights[arc], upSkip1, upSkip2);
+                        upEdges[arc] = downEdges[arc] = origEdges + shortcut;
+                        shortcuts++;
+                        continue;
+                    }
+                    if (upShortcut) {
+                        int shortcut = chBuilder.addShortcutNodeBased(nodesByLevel[level], nodesByLevel[head],
+                                PrepareEncoder.getScFwdDir(), upWeights[arc], upSkip1, upSkip2);
+                        upEdges[arc] = origEdges + shortcut;
+                        shortcuts++;
+                    }
+                    if (downShortcut) {
+                        int shortcut = chBuilder.addShortcutNodeBased(nodesByLevel[level], nodesByLevel[head],
+                                PrepareEncoder.getScBwdDir(), downWeights[arc], downSkip1, downSkip2);
+                        downEdges[arc] = origEdges + shortcut;
+                        shortcuts++;
+                    }
+                }
+            }
+            return shortcuts;
+        }
+    }
+
+    /**
+     * @return the id of the arc between the two given levels, where tail < head
+     */
+    private int findArc(int tail, int head) {
+        int arc = Arrays.binarySearch(upHeads, upFirst[tail], upFirst[tail + 1], head);
+        if (arc < 0)
+            throw new IllegalStateException("There is no arc between levels " + tail + " and " + head);
+        return arc;
+    }
+}
@@ -20,6 +20,7 @@ package com.graphhopper.routing.ch;
 import com.carrotsearch.hppc.*;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.EdgeIterator;
@@ -28,7 +29,10 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.function.Supplier;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.GHUtility.reverseEdgeKey;
@@ -54,7 +58,9 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
     private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer;
     private CHStorageBuilder chBuilder;
-    private final Params params = new Params();
+    private final Params params;
+    // the node contractor this one was created from using createWorker, or this node contractor itself
+    private final EdgeBasedNodeContractor owner;
     private final StopWatch dijkstraSW = new StopWatch();
     // temporary data used during node contraction
     private final IntSet sourceNodes = new IntHashSet(10);
@@ -85,7 +91,23 @@ class EdgeBasedNodeContractor implements NodeContractor {
     public EdgeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
         this.chBuilder = chBuilder;
+        this.params = new Params();
         extractParams(pMap);
+        this.owner = this;
+    }
+
+    private EdgeBasedNodeContractor(EdgeBasedNodeContractor owner, GHBitSet excludedNodes) {
+        this.prepareGraph = owner.prepareGraph;
+        this.params = owner.params;
+        this.owner = owner;
+        inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
+        sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
+        // the hierarchy depths are only modified by the owner
+        hierarchyDepths = owner.hierarchyDepths;
+        witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, excludedNodes);
+        bridgePathFinder = new BridgePathFinder(prepareGraph);
     }
 
     private void extractParams(PMap pMap) {
@@ -118,7 +140,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
             // no shortcuts will be introduced
             return Float.NEGATIVE_INFINITY;
         stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
+        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (owner.meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
         stats().stopWatch.stop();
         // the higher the priority the later (!) this node will be contracted
         float edgeQuotient = numShortcuts / (float) (prepareGraph.getDegree(node));
@@ -141,13 +163,46 @@ class EdgeBasedNodeContractor implements NodeContractor {
         activeStats = addingStats;
         stats().stopWatch.start();
         findAndHandlePrepareShortcuts(node, this::addShortcutsToPrepareGraph, (int) (meanDegree * params.maxPollFactorContraction), wpsStatsContr);
+        IntContainer neighbors = insertShortcutsAndDisconnect(node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    @Override
+    public NodeContractor createWorker(GHBitSet excludedNodes) {
+        return new EdgeBasedNodeContractor(this, excludedNodes);
+    }
+
+    @Override
+    public Supplier<IntContainer> findShortcuts(int node) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        List<ShortcutCandidate> candidates = new ArrayList<>();
+        findAndHandlePrepareShortcuts(node, (edgeFrom, edgeTo, origEdgeCount) -> candidates.add(new ShortcutCandidate(edgeFrom, edgeTo, origEdgeCount)),
+                (int) (owner.meanDegree * params.maxPollFactorContraction), wpsStatsContr);
+        stats().stopWatch.stop();
+        return () -> owner.applyShortcuts(node, candidates);
+    }
+
+    private IntContainer applyShortcuts(int node, List<ShortcutCandidate> candidates) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        // the worker that found the shortcuts only counted the node in its own stats, which are not reported
+        stats().nodes++;
+        for (ShortcutCandidate c : candidates)
+            addShortcutsToPrepareGraph(c.edgeFrom, c.edgeTo, c.origEdgeCount);
+        IntContainer neighbors = insertShortcutsAndDisconnect(node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    private IntContainer insertShortcutsAndDisconnect(int node) {
         insertShortcuts(node);
         IntContainer neighbors = prepareGraph.disconnect(node);
         // We maintain an approximation of the mean degree which we update after every contracted node.
         // We do it the same way as for node-based CH for now.
         meanDegree = (meanDegree * 2 + neighbors.size()) / 3;
         updateHierarchyDepthsOfNeighbors(node, neighbors);
-        stats().stopWatch.stop();
         return neighbors;
     }
 
@@ -427,6 +482,18 @@ class EdgeBasedNodeContractor implements NodeContractor {
         private double maxPollFactorContraction = 200;
     }
 
+    private static class ShortcutCandidate {
+        final PrepareCHEntry edgeFrom;
+        final PrepareCHEntry edgeTo;
+        final int origEdgeCount;
+
+        ShortcutCandidate(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            this.edgeFrom = edgeFrom;
+            this.edgeTo = edgeTo;
+            this.origEdgeCount = origEdgeCount;
+        }
+    }
+
     private static class Stats {
         int nodes;
         StopWatch stopWatch = new StopWatch();
@@ -19,6 +19,7 @@ package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.GHUtility;
 
 import java.util.Arrays;
@@ -54,6 +55,7 @@ public class EdgeBasedWitnessPathSearcher {
     private static final double MAX_ZERO_WEIGHT_LOOP = 1.e-3;
 
     private final CHPreparationGraph prepareGraph;
+    private final GHBitSet excludedNodes;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
     private PrepareGraphOrigEdgeExplorer origInEdgeExplorer;
 
@@ -76,7 +78,15 @@ public class EdgeBasedWitnessPathSearcher {
     private Stats stats;
 
     public EdgeBasedWitnessPathSearcher(CHPreparationGraph prepareGraph) {
+        this(prepareGraph, null);
+    }
+
+    /**
+     * @param excludedNodes nodes other than the center node that are never visited by witness paths, or null
+     */
+    public EdgeBasedWitnessPathSearcher(CHPreparationGraph prepareGraph, GHBitSet excludedNodes) {
         this.prepareGraph = prepareGraph;
+        this.excludedNodes = excludedNodes;
 
         outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
         origInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
@@ -151,6 +161,8 @@ public class EdgeBasedWitnessPathSearcher {
                 // being recognized as witnesses when there are double zero weight loops at the source node
                 if (currNode == sourceNode && iter.getAdjNode() == sourceNode && iter.getWeight() < MAX_ZERO_WEIGHT_LOOP)
                     continue;
+                if (excludedNodes != null && iter.getAdjNode() != centerNode && excludedNodes.contains(iter.getAdjNode()))
+                    continue;
                 final double weight = weights[currKey] + calcTurnWeight(currKey, currNode, iter.getOrigEdgeKeyFirst()) + iter.getWeight();
                 if (Double.isInfinite(weight))
                     continue;
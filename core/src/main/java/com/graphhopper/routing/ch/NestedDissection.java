@@ -0,0 +1,190 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Calculates a node ordering that does not depend on any weighting using nested dissection: The nodes are split into
+ * two halves by a straight line, the nodes at the border between the two halves form the separator and get the highest
+ * levels, and both halves are split recursively. The line is chosen among a few directions such that the separator is
+ * as small as possible. This is a simple geometric variant of inertial flow, which works well for road networks,
+ * because they are almost planar.
+ */
+class NestedDissection {
+    // cells with at most this many nodes are not split any further
+    private static final int MAX_CELL_SIZE = 8;
+    private static final int REMOVED = -1;
+    // the directions of the lines that are used to split the cells: lat, lon and the two diagonals
+    private static final double[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final EdgeExplorer explorer;
+    private final double[] lats;
+    private final double[] lons;
+    // the cell each node belongs to, nodes that are part of a separator are removed from all cells
+    private final int[] cells;
+    private final int[] ordering;
+    private int cellCount;
+    private int level;
+
+    private NestedDissection(BaseGraph graph) {
+        explorer = graph.createEdgeExplorer();
+        int nodes = graph.getNodes();
+        lats = new double[nodes];
+        lons = new double[nodes];
+        NodeAccess na = graph.getNodeAccess();
+        double sumLat = 0;
+        for (int node = 0; node < nodes; node++) {
+            lats[node] = na.getLat(node);
+            sumLat += lats[node];
+        }
+        // scale the longitudes such that both coordinates have roughly the same unit
+        double lonFactor = nodes == 0 ? 1 : Math.cos(Math.toRadians(sumLat / nodes));
+        for (int node = 0; node < nodes; node++)
+            lons[node] = na.getLon(node) * lonFactor;
+        // initially all nodes belong to cell 0
+        cells = new int[nodes];
+        cellCount = 1;
+        ordering = new int[nodes];
+    }
+
+    /**
+     * @return the nodes of the graph sorted by their level, i.e. the node with level 0 comes first
+     */
+    static int[] calcNodeOrdering(BaseGraph graph) {
+        NestedDissection nd = new NestedDissection(graph);
+        int[] nodes = new int[graph.getNodes()];
+        for (int node = 0; node < nodes.length; node++)
+            nodes[node] = node;
+        nd.dissect(nodes, 0, nodes.length);
+        if (nd.level != nodes.length)
+            throw new IllegalStateException("Not all nodes were ordered: " + nd.level + " vs. " + nodes.length);
+        return nd.ordering;
+    }
+
+    /**
+     * Orders the nodes in nodes[from, to), which all belong to the same cell.
+     */
+    private void dissect(int[] nodes, int from, int to) {
+        if (to - from <= MAX_CELL_SIZE) {
+            for (int i = from; i < to; i++)
+                ordering[level++] = nodes[i];
+            return;
+        }
+        int leftCell = cellCount++;
+        int rightCell = cellCount++;
+        double[] best = null;
+        int bestSeparatorSize = Integer.MAX_VALUE;
+        for (double[] direction : DIRECTIONS) {
+            split(nodes, from, to, direction, leftCell, rightCell);
+            int separatorSize = Math.min(countBorderNodes(nodes, from, to, leftCell, rightCell), countBorderNodes(nodes, from, to, rightCell, leftCell));
+            if (separatorSize < bestSeparatorSize) {
+                bestSeparatorSize = separatorSize;
+                best = direction;
+            }
+        }
+        split(nodes, from, to, best, leftCell, rightCell);
+        int separatorCell = countBorderNodes(nodes, from, to, leftCell, rightCell) <= countBorderNodes(nodes, from, to, rightCell, leftCell)
+                ? leftCell : rightCell;
+        int otherCell = separatorCell == leftCell ? rightCell : leftCell;
+        // mark the separator, it must be done in a separate pass because the border is defined by the cells
+        for (int i = from; i < to; i++)
+            if (cells[nodes[i]] == separatorCell && isBorderNode(nodes[i], otherCell))
+                cells[nodes[i]] = REMOVED;
+
+        // sort the nodes: left | right | separator
+        int leftEnd = partition(nodes, from, to, leftCell);
+        int rightEnd = partition(nodes, leftEnd, to, rightCell);
+        dissect(nodes, from, leftEnd);
+        dissect(nodes, leftEnd, rightEnd);
+        for (int i = rightEnd; i < to; i++)
+            ordering[level++] = nodes[i];
+    }
+
+    /**
+     * Splits the nodes in nodes[from, to) into two halves of (almost) equal size along the given direction and assigns
+     * them to the left and right cell.
+     */
+    private void split(int[] nodes, int from, int to, double[] direction, int leftCell, int rightCell) {
+        double[] projections = new double[to - from];
+        for (int i = from; i < to; i++)
+            projections[i - from] = project(nodes[i], direction);
+        double[] sorted = projections.clone();
+        Arrays.sort(sorted);
+        int half = (to - from) / 2;
+        double median = sorted[half];
+        // nodes with the median value are used to fill up the left half
+        int medianNodesLeft = 0;
+        for (int i = half - 1; i >= 0 && sorted[i] == median; i--)
+            medianNodesLeft++;
+        for (int i = from; i < to; i++) {
+            double p = projections[i - from];
+            if (p < median) {
+                cells[nodes[i]] = leftCell;
+            } else if (p == median && medianNodesLeft > 0) {
+                cells[nodes[i]] = leftCell;
+                medianNodesLeft--;
+            } else {
+                cells[nodes[i]] = rightCell;
+            }
+        }
+    }
+
+    private double project(int node, double[] direction) {
+        return direction[0] * lats[node] + direction[1] * lons[node];
+    }
+
+    private int countBorderNodes(int[] nodes, int from, int to, int cell, int otherCell) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            if (cells[nodes[i]] == cell && isBorderNode(nodes[i], otherCell))
+                count++;
+        return count;
+    }
+
+    private boolean isBorderNode(int node, int otherCell) {
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next())
+            if (cells[iter.getAdjNode()] == otherCell)
+                return true;
+        return false;
+    }
+
+    /**
+     * Moves the nodes of the given cell to the beginning of nodes[from, to)
+     *
+     * @return the end of the nodes of the given cell
+     */
+    private int partition(int[] nodes, int from, int to, int cell) {
+        int end = from;
+        for (int i = from; i < to; i++) {
+            if (cells[nodes[i]] == cell) {
+                int tmp = nodes[end];
+                nodes[end] = nodes[i];
+                nodes[i] = tmp;
+                end++;
+            }
+        }
+        return end;
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
@@ -25,13 +26,16 @@ import com.graphhopper.util.StopWatch;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Supplier;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
+    // the node contractor this one was created from using createWorker, or this node contractor itself
+    private final NodeBasedNodeContractor owner;
     // todo: maybe use a set to prevent duplicates instead?
     private List<Shortcut> shortcuts = new ArrayList<>();
     private CHStorageBuilder chBuilder;
@@ -51,8 +55,19 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.params = new Params();
         extractParams(pMap);
         this.chBuilder = chBuilder;
+        this.owner = this;
+    }
+
+    private NodeBasedNodeContractor(NodeBasedNodeContractor owner, GHBitSet excludedNodes) {
+        this.prepareGraph = owner.prepareGraph;
+        this.params = owner.params;
+        this.owner = owner;
+        inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+        outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+        witnessPathSearcher = new NodeBasedWitnessPathSearcher(prepareGraph, excludedNodes);
     }
 
     private void extractParams(PMap pMap) {
@@ -97,7 +112,7 @@ class NodeBasedNodeContractor implements NodeContractor {
         // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
         shortcutsCount = 0;
         originalEdgesCount = 0;
-        findAndHandleShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic));
+        findAndHandleShortcuts(node, this::countShortcuts, (int) (owner.meanDegree * params.maxPollFactorHeuristic));
 
         // from shortcuts we can compute the edgeDifference
         // # low influence: with it the shortcut creation is slightly faster
@@ -117,6 +132,30 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public IntContainer contractNode(int node) {
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut, (int) (meanDegree * params.maxPollFactorContraction));
+        return insertShortcutsAndDisconnect(node, degree);
+    }
+
+    @Override
+    public NodeContractor createWorker(GHBitSet excludedNodes) {
+        return new NodeBasedNodeContractor(this, excludedNodes);
+    }
+
+    @Override
+    public Supplier<IntContainer> findShortcuts(int node) {
+        List<ShortcutCandidate> candidates = new ArrayList<>();
+        long degree = findAndHandleShortcuts(node, (fromNode, toNode, weight, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount) ->
+                        candidates.add(new ShortcutCandidate(fromNode, toNode, weight, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount)),
+                (int) (owner.meanDegree * params.maxPollFactorContraction));
+        return () -> owner.applyShortcuts(node, degree, candidates);
+    }
+
+    private IntContainer applyShortcuts(int node, long degree, List<ShortcutCandidate> candidates) {
+        for (ShortcutCandidate c : candidates)
+            addOrUpdateShortcut(c.fromNode, c.toNode, c.weight, c.outgoingEdge, c.outOrigEdgeCount, c.incomingEdge, c.inOrigEdgeCount);
+        return insertShortcutsAndDisconnect(node, degree);
+    }
+
+    private IntContainer insertShortcutsAndDisconnect(int node, long degree) {
         insertShortcuts(node);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
@@ -311,6 +350,26 @@ class NodeBasedNodeContractor implements NodeContractor {
         private double maxPollFactorContraction = 200;
     }
 
+    private static class ShortcutCandidate {
+        final int fromNode;
+        final int toNode;
+        final double weight;
+        final int outgoingEdge;
+        final int outOrigEdgeCount;
+        final int incomingEdge;
+        final int inOrigEdgeCount;
+
+        ShortcutCandidate(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount, int incomingEdge, int inOrigEdgeCount) {
+            this.fromNode = fromNode;
+            this.toNode = toNode;
+            this.weight = weight;
+            this.outgoingEdge = outgoingEdge;
+            this.outOrigEdgeCount = outOrigEdgeCount;
+            this.incomingEdge = incomingEdge;
+            this.inOrigEdgeCount = inOrigEdgeCount;
+        }
+    }
+
     private static class Shortcut {
         int prepareEdgeFwd;
         int prepareEdgeBwd;
@@ -20,6 +20,7 @@ package com.graphhopper.routing.ch;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.util.Helper;
 
 import java.util.Arrays;
@@ -33,10 +34,19 @@ public class NodeBasedWitnessPathSearcher {
     private final double[] weights;
     private final IntArrayList changedNodes;
     private final IntFloatBinaryHeap heap;
+    private final GHBitSet excludedNodes;
     private int ignoreNode = -1;
     private int settledNodes = 0;
 
     public NodeBasedWitnessPathSearcher(CHPreparationGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * @param excludedNodes nodes that are never used for witness paths (in addition to the ignored node), or null
+     */
+    public NodeBasedWitnessPathSearcher(CHPreparationGraph graph, GHBitSet excludedNodes) {
+        this.excludedNodes = excludedNodes;
         outEdgeExplorer = graph.createOutEdgeExplorer();
         weights = new double[graph.getNodes()];
         Arrays.fill(weights, Double.POSITIVE_INFINITY);
@@ -85,7 +95,7 @@ public class NodeBasedWitnessPathSearcher {
             PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(node);
             while (iter.next()) {
                 int adjNode = iter.getAdjNode();
-                if (adjNode == ignoreNode)
+                if (adjNode == ignoreNode || (excludedNodes != null && excludedNodes.contains(adjNode)))
                     continue;
                 double weight = weights[node] + iter.getWeight();
                 if (Double.isInfinite(weight))
@@ -19,6 +19,9 @@
 package com.graphhopper.routing.ch;
 
 import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
+
+import java.util.function.Supplier;
 
 public interface NodeContractor {
     void initFromGraph();
@@ -37,6 +40,25 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Creates a node contractor for the same graph that uses its own explorers and witness searchers, so it can be used
+     * to calculate priorities and to find shortcuts in a different thread than this one. The graph must not be modified
+     * while workers are in use. Workers do not have to be closed.
+     *
+     * @param excludedNodes nodes that must not be used for witness paths, see {@link #findShortcuts}
+     */
+    NodeContractor createWorker(GHBitSet excludedNodes);
+
+    /**
+     * Runs the witness searches needed to contract the given node, but does not modify the graph. This can be used to
+     * contract independent sets of nodes (no two of them are adjacent) concurrently: the nodes of the set must be
+     * contained in the excluded nodes of the worker, so they are not used as witnesses for each other.
+     *
+     * @return a supplier that adds the shortcuts that were found to the node contractor this worker was created from
+     * and then works like {@link #contractNode(int)}. It must be called while no workers are in use.
+     */
+    Supplier<IntContainer> findShortcuts(int node);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -17,8 +17,12 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.MinHeapWithUpdate;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.*;
@@ -28,8 +32,13 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Locale;
-import java.util.Random;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -49,6 +58,8 @@ import static com.graphhopper.util.Helper.nf;
  * @author Peter Karich
  */
 public class PrepareContractionHierarchies {
+    // the percentage of the remaining nodes we consider for each round of the parallel contraction
+    private static final double PARALLEL_CANDIDATES_PERCENTAGE = 1;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHStorage chStore;
@@ -61,6 +72,7 @@ public class PrepareContractionHierarchies {
     private final StopWatch contractionSW = new StopWatch();
     private final Params params;
     private final BaseGraph graph;
+    private CHPreparationGraph prepareGraph;
     private NodeContractor nodeContractor;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
@@ -69,6 +81,7 @@ public class PrepareContractionHierarchies {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int contractionThreads = 1;
     private boolean prepared = false;
 
     public static PrepareContractionHierarchies fromGraph(BaseGraph graph, CHConfig chConfig) {
@@ -100,6 +113,19 @@ public class PrepareContractionHierarchies {
         params.setMaxNeighborUpdates(pMap.getInt(NEIGHBOR_UPDATES_MAX, params.getMaxNeighborUpdates()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        setContractionThreads(pMap.getInt(CONTRACTION_THREADS, contractionThreads));
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to contract the nodes of this preparation. With more than one thread the nodes
+     * are contracted in rounds of independent nodes that are not adjacent to each other. This is only used for the
+     * heuristic node ordering and requires one set of witness searchers per thread.
+     */
+    public PrepareContractionHierarchies setContractionThreads(int contractionThreads) {
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1, but was: " + contractionThreads);
+        this.contractionThreads = contractionThreads;
         return this;
     }
 
@@ -159,6 +185,8 @@ public class PrepareContractionHierarchies {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1) {
+            contractNodesInParallel();
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
@@ -173,7 +201,6 @@ public class PrepareContractionHierarchies {
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -322,6 +349,194 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    /**
+     * Contracts the nodes in rounds using multiple threads. In every round we poll the nodes with the lowest priorities
+     * and pick those that are not adjacent to any other picked node. The witness searches for the picked nodes run
+     * concurrently and each of them treats the other picked nodes as if they were contracted already, so no picked
+     * node is used as witness for another one. Then the shortcuts are inserted and the nodes are disconnected one after
+     * another, just like for the sequential contraction. Finally, the priorities of all neighbors of the contracted
+     * nodes are updated concurrently (unless neighbor updates are disabled). Lazy updates are not used here.
+     */
+    private void contractNodesInParallel() {
+        StopWatch sw = new StopWatch().start();
+        logger.info("Building initial queue of nodes to be contracted: {} nodes, threads: {}, {}", nodes, contractionThreads, getMemInfo());
+        // the nodes that are contracted in the current round
+        GHBitSet roundNodes = new GHBitSetImpl(nodes);
+        NodeContractor[] workers = new NodeContractor[contractionThreads];
+        for (int i = 0; i < workers.length; i++)
+            workers[i] = nodeContractor.createWorker(roundNodes);
+        ExecutorService executorService = Executors.newFixedThreadPool(contractionThreads);
+        try {
+            updatePrioritiesOfRemainingNodes(executorService, workers);
+            logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+            final int initSize = sortedNodes.size();
+            int level = 0;
+            checkCounter = 0;
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            final long periodicUpdatesCount = params.getPeriodicUpdatesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getPeriodicUpdatesPercentage() / 100d)));
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
+            long nextLog = 0;
+            long nextPeriodicUpdate = periodicUpdatesCount;
+            int updateCounter = 0;
+
+            PrepareGraphEdgeExplorer outExplorer = prepareGraph.createOutEdgeExplorer();
+            PrepareGraphEdgeExplorer inExplorer = prepareGraph.createInEdgeExplorer();
+            GHBitSet neighborSet = new GHBitSetImpl(nodes);
+            IntArrayList neighbors = new IntArrayList();
+            IntArrayList roundNodeList = new IntArrayList();
+            IntArrayList skippedNodes = new IntArrayList();
+            FloatArrayList skippedPriorities = new FloatArrayList();
+            List<Supplier<IntContainer>> contractions = new ArrayList<>();
+            while (!sortedNodes.isEmpty()) {
+                stopIfInterrupted();
+                if (level >= nextPeriodicUpdate) {
+                    updatePrioritiesOfRemainingNodes(executorService, workers);
+                    updateCounter++;
+                    nextPeriodicUpdate += periodicUpdatesCount;
+                }
+                if (level >= nextLog) {
+                    logHeuristicStats(updateCounter);
+                    nextLog += logSize;
+                }
+
+                // pick the nodes for this round
+                roundNodeList.clear();
+                skippedNodes.clear();
+                skippedPriorities.clear();
+                int candidates = (int) Math.ceil(sortedNodes.size() * PARALLEL_CANDIDATES_PERCENTAGE / 100);
+                for (int i = 0; i < candidates && !sortedNodes.isEmpty(); i++) {
+                    checkCounter++;
+                    float priority = sortedNodes.peekValue();
+                    int node = sortedNodes.poll();
+                    if (hasNeighborIn(node, roundNodes, outExplorer) || hasNeighborIn(node, roundNodes, inExplorer)) {
+                        skippedNodes.add(node);
+                        skippedPriorities.add(priority);
+                    } else {
+                        roundNodes.add(node);
+                        roundNodeList.add(node);
+                    }
+                }
+                for (int i = 0; i < skippedNodes.size(); i++)
+                    sortedNodes.push(skippedNodes.get(i), skippedPriorities.get(i));
+
+                // run the witness searches concurrently, but modify the graph sequentially
+                contractionSW.start();
+                contractions.clear();
+                contractions.addAll(Collections.nCopies(roundNodeList.size(), null));
+                runInParallel(executorService, workers, roundNodeList, (worker, index, node) -> contractions.set(index, worker.findShortcuts(node)));
+                neighbors.clear();
+                for (int i = 0; i < roundNodeList.size(); i++) {
+                    int node = roundNodeList.get(i);
+                    chBuilder.setLevel(node, level);
+                    level++;
+                    IntContainer nodeNeighbors = contractions.get(i).get();
+                    // unlike the sequential contraction we update the priorities of all neighbors, because we can do
+                    // this concurrently and otherwise the priorities of the next round get too inaccurate
+                    for (IntCursor neighbor : nodeNeighbors) {
+                        if (!neighborUpdate || neighborSet.contains(neighbor.value))
+                            continue;
+                        neighborSet.add(neighbor.value);
+                        neighbors.add(neighbor.value);
+                    }
+                    roundNodes.remove(node);
+                }
+                contractionSW.stop();
+
+                if (sortedNodes.size() < nodesToAvoidContract)
+                    // skipped nodes are already set to maxLevel
+                    break;
+
+                neighborUpdateSW.start();
+                float[] priorities = calculatePriorities(executorService, workers, neighbors);
+                for (int i = 0; i < neighbors.size(); i++) {
+                    sortedNodes.update(neighbors.get(i), priorities[i]);
+                    neighborSet.remove(neighbors.get(i));
+                }
+                neighborUpdateSW.stop();
+            }
+
+            nodeContractor.finishContraction();
+            logHeuristicStats(updateCounter);
+            logger.info(
+                    "new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                            + ", initSize:" + nf(initSize)
+                            + ", " + chConfig.getWeighting()
+                            + ", threads:" + contractionThreads
+                            + ", periodic:" + params.getPeriodicUpdatesPercentage()
+                            + ", " + getTimesAsString()
+                            + ", skip-overhead: " + (int) (100 * ((checkCounter / (double) initSize) - 1)) + "%"
+                            + ", " + Helper.getMemInfo());
+        } finally {
+            executorService.shutdownNow();
+        }
+        _close();
+    }
+
+    private void updatePrioritiesOfRemainingNodes(ExecutorService executorService, NodeContractor[] workers) {
+        periodicUpdateSW.start();
+        IntArrayList remainingNodes = new IntArrayList();
+        for (int node = 0; node < nodes; node++) {
+            if (!isContracted(node))
+                remainingNodes.add(node);
+        }
+        float[] priorities = calculatePriorities(executorService, workers, remainingNodes);
+        sortedNodes.clear();
+        for (int i = 0; i < remainingNodes.size(); i++)
+            sortedNodes.push(remainingNodes.get(i), priorities[i]);
+        periodicUpdateSW.stop();
+    }
+
+    private float[] calculatePriorities(ExecutorService executorService, NodeContractor[] workers, IntArrayList nodes) {
+        float[] priorities = new float[nodes.size()];
+        runInParallel(executorService, workers, nodes, (worker, index, node) -> priorities[index] = worker.calculatePriority(node));
+        return priorities;
+    }
+
+    /**
+     * Runs the given task for all the given nodes. Every thread uses its own worker and the nodes are distributed
+     * dynamically, because the effort per node varies a lot.
+     */
+    private void runInParallel(ExecutorService executorService, NodeContractor[] workers, IntArrayList nodes, WorkerTask task) {
+        AtomicInteger nextIndex = new AtomicInteger();
+        int threads = Math.min(workers.length, nodes.size());
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            NodeContractor worker = workers[t];
+            futures.add(executorService.submit(() -> {
+                for (int i = nextIndex.getAndIncrement(); i < nodes.size(); i = nextIndex.getAndIncrement())
+                    task.run(worker, i, nodes.get(i));
+            }));
+        }
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static boolean hasNeighborIn(int node, GHBitSet set, PrepareGraphEdgeExplorer explorer) {
+        PrepareGraphEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            if (set.contains(iter.getAdjNode()))
+                return true;
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(NodeContractor worker, int index, int node);
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
@@ -421,6 +636,7 @@ public class PrepareContractionHierarchies {
 
     private void _close() {
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
@@ -441,7 +657,7 @@ public class PrepareContractionHierarchies {
         private final double neighborTime;
         private final long totalPrepareTime;
 
-        private Result(CHConfig chConfig, CHStorage chStorage, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
+        Result(CHConfig chConfig, CHStorage chStorage, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
             this.chStorage = chStorage;
             this.shortcuts = shortcuts;
             this.lazyTime = lazyTime;
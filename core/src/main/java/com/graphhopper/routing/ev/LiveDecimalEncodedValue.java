@@ -0,0 +1,142 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+import java.util.Arrays;
+
+/**
+ * A DecimalEncodedValue whose values are not stored in the edge flags but in an array keyed by the edge id that can be
+ * replaced at any time, e.g. to feed live traffic speeds into a custom model without a new import. The array is never
+ * modified after it was published via {@link #setValues(float[])}, so a routing request sees either the old or the
+ * new values and reading a value does not allocate or synchronize.
+ * <p>
+ * Edges without a value (e.g. all edges before the first update) return 0, so a custom model should check for this:
+ * <pre>{"if": "live_speed > 0", "limit_to": "live_speed"}</pre>
+ * Note that CH and LM are prepared with the values at the time of the preparation. LM stays correct as long as the
+ * values only increase the weight, but CH needs to be disabled per request to see newer values.
+ */
+public final class LiveDecimalEncodedValue implements DecimalEncodedValue {
+    private static final float[] EMPTY = new float[0];
+    private final String name;
+    private final double maxValue;
+    // the forward value of edge e is at 2*e and the backward value at 2*e+1
+    private volatile float[] values = EMPTY;
+
+    /**
+     * @param maxValue the largest value that can be set. It is used by the custom model to determine the maximum speed
+     *                 or priority, so it should not be larger than necessary.
+     */
+    public LiveDecimalEncodedValue(String name, double maxValue) {
+        if (!IntEncodedValueImpl.isValidEncodedValue(name))
+            throw new IllegalArgumentException("EncodedValue name wasn't valid: " + name + ". Use lower case letters, underscore and numbers only.");
+        if (!(maxValue > 0) || Double.isInfinite(maxValue))
+            throw new IllegalArgumentException(name + ": maxValue must be positive and finite but was " + maxValue);
+        this.name = name;
+        this.maxValue = maxValue;
+    }
+
+    /**
+     * @return a copy of the current values with room for the given number of edges, which can be modified and then
+     * published with {@link #setValues(float[])}
+     */
+    public float[] copyValues(int edges) {
+        return Arrays.copyOf(values, 2 * edges);
+    }
+
+    /**
+     * Replaces all values at once. The array must not be modified afterwards.
+     *
+     * @param values the forward value of edge e at index 2*e and the backward value at index 2*e+1. Missing edges and
+     *               the value 0 mean that there is no value for the edge.
+     */
+    public void setValues(float[] values) {
+        if (values.length % 2 != 0)
+            throw new IllegalArgumentException(name + ": the values must contain two values per edge, but the length was " + values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (!(values[i] >= 0 && values[i] <= maxValue))
+                throw new IllegalArgumentException(name + ": value " + values[i] + " of edge " + i / 2 + " is not within [0, " + maxValue + "]");
+        }
+        this.values = values;
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        this.values = EMPTY;
+    }
+
+    @Override
+    public double getDecimal(boolean reverse, int edgeId, EdgeIntAccess edgeIntAccess) {
+        final float[] current = values;
+        int index = 2 * edgeId + (reverse ? 1 : 0);
+        return index >= 0 && index < current.length ? current[index] : 0;
+    }
+
+    @Override
+    public void setDecimal(boolean reverse, int edgeId, EdgeIntAccess edgeIntAccess, double value) {
+        throw new UnsupportedOperationException(name + " is not stored in the edge flags, use setValues instead");
+    }
+
+    @Override
+    public int init(InitializerConfig init) {
+        throw new UnsupportedOperationException(name + " is not stored in the edge flags and must not be added to the EncodingManager");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isStoreTwoDirections() {
+        return true;
+    }
+
+    @Override
+    public double getMaxStorableDecimal() {
+        return maxValue;
+    }
+
+    @Override
+    public double getMinStorableDecimal() {
+        return 0;
+    }
+
+    @Override
+    public double getMaxOrMaxStorableDecimal() {
+        return maxValue;
+    }
+
+    @Override
+    public double getNextStorableValue(double value) {
+        if (value > maxValue)
+            throw new IllegalArgumentException(name + ": There is no next storable value for " + value + ". max:" + maxValue);
+        return (float) value < value ? Math.nextUp((float) value) : (float) value;
+    }
+
+    @Override
+    public double getSmallestNonZeroValue() {
+        return Float.MIN_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
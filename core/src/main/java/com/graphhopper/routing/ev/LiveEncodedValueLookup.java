@@ -0,0 +1,86 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ev;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds {@link LiveDecimalEncodedValue}s to the encoded values of another lookup, so that they can be used in custom
+ * models like any other encoded value.
+ */
+public class LiveEncodedValueLookup implements EncodedValueLookup {
+    private final EncodedValueLookup lookup;
+    private final Map<String, LiveDecimalEncodedValue> liveEncodedValues = new LinkedHashMap<>();
+
+    public LiveEncodedValueLookup(EncodedValueLookup lookup, Collection<LiveDecimalEncodedValue> liveEncodedValues) {
+        this.lookup = lookup;
+        for (LiveDecimalEncodedValue ev : liveEncodedValues) {
+            if (lookup.hasEncodedValue(ev.getName()) || this.liveEncodedValues.put(ev.getName(), ev) != null)
+                throw new IllegalArgumentException("EncodedValue " + ev.getName() + " already exists");
+        }
+    }
+
+    @Override
+    public List<EncodedValue> getEncodedValues() {
+        List<EncodedValue> list = new ArrayList<>(lookup.getEncodedValues());
+        list.addAll(liveEncodedValues.values());
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends EncodedValue> T getEncodedValue(String key, Class<T> encodedValueType) {
+        LiveDecimalEncodedValue ev = liveEncodedValues.get(key);
+        return ev == null ? lookup.getEncodedValue(key, encodedValueType) : (T) ev;
+    }
+
+    @Override
+    public BooleanEncodedValue getBooleanEncodedValue(String key) {
+        return getEncodedValue(key, BooleanEncodedValue.class);
+    }
+
+    @Override
+    public IntEncodedValue getIntEncodedValue(String key) {
+        return getEncodedValue(key, IntEncodedValue.class);
+    }
+
+    @Override
+    public DecimalEncodedValue getDecimalEncodedValue(String key) {
+        return getEncodedValue(key, DecimalEncodedValue.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Enum<?>> EnumEncodedValue<T> getEnumEncodedValue(String key, Class<T> enumType) {
+        return getEncodedValue(key, EnumEncodedValue.class);
+    }
+
+    @Override
+    public StringEncodedValue getStringEncodedValue(String key) {
+        return getEncodedValue(key, StringEncodedValue.class);
+    }
+
+    @Override
+    public boolean hasEncodedValue(String key) {
+        return liveEncodedValues.containsKey(key) || lookup.hasEncodedValue(key);
+    }
+}
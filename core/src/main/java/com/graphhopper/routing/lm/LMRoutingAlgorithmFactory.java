@@ -55,6 +55,13 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             algo.setTimeoutMillis(opts.getTimeoutMillis());
             return algo;
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) && opts.getHints().getBool(Parameters.Routing.POOLED_SPT, false)) {
+            double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            AStarBidirectionPrimitive algo = new AStarBidirectionPrimitive(g, weighting, opts.getTraversalMode());
+            algo.setApproximation(getApproximator(g, weighting, activeLM, epsilon));
+            algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            algo.setTimeoutMillis(opts.getTimeoutMillis());
+            return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
@@ -48,8 +48,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * This class stores the landmark nodes and the weights from and to all other nodes in every
@@ -94,6 +97,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -445,39 +449,69 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+        // the first landmark also determines the subnetwork, so we need to do it first
+        if (!createLandmarkWeights(0, tmpLandmarkNodeIds[0], accessFilter, subnetworks, subnetworkId))
+            return false;
+        // the remaining landmarks can be done concurrently, because every landmark writes its own 'from' and 'to'
+        // columns of the landmark weight storage. both columns of a landmark are written by the same thread, because
+        // they share one (4 byte aligned) int.
+        AtomicInteger finishedLandmarks = new AtomicInteger(1);
+        Stream<Callable<String>> callables = IntStream.range(1, tmpLandmarkNodeIds.length)
+                .mapToObj(lmIdx -> () -> {
+                    createLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], accessFilter, subnetworks, subnetworkId);
+                    int finished = finishedLandmarks.incrementAndGet();
+                    if (logDetails && finished % logOffset == 0)
+                        LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                                + "Progress " + (int) (100.0 * finished / tmpLandmarkNodeIds.length) + "%");
+                    return "landmark " + lmIdx;
+                });
+        GHUtility.runConcurrently(callables, landmarkThreads);
+
+        // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
+        landmarkIDs.add(tmpLandmarkNodeIds);
+        return true;
+    }
 
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+    /**
+     * Sets the number of threads used to calculate the weights of the landmarks of one subnetwork. Every thread runs
+     * its own forward and backward exploration, so make sure you have enough memory when increasing this number.
+     */
+    public void setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1, but was: " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+    }
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
+    /**
+     * Runs the forward and backward explorations from the given landmark and stores the 'from' and 'to' weights. Only
+     * for the first landmark the subnetwork id is set for all explored nodes.
+     *
+     * @return false if the subnetwork id of some explored node was already set to another subnetwork
+     */
+    private boolean createLandmarkWeights(int lmIdx, int lmNodeId, EdgeFilter accessFilter, byte[] subnetworks, int subnetworkId) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
 
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
         }
 
-        // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
-        landmarkIDs.add(tmpLandmarkNodeIds);
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+
+        if (lmIdx == 0) {
+            if (explorer.setSubnetworks(subnetworks, subnetworkId))
+                return false;
+        }
         return true;
     }
 
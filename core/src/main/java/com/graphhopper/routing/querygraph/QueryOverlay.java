@@ -43,7 +43,7 @@ class QueryOverlay {
 
     QueryOverlay(int numVirtualNodes, boolean is3D) {
         this.virtualNodes = new PointList(numVirtualNodes, is3D);
-        this.virtualEdges = new ArrayList<>(numVirtualNodes * 2);
+        this.virtualEdges = new ArrayList<>(numVirtualNodes * 4);
         this.closestEdges = new IntArrayList(numVirtualNodes);
         edgeChangesAtRealNodes = new GHIntObjectHashMap<>(numVirtualNodes * 3);
     }
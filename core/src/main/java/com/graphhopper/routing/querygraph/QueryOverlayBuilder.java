@@ -20,7 +20,6 @@ package com.graphhopper.routing.querygraph;
 
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.graphhopper.coll.GHIntObjectHashMap;
-import com.graphhopper.search.KVStorage;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.storage.index.Snap;
@@ -215,29 +214,23 @@ class QueryOverlayBuilder {
                              GHPoint3D prevSnapped, int prevWayIndex, boolean isPillar, GHPoint3D currSnapped, int wayIndex,
                              PointList fullPL, EdgeIteratorState closestEdge,
                              int prevNodeId, int nodeId) {
-        int max = wayIndex + 1;
-        PointList basePoints = new PointList(max - prevWayIndex + 1, is3D);
-        basePoints.add(prevSnapped.lat, prevSnapped.lon, prevSnapped.ele);
-        for (int i = prevWayIndex; i < max; i++) {
-            basePoints.add(fullPL, i);
-        }
-        if (!isPillar) {
-            basePoints.add(currSnapped.lat, currSnapped.lon, currSnapped.ele);
-        }
-        // basePoints must have at least the size of 2 to make sure fetchWayGeometry(FetchMode.ALL) returns at least 2
-        assert basePoints.size() >= 2 : "basePoints must have at least two points";
-
-        PointList baseReversePoints = basePoints.clone(true);
-        double baseDistance = DistancePlaneProjection.DIST_PLANE.calcDistance(basePoints);
+        // the points between the two snapped points are not copied, both virtual edges share a slice of fullPL
+        int max = Math.max(prevWayIndex, wayIndex + 1);
+        VirtualEdgeGeometry geometry = new VirtualEdgeGeometry(fullPL, prevWayIndex, max,
+                true, prevSnapped.lat, prevSnapped.lon, prevSnapped.ele,
+                !isPillar, currSnapped.lat, currSnapped.lon, currSnapped.ele);
+        // the geometry must have at least the size of 2 to make sure fetchWayGeometry(FetchMode.ALL) returns at least 2
+        assert geometry.size() >= 2 : "geometry must have at least two points";
+
+        double baseDistance = geometry.calcDistance();
         int virtEdgeId = firstVirtualEdgeId + queryOverlay.getNumVirtualEdges() / 2;
 
         boolean reverse = closestEdge.get(EdgeIteratorState.REVERSE_STATE);
-        // edges between base and snapped point
-        List<KVStorage.KeyValue> keyValues = closestEdge.getKeyValues();
+        // edges between base and snapped point, the key values are only read if they are needed
         VirtualEdgeIteratorState baseEdge = new VirtualEdgeIteratorState(origEdgeKey, GHUtility.createEdgeKey(virtEdgeId, prevNodeId == nodeId, false),
-                prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), keyValues, basePoints, reverse);
+                prevNodeId, nodeId, baseDistance, closestEdge.getFlags(), null, closestEdge, geometry, false, reverse);
         VirtualEdgeIteratorState baseReverseEdge = new VirtualEdgeIteratorState(origRevEdgeKey, GHUtility.createEdgeKey(virtEdgeId, prevNodeId == nodeId, true),
-                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), keyValues, baseReversePoints, !reverse);
+                nodeId, prevNodeId, baseDistance, IntsRef.deepCopyOf(closestEdge.getFlags()), null, closestEdge, geometry, true, !reverse);
 
         baseEdge.setReverseEdge(baseReverseEdge);
         baseReverseEdge.setReverseEdge(baseEdge);
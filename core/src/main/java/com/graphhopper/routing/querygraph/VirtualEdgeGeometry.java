@@ -0,0 +1,149 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.querygraph;
+
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PointList;
+
+import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
+
+/**
+ * The geometry of a virtual edge: an optional start point, the points [fromIndex, toIndex) of a point list and an
+ * optional end point. The point list is usually the full geometry of the original edge and is shared by all virtual
+ * edges that were created for it, in both directions. New point lists are only created when the geometry is fetched,
+ * which for most virtual edges never happens, e.g. when routing with CH only the edges of the final path are fetched.
+ */
+class VirtualEdgeGeometry {
+    private final PointList points;
+    private final int fromIndex;
+    private final int toIndex;
+    private final boolean hasStart;
+    private final double startLat, startLon, startEle;
+    private final boolean hasEnd;
+    private final double endLat, endLon, endEle;
+
+    VirtualEdgeGeometry(PointList points) {
+        this(points, 0, points.size());
+    }
+
+    VirtualEdgeGeometry(PointList points, int fromIndex, int toIndex) {
+        this(points, fromIndex, toIndex, false, Double.NaN, Double.NaN, Double.NaN, false, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    VirtualEdgeGeometry(PointList points, int fromIndex, int toIndex,
+                        boolean hasStart, double startLat, double startLon, double startEle,
+                        boolean hasEnd, double endLat, double endLon, double endEle) {
+        if (fromIndex < 0 || toIndex > points.size() || fromIndex > toIndex)
+            throw new IllegalArgumentException("Invalid slice [" + fromIndex + ", " + toIndex + ") of " + points.size() + " points");
+        this.points = points;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.hasStart = hasStart;
+        this.startLat = startLat;
+        this.startLon = startLon;
+        this.startEle = startEle;
+        this.hasEnd = hasEnd;
+        this.endLat = endLat;
+        this.endLon = endLon;
+        this.endEle = endEle;
+    }
+
+    int size() {
+        return (hasStart ? 1 : 0) + toIndex - fromIndex + (hasEnd ? 1 : 0);
+    }
+
+    boolean is3D() {
+        return points.is3D();
+    }
+
+    double getLat(int index, boolean reverse) {
+        int i = toSliceIndex(index, reverse);
+        return i < fromIndex ? startLat : i >= toIndex ? endLat : points.getLat(i);
+    }
+
+    double getLon(int index, boolean reverse) {
+        int i = toSliceIndex(index, reverse);
+        return i < fromIndex ? startLon : i >= toIndex ? endLon : points.getLon(i);
+    }
+
+    double getEle(int index, boolean reverse) {
+        int i = toSliceIndex(index, reverse);
+        return i < fromIndex ? startEle : i >= toIndex ? endEle : points.getEle(i);
+    }
+
+    /**
+     * @return the index into the underlying point list, fromIndex - 1 for the start and toIndex for the end point
+     */
+    private int toSliceIndex(int index, boolean reverse) {
+        if (reverse)
+            index = size() - 1 - index;
+        return fromIndex + index - (hasStart ? 1 : 0);
+    }
+
+    /**
+     * Calculates the same distance as {@link com.graphhopper.util.DistanceCalcEarth#calcDistance(PointList)} for the materialized
+     * point list, but without creating it.
+     */
+    double calcDistance() {
+        boolean is3D = is3D();
+        double dist = 0;
+        for (int i = 1; i < size(); i++) {
+            if (is3D)
+                dist += DIST_PLANE.calcDist3D(getLat(i - 1, false), getLon(i - 1, false), getEle(i - 1, false),
+                        getLat(i, false), getLon(i, false), getEle(i, false));
+            else
+                dist += DIST_PLANE.calcDist(getLat(i - 1, false), getLon(i - 1, false), getLat(i, false), getLon(i, false));
+        }
+        return dist;
+    }
+
+    /**
+     * Creates a new point list for the given mode, see {@link com.graphhopper.util.EdgeIteratorState#fetchWayGeometry}
+     */
+    PointList fetch(FetchMode mode, boolean reverse) {
+        int size = size();
+        if (size == 0)
+            return PointList.EMPTY;
+        if (mode == FetchMode.TOWER_ONLY) {
+            if (size < 3)
+                return copy(0, size, reverse);
+            PointList towerNodes = new PointList(2, is3D());
+            towerNodes.add(getLat(0, reverse), getLon(0, reverse), getEle(0, reverse));
+            towerNodes.add(getLat(size - 1, reverse), getLon(size - 1, reverse), getEle(size - 1, reverse));
+            return towerNodes;
+        } else if (mode == FetchMode.ALL)
+            return copy(0, size, reverse);
+        else if (mode == FetchMode.BASE_AND_PILLAR)
+            return copy(0, size - 1, reverse);
+        else if (mode == FetchMode.PILLAR_AND_ADJ)
+            return copy(1, size, reverse);
+        else if (mode == FetchMode.PILLAR_ONLY) {
+            if (size == 1)
+                return PointList.EMPTY;
+            return copy(1, size - 1, reverse);
+        }
+        throw new UnsupportedOperationException("Illegal mode:" + mode);
+    }
+
+    private PointList copy(int from, int to, boolean reverse) {
+        PointList copy = new PointList(to - from, is3D());
+        for (int i = from; i < to; i++)
+            copy.add(getLat(i, reverse), getLon(i, reverse), getEle(i, reverse));
+        return copy;
+    }
+}
@@ -34,15 +34,23 @@ import java.util.List;
  * even gets removed.
  */
 public class VirtualEdgeIteratorState implements EdgeIteratorState {
-    private final PointList pointList;
+    private final VirtualEdgeGeometry geometry;
+    // true if this edge runs against the direction of its geometry
+    private final boolean reverseGeometry;
     private final int edgeKey;
     private final int baseNode;
     private final int adjNode;
     private final int originalEdgeKey;
+    // the flags are a copy of the flags of the original edge, but some encoded values are stored outside of them and are
+    // read by the edge id, see LiveDecimalEncodedValue
+    private final int originalEdge;
     private double distance;
     private IntsRef edgeFlags;
     private EdgeIntAccess edgeIntAccess;
-    private List<KVStorage.KeyValue> keyValues;
+    // both are volatile, because the key values can be loaded by one thread and read by another
+    private volatile List<KVStorage.KeyValue> keyValues;
+    // the original edge the key values are read from when they are needed for the first time
+    private volatile EdgeIteratorState keyValuesSource;
     // true if edge should be avoided as start/stop
     private boolean unfavored;
     private EdgeIteratorState reverseEdge;
@@ -50,7 +58,18 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     public VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
                                     IntsRef edgeFlags, List<KVStorage.KeyValue> keyValues, PointList pointList, boolean reverse) {
+        this(originalEdgeKey, edgeKey, baseNode, adjNode, distance, edgeFlags, keyValues, null, new VirtualEdgeGeometry(pointList), false, reverse);
+    }
+
+    /**
+     * Creates a virtual edge whose geometry is shared with other virtual edges, e.g. with its reverse edge, and whose
+     * key values are read from keyValuesSource only if they are needed.
+     */
+    VirtualEdgeIteratorState(int originalEdgeKey, int edgeKey, int baseNode, int adjNode, double distance,
+                             IntsRef edgeFlags, List<KVStorage.KeyValue> keyValues, EdgeIteratorState keyValuesSource,
+                             VirtualEdgeGeometry geometry, boolean reverseGeometry, boolean reverse) {
         this.originalEdgeKey = originalEdgeKey;
+        this.originalEdge = GHUtility.getEdgeFromEdgeKey(originalEdgeKey);
         this.edgeKey = edgeKey;
         this.baseNode = baseNode;
         this.adjNode = adjNode;
@@ -58,7 +77,9 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         this.edgeFlags = edgeFlags;
         this.edgeIntAccess = new IntsRefEdgeIntAccess(edgeFlags);
         this.keyValues = keyValues;
-        this.pointList = pointList;
+        this.keyValuesSource = keyValuesSource;
+        this.geometry = geometry;
+        this.reverseGeometry = reverseGeometry;
         this.reverse = reverse;
     }
 
@@ -99,28 +120,8 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public PointList fetchWayGeometry(FetchMode mode) {
-        if (pointList.size() == 0)
-            return PointList.EMPTY;
         // due to API we need to create a new instance per call!
-        if (mode == FetchMode.TOWER_ONLY) {
-            if (pointList.size() < 3)
-                return pointList.clone(false);
-            PointList towerNodes = new PointList(2, pointList.is3D());
-            towerNodes.add(pointList, 0);
-            towerNodes.add(pointList, pointList.size() - 1);
-            return towerNodes;
-        } else if (mode == FetchMode.ALL)
-            return pointList.clone(false);
-        else if (mode == FetchMode.BASE_AND_PILLAR)
-            return pointList.copy(0, pointList.size() - 1);
-        else if (mode == FetchMode.PILLAR_AND_ADJ)
-            return pointList.copy(1, pointList.size());
-        else if (mode == FetchMode.PILLAR_ONLY) {
-            if (pointList.size() == 1)
-                return PointList.EMPTY;
-            return pointList.copy(1, pointList.size() - 1);
-        }
-        throw new UnsupportedOperationException("Illegal mode:" + mode);
+        return geometry.fetch(mode, reverseGeometry);
     }
 
     @Override
@@ -156,7 +157,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         if (property == EdgeIteratorState.UNFAVORED_EDGE)
             return unfavored;
 
-        return property.getBool(reverse, -1, edgeIntAccess);
+        return property.getBool(reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -169,7 +170,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
     public boolean getReverse(BooleanEncodedValue property) {
         if (property == EdgeIteratorState.UNFAVORED_EDGE)
             return unfavored;
-        return property.getBool(!reverse, -1, edgeIntAccess);
+        return property.getBool(!reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -189,7 +190,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public int get(IntEncodedValue property) {
-        return property.getInt(reverse, -1, edgeIntAccess);
+        return property.getInt(reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -200,7 +201,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public int getReverse(IntEncodedValue property) {
-        return property.getInt(!reverse, -1, edgeIntAccess);
+        return property.getInt(!reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -220,7 +221,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public double get(DecimalEncodedValue property) {
-        return property.getDecimal(reverse, -1, edgeIntAccess);
+        return property.getDecimal(reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -231,7 +232,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public double getReverse(DecimalEncodedValue property) {
-        return property.getDecimal(!reverse, -1, edgeIntAccess);
+        return property.getDecimal(!reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -251,7 +252,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public <T extends Enum<?>> T get(EnumEncodedValue<T> property) {
-        return property.getEnum(reverse, -1, edgeIntAccess);
+        return property.getEnum(reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -262,7 +263,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public <T extends Enum<?>> T getReverse(EnumEncodedValue<T> property) {
-        return property.getEnum(!reverse, -1, edgeIntAccess);
+        return property.getEnum(!reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -282,7 +283,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public String get(StringEncodedValue property) {
-        return property.getString(reverse, -1, edgeIntAccess);
+        return property.getString(reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -293,7 +294,7 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
 
     @Override
     public String getReverse(StringEncodedValue property) {
-        return property.getString(!reverse, -1, edgeIntAccess);
+        return property.getString(!reverse, originalEdge, edgeIntAccess);
     }
 
     @Override
@@ -321,17 +322,26 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
     @Override
     public EdgeIteratorState setKeyValues(List<KVStorage.KeyValue> list) {
         this.keyValues = list;
+        this.keyValuesSource = null;
         return this;
     }
 
     @Override
     public List<KVStorage.KeyValue> getKeyValues() {
-        return keyValues;
+        // this might be called by several threads. they all read the same key values from the source, which is kept
+        // for this reason. the source is read first, because setKeyValues sets the key values before it clears the source
+        EdgeIteratorState source = keyValuesSource;
+        List<KVStorage.KeyValue> list = keyValues;
+        if (list == null && source != null) {
+            list = source.getKeyValues();
+            keyValues = list;
+        }
+        return list;
     }
 
     @Override
     public Object getValue(String key) {
-        for (KVStorage.KeyValue keyValue : keyValues) {
+        for (KVStorage.KeyValue keyValue : getKeyValues()) {
             if (keyValue.key.equals(key)) return keyValue.value;
         }
         return null;
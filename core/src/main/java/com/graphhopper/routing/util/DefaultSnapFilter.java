@@ -28,10 +28,25 @@ import com.graphhopper.util.EdgeIteratorState;
 public class DefaultSnapFilter implements EdgeFilter {
     private final Weighting weighting;
     private final BooleanEncodedValue inSubnetworkEnc;
+    private final SnappableEdges snappableEdges;
 
     public DefaultSnapFilter(Weighting weighting, BooleanEncodedValue inSubnetworkEnc) {
+        this(weighting, inSubnetworkEnc, null);
+    }
+
+    /**
+     * @param snappableEdges the snappable edges that were prepared for the profile of the weighting or null. This is
+     *                       only correct if the weighting cannot accept edges that the weighting of the profile rejects.
+     */
+    public DefaultSnapFilter(Weighting weighting, BooleanEncodedValue inSubnetworkEnc, SnappableEdges snappableEdges) {
         this.weighting = weighting;
         this.inSubnetworkEnc = inSubnetworkEnc;
+        this.snappableEdges = snappableEdges;
+    }
+
+    @Override
+    public boolean acceptEdgeId(int edgeId) {
+        return snappableEdges == null || snappableEdges.isSnappable(edgeId);
     }
 
     @Override
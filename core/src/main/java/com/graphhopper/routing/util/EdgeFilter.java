@@ -31,4 +31,14 @@ public interface EdgeFilter {
      * @return true if the current edge should be processed and false otherwise.
      */
     boolean accept(EdgeIteratorState edgeState);
+
+    /**
+     * A cheap check that is done before the edge is loaded, e.g. by the location index. It must only return false for
+     * edges that {@link #accept} would reject as well.
+     *
+     * @return false if the edge can be skipped without calling {@link #accept}
+     */
+    default boolean acceptEdgeId(int edgeId) {
+        return true;
+    }
 }
@@ -145,6 +145,11 @@ public class NameSimilarityEdgeFilter implements EdgeFilter {
         return index >= 0 ? edgeName.substring(0, index) : edgeName;
     }
 
+    @Override
+    public boolean acceptEdgeId(int edgeId) {
+        return edgeFilter.acceptEdgeId(edgeId);
+    }
+
     @Override
     public final boolean accept(EdgeIteratorState iter) {
         if (!edgeFilter.accept(iter)) {
@@ -27,6 +27,7 @@ import com.graphhopper.routing.util.parsers.RelationTagParser;
 import com.graphhopper.routing.util.parsers.TagParser;
 import com.graphhopper.storage.IntsRef;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -101,6 +102,34 @@ public class OSMParsers {
             parser.handleWayTags(edgeId, edgeIntAccess, way, relationFlags);
     }
 
+    /**
+     * @return the relation flags that were used to create the flags of the given edge
+     */
+    public IntsRef restoreRelationFlags(int edgeId, EdgeIntAccess edgeIntAccess) {
+        IntsRef relFlags = createRelationFlags();
+        for (RelationTagParser relParser : relationTagParsers)
+            relParser.restoreRelationFlags(relFlags, edgeId, edgeIntAccess);
+        return relFlags;
+    }
+
+    /**
+     * @return the relation tag parsers that do not override {@link RelationTagParser#restoreRelationFlags}, i.e. the
+     * relation flags they create cannot be restored
+     */
+    public List<RelationTagParser> getRelationTagParsersWithoutRestore() {
+        List<RelationTagParser> result = new ArrayList<>();
+        for (RelationTagParser relParser : relationTagParsers) {
+            try {
+                Method method = relParser.getClass().getMethod("restoreRelationFlags", IntsRef.class, int.class, EdgeIntAccess.class);
+                if (method.getDeclaringClass() == RelationTagParser.class)
+                    result.add(relParser);
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return result;
+    }
+
     public IntsRef createRelationFlags() {
         int requiredInts = relConfig.getRequiredInts();
         if (requiredInts > 2)
@@ -49,6 +49,11 @@ public class SnapPreventionEdgeFilter implements EdgeFilter {
         }
     }
 
+    @Override
+    public boolean acceptEdgeId(int edgeId) {
+        return filter.acceptEdgeId(edgeId);
+    }
+
     @Override
     public boolean accept(EdgeIteratorState edgeState) {
         return filter.accept(edgeState)
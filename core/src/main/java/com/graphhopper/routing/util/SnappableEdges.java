@@ -0,0 +1,89 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util;
+
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+
+/**
+ * Stores one bit per edge that tells if the edge can be snapped to for a profile, i.e. if it passes the
+ * {@link DefaultSnapFilter} of the profile. It is calculated once after the import and lets the location index skip
+ * all other edges by their id, without loading the edge or evaluating the weighting.
+ */
+public class SnappableEdges {
+    private final DataAccess bits;
+    private int edges;
+
+    public SnappableEdges(Directory dir, String profileName) {
+        bits = dir.create("snappable_edges_" + profileName);
+    }
+
+    /**
+     * Sets the bits of all edges of the graph that are accepted by the given filter.
+     */
+    public SnappableEdges prepare(BaseGraph graph, EdgeFilter snapFilter) {
+        edges = graph.getEdges();
+        bits.create(4L * (edges / 32 + 1));
+        for (int i = 0; i <= edges / 32; i++)
+            bits.setInt(4L * i, 0);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (snapFilter.accept(iter)) {
+                long pointer = 4L * (iter.getEdge() / 32);
+                bits.setInt(pointer, bits.getInt(pointer) | 1 << (iter.getEdge() % 32));
+            }
+        }
+        return this;
+    }
+
+    public boolean loadExisting() {
+        if (!bits.loadExisting())
+            return false;
+        edges = bits.getHeader(0);
+        return true;
+    }
+
+    /**
+     * @return false if the edge can be skipped when snapping. Edges that were not part of the graph when the bits were
+     * prepared are never skipped.
+     */
+    public boolean isSnappable(int edge) {
+        return edge >= edges || (bits.getInt(4L * (edge / 32)) & 1 << (edge % 32)) != 0;
+    }
+
+    /**
+     * @return the number of edges for which the bits were prepared
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    public void flush() {
+        bits.setHeader(0, edges);
+        bits.flush();
+    }
+
+    public void close() {
+        bits.close();
+    }
+
+    public long getCapacity() {
+        return bits.getCapacity();
+    }
+}
@@ -64,6 +64,11 @@ public class OSMBikeNetworkTagParser implements RelationTagParser {
         bikeRouteEnc.setEnum(false, edgeId, edgeIntAccess, routeNetwork);
     }
 
+    @Override
+    public void restoreRelationFlags(IntsRef relFlags, int edgeId, EdgeIntAccess edgeIntAccess) {
+        transformerRouteRelEnc.setEnum(false, -1, new IntsRefEdgeIntAccess(relFlags), bikeRouteEnc.getEnum(false, edgeId, edgeIntAccess));
+    }
+
     public EnumEncodedValue<RouteNetwork> getTransformerRouteRelEnc() {
         return transformerRouteRelEnc;
     }
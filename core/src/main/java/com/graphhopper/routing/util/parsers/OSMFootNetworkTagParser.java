@@ -63,4 +63,9 @@ public class OSMFootNetworkTagParser implements RelationTagParser {
         RouteNetwork footNetwork = transformerRouteRelEnc.getEnum(false, -1, relIntAccess);
         footRouteEnc.setEnum(false, edgeId, edgeIntAccess, footNetwork);
     }
+
+    @Override
+    public void restoreRelationFlags(IntsRef relFlags, int edgeId, EdgeIntAccess edgeIntAccess) {
+        transformerRouteRelEnc.setEnum(false, -1, new IntsRefEdgeIntAccess(relFlags), footRouteEnc.getEnum(false, edgeId, edgeIntAccess));
+    }
 }
@@ -18,6 +18,7 @@
 package com.graphhopper.routing.util.parsers;
 
 import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.routing.ev.EdgeIntAccess;
 import com.graphhopper.storage.IntsRef;
 
 /**
@@ -32,4 +33,13 @@ public interface RelationTagParser extends TagParser {
      * In the pre-parsing step this method will be called to determine the useful relation tags.
      */
     void handleRelationTags(IntsRef relFlags, ReaderRelation relation);
+
+    /**
+     * The reverse of {@link #handleWayTags}: restores the relation flags from the values that were stored for the
+     * given edge. This is needed to parse the tags of an existing edge again when the relations are no longer
+     * available, e.g. when applying an OSM change file. The default implementation does nothing, which is why parsers
+     * that do not override it cannot be used together with datareader.store_osm_nodes.
+     */
+    default void restoreRelationFlags(IntsRef relFlags, int edgeId, EdgeIntAccess edgeIntAccess) {
+    }
 }
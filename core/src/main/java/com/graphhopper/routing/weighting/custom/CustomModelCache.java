@@ -0,0 +1,181 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A concurrent cache for the classes compiled from custom models. Lookups do not take a lock, and concurrent lookups
+ * of the same missing key compile the class only once: the first thread compiles it while the others wait for the
+ * result. If the cache grows beyond its maximum size the least recently accessed entries are evicted. Finding them
+ * requires a scan over all entries, but this only happens after a compilation, which is much more expensive anyway.
+ */
+public final class CustomModelCache {
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Entry> map = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    CustomModelCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param compiler creates the class if it is not in the cache. If it throws an exception nothing is cached and
+     *                 the exception is thrown to all threads that waited for the result.
+     */
+    Class<?> get(String key, Supplier<Class<?>> compiler) {
+        if (maxSize <= 0) {
+            misses.incrementAndGet();
+            return compiler.get();
+        }
+        Entry entry = map.get(key);
+        if (entry == null) {
+            Entry newEntry = new Entry(compiler);
+            entry = map.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                misses.incrementAndGet();
+                newEntry.task.run();
+                if (!newEntry.isCompiled())
+                    map.remove(key, newEntry);
+                else if (map.size() > maxSize)
+                    evict();
+                return newEntry.getClazz();
+            }
+        }
+        hits.incrementAndGet();
+        entry.lastAccess = System.nanoTime();
+        return entry.getClazz();
+    }
+
+    /**
+     * @return the cached class or null if the key is not in the cache. Unlike {@link #get} this does not count a
+     * miss if the key is not found.
+     */
+    Class<?> getIfPresent(String key) {
+        Entry entry = map.get(key);
+        if (entry == null)
+            return null;
+        hits.incrementAndGet();
+        entry.lastAccess = System.nanoTime();
+        return entry.getClazz();
+    }
+
+    /**
+     * Moves all compiled entries into the specified cache, which evicts its least recently accessed entries if it
+     * becomes too big, and clears this cache.
+     */
+    void moveTo(CustomModelCache other) {
+        if (other.maxSize > 0) {
+            for (Map.Entry<String, Entry> e : map.entrySet()) {
+                if (e.getValue().isCompiled())
+                    other.map.putIfAbsent(e.getKey(), e.getValue());
+            }
+            if (other.map.size() > other.maxSize)
+                other.evict();
+        }
+        clear();
+    }
+
+    private void evict() {
+        while (map.size() > maxSize) {
+            Map.Entry<String, Entry> oldest = null;
+            for (Map.Entry<String, Entry> e : map.entrySet()) {
+                // do not evict entries that are still compiled, their threads expect to find them in the cache
+                if (e.getValue().isCompiled() && (oldest == null || e.getValue().lastAccess < oldest.getValue().lastAccess))
+                    oldest = e;
+            }
+            if (oldest == null)
+                return;
+            if (map.remove(oldest.getKey(), oldest.getValue()))
+                evictions.incrementAndGet();
+        }
+    }
+
+    void clear() {
+        map.clear();
+    }
+
+    public int getSize() {
+        return map.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of lookups that found the class in the cache, including those that waited for another thread
+     * to compile it
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that had to compile the class
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static class Entry {
+        final FutureTask<Class<?>> task;
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(Supplier<Class<?>> compiler) {
+            task = new FutureTask<>(compiler::get);
+        }
+
+        boolean isCompiled() {
+            if (!task.isDone())
+                return false;
+            try {
+                task.get();
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        Class<?> getClazz() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error)
+                    throw (Error) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.graphhopper.routing.weighting.custom;
 
 import com.graphhopper.json.MinMax;
 import com.graphhopper.json.Statement;
+import com.graphhopper.routing.RoutingMetrics;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.util.*;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class CustomModelParser {
     private static final AtomicLong longVal = new AtomicLong(1);
@@ -47,25 +49,36 @@ public class CustomModelParser {
 
     // Without a cache the class creation takes 10-40ms which makes routingLM8 requests 20% slower on average.
     // CH requests and preparation is unaffected as cached weighting from preparation is used.
-    // Use accessOrder==true to remove oldest accessed entry, not oldest inserted.
+    // The least recently accessed entry is removed if the cache is full.
     private static final int CACHE_SIZE = Integer.getInteger("graphhopper.custom_weighting.cache_size", 1000);
-    private static final Map<String, Class<?>> CACHE = Collections.synchronizedMap(
-            new LinkedHashMap<String, Class<?>>(CACHE_SIZE, 0.75f, true) {
-                protected boolean removeEldestEntry(Map.Entry eldest) {
-                    return size() > CACHE_SIZE;
-                }
-            });
+    private static final CustomModelCache CACHE = new CustomModelCache(CACHE_SIZE);
 
     // This internal cache ensures that the "internal" Weighting classes specified in the profiles, are never removed regardless
-    // of how frequent other Weightings are created and accessed. We only need to synchronize the get and put methods alone.
-    // E.g. we do not care for the race condition where two identical classes are requested and one of them is overwritten.
-    // TODO perf compare with ConcurrentHashMap, but I guess, if there is a difference at all, it is not big for small maps
-    private static final Map<String, Class<?>> INTERNAL_CACHE = Collections.synchronizedMap(new HashMap<>());
+    // of how frequent other Weightings are created and accessed. If it grows too big its entries are moved to CACHE.
+    private static final int INTERNAL_CACHE_SIZE = 100;
+    private static final CustomModelCache INTERNAL_CACHE = new CustomModelCache(Integer.MAX_VALUE);
+
+    private static volatile RoutingMetrics metrics = RoutingMetrics.NOOP;
 
     private CustomModelParser() {
         // utility class
     }
 
+    /**
+     * Reports the cache hits and misses and the compile time of the custom models to the given metrics. Like the
+     * cache this is shared by all GraphHopper instances.
+     */
+    public static void setMetrics(RoutingMetrics metrics) {
+        CustomModelParser.metrics = metrics;
+    }
+
+    /**
+     * @return the cache for the classes compiled from the custom models of the requests, e.g. to get its statistics
+     */
+    public static CustomModelCache getCache() {
+        return CACHE;
+    }
+
     public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
                                                   EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
         if (customModel == null)
@@ -91,23 +104,32 @@ public class CustomModelParser {
                 + (priorityEnc == null ? "" : "prio:" + priorityEnc.getName() + ",global_max_priority:" + globalMaxPriority);
         if (key.length() > 100_000) throw new IllegalArgumentException("Custom Model too big: " + key.length());
 
-        Class<?> clazz = customModel.isInternal() ? INTERNAL_CACHE.get(key) : null;
-        if (CACHE_SIZE > 0 && clazz == null)
-            clazz = CACHE.get(key);
-        if (clazz == null) {
-            clazz = createClazz(customModel, lookup, globalMaxSpeed, globalMaxPriority);
-            if (customModel.isInternal()) {
-                INTERNAL_CACHE.put(key, clazz);
-                if (INTERNAL_CACHE.size() > 100) {
-                    CACHE.putAll(INTERNAL_CACHE);
-                    INTERNAL_CACHE.clear();
-                    LoggerFactory.getLogger(CustomModelParser.class).warn("Internal cache must stay small but was "
-                            + INTERNAL_CACHE.size() + ". Cleared it. Misuse of CustomModel::internal?");
-                }
-            } else if (CACHE_SIZE > 0) {
-                CACHE.put(key, clazz);
+        boolean[] compiled = {false};
+        Supplier<Class<?>> compiler = () -> {
+            long start = System.nanoTime();
+            Class<?> c = createClazz(customModel, lookup, globalMaxSpeed, globalMaxPriority);
+            metrics.customModel(false, System.nanoTime() - start);
+            compiled[0] = true;
+            return c;
+        };
+        Class<?> clazz;
+        if (customModel.isInternal()) {
+            // an internal model might have been moved to the normal cache if too many internal models were created
+            clazz = INTERNAL_CACHE.getIfPresent(key);
+            if (clazz == null)
+                clazz = CACHE.getIfPresent(key);
+            if (clazz == null)
+                clazz = INTERNAL_CACHE.get(key, compiler);
+            if (INTERNAL_CACHE.getSize() > INTERNAL_CACHE_SIZE) {
+                LoggerFactory.getLogger(CustomModelParser.class).warn("Internal cache must stay small but was "
+                        + INTERNAL_CACHE.getSize() + ". Moved its entries to the normal cache. Misuse of CustomModel::internal?");
+                INTERNAL_CACHE.moveTo(CACHE);
             }
+        } else {
+            clazz = CACHE.get(key, compiler);
         }
+        if (!compiled[0])
+            metrics.customModel(true, 0);
 
         try {
             // The class does not need to be thread-safe as we create an instance per request
@@ -27,6 +27,7 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 
 import java.io.Closeable;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.graphhopper.util.Helper.nf;
@@ -52,14 +53,27 @@ public class BaseGraph implements Graph, Closeable {
     final BitUtil bitUtil;
     // length | nodeA | nextNode | ... | nodeB
     // as we use integer index in 'edges' area => 'geometry' area is limited to 4GB (we use pos&neg values!)
+    // compressed: byteLength | vlong(length) | zigzag vlong deltas of lat, lon (and ele) | padding to 4 bytes
     private final DataAccess wayGeometry;
     private final Directory dir;
     private final int segmentSize;
+    private boolean compressedGeometry;
     private boolean initialized = false;
     private long maxGeoRef;
 
     public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts, int segmentSize) {
+        this(dir, intsForFlags, withElevation, withTurnCosts, segmentSize, false);
+    }
+
+    /**
+     * @param compressedGeometry if true the pillar nodes are stored as variable length deltas, which usually needs less
+     *                           than half of the space. This only matters for a new graph, when an existing graph is
+     *                           loaded the format is read from the storage.
+     */
+    public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts, int segmentSize,
+                     boolean compressedGeometry) {
         this.dir = dir;
+        this.compressedGeometry = compressedGeometry;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
         this.edgeKVStorage = new KVStorage(dir, true);
@@ -110,12 +124,14 @@ public class BaseGraph implements Graph, Closeable {
                 wayGeometry.getHeader(4),
                 wayGeometry.getHeader(8)
         );
+        compressedGeometry = wayGeometry.getHeader(12) == 1;
     }
 
     private void setWayGeometryHeader() {
         wayGeometry.setHeader(0, Constants.VERSION_GEOMETRY);
         wayGeometry.setHeader(4, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(8, bitUtil.getIntHigh(maxGeoRef));
+        wayGeometry.setHeader(12, compressedGeometry ? 1 : 0);
     }
 
     private void setInitialized() {
@@ -152,6 +168,16 @@ public class BaseGraph implements Graph, Closeable {
         store.setFrozen(true);
     }
 
+    /**
+     * Allows adding edges again to a frozen graph. The CH and LM preparations created for the frozen graph are not
+     * updated and need to be prepared again afterwards.
+     */
+    public synchronized void unfreeze() {
+        if (!isFrozen())
+            throw new IllegalStateException("base graph is not frozen");
+        store.setFrozen(false);
+    }
+
     public synchronized boolean isFrozen() {
         return store.getFrozen();
     }
@@ -232,6 +258,10 @@ public class BaseGraph implements Graph, Closeable {
         return maxGeoRef;
     }
 
+    public boolean isCompressedGeometry() {
+        return compressedGeometry;
+    }
+
     public boolean loadExisting() {
         checkNotInitialized();
 
@@ -338,6 +368,20 @@ public class BaseGraph implements Graph, Closeable {
         return isAdjacentToNode(node, edgePointer);
     }
 
+    /**
+     * Renumbers the nodes and edges of this graph in place, e.g. to improve the memory locality, see
+     * {@link GHUtility#sortHilbert(BaseGraph)}. Node n becomes newNodeIds[n] and edge e becomes newEdgeIds[e]. This
+     * must be done before the graph is frozen, because the location index and the CH and LM preparations depend on
+     * the ids.
+     */
+    public void relabel(int[] newNodeIds, int[] newEdgeIds) {
+        if (isFrozen())
+            throw new IllegalStateException("Cannot relabel a frozen graph");
+        store.relabel(newNodeIds, newEdgeIds);
+        if (supportsTurnCosts())
+            turnCostStorage.relabelEdges(newEdgeIds);
+    }
+
     private void setWayGeometry_(PointList pillarNodes, long edgePointer, boolean reverse) {
         if (pillarNodes != null && !pillarNodes.isEmpty()) {
             if (pillarNodes.getDimension() != nodeAccess.getDimension())
@@ -345,6 +389,10 @@ public class BaseGraph implements Graph, Closeable {
                         + "D for graph which is " + nodeAccess.getDimension() + "D");
 
             long existingGeoRef = Helper.toUnsignedLong(store.getGeoRef(edgePointer));
+            if (compressedGeometry) {
+                setCompressedWayGeometry(pillarNodes, edgePointer, reverse, existingGeoRef);
+                return;
+            }
 
             int len = pillarNodes.size();
             int dim = nodeAccess.getDimension();
@@ -390,6 +438,51 @@ public class BaseGraph implements Graph, Closeable {
         store.setGeoRef(edgePointer, Helper.toSignedInt(geoRef));
     }
 
+    private void setCompressedWayGeometry(PointList pillarNodes, long edgePointer, boolean reverse, long existingGeoRef) {
+        byte[] bytes = createCompressedWayGeometryBytes(pillarNodes, reverse);
+        // the existing space can be reused if the new geometry fits into it
+        if (existingGeoRef == 0 || wayGeometry.getInt(existingGeoRef * 4L) < bytes.length) {
+            long geoRef = nextGeoRef(bytes.length / 4);
+            ensureGeometry(geoRef * 4L, bytes.length + 4);
+            wayGeometry.setInt(geoRef * 4L, bytes.length);
+            existingGeoRef = geoRef;
+        }
+        wayGeometry.setBytes(existingGeoRef * 4L + 4, bytes, bytes.length);
+        store.setGeoRef(edgePointer, Helper.toSignedInt(existingGeoRef));
+    }
+
+    private byte[] createCompressedWayGeometryBytes(PointList pillarNodes, boolean reverse) {
+        int len = pillarNodes.size();
+        boolean is3D = nodeAccess.is3D();
+        VLongStorage storage = new VLongStorage(len * (is3D ? 6 : 4) + 5);
+        storage.writeVLong(len);
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < len; i++) {
+            int index = reverse ? len - 1 - i : i;
+            int lat = Helper.degreeToInt(pillarNodes.getLat(index));
+            int lon = Helper.degreeToInt(pillarNodes.getLon(index));
+            storage.writeVLong(zigZagEncode(lat - prevLat));
+            storage.writeVLong(zigZagEncode(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                int ele = Helper.eleToInt(pillarNodes.getEle(index));
+                storage.writeVLong(zigZagEncode(ele - prevEle));
+                prevEle = ele;
+            }
+        }
+        // keep the geoRefs aligned to ints
+        return Arrays.copyOf(storage.getBytes(), (int) ((storage.getPosition() + 3) / 4 * 4));
+    }
+
+    static long zigZagEncode(int value) {
+        return Helper.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+
+    static int zigZagDecode(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
     private byte[] createWayGeometryBytes(PointList pillarNodes, boolean reverse) {
         int len = pillarNodes.size();
         int dim = nodeAccess.getDimension();
@@ -425,6 +518,8 @@ public class BaseGraph implements Graph, Closeable {
             return pillarNodes;
         }
         long geoRef = Helper.toUnsignedLong(store.getGeoRef(edgePointer));
+        if (compressedGeometry)
+            return fetchCompressedWayGeometry(geoRef, reverse, mode, baseNode, adjNode);
         int count = 0;
         byte[] bytes = null;
         if (geoRef > 0) {
@@ -469,6 +564,47 @@ public class BaseGraph implements Graph, Closeable {
         return pillarNodes;
     }
 
+    private PointList fetchCompressedWayGeometry(long geoRef, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
+        VLongStorage storage = null;
+        int count = 0;
+        if (geoRef > 0) {
+            byte[] bytes = new byte[wayGeometry.getInt(geoRef * 4L)];
+            wayGeometry.getBytes(geoRef * 4L + 4, bytes, bytes.length);
+            storage = new VLongStorage(bytes);
+            count = (int) storage.readVLong();
+        } else if (mode == FetchMode.PILLAR_ONLY)
+            return PointList.EMPTY;
+
+        PointList pillarNodes = new PointList(getPointListLength(count, mode), nodeAccess.is3D());
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+                pillarNodes.add(nodeAccess, adjNode);
+        } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+            pillarNodes.add(nodeAccess, baseNode);
+
+        int lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < count; i++) {
+            lat += zigZagDecode(storage.readVLong());
+            lon += zigZagDecode(storage.readVLong());
+            if (nodeAccess.is3D()) {
+                ele += zigZagDecode(storage.readVLong());
+                pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon), Helper.intToEle(ele));
+            } else {
+                pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon));
+            }
+        }
+
+        if (reverse) {
+            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+                pillarNodes.add(nodeAccess, baseNode);
+
+            pillarNodes.reverse();
+        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+            pillarNodes.add(nodeAccess, adjNode);
+
+        return pillarNodes;
+    }
+
     static int getPointListLength(int pillarNodes, FetchMode mode) {
         switch (mode) {
             case TOWER_ONLY:
@@ -516,6 +652,7 @@ public class BaseGraph implements Graph, Closeable {
         private boolean withTurnCosts = false;
         private long bytes = 100;
         private int segmentSize = -1;
+        private boolean compressedGeometry = false;
 
         public Builder(EncodingManager em) {
             this(em.getIntsForFlags());
@@ -549,13 +686,18 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        public Builder setCompressedGeometry(boolean compressedGeometry) {
+            this.compressedGeometry = compressedGeometry;
+            return this;
+        }
+
         public Builder setBytes(long bytes) {
             this.bytes = bytes;
             return this;
         }
 
         public BaseGraph build() {
-            return new BaseGraph(directory, intsForFlags, withElevation, withTurnCosts, segmentSize);
+            return new BaseGraph(directory, intsForFlags, withElevation, withTurnCosts, segmentSize, compressedGeometry);
         }
 
         public BaseGraph create() {
@@ -18,6 +18,8 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
@@ -214,6 +216,79 @@ class BaseGraphNodesAndEdges {
         return edge;
     }
 
+    /**
+     * Renumbers all nodes and edges in place, i.e. node n becomes newNodeIds[n] and edge e becomes newEdgeIds[e]. The
+     * adjacency lists are kept and the remaining edge properties like flags and geometry references simply move with
+     * the edges. Besides the two arrays only two entries are allocated.
+     */
+    void relabel(int[] newNodeIds, int[] newEdgeIds) {
+        if (newNodeIds.length != nodeCount || newEdgeIds.length != edgeCount)
+            throw new IllegalArgumentException("There must be one id per node and edge, nodes: " + newNodeIds.length
+                    + " vs. " + nodeCount + ", edges: " + newEdgeIds.length + " vs. " + edgeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toEdgePointer(edge);
+            int nodeA = getNodeA(edgePointer);
+            int nodeB = getNodeB(edgePointer);
+            setNodeA(edgePointer, newNodeIds[nodeA]);
+            setNodeB(edgePointer, newNodeIds[nodeB]);
+            int linkA = getLinkA(edgePointer);
+            if (EdgeIterator.Edge.isValid(linkA))
+                setLinkA(edgePointer, newEdgeIds[linkA]);
+            // the link at nodeB is not used for loops
+            int linkB = getLinkB(edgePointer);
+            if (nodeA != nodeB && EdgeIterator.Edge.isValid(linkB))
+                setLinkB(edgePointer, newEdgeIds[linkB]);
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            long nodePointer = toNodePointer(node);
+            int edgeRef = getEdgeRef(nodePointer);
+            if (EdgeIterator.Edge.isValid(edgeRef))
+                setEdgeRef(nodePointer, newEdgeIds[edgeRef]);
+        }
+        permute(nodes, nodeEntryBytes, newNodeIds);
+        permute(edges, edgeEntryBytes, newEdgeIds);
+    }
+
+    /**
+     * Moves the entry at index i to index newIndices[i] by following the cycles of the permutation
+     */
+    private static void permute(DataAccess da, int entryBytes, int[] newIndices) {
+        // all fields are ints and the int based DataAccess implementations do not support byte access
+        int entryInts = entryBytes / 4;
+        GHBitSet done = new GHBitSetImpl(newIndices.length);
+        int[] entry = new int[entryInts];
+        int[] tmp = new int[entryInts];
+        for (int start = 0; start < newIndices.length; start++) {
+            if (done.contains(start))
+                continue;
+            readEntry(da, (long) start * entryBytes, entry);
+            done.add(start);
+            int index = newIndices[start];
+            while (!done.contains(index)) {
+                readEntry(da, (long) index * entryBytes, tmp);
+                writeEntry(da, (long) index * entryBytes, entry);
+                done.add(index);
+                int[] swap = entry;
+                entry = tmp;
+                tmp = swap;
+                index = newIndices[index];
+            }
+            if (index != start)
+                throw new IllegalArgumentException("The new indices are not a permutation, " + index + " is used twice");
+            writeEntry(da, (long) start * entryBytes, entry);
+        }
+    }
+
+    private static void readEntry(DataAccess da, long pointer, int[] entry) {
+        for (int i = 0; i < entry.length; i++)
+            entry[i] = da.getInt(pointer + 4L * i);
+    }
+
+    private static void writeEntry(DataAccess da, long pointer, int[] entry) {
+        for (int i = 0; i < entry.length; i++)
+            da.setInt(pointer + 4L * i, entry[i]);
+    }
+
     public void ensureNodeCapacity(int node) {
         if (node < nodeCount)
             return;
@@ -21,7 +21,9 @@ import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static com.graphhopper.storage.DAType.RAM_INT;
 import static com.graphhopper.storage.DAType.RAM_INT_STORE;
@@ -87,6 +89,34 @@ public class GHDirectory implements Directory {
         return 0;
     }
 
+    /**
+     * @return the size of all memory mapped DataAccess objects
+     */
+    public long getMappedBytes() {
+        long bytes = 0;
+        for (DataAccess da : getMMapDataAccesses())
+            bytes += da.getCapacity();
+        return bytes;
+    }
+
+    /**
+     * @return the part of the memory mapped DataAccess objects that is currently in physical memory, see
+     * {@link MMapDataAccess#getResidentBytes()}
+     */
+    public long getResidentBytes() {
+        long bytes = 0;
+        for (MMapDataAccess da : getMMapDataAccesses())
+            bytes += da.getResidentBytes();
+        return bytes;
+    }
+
+    private List<MMapDataAccess> getMMapDataAccesses() {
+        synchronized (map) {
+            return map.values().stream().filter(da -> da instanceof MMapDataAccess && !da.isClosed())
+                    .map(da -> (MMapDataAccess) da).collect(Collectors.toList());
+        }
+    }
+
     public void loadMMap() {
         for (DataAccess da : map.values()) {
             if (!(da instanceof MMapDataAccess))
@@ -141,6 +171,8 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, false, segmentSize);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, type.isAllowWrites(), segmentSize);
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), segmentSize);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -308,17 +308,38 @@ public final class MMapDataAccess extends AbstractDataAccess {
     }
 
     /**
-     * Load memory mapped files into physical memory.
+     * Load memory mapped files into physical memory. Segments that are already resident, e.g. because another process
+     * on the same host mapped the same file before, are skipped. So for multiple processes sharing a read-only graph
+     * the warm-up is only done once.
      */
     public void load(int percentage) {
         if (percentage < 0 || percentage > 100)
             throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
         int max = Math.round(segments.size() * percentage / 100f);
         for (int i = 0; i < max; i++) {
-            segments.get(i).load();
+            MappedByteBuffer segment = segments.get(i);
+            if (!segment.isLoaded())
+                segment.load();
         }
     }
 
+    /**
+     * @return the number of bytes that are currently in physical memory. Only segments that are resident completely
+     * are counted, so this is a lower bound. Note that the memory is shared with all processes that map the same file.
+     */
+    public long getResidentBytes() {
+        long bytes = 0;
+        for (MappedByteBuffer segment : segments) {
+            if (segment.isLoaded())
+                bytes += segment.capacity();
+        }
+        return bytes;
+    }
+
+    public boolean isAllowWrites() {
+        return allowWrites;
+    }
+
     @Override
     public void close() {
         super.close();
@@ -99,6 +99,18 @@ public class TurnCostStorage {
         merge(tcFlags, fromEdge, viaNode, toEdge);
     }
 
+    /**
+     * Replaces the edge ids of all entries after the edges of the graph were renumbered. The entries of the nodes stay
+     * valid, because the node entries only move together with their turn cost reference.
+     */
+    void relabelEdges(int[] newEdgeIds) {
+        for (long i = 0; i < turnCostsCount; i++) {
+            long costsIdx = i * BYTES_PER_ENTRY;
+            turnCosts.setInt(costsIdx + TC_FROM, newEdgeIds[turnCosts.getInt(costsIdx + TC_FROM)]);
+            turnCosts.setInt(costsIdx + TC_TO, newEdgeIds[turnCosts.getInt(costsIdx + TC_TO)]);
+        }
+    }
+
     private void merge(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
         int newEntryIndex = turnCostsCount;
         ensureTurnCostIndex(newEntryIndex);
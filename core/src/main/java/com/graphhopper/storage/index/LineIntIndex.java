@@ -262,6 +262,22 @@ public class LineIntIndex {
         }
     }
 
+    /**
+     * Collects the edge ids of the tile with the given pixel coordinates, see {@link SpatialKeyAlgo#x} and
+     * {@link SpatialKeyAlgo#y}. The coordinates must be within [0, parts).
+     */
+    void findEdgeIdsInTile(int x, int y, IntConsumer foundEntries) {
+        fillIDs(keyAlgo.encode(x, y) << (64 - keyAlgo.getBits()), foundEntries);
+    }
+
+    /**
+     * @return the key of the tile that contains the given point. Points with the same key have the same neighborhood in
+     * {@link #findEdgeIdsInNeighborhood} and sorting by this key keeps nearby tiles close together.
+     */
+    long getTileKey(double lat, double lon) {
+        return keyAlgo.encode(keyAlgo.x(lon), keyAlgo.y(lat));
+    }
+
     public int getChecksum() {
         return checksum;
     }
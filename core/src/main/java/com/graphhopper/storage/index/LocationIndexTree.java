@@ -17,7 +17,11 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Directory;
@@ -28,7 +32,10 @@ import com.graphhopper.util.shapes.BBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
 
@@ -52,6 +59,11 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  * @author Peter Karich
  */
 public class LocationIndexTree implements LocationIndex {
+    // batches with fewer points are always snapped in the calling thread, larger ones are split into chunks of about
+    // this size when a pool is given
+    private static final int PARALLEL_BATCH_SIZE = 512;
+    // findNClosest encodes the tiles relative to the tile of the query point using 16 bits per axis
+    private static final int MAX_TILE_OFFSET = Short.MAX_VALUE;
     private final Directory directory;
     private final Graph graph;
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -278,8 +290,10 @@ public class LocationIndexTree implements LocationIndex {
         IntHashSet seenEdges = new IntHashSet();
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             lineIntIndex.findEdgeIdsInNeighborhood(queryLat, queryLon, iteration, edgeId -> {
+                if (!seenEdges.add(edgeId) || !edgeFilter.acceptEdgeId(edgeId))
+                    return;
                 EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
-                if (seenEdges.add(edgeId) && edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
+                if (edgeFilter.accept(edgeIteratorState)) { // TODO: or reverse?
                     traverseEdge(queryLat, queryLon, edgeIteratorState, (node, normedDist, wayIndex, pos) -> {
                         if (normedDist < closestMatch.getQueryDistance()) {
                             closestMatch.setQueryDistance(normedDist);
@@ -308,6 +322,324 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
 
+    /**
+     * Finds the edges that are closest to the given point. Unlike {@link #findClosest(double, double, EdgeFilter)} this
+     * returns one snap per edge, e.g. to collect the candidates for map matching. The tiles are visited best-first, i.e.
+     * ordered by their distance to the query point, and the search stops as soon as no unvisited tile can contain an
+     * edge that is closer than the n-th closest edge found so far or the radius.
+     *
+     * @param n      the maximum number of snaps, use Integer.MAX_VALUE to find all edges within the radius
+     * @param radius the maximum distance in meter between the query point and the snapped point of an edge, use
+     *               Double.POSITIVE_INFINITY to find the n closest edges regardless of their distance. Note that
+     *               without a limit the tiles of the entire graph are visited.
+     * @return the snaps ordered by their distance to the query point
+     */
+    public List<Snap> findNClosest(double queryLat, double queryLon, EdgeFilter edgeFilter, int n, double radius) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (n < 1)
+            throw new IllegalArgumentException("n must be positive but was " + n);
+        if (!(radius >= 0))
+            throw new IllegalArgumentException("radius must not be negative but was " + radius);
+        return new NClosestSearch(queryLat, queryLon, edgeFilter, n, radius).search();
+    }
+
+    /**
+     * Finds all edges whose snapped point is within the given radius (in meter) of the query point, see
+     * {@link #findNClosest}.
+     */
+    public List<Snap> findWithinRadius(double queryLat, double queryLon, EdgeFilter edgeFilter, double radius) {
+        return findNClosest(queryLat, queryLon, edgeFilter, Integer.MAX_VALUE, radius);
+    }
+
+    private class NClosestSearch implements IntConsumer, EdgeCheck {
+        final double queryLat;
+        final double queryLon;
+        final EdgeFilter edgeFilter;
+        final int n;
+        final double normedRadius;
+        final SpatialKeyAlgo keyAlgo = indexStructureInfo.getKeyAlgo();
+        final int startX;
+        final int startY;
+        final IntHashSet seenTiles = new IntHashSet();
+        final IntHashSet seenEdges = new IntHashSet();
+        // the farthest of the (at most) n closest snaps found so far is on top
+        final PriorityQueue<Snap> closest = new PriorityQueue<>(Comparator.comparingDouble(Snap::getQueryDistance).reversed());
+        // the closest point of the current edge
+        double edgeDist;
+        int edgeNode;
+        int edgeWayIndex;
+        Snap.Position edgePosition;
+
+        NClosestSearch(double queryLat, double queryLon, EdgeFilter edgeFilter, int n, double radius) {
+            this.queryLat = queryLat;
+            this.queryLon = queryLon;
+            this.edgeFilter = edgeFilter;
+            this.n = n;
+            this.normedRadius = Double.isInfinite(radius) ? Double.POSITIVE_INFINITY : DIST_PLANE.calcNormalizedDist(radius);
+            startX = keyAlgo.x(queryLon);
+            startY = keyAlgo.y(queryLat);
+        }
+
+        List<Snap> search() {
+            IntFloatBinaryHeap tiles = new IntFloatBinaryHeap(16);
+            addTile(tiles, 0, 0);
+            while (!tiles.isEmpty() && tiles.peekKey() <= getMaxNormedDist()) {
+                int tile = tiles.poll();
+                int dx = (tile & 0xFFFF) - MAX_TILE_OFFSET;
+                int dy = (tile >>> 16) - MAX_TILE_OFFSET;
+                lineIntIndex.findEdgeIdsInTile(startX + dx, startY + dy, this);
+                addTile(tiles, dx - 1, dy);
+                addTile(tiles, dx + 1, dy);
+                addTile(tiles, dx, dy - 1);
+                addTile(tiles, dx, dy + 1);
+            }
+
+            List<Snap> result = new ArrayList<>(closest);
+            result.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+            for (Snap snap : result) {
+                snap.calcSnappedPoint(DIST_PLANE);
+                snap.setQueryDistance(DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, queryLat, queryLon));
+            }
+            return result;
+        }
+
+        /**
+         * @return the normalized distance that an edge must not exceed to be one of the n closest edges
+         */
+        double getMaxNormedDist() {
+            return closest.size() < n ? normedRadius : closest.peek().getQueryDistance();
+        }
+
+        private void addTile(IntFloatBinaryHeap tiles, int dx, int dy) {
+            int x = startX + dx;
+            int y = startY + dy;
+            if (x < 0 || y < 0 || x >= indexStructureInfo.getParts() || y >= indexStructureInfo.getParts()
+                    || Math.abs(dx) > MAX_TILE_OFFSET || Math.abs(dy) > MAX_TILE_OFFSET)
+                return;
+            int tile = (dy + MAX_TILE_OFFSET) << 16 | (dx + MAX_TILE_OFFSET);
+            if (!seenTiles.add(tile))
+                return;
+            // the closest point of the tile to the query point
+            BBox bounds = indexStructureInfo.getBounds();
+            double minLat = bounds.minLat + y * indexStructureInfo.getDeltaLat();
+            double minLon = bounds.minLon + x * indexStructureInfo.getDeltaLon();
+            double lat = Math.max(minLat, Math.min(queryLat, minLat + indexStructureInfo.getDeltaLat()));
+            double lon = Math.max(minLon, Math.min(queryLon, minLon + indexStructureInfo.getDeltaLon()));
+            double tileDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, lat, lon);
+            if (tileDist <= getMaxNormedDist())
+                tiles.insert(tileDist, tile);
+        }
+
+        @Override
+        public void accept(int edgeId) {
+            if (!seenEdges.add(edgeId) || !edgeFilter.acceptEdgeId(edgeId))
+                return;
+            EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(edgeId * 2);
+            if (!edgeFilter.accept(edgeIteratorState))
+                return;
+            edgeDist = Double.MAX_VALUE;
+            traverseEdge(queryLat, queryLon, edgeIteratorState, this);
+            if (edgeDist > normedRadius || closest.size() == n && edgeDist >= closest.peek().getQueryDistance())
+                return;
+            Snap snap = new Snap(queryLat, queryLon);
+            snap.setQueryDistance(edgeDist);
+            snap.setClosestNode(edgeNode);
+            snap.setWayIndex(edgeWayIndex);
+            snap.setSnappedPosition(edgePosition);
+            snap.setClosestEdge(edgeIteratorState);
+            closest.add(snap);
+            if (closest.size() > n)
+                closest.poll();
+        }
+
+        @Override
+        public void check(int node, double normedDist, int wayIndex, Snap.Position pos) {
+            if (normedDist < edgeDist) {
+                edgeDist = normedDist;
+                edgeNode = node;
+                edgeWayIndex = wayIndex;
+                edgePosition = pos;
+            }
+        }
+    }
+
+    /**
+     * Snaps many points at once, which is useful e.g. for map matching or matrix requests. The result is the same as
+     * calling {@link #findClosest(double, double, EdgeFilter)} for every point, but the points are sorted by their tile
+     * and all points of the same tile are snapped together: the edge ids of every tile in their neighborhood are read
+     * once, and every edge is filtered and its geometry is fetched once for all of these points.
+     *
+     * @return the snaps in the order of the query points
+     */
+    public Snap[] findClosest(double[] queryLats, double[] queryLons, EdgeFilter edgeFilter) {
+        return findClosest(queryLats, queryLons, edgeFilter, null);
+    }
+
+    /**
+     * Same as {@link #findClosest(double[], double[], EdgeFilter)}, but large batches are split and snapped in parallel
+     * using the given pool. In this case the edge filter must be thread-safe.
+     *
+     * @param pool the pool to use for large batches, or null to snap all points in the calling thread
+     */
+    public Snap[] findClosest(double[] queryLats, double[] queryLons, EdgeFilter edgeFilter, ForkJoinPool pool) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (queryLats.length != queryLons.length)
+            throw new IllegalArgumentException("There must be as many latitudes as longitudes: " + queryLats.length + " vs. " + queryLons.length);
+
+        final int count = queryLats.length;
+        long[] tileKeys = new long[count];
+        for (int i = 0; i < count; i++)
+            tileKeys[i] = lineIntIndex.getTileKey(queryLats[i], queryLons[i]);
+        int[] order = IndirectSort.mergesort(0, count, (a, b) -> Long.compare(tileKeys[a], tileKeys[b]));
+        // the points order[groupStarts[g]..groupStarts[g+1]) are in the same tile
+        IntArrayList groupStarts = new IntArrayList();
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || tileKeys[order[i]] != tileKeys[order[i - 1]])
+                groupStarts.add(i);
+        }
+        groupStarts.add(count);
+
+        BatchSnap batch = new BatchSnap(queryLats, queryLons, edgeFilter, order, groupStarts.toArray());
+        if (pool == null || count < 2 * PARALLEL_BATCH_SIZE)
+            batch.snapGroups(0, groupStarts.size() - 1);
+        else
+            pool.invoke(new BatchSnapTask(batch, 0, groupStarts.size() - 1));
+        return batch.snaps;
+    }
+
+    private class BatchSnap {
+        final double[] queryLats;
+        final double[] queryLons;
+        final EdgeFilter edgeFilter;
+        final int[] order;
+        final int[] groupStarts;
+        final Snap[] snaps;
+        // we only keep track of the edge id and create the edge state once per point at the end
+        final int[] closestEdges;
+
+        BatchSnap(double[] queryLats, double[] queryLons, EdgeFilter edgeFilter, int[] order, int[] groupStarts) {
+            this.queryLats = queryLats;
+            this.queryLons = queryLons;
+            this.edgeFilter = edgeFilter;
+            this.order = order;
+            this.groupStarts = groupStarts;
+            this.snaps = new Snap[queryLats.length];
+            this.closestEdges = new int[queryLats.length];
+        }
+
+        /**
+         * Snaps all points of the groups [fromGroup, toGroup). Different ranges can be snapped in parallel.
+         */
+        void snapGroups(int fromGroup, int toGroup) {
+            GroupSnapper snapper = new GroupSnapper();
+            for (int group = fromGroup; group < toGroup; group++)
+                snapper.snapGroup(groupStarts[group], groupStarts[group + 1]);
+        }
+
+        /**
+         * Holds the scratch structures that are reused for all groups snapped by one thread.
+         */
+        private class GroupSnapper implements EdgeCheck {
+            final IntHashSet seenEdges = new IntHashSet();
+            final IntArrayList newEdges = new IntArrayList();
+            final IntArrayList activePoints = new IntArrayList();
+            final IntConsumer edgeCollector = edgeId -> {
+                if (seenEdges.add(edgeId))
+                    newEdges.add(edgeId);
+            };
+            int currentPoint;
+            int currentEdge;
+
+            void snapGroup(int from, int to) {
+                seenEdges.clear();
+                activePoints.clear();
+                for (int i = from; i < to; i++) {
+                    int point = order[i];
+                    snaps[point] = new Snap(queryLats[point], queryLons[point]);
+                    activePoints.add(point);
+                }
+                // all points of the group are in the same tile, so they share the tiles of every iteration
+                int firstPoint = activePoints.get(0);
+                for (int iteration = 0; iteration < maxRegionSearch && !activePoints.isEmpty(); iteration++) {
+                    newEdges.clear();
+                    lineIntIndex.findEdgeIdsInNeighborhood(queryLats[firstPoint], queryLons[firstPoint], iteration, edgeCollector);
+                    for (int e = 0; e < newEdges.size(); e++) {
+                        currentEdge = newEdges.get(e);
+                        if (!edgeFilter.acceptEdgeId(currentEdge))
+                            continue;
+                        EdgeIteratorState edgeIteratorState = graph.getEdgeIteratorStateForKey(currentEdge * 2);
+                        if (!edgeFilter.accept(edgeIteratorState))
+                            continue;
+                        int baseNode = edgeIteratorState.getBaseNode();
+                        int adjNode = edgeIteratorState.getAdjNode();
+                        PointList pointList = edgeIteratorState.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
+                        for (int p = 0; p < activePoints.size(); p++) {
+                            currentPoint = activePoints.get(p);
+                            traverseEdge(queryLats[currentPoint], queryLons[currentPoint], baseNode, adjNode, pointList, this);
+                        }
+                    }
+                    // keep only the points for which we cannot stop yet, see findClosest
+                    int remaining = 0;
+                    for (int p = 0; p < activePoints.size(); p++) {
+                        int point = activePoints.get(p);
+                        Snap snap = snaps[point];
+                        if (!snap.isValid() || DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance())
+                                >= calculateRMin(queryLats[point], queryLons[point], iteration))
+                            activePoints.set(remaining++, point);
+                    }
+                    activePoints.elementsCount = remaining;
+                }
+
+                for (int i = from; i < to; i++) {
+                    int point = order[i];
+                    Snap snap = snaps[point];
+                    if (snap.isValid()) {
+                        snap.setClosestEdge(graph.getEdgeIteratorStateForKey(closestEdges[point] * 2));
+                        snap.calcSnappedPoint(DIST_PLANE);
+                        snap.setQueryDistance(DIST_PLANE.calcDist(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon, queryLats[point], queryLons[point]));
+                    }
+                }
+            }
+
+            @Override
+            public void check(int node, double normedDist, int wayIndex, Snap.Position pos) {
+                Snap snap = snaps[currentPoint];
+                if (normedDist < snap.getQueryDistance()) {
+                    snap.setQueryDistance(normedDist);
+                    snap.setClosestNode(node);
+                    snap.setWayIndex(wayIndex);
+                    snap.setSnappedPosition(pos);
+                    closestEdges[currentPoint] = currentEdge;
+                }
+            }
+        }
+    }
+
+    private static class BatchSnapTask extends RecursiveAction {
+        private final BatchSnap batch;
+        private final int fromGroup;
+        private final int toGroup;
+
+        BatchSnapTask(BatchSnap batch, int fromGroup, int toGroup) {
+            this.batch = batch;
+            this.fromGroup = fromGroup;
+            this.toGroup = toGroup;
+        }
+
+        @Override
+        protected void compute() {
+            int points = batch.groupStarts[toGroup] - batch.groupStarts[fromGroup];
+            if (points <= PARALLEL_BATCH_SIZE || toGroup - fromGroup < 2) {
+                batch.snapGroups(fromGroup, toGroup);
+            } else {
+                int middle = (fromGroup + toGroup) >>> 1;
+                invokeAll(new BatchSnapTask(batch, fromGroup, middle), new BatchSnapTask(batch, middle, toGroup));
+            }
+        }
+    }
+
     @Override
     public void query(BBox queryBBox, Visitor function) {
         lineIntIndex.query(queryBBox, function);
@@ -318,17 +650,22 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     public void traverseEdge(double queryLat, double queryLon, EdgeIteratorState currEdge, EdgeCheck edgeCheck) {
-        int baseNode = currEdge.getBaseNode();
+        traverseEdge(queryLat, queryLon, currEdge.getBaseNode(), currEdge.getAdjNode(),
+                currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ), edgeCheck);
+    }
+
+    /**
+     * @param pointList the geometry of the edge without the base node, i.e. fetched with {@link FetchMode#PILLAR_AND_ADJ}
+     */
+    private void traverseEdge(double queryLat, double queryLon, int baseNode, int adjNode, PointList pointList, EdgeCheck edgeCheck) {
         double baseLat = nodeAccess.getLat(baseNode);
         double baseLon = nodeAccess.getLon(baseNode);
         double baseDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, baseLat, baseLon);
 
-        int adjNode = currEdge.getAdjNode();
         double adjLat = nodeAccess.getLat(adjNode);
         double adjLon = nodeAccess.getLon(adjNode);
         double adjDist = DIST_PLANE.calcNormalizedDist(queryLat, queryLon, adjLat, adjLon);
 
-        PointList pointList = currEdge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
         final int len = pointList.size();
 
         int closestTowerNode;
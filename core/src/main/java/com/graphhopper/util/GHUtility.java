@@ -389,6 +389,73 @@ public class GHUtility {
         return createSortedGraph(g, sortedGraph, nodeList, edgeList);
     }
 
+    /**
+     * Renumbers the nodes of the given graph in place such that they follow a Hilbert curve, i.e. nodes that are close
+     * to each other usually get similar ids. The edges are sorted by their node with the smaller new id. This improves
+     * the memory locality of all searches, because the explored nodes and edges are stored close to each other. The
+     * relative order of edges between the same nodes is kept, so the artificial edges that are created for via-way
+     * restrictions stay behind the edges they were copied from.
+     */
+    public static void sortHilbert(BaseGraph graph) {
+        int nodes = graph.getNodes();
+        int edges = graph.getEdges();
+        if (nodes == 0)
+            return;
+        BBox bounds = graph.getBounds();
+        NodeAccess na = graph.getNodeAccess();
+        // the curve index uses 2*15 bits, so we can store it together with the node in a long and just sort the longs
+        final int bits = 15;
+        final int cells = 1 << bits;
+        double latFactor = cells / Math.max(bounds.maxLat - bounds.minLat, 1e-9);
+        double lonFactor = cells / Math.max(bounds.maxLon - bounds.minLon, 1e-9);
+        long[] keys = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int x = Math.max(0, Math.min(cells - 1, (int) ((na.getLon(node) - bounds.minLon) * lonFactor)));
+            int y = Math.max(0, Math.min(cells - 1, (int) ((na.getLat(node) - bounds.minLat) * latFactor)));
+            keys[node] = (calcHilbertIndex(x, y, cells) << 32) | node;
+        }
+        Arrays.sort(keys);
+        int[] newNodeIds = new int[nodes];
+        for (int i = 0; i < nodes; i++)
+            newNodeIds[(int) keys[i]] = i;
+
+        keys = new long[edges];
+        for (int edge = 0; edge < edges; edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            int node = Math.min(newNodeIds[edgeState.getBaseNode()], newNodeIds[edgeState.getAdjNode()]);
+            keys[edge] = ((long) node << 32) | edge;
+        }
+        Arrays.sort(keys);
+        int[] newEdgeIds = new int[edges];
+        for (int i = 0; i < edges; i++)
+            newEdgeIds[(int) keys[i]] = i;
+        graph.relabel(newNodeIds, newEdgeIds);
+    }
+
+    /**
+     * @return the position of the cell (x, y) along the Hilbert curve through a grid with size x size cells, where
+     * size must be a power of two
+     */
+    static long calcHilbertIndex(int x, int y, int size) {
+        long index = 0;
+        for (int s = size / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant such that the curve is continuous
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = size - 1 - x;
+                    y = size - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return index;
+    }
+
     static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
         if (fromGraph.getTurnCostStorage() != null) {
             throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
@@ -443,6 +510,7 @@ public class GHUtility {
         return new BaseGraph.Builder(baseGraph.getIntsForFlags())
                 .withTurnCosts(baseGraph.getTurnCostStorage() != null)
                 .set3D(baseGraph.getNodeAccess().is3D())
+                .setCompressedGeometry(baseGraph.isCompressedGeometry())
                 .setDir(outdir)
                 .create();
     }
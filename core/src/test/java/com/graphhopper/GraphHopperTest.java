@@ -23,10 +23,13 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.reader.osm.OSMReader;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.EdgeIntAccess;
+import com.graphhopper.routing.ev.LiveDecimalEncodedValue;
 import com.graphhopper.routing.ev.RoadEnvironment;
 import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -37,7 +40,9 @@ import com.graphhopper.routing.util.parsers.TagParser;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -62,10 +67,15 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.json.Statement.If;
+import static com.graphhopper.json.Statement.Op.LIMIT;
 import static com.graphhopper.json.Statement.Op.MULTIPLY;
 import static com.graphhopper.util.GHUtility.createCircle;
 import static com.graphhopper.util.GHUtility.createRectangle;
@@ -1449,6 +1459,174 @@ public class GraphHopperTest {
         executeCHFootRoute(false);
     }
 
+    @Test
+    public void testReadOnlyMMap() {
+        final String profile = "car";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importAndClose();
+
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.dataaccess.default_type", "MMAP_RO").
+                putObject("graph.dataaccess.type.location_index", "RAM_STORE").
+                setProfiles(Collections.singletonList(new Profile(profile).setVehicle("car").setWeighting("fastest"))).
+                setLMProfiles(Collections.singletonList(new LMProfile(profile)));
+        // a DataAccess in RAM would be a private copy of this process
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new GraphHopper().init(config).importOrLoad());
+        assertTrue(e.getMessage().contains("location_index"), e.getMessage());
+
+        config.asPMap().remove("graph.dataaccess.type.location_index");
+        config.putObject("graph.dataaccess.mmap.preload.edges", 100);
+        hopper = new GraphHopper().init(config);
+        hopper.importOrLoad();
+        assertFalse(hopper.isAllowWrites());
+        GHDirectory directory = (GHDirectory) hopper.getBaseGraph().getDirectory();
+        assertTrue(directory.getMappedBytes() > 0);
+        assertTrue(directory.getResidentBytes() > 0);
+        assertTrue(directory.getResidentBytes() <= directory.getMappedBytes());
+        for (boolean lm : new boolean[]{false, true}) {
+            GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                    setProfile(profile).putHint(Landmark.DISABLE, !lm));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(3587, rsp.getBest().getDistance(), 1);
+        }
+        hopper.close();
+    }
+
+    @Test
+    public void testSortHilbert() {
+        List<GHRequest> requests = Arrays.asList(
+                new GHRequest(43.727687, 7.418737, 43.74958, 7.436566),
+                new GHRequest(43.745884, 7.430630, 43.728834, 7.420012),
+                new GHRequest(43.739697, 7.424297, 43.735435, 7.429806));
+        List<String> results = new ArrayList<>();
+        for (boolean sort : new boolean[]{false, true}) {
+            Helper.removeDir(new File(GH_LOCATION));
+            GraphHopper hopper = new GraphHopper().
+                    setGraphHopperLocation(GH_LOCATION).
+                    setOSMFile(MONACO).
+                    setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest").setTurnCosts(true)).
+                    setSortGraph(sort).
+                    setSortOrder("hilbert");
+            hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("car"));
+            hopper.importOrLoad();
+            StringBuilder sb = new StringBuilder();
+            for (GHRequest req : requests) {
+                for (boolean lm : new boolean[]{false, true}) {
+                    req.setProfile("car").putHint(Landmark.DISABLE, !lm);
+                    ResponsePath path = hopper.route(req).getBest();
+                    assertFalse(path.hasErrors(), path.getErrors().toString());
+                    sb.append(Math.round(path.getDistance())).append(",").append(path.getTime()).append(";");
+                }
+            }
+            results.add(sb.toString());
+            hopper.close();
+        }
+        assertEquals(results.get(0), results.get(1));
+    }
+
+    @Test
+    public void testSnapPrefilter() {
+        List<GHRequest> requests = Arrays.asList(
+                new GHRequest(43.727687, 7.418737, 43.74958, 7.436566),
+                // these points are close to footways
+                new GHRequest(43.73102, 7.42113, 43.74165, 7.42788),
+                new GHRequest(43.744445, 7.429483, 43.737707, 7.41758));
+        List<String> results = new ArrayList<>();
+        for (boolean prefilter : new boolean[]{false, true, true}) {
+            if (!prefilter)
+                Helper.removeDir(new File(GH_LOCATION));
+            // the second run with the prefilter loads the snappable edges prepared by the first one
+            GraphHopper hopper = new GraphHopper().
+                    setGraphHopperLocation(GH_LOCATION).
+                    setOSMFile(MONACO).
+                    setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest"),
+                            new Profile("foot").setVehicle("foot").setWeighting("fastest")).
+                    setSnapPrefilter(prefilter);
+            hopper.importOrLoad();
+            StringBuilder sb = new StringBuilder();
+            for (GHRequest req : requests) {
+                for (String profile : new String[]{"car", "foot"}) {
+                    req.setProfile(profile);
+                    ResponsePath path = hopper.route(req).getBest();
+                    assertFalse(path.hasErrors(), path.getErrors().toString());
+                    sb.append(Math.round(path.getDistance())).append(",").append(path.getTime()).append(";");
+                }
+            }
+            results.add(sb.toString());
+            hopper.close();
+        }
+        assertEquals(results.get(0), results.get(1));
+        assertEquals(results.get(0), results.get(2));
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("foot").setVehicle("foot").setWeighting("fastest")).
+                setSnapPrefilter(true).
+                addLiveEncodedValue("live_speed", 150);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, hopper::importOrLoad);
+        assertTrue(e.getMessage().contains("graph.live_encoded_values"), e.getMessage());
+        hopper.close();
+    }
+
+    @Test
+    public void testLegPool() {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest").setTurnCosts(true));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.importOrLoad();
+
+        Random rnd = new Random(42);
+        List<GHPoint> points = new ArrayList<>();
+        List<String> curbsides = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            points.add(new GHPoint(43.727 + rnd.nextDouble() * 0.02, 7.416 + rnd.nextDouble() * 0.02));
+            curbsides.add(rnd.nextBoolean() ? CURBSIDE_RIGHT : CURBSIDE_ANY);
+        }
+        List<GHRequest> requests = new ArrayList<>();
+        for (boolean disableCH : new boolean[]{false, true}) {
+            requests.add(new GHRequest(points).setProfile("car").putHint(CH.DISABLE, disableCH));
+            requests.add(new GHRequest(points).setProfile("car").setCurbsides(curbsides).putHint(CH.DISABLE, disableCH).
+                    putHint(Routing.FORCE_CURBSIDE, false));
+        }
+        // legs depend on each other, so they are calculated one after another
+        requests.add(new GHRequest(points).setProfile("car").putHint(CH.DISABLE, true).putHint(Routing.PASS_THROUGH, true));
+        // the exception of a leg is passed on as it is
+        requests.add(new GHRequest(points).setProfile("car").putHint(CH.DISABLE, true).putHint(Routing.MAX_VISITED_NODES, 10));
+
+        List<String> results = new ArrayList<>();
+        for (ForkJoinPool pool : new ForkJoinPool[]{null, new ForkJoinPool(4)}) {
+            hopper.getRouterConfig().setLegPool(pool);
+            StringBuilder sb = new StringBuilder();
+            for (GHRequest req : requests) {
+                GHResponse rsp = hopper.route(req);
+                if (rsp.hasErrors()) {
+                    sb.append(rsp.getErrors()).append(";");
+                    continue;
+                }
+                ResponsePath path = rsp.getBest();
+                sb.append(Math.round(path.getDistance())).append(",").append(path.getTime()).append(",").
+                        append(path.getPoints().size()).append(";");
+            }
+            results.add(sb.toString());
+            if (pool != null)
+                pool.shutdown();
+        }
+        assertEquals(results.get(0), results.get(1));
+        assertTrue(results.get(0).contains("MaximumNodesExceededException: No path found due to maximum nodes exceeded 10"), results.get(0));
+        hopper.close();
+    }
+
     private void executeCHFootRoute(boolean sort) {
         final String profile = "profile";
         final String vehicle = "foot";
@@ -2822,5 +3000,216 @@ public class GraphHopperTest {
         }
     }
 
-}
+    @Test
+    public void testLiveEncodedValue() {
+        final String profile = "car";
+        CustomModel customModel = new CustomModel().addToSpeed(If("live_speed > 0", LIMIT, "live_speed"));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                addLiveEncodedValue("live_speed", 150).
+                setProfiles(new CustomProfile(profile).setCustomModel(customModel).setVehicle("car"));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(Collections.singletonList("edge_id"));
+        ResponsePath path = hopper.route(req).getBest();
+        assertFalse(path.hasErrors(), path.getErrors().toString());
+
+        // slow down all edges of the route, including the edges that are only partially used
+        LiveDecimalEncodedValue liveSpeed = hopper.getLiveEncodedValue("live_speed");
+        float[] values = liveSpeed.copyValues(hopper.getBaseGraph().getEdges());
+        for (PathDetail detail : path.getPathDetails().get("edge_id")) {
+            int edge = ((Number) detail.getValue()).intValue();
+            values[2 * edge] = 5;
+            values[2 * edge + 1] = 5;
+        }
+        liveSpeed.setValues(values);
+        ResponsePath slowPath = hopper.route(req).getBest();
+        assertTrue(slowPath.getTime() > path.getTime(), slowPath.getTime() + " vs. " + path.getTime());
+
+        // a route on a single edge only uses virtual edges
+        PointList points = path.getPoints();
+        GHPoint start = points.get(0);
+        GHPoint end = new GHPoint((points.getLat(0) + points.getLat(1)) / 2, (points.getLon(0) + points.getLon(1)) / 2);
+        ResponsePath virtualPath = hopper.route(new GHRequest(start, end).setProfile(profile)).getBest();
+        assertEquals(virtualPath.getDistance() / 5 * 3.6 * 1000, virtualPath.getTime(), 1);
+
+        liveSpeed.clear();
+        assertEquals(path.getTime(), hopper.route(req).getBest().getTime());
+    }
+
+    @Test
+    public void testCustomizableCH() {
+        final String profile = "car";
+        CustomModel customModel = new CustomModel().addToSpeed(If("live_speed > 0", LIMIT, "live_speed"));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                addLiveEncodedValue("live_speed", 150).
+                setProfiles(new CustomProfile(profile).setCustomModel(customModel).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCustomizable(true).setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(Collections.singletonList("edge_id"));
+        GHRequest flexReq = new GHRequest(req.getPoints()).setProfile(profile).putHint(CH.DISABLE, true);
+        ResponsePath path = hopper.route(req).getBest();
+        assertFalse(path.hasErrors(), path.getErrors().toString());
+        assertEquals(hopper.route(flexReq).getBest().getTime(), path.getTime());
+
+        LiveDecimalEncodedValue liveSpeed = hopper.getLiveEncodedValue("live_speed");
+        float[] values = liveSpeed.copyValues(hopper.getBaseGraph().getEdges());
+        for (PathDetail detail : path.getPathDetails().get("edge_id")) {
+            int edge = ((Number) detail.getValue()).intValue();
+            values[2 * edge] = 5;
+            values[2 * edge + 1] = 5;
+        }
+        liveSpeed.setValues(values);
+        hopper.customizeCH(profile);
+        ResponsePath slowPath = hopper.route(req).getBest();
+        assertNotEquals(path.getDistance(), slowPath.getDistance(), 1);
+        assertEquals(hopper.route(flexReq).getBest().getTime(), slowPath.getTime());
+    }
 
+    @Test
+    public void testApplyOSMChanges() throws Exception {
+        final String profile = "car";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("osm_way_id").
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getReaderConfig().setStoreOSMNodes(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(Collections.singletonList("osm_way_id"));
+        ResponsePath path = hopper.route(req).getBest();
+        // delete a way in the middle of the route
+        List<PathDetail> wayIds = path.getPathDetails().get("osm_way_id");
+        long blockedWay = ((Number) wayIds.get(wayIds.size() / 2).getValue()).longValue();
+        RoutingCHGraph chGraph = hopper.getCHGraphs().get(profile);
+        LandmarkStorage landmarks = hopper.getLandmarks().get(profile);
+        OSMReader.ChangeResult result = applyOSMChanges(hopper, "<delete><way id=\"" + blockedWay + "\" version=\"3\"/></delete>"
+                + "<modify><relation id=\"1\"/></modify>");
+        assertEquals(1, result.getDeletedWays());
+        assertEquals(1, result.getIgnoredChanges());
+        assertTrue(result.getChangedEdges() > 0);
+        assertFalse(result.isTopologyChanged());
+        // the weights only increased, so the landmarks are still valid, but the CH graph is not
+        assertSame(landmarks, hopper.getLandmarks().get(profile));
+        assertNotSame(chGraph, hopper.getCHGraphs().get(profile));
+
+        ResponsePath chPath = hopper.route(req).getBest();
+        assertTrue(chPath.getDistance() > path.getDistance(), chPath.getDistance() + " vs. " + path.getDistance());
+        assertFalse(chPath.getPathDetails().get("osm_way_id").stream().anyMatch(d -> ((Number) d.getValue()).longValue() == blockedWay));
+        assertRoutesEqual(hopper, req, chPath);
+
+        // a new way changes the graph topology, so everything is prepared again
+        landmarks = hopper.getLandmarks().get(profile);
+        result = applyOSMChanges(hopper, "<create>"
+                + "<node id=\"2100000001\" lat=\"43.7300\" lon=\"7.4200\"/>"
+                + "<node id=\"2100000002\" lat=\"43.7310\" lon=\"7.4210\"/>"
+                + "<way id=\"2100000001\"><nd ref=\"2100000001\"/><nd ref=\"2100000002\"/><tag k=\"highway\" v=\"residential\"/></way>"
+                + "</create>");
+        assertEquals(1, result.getCreatedWays());
+        assertEquals(2, result.getAddedNodes());
+        assertEquals(1, result.getAddedEdges());
+        assertNotSame(landmarks, hopper.getLandmarks().get(profile));
+        assertRoutesEqual(hopper, req, chPath);
+        hopper.close();
+
+        // the changes are stored
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setEncodedValuesString("osm_way_id").
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        assertTrue(hopper.load());
+        assertRoutesEqual(hopper, req, chPath);
+        hopper.close();
+    }
+
+    @Test
+    public void testApplyOSMChangesRequiresStoredNodes() {
+        GraphHopper sortingHopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setSortGraph(true).
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest"));
+        sortingHopper.getReaderConfig().setStoreOSMNodes(true);
+        assertThrows(IllegalArgumentException.class, sortingHopper::importOrLoad);
+        sortingHopper.close();
+
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest"));
+        hopper.importOrLoad();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> hopper.applyOSMChanges(new File(GH_LOCATION + "-change.osc")));
+        assertTrue(e.getMessage().contains("datareader.store_osm_nodes"), e.getMessage());
+        hopper.close();
+    }
+
+    @Test
+    public void testApplyOSMChangesWithSnapPrefilter() throws IOException {
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car").
+                setPathDetails(Collections.singletonList("osm_way_id"));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("osm_way_id").
+                setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest")).
+                setSnapPrefilter(true);
+        hopper.getReaderConfig().setStoreOSMNodes(true);
+        hopper.importOrLoad();
+        List<PathDetail> wayIds = hopper.route(req).getBest().getPathDetails().get("osm_way_id");
+        long blockedWay = ((Number) wayIds.get(wayIds.size() / 2).getValue()).longValue();
+        OSMReader.ChangeResult result = applyOSMChanges(hopper, "<delete><way id=\"" + blockedWay + "\"/></delete><create>"
+                + "<node id=\"2100000001\" lat=\"43.7300\" lon=\"7.4200\"/>"
+                + "<node id=\"2100000002\" lat=\"43.7310\" lon=\"7.4210\"/>"
+                + "<way id=\"2100000001\"><nd ref=\"2100000001\"/><nd ref=\"2100000002\"/><tag k=\"highway\" v=\"residential\"/></way>"
+                + "</create>");
+        assertTrue(result.isTopologyChanged());
+        ResponsePath path = hopper.route(req).getBest();
+        assertFalse(path.hasErrors(), path.getErrors().toString());
+        hopper.close();
+
+        // the snappable edges were prepared for the new edges, otherwise loading them would fail
+        for (boolean prefilter : new boolean[]{true, false}) {
+            hopper = new GraphHopper().
+                    setGraphHopperLocation(GH_LOCATION).
+                    setEncodedValuesString("osm_way_id").
+                    setProfiles(new Profile("car").setVehicle("car").setWeighting("fastest")).
+                    setSnapPrefilter(prefilter);
+            assertTrue(hopper.load());
+            assertEquals(path.getDistance(), hopper.route(req).getBest().getDistance(), 1.e-6);
+            hopper.close();
+        }
+    }
+
+    private static OSMReader.ChangeResult applyOSMChanges(GraphHopper hopper, String changes) throws IOException {
+        File changeFile = new File(GH_LOCATION + "-change.osc");
+        Files.write(changeFile.toPath(), ("<osmChange version=\"0.6\">" + changes + "</osmChange>").getBytes(StandardCharsets.UTF_8));
+        try {
+            return hopper.applyOSMChanges(changeFile);
+        } finally {
+            changeFile.delete();
+        }
+    }
+
+    private static void assertRoutesEqual(GraphHopper hopper, GHRequest req, ResponsePath expected) {
+        req.putHint(CH.DISABLE, false).putHint(Landmark.DISABLE, false);
+        assertEquals(expected.getDistance(), hopper.route(req).getBest().getDistance(), 1.e-6);
+        req.putHint(CH.DISABLE, true);
+        assertEquals(expected.getDistance(), hopper.route(req).getBest().getDistance(), 1.e-6);
+        req.putHint(Landmark.DISABLE, true);
+        assertEquals(expected.getDistance(), hopper.route(req).getBest().getDistance(), 1.e-6);
+        req.putHint(CH.DISABLE, false).putHint(Landmark.DISABLE, false);
+    }
+}
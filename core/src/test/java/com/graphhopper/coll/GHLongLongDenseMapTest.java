@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GHLongLongDenseMapTest {
+
+    @Test
+    public void testEmptyValue() {
+        GHLongLongDenseMap instance = new GHLongLongDenseMap(new RAMDirectory(), "test", 4, -1);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> instance.put(1, -1));
+        assertTrue(ex.getMessage().contains("Value cannot be the 'empty value' -1"));
+        assertEquals(-1, instance.get(404));
+        assertEquals(-1, instance.put(404, 0));
+        assertEquals(0, instance.get(404));
+        assertEquals(-1, instance.get(403));
+        assertEquals(-1, instance.get(1L << 40));
+        assertEquals(1, instance.getSize());
+    }
+
+    @Test
+    public void testValueRange() {
+        GHLongLongDenseMap instance = new GHLongLongDenseMap(new RAMDirectory(), "test", 5, -1);
+        assertEquals((1L << 39) - 2, instance.getMaxValue());
+        instance.put(1, instance.getMaxValue());
+        instance.put(2, -(1L << 39) - 1);
+        instance.put(3, -2);
+        assertEquals(instance.getMaxValue(), instance.get(1));
+        assertEquals(-(1L << 39) - 1, instance.get(2));
+        assertEquals(-2, instance.get(3));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(4, instance.getMaxValue() + 1));
+        assertThrows(IllegalArgumentException.class, () -> instance.put(4, -(1L << 39) - 2));
+    }
+
+    @Test
+    public void testOverwriteAndClear() {
+        GHLongLongDenseMap instance = new GHLongLongDenseMap(new RAMDirectory(), "test", 5, -1);
+        assertEquals(-1, instance.put(10_000_000_000L, 5));
+        assertEquals(5, instance.put(10_000_000_000L, -7));
+        assertEquals(-7, instance.get(10_000_000_000L));
+        assertEquals(1, instance.getSize());
+        instance.clear();
+        assertEquals(0, instance.getSize());
+        assertEquals(-1, instance.get(10_000_000_000L));
+        instance.put(10_000_000_000L, 3);
+        assertEquals(3, instance.get(10_000_000_000L));
+    }
+
+    @Test
+    public void testRandom() {
+        Random rand = new Random(123);
+        for (int bytesPerValue = 4; bytesPerValue <= 5; bytesPerValue++) {
+            GHLongLongDenseMap instance = new GHLongLongDenseMap(new RAMDirectory(), "test", bytesPerValue, -1);
+            Map<Long, Long> map = new HashMap<>();
+            for (int i = 0; i < 100_000; i++) {
+                // mostly dense keys, but also some negative and some very large ones
+                long key = i % 100 == 0 ? rand.nextLong() : rand.nextInt(1_000_000) + 12_000_000_000L;
+                long value = rand.nextInt(Integer.MAX_VALUE) - (Integer.MAX_VALUE / 2);
+                if (value == -1)
+                    continue;
+                assertEquals(map.getOrDefault(key, -1L), instance.put(key, value));
+                map.put(key, value);
+            }
+            assertEquals(map.size(), instance.getSize());
+            for (Map.Entry<Long, Long> e : map.entrySet())
+                assertEquals(e.getValue(), instance.get(e.getKey()));
+            for (int i = 0; i < 1000; i++) {
+                long key = rand.nextInt(2_000_000) + 11_500_000_000L;
+                assertEquals(map.getOrDefault(key, -1L), instance.get(key));
+            }
+        }
+    }
+}
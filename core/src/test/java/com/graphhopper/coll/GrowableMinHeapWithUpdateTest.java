@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GrowableMinHeapWithUpdateTest implements BinaryHeapTestInterface {
+
+    private GrowableMinHeapWithUpdate heap;
+
+    @Override
+    public void create(int capacity) {
+        // start small to make sure growing the heap is tested as well
+        heap = new GrowableMinHeapWithUpdate(1);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void push(int id, float val) {
+        heap.push(id, val);
+    }
+
+    @Override
+    public int peekId() {
+        return heap.peekId();
+    }
+
+    @Override
+    public float peekVal() {
+        return (float) heap.peekValue();
+    }
+
+    @Override
+    public void update(int id, float val) {
+        heap.update(id, val);
+    }
+
+    @Override
+    public int poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    @Test
+    void grow() {
+        create(1);
+        heap.push(1000, 0.5);
+        heap.push(3, 0.1);
+        assertEquals(1001, heap.getCapacity());
+        assertTrue(heap.contains(1000));
+        assertFalse(heap.contains(999));
+        assertFalse(heap.contains(5000));
+        assertEquals(3, heap.poll());
+        assertEquals(1000, heap.poll());
+        assertThrows(IllegalArgumentException.class, () -> heap.push(-1, 1.2));
+    }
+
+    @Test
+    void duplicateElements() {
+        create(5);
+        push(1, 0.2f);
+        push(0, 0.4f);
+        push(2, 0.1f);
+        assertEquals(2, poll());
+        // pushing 2 again is ok because it was polled before
+        push(2, 0.6f);
+        // but now its not ok to push it again
+        assertThrows(IllegalStateException.class, () -> push(2, 0.4f));
+    }
+
+    @Test
+    void containsAfterClear() {
+        create(4);
+        push(1, 0.1f);
+        push(2, 0.1f);
+        assertEquals(2, size());
+        clear();
+        assertFalse(heap.contains(0));
+        assertFalse(heap.contains(1));
+        assertFalse(heap.contains(2));
+    }
+}
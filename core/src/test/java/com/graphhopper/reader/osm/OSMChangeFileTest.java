@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderWay;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OSMChangeFileTest {
+
+    @Test
+    public void read() throws Exception {
+        File file = new File("target/test.osc");
+        Files.write(file.toPath(), ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<osmChange version=\"0.6\" generator=\"test\">\n"
+                + "  <modify>\n"
+                + "    <node id=\"10\" version=\"2\" lat=\"51.1\" lon=\"12.2\"/>\n"
+                + "    <way id=\"20\" version=\"5\">\n"
+                + "      <nd ref=\"10\"/>\n"
+                + "      <nd ref=\"11\"/>\n"
+                + "      <tag k=\"highway\" v=\"primary\"/>\n"
+                + "    </way>\n"
+                + "  </modify>\n"
+                + "  <delete>\n"
+                + "    <way id=\"21\" version=\"3\">\n"
+                + "      <nd ref=\"12\"/>\n"
+                + "    </way>\n"
+                + "    <node id=\"12\" version=\"4\"/>\n"
+                + "  </delete>\n"
+                + "  <create>\n"
+                + "    <relation id=\"30\" version=\"1\">\n"
+                + "      <member type=\"way\" ref=\"20\" role=\"\"/>\n"
+                + "      <tag k=\"type\" v=\"route\"/>\n"
+                + "    </relation>\n"
+                + "  </create>\n"
+                + "</osmChange>").getBytes(StandardCharsets.UTF_8));
+        List<OSMChangeFile.Change> changes = new ArrayList<>();
+        try (OSMChangeFile changeFile = new OSMChangeFile(file)) {
+            OSMChangeFile.Change change;
+            while ((change = changeFile.getNext()) != null)
+                changes.add(change);
+        } finally {
+            file.delete();
+        }
+        assertEquals(5, changes.size());
+
+        assertEquals(OSMChangeFile.Action.MODIFY, changes.get(0).getAction());
+        ReaderNode node = (ReaderNode) changes.get(0).getElement();
+        assertEquals(10, node.getId());
+        assertEquals(51.1, node.getLat());
+
+        assertEquals(OSMChangeFile.Action.MODIFY, changes.get(1).getAction());
+        ReaderWay way = (ReaderWay) changes.get(1).getElement();
+        assertEquals(20, way.getId());
+        assertEquals(2, way.getNodes().size());
+        assertEquals("primary", way.getTag("highway"));
+
+        assertEquals(OSMChangeFile.Action.DELETE, changes.get(2).getAction());
+        assertEquals(ReaderElement.Type.WAY, changes.get(2).getElement().getType());
+        assertEquals(21, changes.get(2).getElement().getId());
+        assertEquals(OSMChangeFile.Action.DELETE, changes.get(3).getAction());
+        assertEquals(ReaderElement.Type.NODE, changes.get(3).getElement().getType());
+
+        assertEquals(OSMChangeFile.Action.CREATE, changes.get(4).getAction());
+        assertEquals(ReaderElement.Type.RELATION, changes.get(4).getElement().getType());
+        assertEquals("route", changes.get(4).getElement().getTag("type"));
+    }
+}
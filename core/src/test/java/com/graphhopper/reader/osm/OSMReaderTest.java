@@ -41,9 +41,13 @@ import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -58,11 +62,11 @@ import static org.junit.jupiter.api.Assertions.*;
  * @author Peter Karich
  */
 public class OSMReaderTest {
-    private final String file1 = "test-osm.xml";
-    private final String file2 = "test-osm2.xml";
-    private final String file3 = "test-osm3.xml";
-    private final String file4 = "test-osm4.xml";
-    private final String fileBarriers = "test-barriers.xml";
+    private static final String file1 = "test-osm.xml";
+    private static final String file2 = "test-osm2.xml";
+    private static final String file3 = "test-osm3.xml";
+    private static final String file4 = "test-osm4.xml";
+    private static final String fileBarriers = "test-barriers.xml";
     private final String dir = "./target/tmp/test-db";
     private BooleanEncodedValue carAccessEnc;
     private DecimalEncodedValue carSpeedEnc;
@@ -983,10 +987,130 @@ public class OSMReaderTest {
         assertEquals("B8, B12", OSMReader.fixWayName("B8; B12"));
     }
 
+    @Test
+    public void testWayThreads() {
+        GraphHopper sequential = importAndorra(1);
+        GraphHopper parallel = importAndorra(4);
+        assertSameGraph(sequential.getBaseGraph(), parallel.getBaseGraph());
+        assertEquals(sequential.getEncodingManager().getIntsForFlags(), parallel.getEncodingManager().getIntsForFlags());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {file1, file2, fileBarriers, file3, "test-osm6.pbf"})
+    public void testDenseNodeIdMap(String file) {
+        GraphHopper btree = new GraphHopperFacade(file).setGraphHopperLocation(dir + "/btree").importOrLoad();
+        GraphHopperFacade dense = new GraphHopperFacade(file);
+        dense.setGraphHopperLocation(dir + "/dense");
+        dense.getReaderConfig().setDenseNodeIdMap(true);
+        dense.importOrLoad();
+        assertSameGraph(btree.getBaseGraph(), dense.getBaseGraph());
+    }
+
+    @Test
+    public void testMemoryMappedPbf() {
+        String file = "test-osm6.pbf";
+        GraphHopper stream = new GraphHopperFacade(file).setGraphHopperLocation(dir + "/stream").importOrLoad();
+        GraphHopperFacade mapped = new GraphHopperFacade(file);
+        mapped.setGraphHopperLocation(dir + "/mapped");
+        mapped.getReaderConfig().setMemoryMappedPbf(true);
+        mapped.importOrLoad();
+        assertSameGraph(stream.getBaseGraph(), mapped.getBaseGraph());
+    }
+
+    private static void assertSameGraph(BaseGraph expected, BaseGraph actual) {
+        assertEquals(expected.getNodes(), actual.getNodes());
+        assertEquals(expected.getEdges(), actual.getEdges());
+        for (int node = 0; node < expected.getNodes(); node++) {
+            assertEquals(expected.getNodeAccess().getLat(node), actual.getNodeAccess().getLat(node));
+            assertEquals(expected.getNodeAccess().getLon(node), actual.getNodeAccess().getLon(node));
+        }
+        AllEdgesIterator iter = expected.getAllEdges();
+        while (iter.next()) {
+            EdgeIteratorState edge = actual.getEdgeIteratorState(iter.getEdge(), iter.getAdjNode());
+            assertEquals(iter.getBaseNode(), edge.getBaseNode());
+            assertEquals(iter.getDistance(), edge.getDistance());
+            assertEquals(iter.getFlags(), edge.getFlags(), "edge " + iter.getEdge());
+            assertEquals(iter.getKeyValues(), edge.getKeyValues());
+            assertEquals(iter.fetchWayGeometry(FetchMode.ALL), edge.fetchWayGeometry(FetchMode.ALL));
+        }
+    }
+
+    private GraphHopper importAndorra(int wayThreads) {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../core/files/andorra.osm.pbf").
+                setStoreOnFlush(false).
+                setGraphHopperLocation(dir + "/" + wayThreads).
+                setProfiles(
+                        new Profile("car").setVehicle("car").setWeighting("fastest").setTurnCosts(true),
+                        new Profile("bike").setVehicle("bike").setWeighting("fastest"),
+                        new Profile("foot").setVehicle("foot").setWeighting("fastest")
+                ).
+                setMinNetworkSize(0);
+        hopper.getReaderConfig().setWayThreads(wayThreads);
+        hopper.importOrLoad();
+        return hopper;
+    }
+
     private AreaIndex<CustomArea> createCountryIndex() {
         return new AreaIndex<>(readCountries());
     }
 
+    @Test
+    public void testApplyChanges() throws IOException {
+        GraphHopper hopper = new GraphHopperFacade("test-osm-changes.xml");
+        hopper.getReaderConfig().setStoreOSMNodes(true);
+        hopper.importOrLoad();
+        int edges = hopper.getBaseGraph().getEdges();
+        assertTrue(hasBlockedBarrierEdge(hopper));
+        assertEquals(111, routeCar(hopper, 50.000, 10.002, 50.001, 10.002).getBest().getDistance(), 1);
+
+        // changing the tags of the way must not remove the barrier of its node, which we only know from the stored node tags
+        OSMReader.ChangeResult result = applyChanges(hopper, "<modify><way id=\"10\"><nd ref=\"1\"/><nd ref=\"2\"/><nd ref=\"3\"/><nd ref=\"4\"/>"
+                + "<tag k=\"highway\" v=\"primary\"/><tag k=\"maxspeed\" v=\"30\"/></way></modify>");
+        assertEquals(1, result.getModifiedWays());
+        assertFalse(result.isTopologyChanged());
+        assertTrue(result.getChangedEdges() > 0);
+        assertTrue(hasBlockedBarrierEdge(hopper));
+
+        // removing the barrier requires new edges, because the barrier edge is no longer needed
+        result = applyChanges(hopper, "<modify><node id=\"2\" lat=\"50.000\" lon=\"10.001\"/></modify>");
+        assertEquals(1, result.getChangedNodes());
+        assertTrue(result.isTopologyChanged());
+        assertTrue(hopper.getBaseGraph().getEdges() > edges);
+        assertEquals(214, routeCar(hopper, 50.000, 10.000, 50.000, 10.003).getBest().getDistance(), 1);
+
+        // move a node and create a new way that ends at an existing pillar node
+        result = applyChanges(hopper, "<modify><node id=\"5\" lat=\"50.002\" lon=\"10.002\"/></modify>"
+                + "<create><node id=\"6\" lat=\"50.001\" lon=\"10.001\"/>"
+                + "<way id=\"30\"><nd ref=\"6\"/><nd ref=\"2\"/><tag k=\"highway\" v=\"residential\"/></way></create>");
+        assertEquals(1, result.getCreatedWays());
+        assertTrue(result.isGeometryChanged());
+        assertEquals(222, routeCar(hopper, 50.000, 10.002, 50.002, 10.002).getBest().getDistance(), 1);
+        assertEquals(111, routeCar(hopper, 50.001, 10.001, 50.000, 10.001).getBest().getDistance(), 1);
+        assertEquals(214, routeCar(hopper, 50.000, 10.000, 50.000, 10.003).getBest().getDistance(), 1);
+        hopper.close();
+    }
+
+    private OSMReader.ChangeResult applyChanges(GraphHopper hopper, String changes) throws IOException {
+        File changeFile = new File(dir, "changes.osc");
+        Files.write(changeFile.toPath(), ("<osmChange version=\"0.6\">" + changes + "</osmChange>").getBytes(StandardCharsets.UTF_8));
+        return hopper.applyOSMChanges(changeFile);
+    }
+
+    private boolean hasBlockedBarrierEdge(GraphHopper hopper) {
+        AllEdgesIterator iter = hopper.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            // barrier edges are very short
+            if (iter.getDistance() < 0.01 && !iter.get(carAccessEnc) && !iter.getReverse(carAccessEnc))
+                return true;
+        }
+        return false;
+    }
+
+    private static GHResponse routeCar(GraphHopper hopper, double fromLat, double fromLon, double toLat, double toLon) {
+        return hopper.route(new GHRequest(fromLat, fromLon, toLat, toLon).setProfile("car"));
+    }
+
     class GraphHopperFacade extends GraphHopper {
         public GraphHopperFacade(String osmFile) {
             this(osmFile, false, "");
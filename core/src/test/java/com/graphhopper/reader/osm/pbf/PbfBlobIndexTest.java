@@ -0,0 +1,109 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package com.graphhopper.reader.osm.pbf;
+
+import com.google.protobuf.ByteString;
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.osm.OSMInputFile;
+import com.graphhopper.reader.osm.SkipOptions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openstreetmap.osmosis.osmbinary.Fileformat;
+import org.openstreetmap.osmosis.osmbinary.Osmformat;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PbfBlobIndexTest {
+    private static final File ANDORRA = new File("files/andorra.osm.pbf");
+    private static final File SORTED_ANDORRA = new File("target/andorra-sorted.osm.pbf");
+
+    @BeforeAll
+    public static void createSortedFile() throws IOException {
+        // andorra.osm.pbf is sorted by type, but its header does not declare it
+        byte[] bytes = Files.readAllBytes(ANDORRA.toPath());
+        PbfStreamSplitter splitter = new PbfStreamSplitter(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertTrue(splitter.hasNext());
+        PbfRawBlob headerBlob = splitter.next();
+        assertEquals("OSMHeader", headerBlob.getType());
+        Osmformat.HeaderBlock header = Osmformat.HeaderBlock.parseFrom(PbfBlobDecoder.readBlobContent(headerBlob.getData()));
+        byte[] headerBlock = header.toBuilder().addOptionalFeatures(PbfBlobIndex.SORTED_FEATURE).build().toByteArray();
+        byte[] blob = Fileformat.Blob.newBuilder().setRaw(ByteString.copyFrom(headerBlock)).setRawSize(headerBlock.length).build().toByteArray();
+        byte[] blobHeader = Fileformat.BlobHeader.newBuilder().setType("OSMHeader").setDatasize(blob.length).build().toByteArray();
+        int dataStart = (int) new PbfBlobIndex(ANDORRA).getOffset(1);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(SORTED_ANDORRA))) {
+            out.writeInt(blobHeader.length);
+            out.write(blobHeader);
+            out.write(blob);
+            out.write(bytes, dataStart, bytes.length - dataStart);
+        }
+    }
+
+    @AfterAll
+    public static void cleanUp() {
+        SORTED_ANDORRA.delete();
+    }
+
+    @Test
+    public void unsorted() {
+        PbfBlobIndex index = new PbfBlobIndex(ANDORRA);
+        assertFalse(index.isSortedByType());
+        assertEquals("OSMHeader", index.getType(0));
+        assertEquals("OSMData", index.getType(1));
+        assertEquals(index.getOffset(1), index.getNodeBlobsEnd());
+    }
+
+    @Test
+    public void sorted() throws IOException {
+        PbfBlobIndex index = new PbfBlobIndex(SORTED_ANDORRA);
+        assertTrue(index.isSortedByType());
+        long nodeBlobsEnd = index.getNodeBlobsEnd();
+        // find the first blob that does not only contain nodes the slow way
+        PbfStreamSplitter splitter = new PbfStreamSplitter(new DataInputStream(new BufferedInputStream(new FileInputStream(SORTED_ANDORRA))));
+        int firstNonNodeBlob = -1;
+        for (int blob = 0; splitter.hasNext(); blob++) {
+            PbfRawBlob rawBlob = splitter.next();
+            assertEquals(index.getType(blob), rawBlob.getType());
+            if (firstNonNodeBlob < 0 && rawBlob.getType().equals("OSMData") && !containsOnlyNodes(rawBlob))
+                firstNonNodeBlob = blob;
+        }
+        splitter.release();
+        assertTrue(firstNonNodeBlob > 1, "first non-node blob: " + firstNonNodeBlob);
+        assertEquals(index.getOffset(firstNonNodeBlob), nodeBlobsEnd);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void skipNodeBlobs(boolean memoryMapped) throws Exception {
+        SkipOptions skipNodes = new SkipOptions(true, false, false);
+        List<String> expected = readElements(ANDORRA, skipNodes, memoryMapped);
+        List<String> actual = readElements(SORTED_ANDORRA, skipNodes, memoryMapped);
+        assertTrue(expected.size() > 1000);
+        assertEquals(expected, actual);
+        // without skipping the nodes nothing is skipped
+        assertEquals(readElements(ANDORRA, SkipOptions.none(), memoryMapped), readElements(SORTED_ANDORRA, SkipOptions.none(), memoryMapped));
+    }
+
+    private static boolean containsOnlyNodes(PbfRawBlob blob) throws IOException {
+        Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(PbfBlobDecoder.readBlobContent(blob.getData()));
+        return block.getPrimitivegroupList().stream().allMatch(g -> g.getWaysCount() == 0 && g.getRelationsCount() == 0);
+    }
+
+    private static List<String> readElements(File file, SkipOptions skipOptions, boolean memoryMapped) throws Exception {
+        List<String> elements = new ArrayList<>();
+        try (OSMInputFile in = new OSMInputFile(file).setSkipOptions(skipOptions).setMemoryMapped(memoryMapped).open()) {
+            ReaderElement element;
+            while ((element = in.getNext()) != null) {
+                if (element.getType() != ReaderElement.Type.FILEHEADER)
+                    elements.add(element.getType() + " " + element.getId());
+            }
+        }
+        return elements;
+    }
+}
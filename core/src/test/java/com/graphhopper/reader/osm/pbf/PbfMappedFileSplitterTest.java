@@ -0,0 +1,51 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package com.graphhopper.reader.osm.pbf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PbfMappedFileSplitterTest {
+
+    @Test
+    public void sameBlobsAsStreamSplitter() throws IOException {
+        File file = new File("files/andorra.osm.pbf");
+        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(new BufferedInputStream(new FileInputStream(file))));
+        PbfMappedFileSplitter mappedSplitter = new PbfMappedFileSplitter(file);
+        int blobs = 0;
+        while (streamSplitter.hasNext()) {
+            assertTrue(mappedSplitter.hasNext());
+            PbfRawBlob expected = streamSplitter.next();
+            PbfRawBlob actual = mappedSplitter.next();
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getData(), actual.getData());
+            blobs++;
+        }
+        assertFalse(mappedSplitter.hasNext());
+        assertTrue(blobs > 1);
+        streamSplitter.release();
+        mappedSplitter.release();
+    }
+
+    @Test
+    public void truncatedFile() throws IOException {
+        File file = new File("target/truncated.osm.pbf");
+        byte[] bytes = Files.readAllBytes(new File("files/andorra.osm.pbf").toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+        PbfMappedFileSplitter splitter = new PbfMappedFileSplitter(file);
+        try {
+            RuntimeException ex = assertThrows(RuntimeException.class, () -> {
+                while (splitter.hasNext())
+                    splitter.next();
+            });
+            assertTrue(ex.getCause().getMessage().startsWith("Unexpected end of PBF file"), ex.getCause().getMessage());
+        } finally {
+            splitter.release();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MatrixRoutingTest {
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void random(boolean ch) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        // no offset, otherwise traveling via virtual edges will not be the same as taking the direct edge
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true, accessEnc, speedEnc, null, 0.7, 0.9, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        RoutingCHGraph chGraph = null;
+        if (ch) {
+            CHConfig chConfig = CHConfig.nodeBased("p", weighting);
+            PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+            chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        }
+
+        int strictViolations = 0;
+        for (int run = 0; run < 10; run++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int[] fromNodes = new int[8];
+            int[] toNodes = new int[12];
+            for (int i = 0; i < fromNodes.length; i++)
+                fromNodes[i] = rnd.nextInt(queryGraph.getNodes());
+            for (int i = 0; i < toNodes.length; i++)
+                toNodes[i] = rnd.nextInt(queryGraph.getNodes());
+            // invalid points are skipped
+            toNodes[3] = -1;
+
+            GHMatrixResponse rsp = new GHMatrixResponse(fromNodes.length, toNodes.length);
+            if (ch)
+                MatrixRouting.calcMatrixCH(chGraph, queryGraph, fromNodes, toNodes, rsp);
+            else
+                MatrixRouting.calcMatrixOneToMany(queryGraph, weighting, fromNodes, toNodes, Integer.MAX_VALUE, rsp);
+
+            for (int i = 0; i < fromNodes.length; i++) {
+                for (int j = 0; j < toNodes.length; j++) {
+                    if (toNodes[j] < 0) {
+                        assertFalse(rsp.isConnected(i, j));
+                        continue;
+                    }
+                    Path refPath = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED)
+                            .calcPath(fromNodes[i], toNodes[j]);
+                    String msg = "seed: " + seed + ", " + fromNodes[i] + "->" + toNodes[j];
+                    assertEquals(refPath.isFound(), rsp.isConnected(i, j), msg);
+                    if (!refPath.isFound())
+                        continue;
+                    // CH shortcuts are stored with a limited precision
+                    assertEquals(refPath.getWeight(), rsp.getWeight(i, j), 1.e-2, msg);
+                    // the distance and time can differ if there are multiple shortest paths
+                    if (Math.abs(refPath.getDistance() - rsp.getDistance(i, j)) > 1.e-1
+                            || Math.abs(refPath.getTime() - rsp.getTime(i, j)) > 50)
+                        strictViolations++;
+                }
+            }
+        }
+        assertTrue(strictViolations < 0.05 * 10 * 8 * 12, "too many strict violations: " + strictViolations + ", seed: " + seed);
+    }
+
+    @Test
+    public void sameFromAndTo() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, false, accessEnc, speedEnc, graph.edge(1, 2).setDistance(200));
+        graph.freeze();
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        GHMatrixResponse rsp = new GHMatrixResponse(3, 3);
+        int[] nodes = {0, 1, 2};
+        MatrixRouting.calcMatrixOneToMany(queryGraph, weighting, nodes, nodes, Integer.MAX_VALUE, rsp);
+        assertEquals(0, rsp.getDistance(0, 0));
+        assertEquals(0, rsp.getDistance(1, 1));
+        assertEquals(300, rsp.getDistance(0, 2), 1.e-6);
+        assertEquals(100, rsp.getDistance(1, 0), 1.e-6);
+        // 1->2 is a oneway
+        assertFalse(rsp.isConnected(2, 1));
+        assertFalse(rsp.isConnected(2, 0));
+    }
+}
@@ -77,6 +77,9 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, NODE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_BIDIR_PRIMITIVE, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_BIDIR_PRIMITIVE, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_PRIMITIVE, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, EDGE_BASED),
@@ -84,6 +87,9 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_UNIDIR, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, EDGE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_BIDIR_PRIMITIVE, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_BIDIR_PRIMITIVE, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.LM_BIDIR_PRIMITIVE, false, true, EDGE_BASED),
                     FixtureSupplier.create(Algo.PERFECT_ASTAR, false, false, NODE_BASED)
             ).map(Arguments::of);
         }
@@ -182,6 +188,10 @@ public class RandomizedRoutingTest {
                     return new AStar(graph, graph.wrapWeighting(weighting), traversalMode);
                 case ASTAR_BIDIR:
                     return new AStarBidirection(graph, graph.wrapWeighting(weighting), traversalMode);
+                case DIJKSTRA_BIDIR_PRIMITIVE:
+                    return new DijkstraBidirectionPrimitive(graph, graph.wrapWeighting(weighting), traversalMode);
+                case ASTAR_BIDIR_PRIMITIVE:
+                    return new AStarBidirectionPrimitive(graph, graph.wrapWeighting(weighting), traversalMode);
                 case CH_DIJKSTRA: {
                     CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
                             ? new CHRoutingAlgorithmFactory(new QueryRoutingCHGraph(routingCHGraph, (QueryGraph) graph))
@@ -196,6 +206,9 @@ public class RandomizedRoutingTest {
                 }
                 case LM_BIDIR:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode));
+                case LM_BIDIR_PRIMITIVE:
+                    return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode)
+                            .setHints(new PMap().putObject(Parameters.Routing.POOLED_SPT, true)));
                 case LM_UNIDIR:
                     return new LMRoutingAlgorithmFactory(lm).createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR).setTraversalMode(traversalMode));
                 case PERFECT_ASTAR: {
@@ -218,6 +231,9 @@ public class RandomizedRoutingTest {
         CH_DIJKSTRA,
         LM_BIDIR,
         LM_UNIDIR,
+        DIJKSTRA_BIDIR_PRIMITIVE,
+        ASTAR_BIDIR_PRIMITIVE,
+        LM_BIDIR_PRIMITIVE,
         PERFECT_ASTAR
     }
 
@@ -78,6 +78,7 @@ public class CHTurnCostTest {
     private CHConfig chConfig;
     private RoutingCHGraph chGraph;
     private boolean checkStrict;
+    private int contractionThreads = 1;
 
     @BeforeEach
     public void init() {
@@ -1232,6 +1233,20 @@ public class CHTurnCostTest {
         compareWithDijkstraOnRandomGraph_heuristic(seed);
     }
 
+    @RepeatedTest(5)
+    public void testFindPath_heuristic_parallel_compareWithDijkstra() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testFindPath_heuristic_parallel_compareWithDijkstra: {}", seed);
+        // the graph needs to be large enough so we contract more than one node per round
+        GHUtility.buildRandomGraph(graph, new Random(seed), 500, 2.2, true, true,
+                accessEnc, speedEnc, null, 0.7, 0.9, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, accessEnc, turnCostEnc, maxCost, turnCostStorage);
+        graph.freeze();
+        checkStrict = false;
+        contractionThreads = 4;
+        automaticCompareCHWithDijkstra(200);
+    }
+
     private void compareWithDijkstraOnRandomGraph_heuristic(long seed) {
         GHUtility.buildRandomGraph(graph, new Random(seed), 20, 3.0, true, true,
                 accessEnc, speedEnc, null, 0.7, 0.9, 0.8);
@@ -1311,6 +1326,7 @@ public class CHTurnCostTest {
         pMap.putObject(LAST_LAZY_NODES_UPDATES, 100);
         pMap.putObject(NEIGHBOR_UPDATES, 4);
         pMap.putObject(LOG_MESSAGES, 10);
+        pMap.putObject(CONTRACTION_THREADS, contractionThreads);
         PrepareContractionHierarchies ch = PrepareContractionHierarchies.fromGraph(graph, chConfig);
         ch.setParams(pMap);
         PrepareContractionHierarchies.Result res = ch.doWork();
@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomizableContractionHierarchyTest {
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+
+    @Test
+    public void nodeOrderingContainsAllNodes() {
+        BaseGraph graph = createGrid(new Random(123), 20, 30);
+        int[] ordering = NestedDissection.calcNodeOrdering(graph);
+        int[] sorted = ordering.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            assertEquals(i, sorted[i]);
+    }
+
+    @Test
+    public void separatorsGetHighLevels() {
+        // a long path: the middle node separates the two halves and should be contracted last
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        int nodes = 101;
+        for (int i = 0; i < nodes; i++)
+            graph.getNodeAccess().setNode(i, 50, 10 + i * 0.001);
+        for (int i = 0; i < nodes - 1; i++)
+            GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(i, i + 1).setDistance(100));
+        graph.freeze();
+        CustomizableContractionHierarchy cch = CustomizableContractionHierarchy.fromGraph(graph);
+        assertTrue(cch.getLevel(49) == nodes - 1 || cch.getLevel(50) == nodes - 1);
+        // on a path every contracted node has at most two higher level neighbors, so at most one arc is added per node
+        assertTrue(cch.getArcs() < 2 * nodes, "arcs: " + cch.getArcs());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void sameWeightsAsDijkstra(int threads) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = createGrid(rnd, 40, 50);
+        CustomizableContractionHierarchy cch = CustomizableContractionHierarchy.fromGraph(graph);
+        // the same topology can be customized for different weightings
+        compareWithDijkstra(graph, cch, new FastestWeighting(accessEnc, speedEnc), threads, rnd, seed);
+        compareWithDijkstra(graph, cch, new ShortestWeighting(accessEnc, speedEnc), threads, rnd, seed);
+    }
+
+    @Test
+    public void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        // this includes loops, duplicate edges and edges with zero distance
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.0, true, true, accessEnc, speedEnc, null, 0.7, 0.8, 0.8);
+        graph.freeze();
+        CustomizableContractionHierarchy cch = CustomizableContractionHierarchy.fromGraph(graph);
+        compareWithDijkstra(graph, cch, new FastestWeighting(accessEnc, speedEnc), 2, rnd, seed);
+    }
+
+    @Test
+    public void customizeOnlyEmptyStorage() {
+        BaseGraph graph = createGrid(new Random(123), 5, 5);
+        CustomizableContractionHierarchy cch = CustomizableContractionHierarchy.fromGraph(graph);
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        CHStorage chStorage = CHStorage.fromGraph(graph, CHConfig.nodeBased("c", weighting));
+        cch.customize(weighting, chStorage, 1);
+        assertThrows(IllegalArgumentException.class, () -> cch.customize(weighting, chStorage, 1));
+        assertThrows(IllegalArgumentException.class, () -> cch.customize(weighting,
+                CHStorage.fromGraph(graph, CHConfig.edgeBased("e", weighting)), 1));
+    }
+
+    private void compareWithDijkstra(BaseGraph graph, CustomizableContractionHierarchy cch, Weighting weighting, int threads, Random rnd, long seed) {
+        CHConfig chConfig = CHConfig.nodeBased(weighting.getName() + "_" + threads, weighting);
+        CHStorage chStorage = CHStorage.fromGraph(graph, chConfig);
+        int shortcuts = cch.customize(weighting, chStorage, threads);
+        assertEquals(shortcuts, chStorage.getShortcuts());
+        assertTrue(shortcuts <= 2 * cch.getArcs());
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, chStorage, chConfig);
+        for (int i = 0; i < 200; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path dijkstraPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path chPath = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+            assertEquals(dijkstraPath.isFound(), chPath.isFound(), "seed: " + seed);
+            assertEquals(dijkstraPath.getWeight(), chPath.getWeight(), 1.e-1, "seed: " + seed);
+            assertEquals(dijkstraPath.getDistance(), chPath.getDistance(), 1.e-1, "seed: " + seed);
+        }
+    }
+
+    /**
+     * A grid with random speeds and distances, some one-way and some missing edges
+     */
+    private BaseGraph createGrid(Random rnd, int rows, int cols) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+                graph.getNodeAccess().setNode(row * cols + col, 50 + row * 0.001 + rnd.nextDouble() * 0.0005, 10 + col * 0.0015 + rnd.nextDouble() * 0.0005);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int node = row * cols + col;
+                if (col + 1 < cols)
+                    addRandomEdge(graph, rnd, node, node + 1);
+                if (row + 1 < rows)
+                    addRandomEdge(graph, rnd, node, node + cols);
+            }
+        }
+        graph.freeze();
+        return graph;
+    }
+
+    private void addRandomEdge(BaseGraph graph, Random rnd, int from, int to) {
+        if (rnd.nextDouble() < 0.1)
+            return;
+        double speed = 5 * (1 + rnd.nextInt(20));
+        boolean bwd = rnd.nextDouble() < 0.8;
+        double distance = GHUtility.getDistance(from, to, graph.getNodeAccess()) * (1 + rnd.nextDouble());
+        GHUtility.setSpeed(speed, true, bwd, accessEnc, speedEnc, graph.edge(from, to).setDistance(distance));
+    }
+}
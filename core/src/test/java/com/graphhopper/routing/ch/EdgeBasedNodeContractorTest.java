@@ -18,6 +18,9 @@
 
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntContainer;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
@@ -34,6 +37,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -1427,6 +1433,34 @@ public class EdgeBasedNodeContractorTest {
         );
     }
 
+    @Test
+    public void testStatisticsCountNodesContractedInParallel() {
+        // 0-1-2-3-4-5
+        for (int i = 0; i < 5; i++)
+            GHUtility.setSpeed(60, 60, accessEnc, speedEnc, graph.edge(i, i + 1).setDistance(10));
+        freeze();
+        setMaxLevelOnAllNodes();
+        EdgeBasedNodeContractor nodeContractor = createNodeContractor();
+        contractNode(nodeContractor, 0, 0);
+        contractNode(nodeContractor, 5, 1);
+        // 2 and 4 are independent, so they can be contracted concurrently
+        GHBitSet roundNodes = new GHBitSetImpl(graph.getNodes());
+        roundNodes.add(2);
+        roundNodes.add(4);
+        List<Supplier<IntContainer>> contractions = new ArrayList<>();
+        for (int node : new int[]{2, 4})
+            contractions.add(nodeContractor.createWorker(roundNodes).findShortcuts(node));
+        chBuilder.setLevel(2, 2);
+        chBuilder.setLevel(4, 3);
+        contractions.forEach(Supplier::get);
+        nodeContractor.finishContraction();
+
+        String statistics = nodeContractor.getStatisticsString();
+        Matcher matcher = Pattern.compile("contraction: time: +[0-9.]+s, nodes: +(\\d+)").matcher(statistics);
+        assertTrue(matcher.find(), statistics);
+        assertEquals(4, Integer.parseInt(matcher.group(1)), statistics);
+    }
+
     private void contractNode(NodeContractor nodeContractor, int node, int level) {
         chBuilder.setLevel(node, level);
         nodeContractor.contractNode(node);
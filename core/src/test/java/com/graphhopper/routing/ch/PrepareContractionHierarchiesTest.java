@@ -580,6 +580,43 @@ public class PrepareContractionHierarchiesTest {
         }
     }
 
+    @Test
+    public void testParallelContraction() {
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, numNodes, 2.0, true, true, accessEnc, speedEnc, null, 0.7, 0.9, 0.8);
+        g.freeze();
+        CHConfig fastestConfig = CHConfig.nodeBased("c", new FastestWeighting(accessEnc, speedEnc));
+        PrepareContractionHierarchies.Result sequential = PrepareContractionHierarchies.fromGraph(g, fastestConfig).doWork();
+        PrepareContractionHierarchies.Result parallel = PrepareContractionHierarchies.fromGraph(g, CHConfig.nodeBased("p", fastestConfig.getWeighting()))
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4))
+                .doWork();
+        // the parallel contraction does not use any witnesses from the same round, so it can add a few more shortcuts
+        assertTrue(parallel.getShortcuts() < 1.5 * sequential.getShortcuts(),
+                "too many shortcuts: " + parallel.getShortcuts() + " vs. " + sequential.getShortcuts() + ", seed: " + seed);
+
+        RoutingCHGraph sequentialCH = RoutingCHGraphImpl.fromGraph(g, sequential.getCHStorage(), sequential.getCHConfig());
+        RoutingCHGraph parallelCH = RoutingCHGraphImpl.fromGraph(g, parallel.getCHStorage(), parallel.getCHConfig());
+        long sequentialVisitedNodes = 0;
+        long parallelVisitedNodes = 0;
+        for (int i = 0; i < 200; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            Path dijkstraPath = new Dijkstra(g, fastestConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(from, to);
+            RoutingAlgorithm sequentialAlgo = new CHRoutingAlgorithmFactory(sequentialCH).createAlgo(new PMap());
+            RoutingAlgorithm parallelAlgo = new CHRoutingAlgorithmFactory(parallelCH).createAlgo(new PMap());
+            Path parallelPath = parallelAlgo.calcPath(from, to);
+            sequentialAlgo.calcPath(from, to);
+            assertEquals(dijkstraPath.isFound(), parallelPath.isFound(), "seed: " + seed);
+            assertEquals(dijkstraPath.getWeight(), parallelPath.getWeight(), 1.e-1, "seed: " + seed);
+            sequentialVisitedNodes += sequentialAlgo.getVisitedNodes();
+            parallelVisitedNodes += parallelAlgo.getVisitedNodes();
+        }
+        assertTrue(parallelVisitedNodes < 2 * sequentialVisitedNodes,
+                "queries are too slow: " + parallelVisitedNodes + " vs. " + sequentialVisitedNodes + ", seed: " + seed);
+    }
+
     private void checkPath(BaseGraph g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
         useNodeOrdering(prepare, nodeOrdering);
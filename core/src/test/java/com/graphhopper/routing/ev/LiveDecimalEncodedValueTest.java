@@ -0,0 +1,66 @@
+package com.graphhopper.routing.ev;
+
+import com.graphhopper.routing.util.EncodingManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiveDecimalEncodedValueTest {
+
+    @Test
+    public void testSetValues() {
+        LiveDecimalEncodedValue ev = new LiveDecimalEncodedValue("live_speed", 100);
+        EdgeIntAccess edgeIntAccess = new ArrayEdgeIntAccess(1);
+        assertEquals(0, ev.getDecimal(false, 3, edgeIntAccess));
+
+        float[] values = ev.copyValues(5);
+        assertEquals(10, values.length);
+        values[2 * 3] = 50;
+        values[2 * 3 + 1] = 20.5f;
+        ev.setValues(values);
+        assertEquals(50, ev.getDecimal(false, 3, edgeIntAccess));
+        assertEquals(20.5, ev.getDecimal(true, 3, edgeIntAccess));
+        assertEquals(0, ev.getDecimal(false, 2, edgeIntAccess));
+        // edges that were added after the last update, or virtual edges without an original edge
+        assertEquals(0, ev.getDecimal(false, 5, edgeIntAccess));
+        assertEquals(0, ev.getDecimal(false, -1, edgeIntAccess));
+
+        // the published values are not changed by a copy
+        float[] copy = ev.copyValues(5);
+        copy[2 * 3] = 10;
+        assertEquals(50, ev.getDecimal(false, 3, edgeIntAccess));
+        ev.setValues(copy);
+        assertEquals(10, ev.getDecimal(false, 3, edgeIntAccess));
+
+        ev.clear();
+        assertEquals(0, ev.getDecimal(false, 3, edgeIntAccess));
+    }
+
+    @Test
+    public void testInvalidValues() {
+        LiveDecimalEncodedValue ev = new LiveDecimalEncodedValue("live_speed", 100);
+        assertThrows(IllegalArgumentException.class, () -> ev.setValues(new float[3]));
+        assertThrows(IllegalArgumentException.class, () -> ev.setValues(new float[]{0, 101}));
+        assertThrows(IllegalArgumentException.class, () -> ev.setValues(new float[]{-1, 0}));
+        assertThrows(IllegalArgumentException.class, () -> ev.setValues(new float[]{Float.NaN, 0}));
+        assertThrows(UnsupportedOperationException.class, () -> ev.setDecimal(false, 0, new ArrayEdgeIntAccess(1), 10));
+        assertThrows(IllegalArgumentException.class, () -> new LiveDecimalEncodedValue("Live Speed", 100));
+    }
+
+    @Test
+    public void testLookup() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(speedEnc).build();
+        LiveDecimalEncodedValue liveSpeed = new LiveDecimalEncodedValue("live_speed", 100);
+        LiveEncodedValueLookup lookup = new LiveEncodedValueLookup(em, Collections.singletonList(liveSpeed));
+        assertTrue(lookup.hasEncodedValue("speed"));
+        assertTrue(lookup.hasEncodedValue("live_speed"));
+        assertSame(liveSpeed, lookup.getDecimalEncodedValue("live_speed"));
+        assertSame(speedEnc, lookup.getDecimalEncodedValue("speed"));
+        assertEquals(em.getEncodedValues().size() + 1, lookup.getEncodedValues().size());
+        assertThrows(IllegalArgumentException.class, () -> new LiveEncodedValueLookup(em,
+                Collections.singletonList(new LiveDecimalEncodedValue("speed", 100))));
+    }
+}
@@ -36,6 +36,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
@@ -135,6 +136,32 @@ public class LandmarkStorageTest {
         assertEquals("[5, 4]", Arrays.toString(storage.getLandmarks(2)));
     }
 
+    @Test
+    public void testLandmarkThreads() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 500, 2.2, true, true, accessEnc, speedEnc, 60d, 0.7, 0.8, 0.8);
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        subnetworkRemoval(weighting, 10);
+
+        LandmarkStorage sequential = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8);
+        sequential.setMinimumNodes(10);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), new LMConfig("car", weighting), 8);
+        parallel.setMinimumNodes(10);
+        parallel.setLandmarkThreads(4);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks(), "seed: " + seed);
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++)
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork), "seed: " + seed);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lm = 0; lm < 8; lm++) {
+                assertEquals(sequential.getFromWeight(lm, node), parallel.getFromWeight(lm, node), "seed: " + seed);
+                assertEquals(sequential.getToWeight(lm, node), parallel.getToWeight(lm, node), "seed: " + seed);
+            }
+        }
+    }
+
     @Test
     public void testWithStronglyConnectedComponent() {
         // 0 - 1 - 2 = 3 - 4
@@ -41,6 +41,8 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 
+import static com.graphhopper.search.KVStorage.KeyValue.STREET_NAME;
+import static com.graphhopper.search.KVStorage.KeyValue.createKV;
 import static com.graphhopper.storage.index.Snap.Position.*;
 import static com.graphhopper.util.EdgeIteratorState.UNFAVORED_EDGE;
 import static com.graphhopper.util.GHUtility.updateDistancesFor;
@@ -806,6 +808,46 @@ public class QueryGraphTest {
         assertFalse(iter.next());
     }
 
+    @Test
+    public void testWayGeometry_sharedBetweenVirtualEdges() {
+        // 0 - * - x - * - y - 1
+        NodeAccess na = g.getNodeAccess();
+        na.setNode(0, 0, 0);
+        na.setNode(1, 0.3, 0.3);
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, g.edge(0, 1).setDistance(10)).
+                setWayGeometry(Helper.createPointList(0.1, 0.1, 0.2, 0.2)).setKeyValues(createKV(STREET_NAME, "main"));
+
+        LocationIndexTree locationIndex = new LocationIndexTree(g, new RAMDirectory());
+        locationIndex.prepareIndex();
+        Snap snap1 = locationIndex.findClosest(0.15, 0.15, AccessFilter.allEdges(accessEnc));
+        Snap snap2 = locationIndex.findClosest(0.25, 0.25, AccessFilter.allEdges(accessEnc));
+        QueryGraph queryGraph = lookup(Arrays.asList(snap1, snap2));
+        assertEquals(Helper.createPointList(0, 0, 0.1, 0.1, 0.15, 0.15),
+                GHUtility.getEdge(queryGraph, 0, 2).fetchWayGeometry(FetchMode.ALL));
+        assertEquals(Helper.createPointList(0.15, 0.15, 0.2, 0.2, 0.25, 0.25),
+                GHUtility.getEdge(queryGraph, 2, 3).fetchWayGeometry(FetchMode.ALL));
+        assertEquals(Helper.createPointList(0.3, 0.3, 0.25, 0.25),
+                GHUtility.getEdge(queryGraph, 1, 3).fetchWayGeometry(FetchMode.ALL));
+        assertEquals(Helper.createPointList(0.2, 0.2), GHUtility.getEdge(queryGraph, 3, 2).fetchWayGeometry(FetchMode.PILLAR_ONLY));
+
+        for (int node = 2; node < 4; node++) {
+            EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(node);
+            while (iter.next()) {
+                PointList points = iter.fetchWayGeometry(FetchMode.ALL);
+                PointList reversePoints = iter.detach(false).detach(true).fetchWayGeometry(FetchMode.ALL);
+                assertEquals(points.clone(true), reversePoints);
+                assertEquals(DistancePlaneProjection.DIST_PLANE.calcDistance(points), iter.getDistance(), 1.e-9);
+                assertEquals("main", iter.getName());
+            }
+        }
+
+        // the key values are read from the original edge, but they can still be overwritten
+        EdgeIteratorState edge = GHUtility.getEdge(queryGraph, 2, 3).detach(false);
+        edge.setKeyValues(createKV(STREET_NAME, "other"));
+        assertEquals("other", edge.getName());
+        assertEquals("other", edge.detach(true).getName());
+    }
+
     @Test
     public void testVirtualEdgeDistance() {
         //   x
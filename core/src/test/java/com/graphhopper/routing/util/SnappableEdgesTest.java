@@ -0,0 +1,92 @@
+package com.graphhopper.routing.util;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnappableEdgesTest {
+    private static final String LOCATION = "./target/snappable-edges-test";
+
+    @AfterEach
+    public void tearDown() {
+        Helper.removeDir(new File(LOCATION));
+    }
+
+    @Test
+    public void prepareAndLoad() {
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+        EncodingManager em = EncodingManager.start().add(accessEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // more than 32 edges, so we need more than one int
+        for (int i = 0; i < 70; i++)
+            graph.edge(i, i + 1).setDistance(10).set(accessEnc, i % 3 == 0, false);
+        EdgeFilter filter = edge -> edge.get(accessEnc);
+
+        SnappableEdges edges = new SnappableEdges(new RAMDirectory(LOCATION, true).create(), "car").prepare(graph, filter);
+        edges.flush();
+        edges.close();
+
+        edges = new SnappableEdges(new RAMDirectory(LOCATION, true), "car");
+        assertTrue(edges.loadExisting());
+        assertEquals(70, edges.getEdges());
+        for (int i = 0; i < 70; i++)
+            assertEquals(i % 3 == 0, edges.isSnappable(i), "edge " + i);
+        // edges that did not exist yet are never skipped
+        assertTrue(edges.isSnappable(70));
+        edges.close();
+        assertFalse(new SnappableEdges(new RAMDirectory(LOCATION, true), "bike").loadExisting());
+    }
+
+    @Test
+    public void skipEdgesWhenSnapping() {
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+        EncodingManager em = EncodingManager.start().add(accessEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        // 0-1 is closer to the query point than 2-3, but it cannot be snapped to
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.000, 10.002);
+        na.setNode(2, 50.001, 10.000);
+        na.setNode(3, 50.001, 10.002);
+        graph.edge(0, 1).setDistance(140);
+        graph.edge(2, 3).setDistance(140).set(accessEnc, true, true);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+
+        EdgeFilter accessFilter = edge -> edge.get(accessEnc);
+        SnappableEdges edges = new SnappableEdges(new RAMDirectory(), "car").prepare(graph, accessFilter);
+        assertFalse(edges.isSnappable(0));
+        assertTrue(edges.isSnappable(1));
+        EdgeFilter filter = new EdgeFilter() {
+            @Override
+            public boolean accept(EdgeIteratorState edgeState) {
+                if (edgeState.getEdge() == 0)
+                    throw new IllegalStateException("edge 0 should have been skipped");
+                return accessFilter.accept(edgeState);
+            }
+
+            @Override
+            public boolean acceptEdgeId(int edgeId) {
+                return edges.isSnappable(edgeId);
+            }
+        };
+        Snap snap = index.findClosest(50.0002, 10.001, new SnapPreventionEdgeFilter(filter,
+                em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class), em.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class),
+                Collections.singletonList("ferry")));
+        assertEquals(1, snap.getClosestEdge().getEdge());
+        assertEquals(1, index.findNClosest(50.0002, 10.001, filter, 5, 1000).size());
+        assertEquals(1, index.findClosest(new double[]{50.0002}, new double[]{10.001}, filter)[0].getClosestEdge().getEdge());
+    }
+}
@@ -30,6 +30,7 @@ import com.graphhopper.util.PMap;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -82,6 +83,58 @@ class TagParsingTest {
         assertTrue(bike1PriorityEnc.getDecimal(false, edgeId, edgeIntAccess) > bike2PriorityEnc.getDecimal(false, edgeId, edgeIntAccess));
     }
 
+    @Test
+    public void testRestoreRelationFlags() {
+        EnumEncodedValue<RouteNetwork> bikeNetworkEnc = RouteNetwork.create(BikeNetwork.KEY);
+        EnumEncodedValue<RouteNetwork> footNetworkEnc = RouteNetwork.create(FootNetwork.KEY);
+        EncodingManager em = EncodingManager.start().add(bikeNetworkEnc).add(footNetworkEnc).build();
+        OSMParsers osmParsers = new OSMParsers()
+                .addRelationTagParser(relConfig -> new OSMBikeNetworkTagParser(bikeNetworkEnc, relConfig))
+                .addRelationTagParser(relConfig -> new OSMFootNetworkTagParser(footNetworkEnc, relConfig));
+        ReaderRelation bikeRel = new ReaderRelation(1);
+        bikeRel.setTag("route", "bicycle");
+        bikeRel.setTag("network", "rcn");
+        ReaderRelation footRel = new ReaderRelation(2);
+        footRel.setTag("route", "hiking");
+        footRel.setTag("network", "iwn");
+        IntsRef relFlags = osmParsers.createRelationFlags();
+        osmParsers.handleRelationTags(bikeRel, relFlags);
+        osmParsers.handleRelationTags(footRel, relFlags);
+        EdgeIntAccess edgeIntAccess = new ArrayEdgeIntAccess(em.getIntsForFlags());
+        osmParsers.handleWayTags(0, edgeIntAccess, new ReaderWay(1), relFlags);
+        assertEquals(RouteNetwork.REGIONAL, bikeNetworkEnc.getEnum(false, 0, edgeIntAccess));
+        assertEquals(RouteNetwork.INTERNATIONAL, footNetworkEnc.getEnum(false, 0, edgeIntAccess));
+
+        // parsing the way again with the restored relation flags yields the same values
+        IntsRef restored = osmParsers.restoreRelationFlags(0, edgeIntAccess);
+        assertEquals(relFlags, restored);
+        EdgeIntAccess newEdgeIntAccess = new ArrayEdgeIntAccess(em.getIntsForFlags());
+        osmParsers.handleWayTags(0, newEdgeIntAccess, new ReaderWay(1), restored);
+        assertEquals(RouteNetwork.REGIONAL, bikeNetworkEnc.getEnum(false, 0, newEdgeIntAccess));
+        assertEquals(RouteNetwork.INTERNATIONAL, footNetworkEnc.getEnum(false, 0, newEdgeIntAccess));
+    }
+
+    @Test
+    public void testRelationTagParsersWithoutRestore() {
+        EnumEncodedValue<RouteNetwork> bikeNetworkEnc = RouteNetwork.create(BikeNetwork.KEY);
+        OSMParsers osmParsers = new OSMParsers()
+                .addRelationTagParser(relConfig -> new OSMBikeNetworkTagParser(bikeNetworkEnc, relConfig));
+        assertTrue(osmParsers.getRelationTagParsersWithoutRestore().isEmpty());
+
+        // a parser that does not override restoreRelationFlags uses the default, which does nothing
+        RelationTagParser customParser = new RelationTagParser() {
+            @Override
+            public void handleRelationTags(IntsRef relFlags, ReaderRelation relation) {
+            }
+
+            @Override
+            public void handleWayTags(int edgeId, EdgeIntAccess edgeIntAccess, ReaderWay way, IntsRef relationFlags) {
+            }
+        };
+        osmParsers.addRelationTagParser(relConfig -> customParser);
+        assertEquals(Collections.singletonList(customParser), osmParsers.getRelationTagParsersWithoutRestore());
+    }
+
     @Test
     public void testMixBikeTypesAndRelationCombination() {
         ReaderWay osmWay = new ReaderWay(1);
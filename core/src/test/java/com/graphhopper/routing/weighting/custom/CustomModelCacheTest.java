@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomModelCacheTest {
+
+    @Test
+    void hitsAndMisses() {
+        CustomModelCache cache = new CustomModelCache(10);
+        assertEquals(String.class, cache.get("a", () -> String.class));
+        assertEquals(String.class, cache.get("a", () -> Integer.class));
+        assertEquals(Integer.class, cache.get("b", () -> Integer.class));
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getSize());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    void evictLeastRecentlyAccessed() throws InterruptedException {
+        CustomModelCache cache = new CustomModelCache(2);
+        cache.get("a", () -> String.class);
+        cache.get("b", () -> Integer.class);
+        // make sure the access times differ even for a coarse clock
+        Thread.sleep(1);
+        cache.get("a", () -> Long.class);
+        cache.get("c", () -> Double.class);
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(String.class, cache.get("a", () -> Long.class));
+        assertEquals(Long.class, cache.get("b", () -> Long.class));
+    }
+
+    @Test
+    void moveTo() {
+        CustomModelCache internal = new CustomModelCache(Integer.MAX_VALUE);
+        CustomModelCache cache = new CustomModelCache(10);
+        internal.get("a", () -> String.class);
+        internal.get("b", () -> Integer.class);
+        assertNull(cache.getIfPresent("a"));
+        internal.moveTo(cache);
+        assertEquals(0, internal.getSize());
+        assertEquals(2, cache.getSize());
+        assertEquals(String.class, cache.getIfPresent("a"));
+        assertEquals(Integer.class, cache.get("b", () -> Long.class));
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    void doNotCacheFailures() {
+        CustomModelCache cache = new CustomModelCache(10);
+        assertThrows(IllegalArgumentException.class, () -> cache.get("a", () -> {
+            throw new IllegalArgumentException("cannot compile");
+        }));
+        assertEquals(0, cache.getSize());
+        assertEquals(String.class, cache.get("a", () -> String.class));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void disabled() {
+        CustomModelCache cache = new CustomModelCache(0);
+        assertEquals(String.class, cache.get("a", () -> String.class));
+        assertEquals(Integer.class, cache.get("a", () -> Integer.class));
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void compileOnlyOnceForConcurrentMisses() throws Exception {
+        CustomModelCache cache = new CustomModelCache(10);
+        AtomicInteger compilations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Class<?>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+                futures.add(executorService.submit(() -> cache.get("a", () -> {
+                    compilations.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return String.class;
+                })));
+            started.await();
+            // give the other threads some time to run into the pending compilation
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<Class<?>> future : futures)
+                assertEquals(String.class, future.get());
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(1, compilations.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(threads - 1, cache.getHits());
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.graphhopper.routing.weighting.custom;
 
+import com.graphhopper.routing.RoutingMetrics;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.BaseGraph;
@@ -30,9 +31,11 @@ import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 
 import static com.graphhopper.json.Statement.*;
 import static com.graphhopper.json.Statement.Op.LIMIT;
@@ -62,6 +65,28 @@ class CustomModelParserTest {
         maxSpeed = 140;
     }
 
+    @Test
+    void metrics() {
+        List<Boolean> cacheHits = new ArrayList<>();
+        CustomModelParser.setMetrics(new RoutingMetrics() {
+            @Override
+            public void customModel(boolean cacheHit, long compileNanos) {
+                assertEquals(cacheHit, compileNanos == 0);
+                cacheHits.add(cacheHit);
+            }
+        });
+        try {
+            // use a unique custom model, because the cache is shared by all tests
+            CustomModel customModel = new CustomModel();
+            customModel.addToPriority(If("road_class == TRACK", MULTIPLY, "0.123456"));
+            CustomModelParser.createWeightingParameters(customModel, encodingManager, avgSpeedEnc, maxSpeed, null);
+            CustomModelParser.createWeightingParameters(customModel, encodingManager, avgSpeedEnc, maxSpeed, null);
+            assertEquals(Arrays.asList(false, true), cacheHits);
+        } finally {
+            CustomModelParser.setMetrics(RoutingMetrics.NOOP);
+        }
+    }
+
     @Test
     void setPriorityForRoadClass() {
         CustomModel customModel = new CustomModel();
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs all the BaseGraph tests with compressed pillar nodes.
+ */
+public class BaseGraphWithCompressedGeometryTest extends BaseGraphTest {
+
+    @Override
+    protected BaseGraph newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return new BaseGraph.Builder(encodingManager).setDir(dir).set3D(enabled3D).setSegmentSize(segmentSize)
+                .setCompressedGeometry(true).build();
+    }
+
+    @Override
+    @Test
+    public void testDontGrowOnUpdate() {
+        graph = createGHStorage(defaultGraphLoc, true);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 0);
+        na.setNode(1, 11, 20, 1);
+        EdgeIteratorState edge = graph.edge(0, 1).setDistance(100).set(carAccessEnc, true, true);
+        assertEquals(4, graph.getMaxGeoRef());
+        edge.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7, 7, 8, 9));
+        long maxGeoRef = graph.getMaxGeoRef();
+        assertTrue(maxGeoRef > 4);
+        edge.setWayGeometry(Helper.createPointList3D(1, 2, 3, 3, 4, 5, 5, 6, 7));
+        edge.setWayGeometry(Helper.createPointList3D(1, 2, 3));
+        assertEquals(maxGeoRef, graph.getMaxGeoRef());
+        assertEquals(Helper.createPointList3D(1, 2, 3), edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+    }
+
+    @Test
+    public void testZigZag() {
+        for (int value : new int[]{0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            long encoded = BaseGraph.zigZagEncode(value);
+            assertTrue(encoded >= 0);
+            assertEquals(value, BaseGraph.zigZagDecode(encoded));
+        }
+        assertEquals(0, BaseGraph.zigZagEncode(0));
+        assertEquals(1, BaseGraph.zigZagEncode(-1));
+        assertEquals(2, BaseGraph.zigZagEncode(1));
+    }
+
+    @Test
+    public void testLargeDeltasAndReuse() {
+        graph = createGHStorage();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, -179.9);
+        na.setNode(1, 0, 179.9);
+        EdgeIteratorState edge = graph.edge(0, 1);
+        PointList pillars = Helper.createPointList(89.9, -179.8, -89.9, 179.8, 0.00001, 0.00002);
+        edge.setWayGeometry(pillars);
+        assertEquals(pillars, edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        assertEquals(Helper.createPointList(0.00001, 0.00002, -89.9, 179.8, 89.9, -179.8),
+                graph.getEdgeIteratorState(edge.getEdge(), 0).fetchWayGeometry(FetchMode.PILLAR_ONLY));
+
+        // a shorter geometry is stored at the same place
+        long maxGeoRef = graph.getMaxGeoRef();
+        edge.setWayGeometry(Helper.createPointList(1, 2));
+        assertEquals(maxGeoRef, graph.getMaxGeoRef());
+        assertEquals(Helper.createPointList(0, -179.9, 1, 2, 0, 179.9), edge.fetchWayGeometry(FetchMode.ALL));
+    }
+
+    @Test
+    public void testSmallerThanUncompressed() {
+        BaseGraph uncompressed = new BaseGraph.Builder(encodingManager).create();
+        graph = newGHStorage(new RAMDirectory(), false).create(100);
+        for (BaseGraph g : new BaseGraph[]{uncompressed, graph}) {
+            g.getNodeAccess().setNode(0, 50, 10);
+            g.getNodeAccess().setNode(1, 50.01, 10.01);
+            PointList pillars = new PointList(100, false);
+            for (int i = 1; i <= 100; i++)
+                pillars.add(50 + i * 0.0001, 10 + i * 0.0001);
+            g.edge(0, 1).setWayGeometry(pillars);
+            assertEquals(pillars, g.getEdgeIteratorState(0, 1).fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        }
+        // the deltas need two bytes per coordinate instead of four
+        assertTrue(graph.getMaxGeoRef() < 0.55 * uncompressed.getMaxGeoRef(), graph.getMaxGeoRef() + " vs. " + uncompressed.getMaxGeoRef());
+        uncompressed.close();
+    }
+}
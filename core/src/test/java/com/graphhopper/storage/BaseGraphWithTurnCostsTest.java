@@ -22,14 +22,16 @@ import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.search.KVStorage.KeyValue;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Random;
 
 import static com.graphhopper.search.KVStorage.KeyValue.STREET_NAME;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Karl Hübner
@@ -162,6 +164,42 @@ public class BaseGraphWithTurnCostsTest extends BaseGraphTest {
         assertEquals(12, na.getTurnCostIndex(4000));
     }
 
+    @Test
+    public void testRelabel() {
+        graph = createGHStorage(defaultGraphLoc, true);
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 4; node++)
+            na.setNode(node, node, node + 10, node + 20);
+        graph.edge(0, 1).setDistance(10).set(carAccessEnc, true, false);
+        graph.edge(1, 2).setDistance(20).set(carAccessEnc, true, true).setWayGeometry(Helper.createPointList3D(1.5, 11.5, 21.5));
+        graph.edge(2, 3).setDistance(30).set(carAccessEnc, true, true).setKeyValues(KeyValue.createKV(STREET_NAME, "main"));
+        graph.edge(3, 3).setDistance(40);
+        setTurnCost(0, 1, 1, 1337);
+        setTurnCost(1, 2, 2, 666);
+
+        graph.relabel(new int[]{3, 2, 1, 0}, new int[]{2, 0, 1, 3});
+        assertEquals(0, na.getLat(3), 1.e-6);
+        assertEquals(13, na.getLon(0), 1.e-6);
+        assertEquals(22, na.getEle(1), 1.e-6);
+
+        EdgeIteratorState edge = graph.getEdgeIteratorState(2, 2);
+        assertEquals(3, edge.getBaseNode());
+        assertEquals(10, edge.getDistance(), 1.e-6);
+        assertTrue(edge.get(carAccessEnc));
+        assertFalse(edge.getReverse(carAccessEnc));
+        assertEquals(Helper.createPointList3D(1.5, 11.5, 21.5), graph.getEdgeIteratorState(0, 1).fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        assertEquals("main", graph.getEdgeIteratorState(1, 0).getName());
+        assertEquals(40, graph.getEdgeIteratorState(3, 0).getDistance(), 1.e-6);
+
+        assertEquals(1337, graph.getTurnCostStorage().get(turnCostEnc, 2, 2, 0), .1);
+        assertEquals(666, graph.getTurnCostStorage().get(turnCostEnc, 0, 1, 1), .1);
+        assertEquals(0, graph.getTurnCostStorage().get(turnCostEnc, 0, 2, 2), .1);
+
+        assertEquals(Arrays.asList(0, 2), GHUtility.getEdgeIds(graph.createEdgeExplorer().setBaseNode(2)));
+        assertEquals(Arrays.asList(3, 1), GHUtility.getEdgeIds(graph.createEdgeExplorer().setBaseNode(0)));
+        assertThrows(IllegalArgumentException.class, () -> graph.relabel(new int[]{0, 0, 1, 2}, new int[]{0, 1, 2, 3}));
+    }
+
     private double getTurnCost(EdgeIteratorState fromEdge, int viaNode, EdgeIteratorState toEdge) {
         return graph.getTurnCostStorage().get(turnCostEnc, toEdge.getEdge(), viaNode, fromEdge.getEdge());
     }
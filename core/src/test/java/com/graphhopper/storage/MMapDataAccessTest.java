@@ -59,4 +59,22 @@ public class MMapDataAccessTest extends DataAccessTest {
         assertEquals(123, da.getInt(7 * 4));
         da.close();
     }
+
+    @Test
+    public void testResidentBytes() {
+        MMapDataAccess da = (MMapDataAccess) createDataAccess(name, 128);
+        da.create(1000);
+        da.setInt(7 * 4, 123);
+        da.flush();
+        da.close();
+
+        MMapDataAccess readOnly = new MMapDataAccess(name, directory, false, 128);
+        assertTrue(readOnly.loadExisting());
+        assertFalse(readOnly.isAllowWrites());
+        readOnly.load(100);
+        // the file was just written, so all segments are in the page cache
+        assertEquals(readOnly.getCapacity(), readOnly.getResidentBytes());
+        assertEquals(123, readOnly.getInt(7 * 4));
+        readOnly.close();
+    }
 }
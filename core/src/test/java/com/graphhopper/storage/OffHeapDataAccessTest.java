@@ -0,0 +1,60 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name, int segmentSize) {
+        return new OffHeapDataAccess(name, directory, true, segmentSize);
+    }
+
+    @Test
+    public void testLoadFileOfRAMDataAccess() {
+        DataAccess ram = new RAMDataAccess(name, directory, true, 128);
+        ram.create(300);
+        ram.setInt(4, 123);
+        ram.setInt(250, -42);
+        ram.setHeader(8, 17);
+        ram.flush();
+        ram.close();
+
+        DataAccess offHeap = new OffHeapDataAccess(name, directory, true, 128);
+        assertTrue(offHeap.loadExisting());
+        assertEquals(3, offHeap.getSegments());
+        assertEquals(123, offHeap.getInt(4));
+        assertEquals(-42, offHeap.getInt(250));
+        assertEquals(17, offHeap.getHeader(8));
+        offHeap.close();
+    }
+
+    @Test
+    public void testDirectory() {
+        GHDirectory dir = new GHDirectory(directory, DAType.OFF_HEAP_STORE);
+        DataAccess da = dir.create("test");
+        assertTrue(da instanceof OffHeapDataAccess);
+        assertEquals(DAType.OFF_HEAP_STORE, da.getType());
+        assertEquals(DAType.OFF_HEAP, DAType.fromString("off_heap"));
+        assertEquals(DAType.OFF_HEAP_STORE, DAType.fromString("OFF_HEAP_STORE"));
+        dir.close();
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.storage.index;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AccessFilter;
 import com.graphhopper.routing.util.AllEdgesIterator;
@@ -32,8 +33,10 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -595,6 +598,106 @@ public class LocationIndexTreeTest {
         return graph;
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testFindClosestBatch(boolean parallel) {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, false, false, accessEnc, speedEnc, 60d, 0, 0.8, 0);
+        // add pillar nodes to some edges
+        AllEdgesIterator iter = graph.getAllEdges();
+        NodeAccess na = graph.getNodeAccess();
+        while (iter.next()) {
+            if (iter.getEdge() % 3 == 0) {
+                double lat = (na.getLat(iter.getBaseNode()) + na.getLat(iter.getAdjNode())) / 2 + 0.0003;
+                double lon = (na.getLon(iter.getBaseNode()) + na.getLon(iter.getAdjNode())) / 2 - 0.0003;
+                iter.setWayGeometry(Helper.createPointList(lat, lon));
+            }
+        }
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+
+        int count = 3000;
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            // some points are outside of the graph bounds
+            lats[i] = 49.399 + rnd.nextDouble() * 0.012;
+            lons[i] = 9.699 + rnd.nextDouble() * 0.012;
+        }
+        // the last points are equal to make sure that several points can snap to the same edge
+        lats[count - 1] = lats[count - 2];
+        lons[count - 1] = lons[count - 2];
+        EdgeFilter filter = edge -> edge.getEdge() % 4 != 1;
+        ForkJoinPool pool = parallel ? new ForkJoinPool(4) : null;
+        Snap[] snaps = index.findClosest(lats, lons, filter, pool);
+        if (pool != null)
+            pool.shutdown();
+        assertEquals(count, snaps.length);
+        for (int i = 0; i < count; i++) {
+            Snap expected = index.findClosest(lats[i], lons[i], filter);
+            assertEquals(expected.isValid(), snaps[i].isValid(), "point " + i);
+            if (!expected.isValid())
+                continue;
+            assertEquals(expected.getClosestEdge().getEdge(), snaps[i].getClosestEdge().getEdge(), "point " + i);
+            assertEquals(expected.getClosestEdge().getBaseNode(), snaps[i].getClosestEdge().getBaseNode(), "point " + i);
+            assertEquals(expected.getClosestNode(), snaps[i].getClosestNode(), "point " + i);
+            assertEquals(expected.getWayIndex(), snaps[i].getWayIndex(), "point " + i);
+            assertEquals(expected.getSnappedPosition(), snaps[i].getSnappedPosition(), "point " + i);
+            assertEquals(expected.getSnappedPoint(), snaps[i].getSnappedPoint(), "point " + i);
+            assertEquals(expected.getQueryDistance(), snaps[i].getQueryDistance(), 1.e-9, "point " + i);
+        }
+        assertEquals(snaps[count - 2].getSnappedPoint(), snaps[count - 1].getSnappedPoint());
+
+        assertEquals(0, index.findClosest(new double[0], new double[0], filter).length);
+        assertFalse(index.findClosest(new double[]{49.405}, new double[]{9.705}, edge -> false)[0].isValid());
+    }
+
+    @Test
+    public void testFindNClosest() {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        Random rnd = new Random(7);
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, false, false, accessEnc, speedEnc, 60d, 0, 0.8, 0);
+        LocationIndexTree index = createIndexNoPrepare(graph, 50);
+        index.prepareIndex();
+        EdgeFilter filter = edge -> edge.getEdge() % 5 != 2;
+        for (int i = 0; i < 100; i++) {
+            double lat = 49.399 + rnd.nextDouble() * 0.012;
+            double lon = 9.699 + rnd.nextDouble() * 0.012;
+            // calculate the distances to all edges
+            List<Double> expected = new ArrayList<>();
+            AllEdgesIterator iter = graph.getAllEdges();
+            while (iter.next()) {
+                if (!filter.accept(iter))
+                    continue;
+                double[] minDist = {Double.MAX_VALUE};
+                index.traverseEdge(lat, lon, iter, (node, normedDist, wayIndex, pos) -> minDist[0] = Math.min(minDist[0], normedDist));
+                expected.add(DistancePlaneProjection.DIST_PLANE.calcDenormalizedDist(minDist[0]));
+            }
+            Collections.sort(expected);
+
+            List<Snap> snaps = index.findNClosest(lat, lon, filter, 5, Double.POSITIVE_INFINITY);
+            assertEquals(5, snaps.size());
+            IntHashSet edges = new IntHashSet();
+            for (int j = 0; j < snaps.size(); j++) {
+                assertEquals(expected.get(j), snaps.get(j).getQueryDistance(), 1.e-3);
+                assertTrue(filter.accept(snaps.get(j).getClosestEdge()));
+                assertTrue(edges.add(snaps.get(j).getClosestEdge().getEdge()));
+            }
+            assertEquals(expected.get(0), index.findClosest(lat, lon, filter).getQueryDistance(), 1.e-3);
+
+            double radius = 150;
+            snaps = index.findWithinRadius(lat, lon, filter, radius);
+            assertEquals(expected.stream().filter(d -> d <= radius).count(), snaps.size());
+            for (int j = 1; j < snaps.size(); j++)
+                assertTrue(snaps.get(j - 1).getQueryDistance() <= snaps.get(j).getQueryDistance());
+
+            snaps = index.findNClosest(lat, lon, filter, 3, radius);
+            assertEquals(Math.min(3, expected.stream().filter(d -> d <= radius).count()), snaps.size());
+        }
+        assertTrue(index.findWithinRadius(49.405, 9.705, edge -> false, 1000).isEmpty());
+    }
+
     @Test
     public void testDifferentVehicles() {
         BooleanEncodedValue carAccessEnc = new SimpleBooleanEncodedValue("car_access", true);
@@ -29,6 +29,9 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -124,6 +127,58 @@ public class GHUtilityTest {
         GHUtility.sortDFS(g, createGraph());
     }
 
+    @Test
+    public void testHilbertIndex() {
+        assertEquals(0, GHUtility.calcHilbertIndex(0, 0, 2));
+        assertEquals(1, GHUtility.calcHilbertIndex(0, 1, 2));
+        assertEquals(2, GHUtility.calcHilbertIndex(1, 1, 2));
+        assertEquals(3, GHUtility.calcHilbertIndex(1, 0, 2));
+        // consecutive cells of the curve are always neighbors
+        int size = 16;
+        int[][] cells = new int[size * size][];
+        for (int x = 0; x < size; x++)
+            for (int y = 0; y < size; y++)
+                cells[(int) GHUtility.calcHilbertIndex(x, y, size)] = new int[]{x, y};
+        for (int i = 1; i < cells.length; i++)
+            assertEquals(1, Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]), "index " + i);
+    }
+
+    @Test
+    public void testSortHilbert() {
+        BaseGraph g = (BaseGraph) initUnsorted(createGraph(), accessEnc, speedEnc);
+        // a copy of an edge like the artificial edges of via-way restrictions must stay behind the original edge
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, g.edge(1, 0).setDistance(4.2));
+        g.getEdgeIteratorState(0, 2).setWayGeometry(Helper.createPointList(4.55, 4.5));
+        double length = getLengthOfAllEdges(g);
+        Set<String> edges = getEdgeStrings(g);
+
+        GHUtility.sortHilbert(g);
+        assertEquals(9, g.getNodes());
+        assertEquals(length, getLengthOfAllEdges(g), 1e-4);
+        assertEquals(edges, getEdgeStrings(g));
+        // the curve starts in the lower left and ends in the lower right corner
+        assertEquals(0, g.getNodeAccess().getLat(0), 1e-4);
+        assertEquals(2.5, g.getNodeAccess().getLat(8), 1e-4);
+        assertEquals(4.5, g.getNodeAccess().getLon(8), 1e-4);
+        int original = -1, copy = -1;
+        AllEdgesIterator iter = g.getAllEdges();
+        while (iter.next()) {
+            if (iter.getDistance() == 3.9)
+                original = iter.getEdge();
+            else if (iter.getDistance() == 4.2)
+                copy = iter.getEdge();
+        }
+        assertTrue(original < copy, original + " vs. " + copy);
+    }
+
+    private static Set<String> getEdgeStrings(Graph graph) {
+        Set<String> edges = new HashSet<>();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            edges.add(iter.fetchWayGeometry(FetchMode.ALL) + " " + iter.getDistance() + " " + iter.getFlags());
+        return edges;
+    }
+
     @Test
     public void testEdgeStuff() {
         assertEquals(2, GHUtility.createEdgeKey(1, false, false));
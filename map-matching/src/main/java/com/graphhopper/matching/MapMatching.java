@@ -38,15 +38,11 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
-import com.graphhopper.util.shapes.BBox;
-import org.locationtech.jts.geom.Envelope;
 
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
-
 /**
  * This class matches real world GPX entries to the digital road network stored
  * in GraphHopper. The Viterbi algorithm is used to compute the most likely
@@ -275,49 +271,20 @@ public class MapMatching {
         return filtered;
     }
 
+    /**
+     * Finds the snaps of all edges within the smallest multiple of the measurement error (up to 50) that contains at
+     * least one edge.
+     */
     public List<Snap> findCandidateSnaps(final double queryLat, final double queryLon) {
-        double rLon = (measurementErrorSigma * 360.0 / DistanceCalcEarth.DIST_EARTH.calcCircumference(queryLat));
-        double rLat = measurementErrorSigma / DistanceCalcEarth.METERS_PER_DEGREE;
-        Envelope envelope = new Envelope(queryLon, queryLon, queryLat, queryLat);
-        for (int i = 0; i < 50; i++) {
-            envelope.expandBy(rLon, rLat);
-            List<Snap> snaps = findCandidateSnapsInBBox(queryLat, queryLon, BBox.fromEnvelope(envelope));
-            if (!snaps.isEmpty()) {
-                return snaps;
-            }
-        }
-        return Collections.emptyList();
-    }
-
-    private List<Snap> findCandidateSnapsInBBox(double queryLat, double queryLon, BBox queryShape) {
         EdgeFilter edgeFilter = router.getSnapFilter();
-        List<Snap> snaps = new ArrayList<>();
-        IntHashSet seenEdges = new IntHashSet();
+        List<Snap> closest = locationIndex.findNClosest(queryLat, queryLon, edgeFilter, 1, 50 * measurementErrorSigma);
+        if (closest.isEmpty())
+            return Collections.emptyList();
+        double radius = Math.min(50, Math.floor(closest.get(0).getQueryDistance() / measurementErrorSigma) + 1) * measurementErrorSigma;
+        List<Snap> snaps = locationIndex.findWithinRadius(queryLat, queryLon, edgeFilter, radius);
+        // several edges can be snapped to the same tower node, but we need only one candidate per node
         IntHashSet seenNodes = new IntHashSet();
-        locationIndex.query(queryShape, edgeId -> {
-            EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
-            if (seenEdges.add(edgeId) && edgeFilter.accept(edge)) {
-                Snap snap = new Snap(queryLat, queryLon);
-                locationIndex.traverseEdge(queryLat, queryLon, edge, (node, normedDist, wayIndex, pos) -> {
-                    if (normedDist < snap.getQueryDistance()) {
-                        snap.setQueryDistance(normedDist);
-                        snap.setClosestNode(node);
-                        snap.setWayIndex(wayIndex);
-                        snap.setSnappedPosition(pos);
-                    }
-                });
-                double dist = DIST_PLANE.calcDenormalizedDist(snap.getQueryDistance());
-                snap.setClosestEdge(edge);
-                snap.setQueryDistance(dist);
-                if (snap.isValid() && (snap.getSnappedPosition() != Snap.Position.TOWER || seenNodes.add(snap.getClosestNode()))) {
-                    snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
-                    if (queryShape.contains(snap.getSnappedPoint().lat, snap.getSnappedPoint().lon)) {
-                        snaps.add(snap);
-                    }
-                }
-            }
-        });
-        snaps.sort(Comparator.comparingDouble(Snap::getQueryDistance));
+        snaps.removeIf(snap -> snap.getSnappedPosition() == Snap.Position.TOWER && !seenNodes.add(snap.getClosestNode()));
         return snaps;
     }
 
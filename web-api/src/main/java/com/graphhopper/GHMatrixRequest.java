@@ -0,0 +1,166 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request object to calculate the weights, times and/or distances between many points. Either specify the points
+ * via {@link #setPoints} to get a symmetric matrix or use {@link #setFromPoints} and {@link #setToPoints}.
+ * The JSON representation is the same as the one created by the GHMRequest of the client-hc module.
+ */
+public class GHMatrixRequest {
+    private String profile = "";
+    private List<GHPoint> points;
+    private List<GHPoint> fromPoints;
+    private List<GHPoint> toPoints;
+    private List<String> pointHints = new ArrayList<>();
+    private List<String> fromPointHints = new ArrayList<>();
+    private List<String> toPointHints = new ArrayList<>();
+    private List<String> snapPreventions = new ArrayList<>();
+    private List<String> outArrays = new ArrayList<>();
+    private boolean failFast = true;
+    private final PMap hints = new PMap();
+
+    public GHMatrixRequest setProfile(String profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public GHMatrixRequest setPoints(List<GHPoint> points) {
+        this.points = points;
+        return this;
+    }
+
+    public List<GHPoint> getPoints() {
+        return points;
+    }
+
+    public GHMatrixRequest setFromPoints(List<GHPoint> fromPoints) {
+        this.fromPoints = fromPoints;
+        return this;
+    }
+
+    /**
+     * @return the from points or the points if no from points were specified
+     */
+    public List<GHPoint> getFromPoints() {
+        return fromPoints == null ? points : fromPoints;
+    }
+
+    public GHMatrixRequest setToPoints(List<GHPoint> toPoints) {
+        this.toPoints = toPoints;
+        return this;
+    }
+
+    /**
+     * @return the to points or the points if no to points were specified
+     */
+    public List<GHPoint> getToPoints() {
+        return toPoints == null ? points : toPoints;
+    }
+
+    public GHMatrixRequest setPointHints(List<String> pointHints) {
+        this.pointHints = pointHints;
+        return this;
+    }
+
+    public List<String> getPointHints() {
+        return pointHints;
+    }
+
+    public GHMatrixRequest setFromPointHints(List<String> fromPointHints) {
+        this.fromPointHints = fromPointHints;
+        return this;
+    }
+
+    public List<String> getFromPointHints() {
+        return fromPoints == null ? pointHints : fromPointHints;
+    }
+
+    public GHMatrixRequest setToPointHints(List<String> toPointHints) {
+        this.toPointHints = toPointHints;
+        return this;
+    }
+
+    public List<String> getToPointHints() {
+        return toPoints == null ? pointHints : toPointHints;
+    }
+
+    public GHMatrixRequest setSnapPreventions(List<String> snapPreventions) {
+        this.snapPreventions = snapPreventions;
+        return this;
+    }
+
+    public List<String> getSnapPreventions() {
+        return snapPreventions;
+    }
+
+    /**
+     * Possible values are 'weights', 'times', 'distances'
+     */
+    public GHMatrixRequest setOutArrays(List<String> outArrays) {
+        this.outArrays = outArrays;
+        return this;
+    }
+
+    public List<String> getOutArrays() {
+        return outArrays;
+    }
+
+    /**
+     * @param failFast if false the matrix calculation will be continued even when some points are not connected
+     *                 or cannot be found
+     */
+    @JsonProperty("fail_fast")
+    public GHMatrixRequest setFailFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    public boolean getFailFast() {
+        return failFast;
+    }
+
+    // a good trick to serialize unknown properties into the HintsMap
+    @JsonAnySetter
+    public GHMatrixRequest putHint(String fieldName, Object value) {
+        hints.putObject(fieldName, value);
+        return this;
+    }
+
+    public PMap getHints() {
+        return hints;
+    }
+
+    @Override
+    public String toString() {
+        return "profile=" + profile + ", from=" + (getFromPoints() == null ? 0 : getFromPoints().size())
+                + ", to=" + (getToPoints() == null ? 0 : getToPoints().size()) + ", out_arrays=" + outArrays;
+    }
+}
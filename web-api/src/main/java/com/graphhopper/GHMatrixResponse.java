@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of a {@link GHMatrixRequest}. Entries of disconnected points or points that could not be found are
+ * Double.MAX_VALUE for the weights and distances and Long.MAX_VALUE for the times.
+ */
+public class GHMatrixResponse {
+    private final List<Throwable> errors = new ArrayList<>(4);
+    private final double[][] weights;
+    private final long[][] times;
+    private final double[][] distances;
+    private final List<Integer> invalidFromPoints = new ArrayList<>();
+    private final List<Integer> invalidToPoints = new ArrayList<>();
+    private final List<int[]> disconnectedPoints = new ArrayList<>();
+    private String debugInfo = "";
+
+    public GHMatrixResponse(int fromCount, int toCount) {
+        weights = new double[fromCount][toCount];
+        times = new long[fromCount][toCount];
+        distances = new double[fromCount][toCount];
+        for (int i = 0; i < fromCount; i++) {
+            Arrays.fill(weights[i], Double.MAX_VALUE);
+            Arrays.fill(times[i], Long.MAX_VALUE);
+            Arrays.fill(distances[i], Double.MAX_VALUE);
+        }
+    }
+
+    public int getFromCount() {
+        return weights.length;
+    }
+
+    public int getToCount() {
+        return weights.length == 0 ? 0 : weights[0].length;
+    }
+
+    public void set(int from, int to, double weight, long time, double distance) {
+        weights[from][to] = weight;
+        times[from][to] = time;
+        distances[from][to] = distance;
+    }
+
+    public boolean isConnected(int from, int to) {
+        return weights[from][to] < Double.MAX_VALUE;
+    }
+
+    public double getWeight(int from, int to) {
+        return weights[from][to];
+    }
+
+    /**
+     * @return the time in milliseconds
+     */
+    public long getTime(int from, int to) {
+        return times[from][to];
+    }
+
+    /**
+     * @return the distance in meters
+     */
+    public double getDistance(int from, int to) {
+        return distances[from][to];
+    }
+
+    public List<Integer> getInvalidFromPoints() {
+        return invalidFromPoints;
+    }
+
+    public List<Integer> getInvalidToPoints() {
+        return invalidToPoints;
+    }
+
+    /**
+     * @return the pairs of from and to indices that are not connected
+     */
+    public List<int[]> getDisconnectedPoints() {
+        return disconnectedPoints;
+    }
+
+    public void addDebugInfo(String debugInfo) {
+        if (!this.debugInfo.isEmpty())
+            this.debugInfo += "; ";
+        this.debugInfo += debugInfo;
+    }
+
+    public String getDebugInfo() {
+        return debugInfo;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public List<Throwable> getErrors() {
+        return errors;
+    }
+
+    public GHMatrixResponse addError(Throwable error) {
+        errors.add(error);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "from=" + getFromCount() + ", to=" + getToCount() + ", errors=" + errors;
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,6 +27,8 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.List;
@@ -121,4 +124,131 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Writes the same JSON as {@link #jsonObject} directly to the given generator, without building a tree first. The
+     * points are written one after another, so the memory usage does not depend on the length of the route. The
+     * generator needs an ObjectMapper as codec, e.g. from {@link Jackson#newObjectMapper()}.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeObjectField("description", p.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                gen.writeObjectField("bbox", p.calcBBox2D());
+                gen.writeFieldName("points");
+                writePoints(gen, p.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", p.getInstructions());
+                }
+                gen.writeObjectField("legs", p.getLegs());
+                gen.writeObjectField("details", p.getPathDetails());
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, p.getWaypoints(), enableElevation, pointsEncoded);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writePoints(JsonGenerator gen, PointList points, boolean includeElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded) {
+            gen.writeString(new PolylineReader(points, includeElevation, 1e5), -1);
+            return;
+        }
+        // the same as PointList.toLineString, but without creating the JTS geometry
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        // special case as just 1 point is not supported in the specification #1412
+        int size = points.size() == 1 ? 2 : points.size();
+        for (int i = 0; i < size; i++) {
+            int index = Math.min(i, points.size() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(Helper.round6(points.getLon(index)));
+            gen.writeNumber(Helper.round6(points.getLat(index)));
+            if (includeElevation)
+                gen.writeNumber(Helper.round2(points.getEle(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Encodes the points like {@link #encodePolyline} but only point by point when they are read.
+     */
+    private static class PolylineReader extends Reader {
+        private final PointList points;
+        private final boolean includeElevation;
+        private final double precision;
+        private final StringBuilder buffer = new StringBuilder();
+        private int bufferPos;
+        private int pointIndex;
+        private int prevLat, prevLon, prevEle;
+
+        PolylineReader(PointList points, boolean includeElevation, double precision) {
+            this.points = points;
+            this.includeElevation = includeElevation;
+            this.precision = precision;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            int read = 0;
+            while (read < len) {
+                if (bufferPos == buffer.length()) {
+                    if (pointIndex == points.size())
+                        break;
+                    buffer.setLength(0);
+                    bufferPos = 0;
+                    encodePoint();
+                }
+                int n = Math.min(len - read, buffer.length() - bufferPos);
+                buffer.getChars(bufferPos, bufferPos + n, cbuf, off + read);
+                bufferPos += n;
+                read += n;
+            }
+            return read == 0 && len > 0 ? -1 : read;
+        }
+
+        private void encodePoint() {
+            int num = (int) Math.floor(points.getLat(pointIndex) * precision);
+            encodeNumber(buffer, num - prevLat);
+            prevLat = num;
+            num = (int) Math.floor(points.getLon(pointIndex) * precision);
+            encodeNumber(buffer, num - prevLon);
+            prevLon = num;
+            if (includeElevation) {
+                num = (int) Math.floor(points.getEle(pointIndex) * 100);
+                encodeNumber(buffer, num - prevEle);
+                prevEle = num;
+            }
+            pointIndex++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -99,6 +99,20 @@ public class Parameters {
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
         public static final String TIMEOUT_MS = "timeout_ms";
         public static final String INIT_TIMEOUT_MS = ROUTING_INIT_PREFIX + "timeout_ms";
+        /**
+         * if true the bidirectional Dijkstra and A* algorithms (not for CH) store their shortest path trees in pooled,
+         * primitive arrays instead of creating objects per visited node
+         */
+        public static final String POOLED_SPT = "pooled_spt";
+        public static final String INIT_POOLED_SPT = ROUTING_INIT_PREFIX + POOLED_SPT;
+        /**
+         * the number of threads used to calculate the legs of a route with via points, 1 means no concurrency
+         */
+        public static final String INIT_LEG_THREADS = ROUTING_INIT_PREFIX + "leg_threads";
+        /**
+         * the maximum number of entries (from points times to points) of a matrix request
+         */
+        public static final String INIT_MATRIX_MAX_SIZE = ROUTING_INIT_PREFIX + "matrix.max_size";
         /**
          * if true the response will contain turn instructions
          */
@@ -17,11 +17,22 @@
  */
 package com.graphhopper.jackson;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Peter Karich
@@ -79,4 +90,102 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @ParameterizedTest
+    @CsvSource({"true,false", "false,false", "true,true", "false,true"})
+    public void testWriteJsonSameAsJsonObject(boolean pointsEncoded, boolean enableElevation) throws IOException {
+        GHResponse rsp = new GHResponse();
+        PointList points = new PointList(10, true);
+        for (int i = 0; i < 1000; i++)
+            points.add(50 + i * 1.2345678e-4, 10 - i * 9.87654e-5, 100 + i * 0.123);
+        ResponsePath path = new ResponsePath().setPoints(points).setDistance(1234.5678).setRouteWeight(98.7654321).
+                setTime(123456).setAscend(12.3).setDescend(4.5).setDescription(Arrays.asList("a", "b"));
+        path.setWaypoints(Helper.createPointList3D(50, 10, 100, 50.1, 9.9, 120));
+        PathDetail detail = new PathDetail(42);
+        detail.setFirst(0);
+        detail.setLast(999);
+        path.addPathDetails(Collections.singletonMap("edge_id", Collections.singletonList(detail)));
+        rsp.add(path);
+        // the special case of a single point
+        rsp.add(new ResponsePath().setPoints(Helper.createPointList3D(50, 10, 100)).setWaypoints(Helper.createPointList3D(50, 10, 100)));
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+
+        assertWriteJsonSameAsJsonObject(rsp, false, enableElevation, pointsEncoded);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true,false", "false,false", "true,true", "false,true"})
+    public void testWriteJsonWithInstructionsSameAsJsonObject(boolean pointsEncoded, boolean enableElevation) throws IOException {
+        PointList points = Helper.createPointList3D(52.514, 13.348, 10, 52.5135, 13.35, 11.5, 52.514, 13.351, 12,
+                52.515, 13.352, 13, 52.516, 13.353, 12.25);
+        InstructionList instructions = new InstructionList(TR);
+        Instruction start = new Instruction(Instruction.CONTINUE_ON_STREET, "Main Street", points.copy(0, 2));
+        start.setDistance(123.456).setTime(12345);
+        instructions.add(start);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "Ring", points.copy(2, 3))
+                .setDirOfRotation(-0.1).setRadian(-Math.PI + 1).setExitNumber(2).setExited();
+        roundabout.setDistance(45.6).setTime(4567);
+        instructions.add(roundabout);
+        ViaInstruction via = new ViaInstruction("Side Street", points.copy(3, 4));
+        via.setViaCount(1);
+        via.setDistance(7.89).setTime(789);
+        instructions.add(via);
+        instructions.add(new FinishInstruction("Side Street", 52.516, 13.353, 12.25));
+
+        ResponsePath path = new ResponsePath().setPoints(points).setDistance(176.946).
+                setRouteWeight(17.7).setTime(17701).setAscend(3).setDescend(0.75);
+        path.setInstructions(instructions);
+        path.setWaypoints(Helper.createPointList3D(52.514, 13.348, 10, 52.515, 13.352, 13, 52.516, 13.353, 12.25));
+        Map<String, List<PathDetail>> details = new LinkedHashMap<>();
+        details.put("street_name", Arrays.asList(createDetail("Main Street", 0, 2), createDetail("Ring", 2, 3), createDetail("Side Street", 3, 4)));
+        details.put("average_speed", Arrays.asList(createDetail(36.6, 0, 3), createDetail(12.3, 3, 4)));
+        details.put("edge_id", Arrays.asList(createDetail(7, 0, 1), createDetail(8, 1, 4)));
+        details.put("toll", Collections.singletonList(createDetail(false, 0, 4)));
+        path.addPathDetails(details);
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        String json = assertWriteJsonSameAsJsonObject(rsp, true, enableElevation, pointsEncoded);
+        assertTrue(json.contains("\"exit_number\":2"), json);
+        assertTrue(json.contains("\"street_name\":[[0,2,\"Main Street\"]"), json);
+    }
+
+    private static PathDetail createDetail(Object value, int first, int last) {
+        PathDetail detail = new PathDetail(value);
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+
+    private static String assertWriteJsonSameAsJsonObject(GHResponse rsp, boolean enableInstructions, boolean enableElevation, boolean pointsEncoded) throws IOException {
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(writer)) {
+            ResponsePathSerializer.writeJson(gen, rsp, enableInstructions, true, enableElevation, pointsEncoded, 12.3);
+        }
+        String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, enableInstructions, true, enableElevation, pointsEncoded, 12.3));
+        assertEquals(expected, writer.toString());
+        return expected;
+    }
+
+    private static final Translation TR = new Translation() {
+        @Override
+        public String tr(String key, Object... params) {
+            return key;
+        }
+
+        @Override
+        public Map<String, String> asMap() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.US;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "en";
+        }
+    };
 }
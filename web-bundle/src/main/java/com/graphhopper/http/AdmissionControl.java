@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests that are processed at the same time, separately for every kind of solver. This way
+ * a few expensive requests, e.g. flexible mode requests that explore up to routing.max_visited_nodes, cannot starve
+ * the cheap CH requests. Every queue is configured independently:
+ * <ul>
+ * <li>admission.&lt;queue&gt;.max_concurrent_requests: the number of requests that are processed at the same time,
+ * 0 (the default) disables the admission control for this queue</li>
+ * <li>admission.&lt;queue&gt;.max_queued_requests: the number of requests that may wait for a free slot, further
+ * requests are rejected immediately</li>
+ * <li>admission.&lt;queue&gt;.max_queue_time: the maximum time in milliseconds a request waits for a free slot</li>
+ * </ul>
+ * Rejected requests get a 503 response. The number of active and queued requests, the rejected requests and the time
+ * spent in the queue are available as metrics for every queue.
+ */
+public class AdmissionControl {
+
+    public enum QueueType {
+        CH, LM, FLEX, PT, ISOCHRONE;
+
+        String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final GraphHopper graphHopper;
+    private final Map<QueueType, RequestQueue> queues = new EnumMap<>(QueueType.class);
+
+    public AdmissionControl(GraphHopper graphHopper, GraphHopperConfig config, MetricRegistry metrics) {
+        this.graphHopper = graphHopper;
+        for (QueueType type : QueueType.values()) {
+            String prefix = "admission." + type.getName() + ".";
+            int maxConcurrent = config.getInt(prefix + "max_concurrent_requests", 0);
+            if (maxConcurrent < 0)
+                throw new IllegalArgumentException(prefix + "max_concurrent_requests must not be negative: " + maxConcurrent);
+            if (maxConcurrent == 0)
+                continue;
+            int maxQueued = config.getInt(prefix + "max_queued_requests", Integer.MAX_VALUE);
+            long maxQueueTime = config.getLong(prefix + "max_queue_time", Long.MAX_VALUE);
+            queues.put(type, new RequestQueue(type, maxConcurrent, maxQueued, maxQueueTime, metrics));
+        }
+    }
+
+    /**
+     * @return the queue of the solver the router will pick for a request with the given hints
+     */
+    public QueueType getRoutingQueueType(PMap hints) {
+        if (!graphHopper.getCHGraphs().isEmpty() && !hints.getBool(Parameters.CH.DISABLE, false))
+            return QueueType.CH;
+        else if (!graphHopper.getLandmarks().isEmpty() && !hints.getBool(Parameters.Landmark.DISABLE, false))
+            return QueueType.LM;
+        else
+            return QueueType.FLEX;
+    }
+
+    /**
+     * Waits until the request may be processed. The returned permit must be closed once the request is finished.
+     *
+     * @throws WebApplicationException with status 503 if the queue is full or the request waited too long
+     */
+    public Permit acquire(QueueType type) {
+        RequestQueue queue = queues.get(type);
+        return queue == null ? () -> {
+        } : queue.acquire();
+    }
+
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class RequestQueue {
+        private final QueueType type;
+        private final Semaphore semaphore;
+        private final int maxQueued;
+        private final long maxQueueTime;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Meter rejected;
+        private final Timer queueTime;
+
+        RequestQueue(QueueType type, int maxConcurrent, int maxQueued, long maxQueueTime, MetricRegistry metrics) {
+            this.type = type;
+            // fair, so the waiting requests are processed in the order they arrived
+            this.semaphore = new Semaphore(maxConcurrent, true);
+            this.maxQueued = maxQueued;
+            this.maxQueueTime = maxQueueTime;
+            String prefix = "admission." + type.getName() + ".";
+            metrics.register(prefix + "active", (Gauge<Integer>) () -> maxConcurrent - semaphore.availablePermits());
+            metrics.register(prefix + "queued", (Gauge<Integer>) queued::get);
+            rejected = metrics.meter(prefix + "rejected");
+            queueTime = metrics.timer(prefix + "queue_time");
+        }
+
+        Permit acquire() {
+            // we do not wait if there is a free slot, but otherwise we only wait if the queue is not full yet
+            if (!semaphore.tryAcquire()) {
+                if (queued.incrementAndGet() > maxQueued) {
+                    queued.decrementAndGet();
+                    throw reject("too many queued requests");
+                }
+                boolean acquired;
+                try (Timer.Context ignored = queueTime.time()) {
+                    acquired = semaphore.tryAcquire(maxQueueTime, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject("interrupted while waiting");
+                } finally {
+                    queued.decrementAndGet();
+                }
+                if (!acquired)
+                    throw reject("waited longer than " + maxQueueTime + "ms");
+            } else {
+                queueTime.update(0, TimeUnit.MILLISECONDS);
+            }
+            return semaphore::release;
+        }
+
+        private WebApplicationException reject(String reason) {
+            rejected.mark();
+            return new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(new JsonErrorEntity(Collections.singletonList("The server is too busy to process " + type.getName()
+                            + " requests right now (" + reason + "), please try again later")))
+                    .type(MediaType.APPLICATION_JSON)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.routing.RoutingMetrics;
+import com.graphhopper.routing.weighting.custom.CustomModelCache;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.util.Helper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the time spent in the different stages of the routing requests to the Dropwizard metrics, which are
+ * available on the admin port under /metrics. This makes it possible to see which stage dominates the high
+ * percentiles:
+ * <ul>
+ * <li>routing.snapping: snapping the request points to the graph</li>
+ * <li>routing.path_calculation.&lt;solver&gt;: calculating the paths with the ch, lm or flex solver</li>
+ * <li>routing.visited_nodes.&lt;solver&gt;.&lt;algorithm&gt;: the number of nodes the algorithm visited</li>
+ * <li>routing.path_merging: merging the paths and creating the instructions and path details</li>
+ * <li>routing.serialization: writing the JSON response</li>
+ * <li>custom_model.cache_hits, custom_model.cache_misses, custom_model.compile_time, custom_model.cache_size and
+ * custom_model.cache_evictions</li>
+ * </ul>
+ */
+public class DropwizardRoutingMetrics implements RoutingMetrics {
+    private final MetricRegistry metrics;
+    private final Timer snapping;
+    private final Timer pathMerging;
+    private final Timer serialization;
+    private final Meter customModelCacheHits;
+    private final Meter customModelCacheMisses;
+    private final Timer customModelCompileTime;
+
+    public DropwizardRoutingMetrics(MetricRegistry metrics) {
+        this.metrics = metrics;
+        snapping = metrics.timer("routing.snapping");
+        pathMerging = metrics.timer("routing.path_merging");
+        serialization = metrics.timer("routing.serialization");
+        customModelCacheHits = metrics.meter("custom_model.cache_hits");
+        customModelCacheMisses = metrics.meter("custom_model.cache_misses");
+        customModelCompileTime = metrics.timer("custom_model.compile_time");
+        CustomModelCache cache = CustomModelParser.getCache();
+        metrics.register("custom_model.cache_size", (Gauge<Integer>) cache::getSize);
+        metrics.register("custom_model.cache_evictions", (Gauge<Long>) cache::getEvictions);
+    }
+
+    @Override
+    public void snapping(long nanos) {
+        snapping.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void pathCalculation(String solver, String algorithm, long nanos, long visitedNodes) {
+        // the registry caches the metrics by name, so this does not create new objects for every request
+        metrics.timer("routing.path_calculation." + solver).update(nanos, TimeUnit.NANOSECONDS);
+        String algo = Helper.isEmpty(algorithm) ? "default" : Helper.toLowerCase(algorithm);
+        metrics.histogram("routing.visited_nodes." + solver + "." + algo).update(visitedNodes);
+    }
+
+    @Override
+    public void pathMerging(long nanos) {
+        pathMerging.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called by the resources after the JSON response was written.
+     */
+    public void serialization(long nanos) {
+        serialization.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void customModel(boolean cacheHit, long compileNanos) {
+        if (cacheHit) {
+            customModelCacheHits.mark();
+        } else {
+            customModelCacheMisses.mark();
+            customModelCompileTime.update(compileNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
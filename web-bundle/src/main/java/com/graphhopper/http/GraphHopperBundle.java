@@ -18,6 +18,7 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -31,7 +32,9 @@ import com.graphhopper.jackson.Jackson;
 import com.graphhopper.matching.MapMatching;
 import com.graphhopper.resources.*;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.TranslationMap;
@@ -257,11 +260,20 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        final AdmissionControl admissionControl = new AdmissionControl(graphHopper, configuration.getGraphHopperConfiguration(), environment.metrics());
+        final DropwizardRoutingMetrics routingMetrics = new DropwizardRoutingMetrics(environment.metrics());
+        graphHopper.getRouterConfig().setMetrics(routingMetrics);
+        // for a memory mapped graph the resident part is shared with all processes that map the same graph
+        environment.metrics().register("graph.mapped_bytes", (Gauge<Long>) () -> getMMapBytes(graphHopper, false));
+        environment.metrics().register("graph.resident_bytes", (Gauge<Long>) () -> getMMapBytes(graphHopper, true));
+        CustomModelParser.setMetrics(routingMetrics);
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
+                bind(admissionControl).to(AdmissionControl.class);
+                bind(routingMetrics).to(DropwizardRoutingMetrics.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
@@ -280,6 +292,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
@@ -308,4 +321,11 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         environment.jersey().register(environment.healthChecks());
         environment.jersey().register(HealthCheckResource.class);
     }
+
+    private static long getMMapBytes(GraphHopper graphHopper, boolean resident) {
+        if (!graphHopper.getFullyLoaded() || !(graphHopper.getBaseGraph().getDirectory() instanceof GHDirectory))
+            return 0;
+        GHDirectory directory = (GHDirectory) graphHopper.getBaseGraph().getDirectory();
+        return resident ? directory.getResidentBytes() : directory.getMappedBytes();
+    }
 }
@@ -4,6 +4,7 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.IsochroneRequest;
 import com.graphhopper.Region;
 import com.graphhopper.config.Profile;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree.IsoLabel;
@@ -50,10 +51,12 @@ public class IsochroneResource {
     private static final Logger logger = LoggerFactory.getLogger(IsochroneResource.class);
 
     private final GraphHopper graphHopper;
+    private final AdmissionControl admissionControl;
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper) {
+    public IsochroneResource(GraphHopper graphHopper, AdmissionControl admissionControl) {
         this.graphHopper = graphHopper;
+        this.admissionControl = admissionControl;
     }
 
     public enum ResponseType {
@@ -107,6 +110,12 @@ public class IsochroneResource {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public ResponseWithCosts doPost(@NotNull IsochroneRequest request) {
+        try (AdmissionControl.Permit ignored = admissionControl.acquire(AdmissionControl.QueueType.ISOCHRONE)) {
+            return calcIsochrone(request);
+        }
+    }
+
+    private ResponseWithCosts calcIsochrone(IsochroneRequest request) {
         StopWatch sw = new StopWatch().start();
         DistanceCalcEarth distanceCalculator = new DistanceCalcEarth();
         PMap hintsMap = new PMap();
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.AdmissionControl;
+import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resource to calculate the weights, times and distances between many points. The request and response format is
+ * the same as the one used by the GraphHopperMatrixWeb client, i.e. times are in seconds and distances in meters.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+    private final AdmissionControl admissionControl;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper, ProfileResolver profileResolver, AdmissionControl admissionControl) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+        this.admissionControl = admissionControl;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull GHMatrixRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        PMap profileResolverHints = new PMap(request.getHints());
+        profileResolverHints.putObject("profile", request.getProfile());
+        request.setProfile(profileResolver.resolveProfile(profileResolverHints));
+        RouteResource.removeLegacyParameters(request.getHints());
+        // these parameters are sent by the client but are not routing hints
+        request.getHints().remove("key");
+        request.getHints().remove("service_url");
+
+        List<String> outArrays = request.getOutArrays().isEmpty() ? Collections.singletonList("weights") : request.getOutArrays();
+        for (String outArray : outArrays)
+            if (!"weights".equals(outArray) && !"times".equals(outArray) && !"distances".equals(outArray))
+                throw new IllegalArgumentException("Unknown out_arrays entry '" + outArray + "', use weights, times or distances");
+
+        GHMatrixResponse matrixResponse;
+        try (AdmissionControl.Permit ignored = admissionControl.acquire(admissionControl.getRoutingQueueType(request.getHints()))) {
+            matrixResponse = graphHopper.matrix(request);
+        }
+        double took = sw.stop().getMillisDouble();
+        String logStr = httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                + " " + request + ", took: " + String.format("%.1f", took) + " ms";
+        if (matrixResponse.hasErrors()) {
+            MultiException ex = new MultiException(matrixResponse.getErrors());
+            logger.error(logStr, ex);
+            throw ex;
+        }
+        logger.info(logStr + ", debugInfo: " + matrixResponse.getDebugInfo());
+        return Response.ok(jsonObject(matrixResponse, outArrays, took)).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    /**
+     * Creates the JSON like it is parsed by the GHMatrixAbstractRequester of the client-hc module. Entries of
+     * disconnected points or points that could not be found are null.
+     */
+    static ObjectNode jsonObject(GHMatrixResponse rsp, List<String> outArrays, double took) {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        for (String outArray : outArrays) {
+            ArrayNode rows = json.putArray(outArray);
+            for (int from = 0; from < rsp.getFromCount(); from++) {
+                ArrayNode row = rows.addArray();
+                for (int to = 0; to < rsp.getToCount(); to++) {
+                    if (!rsp.isConnected(from, to))
+                        row.addNull();
+                    else if ("weights".equals(outArray))
+                        row.add(Math.round(rsp.getWeight(from, to) * 10) / 10.0);
+                    else if ("times".equals(outArray))
+                        row.add(Math.round(rsp.getTime(from, to) / 1000.0));
+                    else
+                        row.add(Math.round(rsp.getDistance(from, to)));
+                }
+            }
+        }
+
+        if (!rsp.getDisconnectedPoints().isEmpty() || !rsp.getInvalidFromPoints().isEmpty() || !rsp.getInvalidToPoints().isEmpty()) {
+            ArrayNode hints = json.putArray("hints");
+            if (!rsp.getDisconnectedPoints().isEmpty()) {
+                ObjectNode hint = hints.addObject();
+                hint.put("message", "There are disconnected points.");
+                ArrayNode pairs = hint.putArray("point_pairs");
+                for (int[] pair : rsp.getDisconnectedPoints())
+                    pairs.addArray().add(pair[0]).add(pair[1]);
+            }
+            if (!rsp.getInvalidFromPoints().isEmpty() || !rsp.getInvalidToPoints().isEmpty()) {
+                ObjectNode hint = hints.addObject();
+                hint.put("message", "Cannot find some of the points.");
+                ArrayNode invalidFrom = hint.putArray("invalid_from_points");
+                rsp.getInvalidFromPoints().forEach(invalidFrom::add);
+                ArrayNode invalidTo = hint.putArray("invalid_to_points");
+                rsp.getInvalidToPoints().forEach(invalidTo::add);
+            }
+        }
+
+        ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", Math.round(took));
+        return json;
+    }
+}
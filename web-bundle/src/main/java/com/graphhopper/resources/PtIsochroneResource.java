@@ -20,6 +20,7 @@ package com.graphhopper.resources;
 
 import com.conveyal.gtfs.model.Stop;
 import com.graphhopper.gtfs.*;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.GHLocationParam;
 import com.graphhopper.http.OffsetDateTimeParam;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
@@ -60,13 +61,15 @@ public class PtIsochroneResource {
     private final EncodingManager encodingManager;
     private final BaseGraph baseGraph;
     private final LocationIndex locationIndex;
+    private final AdmissionControl admissionControl;
 
     @Inject
-    public PtIsochroneResource(GtfsStorage gtfsStorage, EncodingManager encodingManager, BaseGraph baseGraph, LocationIndex locationIndex) {
+    public PtIsochroneResource(GtfsStorage gtfsStorage, EncodingManager encodingManager, BaseGraph baseGraph, LocationIndex locationIndex, AdmissionControl admissionControl) {
         this.gtfsStorage = gtfsStorage;
         this.encodingManager = encodingManager;
         this.baseGraph = baseGraph;
         this.locationIndex = locationIndex;
+        this.admissionControl = admissionControl;
     }
 
     public static class Response {
@@ -105,18 +108,20 @@ public class PtIsochroneResource {
         Map<Coordinate, Double> z1 = new HashMap<>();
         NodeAccess nodeAccess = snapResult.queryGraph.getNodeAccess();
 
-        for (Label label : router.calcLabels(snapResult.nodes.get(0), initialTime)) {
-            if (!((label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1) <= targetZ)) {
-                break;
-            }
-            if (label.node.streetNode != -1) {
-                Coordinate nodeCoordinate = new Coordinate(nodeAccess.getLon(label.node.streetNode), nodeAccess.getLat(label.node.streetNode));
-                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
-            } else if (label.edge != null && (label.edge.getType() == GtfsStorage.EdgeType.EXIT_PT || label.edge.getType() == GtfsStorage.EdgeType.ENTER_PT)) {
-                GtfsStorage.PlatformDescriptor platformDescriptor = label.edge.getPlatformDescriptor();
-                Stop stop = gtfsStorage.getGtfsFeeds().get(platformDescriptor.feed_id).stops.get(platformDescriptor.stop_id);
-                Coordinate nodeCoordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
-                z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
+        try (AdmissionControl.Permit ignored = admissionControl.acquire(AdmissionControl.QueueType.PT)) {
+            for (Label label : router.calcLabels(snapResult.nodes.get(0), initialTime)) {
+                if (!((label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1) <= targetZ)) {
+                    break;
+                }
+                if (label.node.streetNode != -1) {
+                    Coordinate nodeCoordinate = new Coordinate(nodeAccess.getLon(label.node.streetNode), nodeAccess.getLat(label.node.streetNode));
+                    z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
+                } else if (label.edge != null && (label.edge.getType() == GtfsStorage.EdgeType.EXIT_PT || label.edge.getType() == GtfsStorage.EdgeType.ENTER_PT)) {
+                    GtfsStorage.PlatformDescriptor platformDescriptor = label.edge.getPlatformDescriptor();
+                    Stop stop = gtfsStorage.getGtfsFeeds().get(platformDescriptor.feed_id).stops.get(platformDescriptor.stop_id);
+                    Coordinate nodeCoordinate = new Coordinate(stop.stop_lon, stop.stop_lat);
+                    z1.merge(nodeCoordinate, (double) (label.currentTime - initialTime.toEpochMilli()) * (reverseFlow ? -1 : 1), Math::min);
+                }
             }
         }
 
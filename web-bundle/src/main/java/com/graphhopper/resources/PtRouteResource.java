@@ -23,6 +23,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.gtfs.GHLocation;
 import com.graphhopper.gtfs.PtRouter;
 import com.graphhopper.gtfs.Request;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.DurationParam;
 import com.graphhopper.http.GHLocationParam;
 import com.graphhopper.http.OffsetDateTimeParam;
@@ -46,10 +47,12 @@ import static java.util.stream.Collectors.toList;
 public class PtRouteResource {
 
     private final PtRouter ptRouter;
+    private final AdmissionControl admissionControl;
 
     @Inject
-    public PtRouteResource(PtRouter ptRouter) {
+    public PtRouteResource(PtRouter ptRouter, AdmissionControl admissionControl) {
         this.ptRouter = ptRouter;
+        this.admissionControl = admissionControl;
     }
 
     @GET
@@ -86,7 +89,10 @@ public class PtRouteResource {
         Optional.ofNullable(egressProfile).ifPresent(request::setEgressProfile);
         Optional.ofNullable(betaEgressTime).ifPresent(request::setBetaEgressTime);
 
-        GHResponse route = ptRouter.route(request);
+        GHResponse route;
+        try (AdmissionControl.Permit ignored = admissionControl.acquire(AdmissionControl.QueueType.PT)) {
+            route = ptRouter.route(request);
+        }
         return ResponsePathSerializer.jsonObject(route, true, true, false, false, stopWatch.stop().getMillis());
     }
 
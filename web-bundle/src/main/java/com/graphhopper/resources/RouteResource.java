@@ -17,13 +17,18 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.AdmissionControl;
+import com.graphhopper.http.DropwizardRoutingMetrics;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.GHRequestTransformer;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.*;
@@ -61,13 +66,20 @@ public class RouteResource {
     private final ProfileResolver profileResolver;
     private final GHRequestTransformer ghRequestTransformer;
     private final Boolean hasElevation;
+    private final AdmissionControl admissionControl;
+    private final DropwizardRoutingMetrics routingMetrics;
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
 
     @Inject
-    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer,
+                         @Named("hasElevation") Boolean hasElevation, AdmissionControl admissionControl,
+                         DropwizardRoutingMetrics routingMetrics) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.ghRequestTransformer = ghRequestTransformer;
         this.hasElevation = hasElevation;
+        this.admissionControl = admissionControl;
+        this.routingMetrics = routingMetrics;
     }
 
     @GET
@@ -132,7 +144,10 @@ public class RouteResource {
         removeLegacyParameters(request.getHints());
         request.setProfile(profileName);
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse;
+        try (AdmissionControl.Permit ignored = admissionControl.acquire(admissionControl.getRoutingQueueType(request.getHints()))) {
+            ghResponse = graphHopper.route(request);
+        }
 
         double took = sw.stop().getMillisDouble();
         String logStr = (httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")) + " " + points + ", took: " + String.format("%.1f", took) + "ms, algo: " + algoStr + ", profile: " + profileName;
@@ -153,7 +168,7 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    Response.ok(writeJson(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                             header("X-GH-Took", "" + Math.round(took)).
                             type(MediaType.APPLICATION_JSON).
                             build();
@@ -177,7 +192,10 @@ public class RouteResource {
         request.setProfile(profileResolver.resolveProfile(profileResolverHints));
         removeLegacyParameters(request.getHints());
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse;
+        try (AdmissionControl.Permit ignored = admissionControl.acquire(admissionControl.getRoutingQueueType(request.getHints()))) {
+            ghResponse = graphHopper.route(request);
+        }
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
@@ -200,13 +218,28 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+            return Response.ok(writeJson(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
                     header("X-GH-Took", "" + Math.round(took)).
                     type(MediaType.APPLICATION_JSON).
                     build();
         }
     }
 
+    /**
+     * Writes the response directly to the output stream instead of creating a JSON tree first, which keeps the memory
+     * usage low even for very long routes.
+     */
+    private StreamingOutput writeJson(GHResponse ghResponse, boolean instructions, boolean calcPoints, boolean enableElevation,
+                                      boolean pointsEncoded, double took) {
+        return output -> {
+            StopWatch sw = new StopWatch().start();
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output)) {
+                ResponsePathSerializer.writeJson(gen, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            }
+            routingMetrics.serialization(sw.stop().getNanos());
+        };
+    }
+
     public static void removeLegacyParameters(PMap hints) {
         // these parameters should only be used to resolve the profile, but should not be passed to GraphHopper
         hints.remove("weighting");
@@ -2,6 +2,7 @@ package com.graphhopper.resources;
 
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
+import com.graphhopper.http.AdmissionControl;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
@@ -57,12 +58,14 @@ public class SPTResource {
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final EncodingManager encodingManager;
+    private final AdmissionControl admissionControl;
 
     @Inject
-    public SPTResource(GraphHopper graphHopper, ProfileResolver profileResolver, EncodingManager encodingManager) {
+    public SPTResource(GraphHopper graphHopper, ProfileResolver profileResolver, EncodingManager encodingManager, AdmissionControl admissionControl) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.encodingManager = encodingManager;
+        this.admissionControl = admissionControl;
     }
 
     // Annotating this as application/json because errors come out as json, and
@@ -127,7 +130,9 @@ public class SPTResource {
         }
 
         StreamingOutput out = output -> {
-            try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
+            // the search runs while the response is written, so we wait for the permit here
+            try (AdmissionControl.Permit ignored = admissionControl.acquire(AdmissionControl.QueueType.ISOCHRONE);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(output, Helper.UTF_CS))) {
                 StringBuilder sb = new StringBuilder();
                 for (String col : columns) {
                     if (sb.length() > 0)
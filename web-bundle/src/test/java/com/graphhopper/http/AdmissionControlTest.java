@@ -0,0 +1,107 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.http.AdmissionControl.QueueType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    @Test
+    public void rejectWhenQueueIsFull() {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("admission.flex.max_concurrent_requests", 1).
+                putObject("admission.flex.max_queued_requests", 0);
+        MetricRegistry metrics = new MetricRegistry();
+        AdmissionControl admissionControl = new AdmissionControl(new GraphHopper(), config, metrics);
+
+        AdmissionControl.Permit permit = admissionControl.acquire(FLEX);
+        assertEquals(1, ((Gauge<?>) metrics.getGauges().get("admission.flex.active")).getValue());
+        WebApplicationException ex = assertThrows(WebApplicationException.class, () -> admissionControl.acquire(FLEX));
+        assertEquals(503, ex.getResponse().getStatus());
+        assertEquals(1, metrics.meter("admission.flex.rejected").getCount());
+
+        // the other queues are not affected
+        admissionControl.acquire(CH).close();
+        admissionControl.acquire(ISOCHRONE).close();
+
+        permit.close();
+        assertEquals(0, ((Gauge<?>) metrics.getGauges().get("admission.flex.active")).getValue());
+        admissionControl.acquire(FLEX).close();
+        assertEquals(1, metrics.meter("admission.flex.rejected").getCount());
+    }
+
+    @Test
+    public void queueTime() {
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("admission.ch.max_concurrent_requests", 1).
+                putObject("admission.ch.max_queue_time", 50);
+        MetricRegistry metrics = new MetricRegistry();
+        AdmissionControl admissionControl = new AdmissionControl(new GraphHopper(), config, metrics);
+
+        AdmissionControl.Permit permit = admissionControl.acquire(CH);
+        // the queue is not full, but the request waits too long
+        WebApplicationException ex = assertThrows(WebApplicationException.class, () -> admissionControl.acquire(CH));
+        assertEquals(503, ex.getResponse().getStatus());
+        assertEquals(1, metrics.meter("admission.ch.rejected").getCount());
+        assertEquals(2, metrics.timer("admission.ch.queue_time").getCount());
+        permit.close();
+    }
+
+    @Test
+    public void waitForPermit() throws Exception {
+        GraphHopperConfig config = new GraphHopperConfig().putObject("admission.lm.max_concurrent_requests", 1);
+        MetricRegistry metrics = new MetricRegistry();
+        AdmissionControl admissionControl = new AdmissionControl(new GraphHopper(), config, metrics);
+
+        AdmissionControl.Permit permit = admissionControl.acquire(LM);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try (AdmissionControl.Permit ignored = admissionControl.acquire(LM)) {
+                acquired.countDown();
+            }
+        });
+        thread.start();
+        while (((Gauge<?>) metrics.getGauges().get("admission.lm.queued")).getValue().equals(0))
+            Thread.sleep(1);
+        assertEquals(1, acquired.getCount());
+        permit.close();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        thread.join();
+        assertEquals(0, metrics.meter("admission.lm.rejected").getCount());
+    }
+
+    @Test
+    public void disabledByDefault() {
+        MetricRegistry metrics = new MetricRegistry();
+        AdmissionControl admissionControl = new AdmissionControl(new GraphHopper(), new GraphHopperConfig(), metrics);
+        for (int i = 0; i < 100; i++)
+            admissionControl.acquire(PT);
+        assertTrue(metrics.getMetrics().isEmpty());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GHMatrixSyncRequester;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.application.util.TestUtils;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.vehicles", "car").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR).
+                putObject("routing.matrix.max_size", 20).
+                setProfiles(Arrays.asList(new Profile("car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Arrays.asList(new CHProfile("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private static final List<GHPoint> POINTS = Arrays.asList(
+            new GHPoint(42.5093, 1.5274), new GHPoint(42.5398, 1.5153), new GHPoint(42.5589, 1.5895), new GHPoint(42.4685, 1.4933));
+
+    private MatrixResponse matrix(GHMRequest request) {
+        return new GHMatrixSyncRequester(TestUtils.clientUrl(app, "/matrix")).route(request);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSameAsRoute(boolean disableCH) {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setPoints(POINTS);
+        request.setOutArrays(Arrays.asList("weights", "times", "distances"));
+        request.putHint("ch.disable", disableCH);
+        MatrixResponse rsp = matrix(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+
+        GraphHopperWeb routeClient = new GraphHopperWeb(TestUtils.clientUrl(app, "/route"));
+        for (int from = 0; from < POINTS.size(); from++) {
+            for (int to = 0; to < POINTS.size(); to++) {
+                GHResponse route = routeClient.route(new GHRequest(POINTS.get(from), POINTS.get(to)).setProfile("car"));
+                assertFalse(route.hasErrors(), route.getErrors().toString());
+                assertTrue(rsp.isConnected(from, to));
+                assertEquals(route.getBest().getDistance(), rsp.getDistance(from, to), 1, from + "->" + to);
+                assertEquals(route.getBest().getTime(), rsp.getTime(from, to), 1000, from + "->" + to);
+                assertEquals(route.getBest().getRouteWeight(), rsp.getWeight(from, to), 0.1, from + "->" + to);
+            }
+        }
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setFromPoints(POINTS.subList(0, 1));
+        request.setToPoints(POINTS);
+        request.setOutArrays(Arrays.asList("distances"));
+        MatrixResponse rsp = matrix(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(0, rsp.getDistance(0, 0));
+        assertEquals(9320, rsp.getDistance(0, 1), 100);
+    }
+
+    @Test
+    public void testPointNotFound() {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setPoints(Arrays.asList(POINTS.get(0), new GHPoint(43.5, 1.5), POINTS.get(1)));
+        request.setOutArrays(Arrays.asList("weights", "distances"));
+        MatrixResponse rsp = matrix(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("Cannot find from_points 1"), rsp.getErrors().toString());
+
+        request.setFailFast(false);
+        rsp = matrix(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(Arrays.asList(1), rsp.getInvalidFromPoints());
+        assertEquals(Arrays.asList(1), rsp.getInvalidToPoints());
+        assertFalse(rsp.isConnected(0, 1));
+        assertEquals(Double.MAX_VALUE, rsp.getDistance(1, 2));
+        assertTrue(rsp.isConnected(0, 2));
+        assertEquals(9320, rsp.getDistance(0, 2), 100);
+    }
+
+    @Test
+    public void testUnknownProfile() {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("bike");
+        request.setPoints(POINTS);
+        request.setOutArrays(Arrays.asList("weights"));
+        MatrixResponse rsp = matrix(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("The requested profile 'bike' does not exist"), rsp.getErrors().toString());
+    }
+
+    @Test
+    public void testTooLarge() {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setFromPoints(POINTS);
+        request.setToPoints(Arrays.asList(POINTS.get(0), POINTS.get(1), POINTS.get(2), POINTS.get(3), POINTS.get(0), POINTS.get(1)));
+        request.setOutArrays(Arrays.asList("weights"));
+        MatrixResponse rsp = matrix(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("the maximum number of entries is 20"), rsp.getErrors().toString());
+    }
+
+    @Test
+    public void testUnknownOutArray() {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setPoints(POINTS);
+        request.setOutArrays(Arrays.asList("weights", "speeds"));
+        MatrixResponse rsp = matrix(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().get(0).getMessage().contains("Unknown out_arrays entry 'speeds'"), rsp.getErrors().toString());
+    }
+}
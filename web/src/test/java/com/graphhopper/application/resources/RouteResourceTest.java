@@ -113,6 +113,22 @@ public class RouteResourceTest {
         assertTrue(distance < 9500, "distance wasn't correct:" + distance);
     }
 
+    @Test
+    public void testMetrics() {
+        for (String chDisable : Arrays.asList("false", "true")) {
+            final Response response = clientTarget(app, "/route?profile=my_car&ch.disable=" + chDisable + "&" +
+                    "point=42.554851,1.536198&point=42.510071,1.548128").request().buildGet().invoke();
+            assertEquals(200, response.getStatus());
+        }
+
+        JsonNode metrics = app.client().target("http://localhost:" + app.getAdminPort() + "/metrics").request().get(JsonNode.class);
+        for (String timer : Arrays.asList("routing.snapping", "routing.path_calculation.ch", "routing.path_calculation.flex",
+                "routing.path_merging", "routing.serialization"))
+            assertTrue(metrics.get("timers").get(timer).get("count").asLong() > 0, timer);
+        assertTrue(metrics.get("histograms").get("routing.visited_nodes.ch.default").get("max").asLong() > 0);
+        assertTrue(metrics.get("histograms").get("routing.visited_nodes.flex.default").get("max").asLong() > 0);
+    }
+
     @Test
     public void testBasicQuerySamePoint() {
         final Response response = clientTarget(app, "/route?profile=my_car&" +